@@ -0,0 +1,88 @@
+package info.bitrich.xchangestream.service.backpressure;
+
+import io.reactivex.BackpressureOverflowStrategy;
+import io.reactivex.BackpressureStrategy;
+import io.reactivex.Flowable;
+import io.reactivex.Observable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Defines what happens with messages that arrive faster than the subscriber of a {@link Flowable} requests them.
+ * <p>
+ * Streaming services apply the strategy per channel, before messages are adapted to DTOs, so messages that are
+ * dropped are never adapted. How much work is saved depends on the service: Pusher delivers the payload of every
+ * event as raw text, which is dropped before it is parsed at all. Netty services must parse the frame to find its
+ * channel, so the strategy applies to the parsed message. In routing mode of {@code JsonNettyStreamingService} the
+ * payload is then already bound to its DTO, dropping saves only the adapting.
+ * </p>
+ */
+public final class OverflowStrategy {
+    private static final Logger LOG = LoggerFactory.getLogger(OverflowStrategy.class);
+
+    /**
+     * Keeps only the latest message, older messages not requested yet are dropped. Suitable for order book
+     * snapshots and tickers where only the current state matters.
+     */
+    public static final OverflowStrategy LATEST = new OverflowStrategy(BackpressureStrategy.LATEST, 0);
+
+    /**
+     * Drops new messages while the subscriber has not requested any.
+     */
+    public static final OverflowStrategy DROP = new OverflowStrategy(BackpressureStrategy.DROP, 0);
+
+    /**
+     * Buffers all messages without limit, same as using {@link Observable}.
+     */
+    public static final OverflowStrategy BUFFER = new OverflowStrategy(BackpressureStrategy.BUFFER, 0);
+
+    /**
+     * Signals {@link io.reactivex.exceptions.MissingBackpressureException} when the subscriber cannot keep up.
+     */
+    public static final OverflowStrategy ERROR = new OverflowStrategy(BackpressureStrategy.ERROR, 0);
+
+    private final BackpressureStrategy strategy;
+    private final int capacity;
+
+    private OverflowStrategy(BackpressureStrategy strategy, int capacity) {
+        this.strategy = strategy;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Buffers up to {@code capacity} messages, the oldest buffered message is dropped when the buffer is full.
+     * Suitable for trades where recent history matters but memory must stay bounded.
+     */
+    public static OverflowStrategy dropOldest(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive.");
+        }
+        return new OverflowStrategy(BackpressureStrategy.MISSING, capacity);
+    }
+
+    /**
+     * Whether messages not requested yet are queued. A stream emitting the same mutable instance repeatedly must be
+     * copied before such strategy is applied, otherwise the queue holds references to its current state only.
+     */
+    public boolean isQueueing() {
+        return strategy == BackpressureStrategy.BUFFER || strategy == BackpressureStrategy.MISSING;
+    }
+
+    /**
+     * Converts the stream to {@link Flowable} that handles overflow according to the strategy.
+     */
+    public <T> Flowable<T> apply(Observable<T> source) {
+        if (strategy != BackpressureStrategy.MISSING) {
+            return source.toFlowable(strategy);
+        }
+        return source.toFlowable(BackpressureStrategy.MISSING)
+                .onBackpressureBuffer(capacity,
+                        () -> LOG.debug("Buffer of {} messages is full, dropping the oldest one.", capacity),
+                        BackpressureOverflowStrategy.DROP_OLDEST);
+    }
+
+    @Override
+    public String toString() {
+        return strategy == BackpressureStrategy.MISSING ? "DROP_OLDEST(" + capacity + ")" : strategy.name();
+    }
+}
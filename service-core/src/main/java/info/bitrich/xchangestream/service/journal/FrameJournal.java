@@ -0,0 +1,30 @@
+package info.bitrich.xchangestream.service.journal;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Sink of raw frames received by streaming services, see {@link MappedFrameJournal}.
+ * <p>
+ * Frames are appended on the I/O thread that received them, so implementations must not block and must not keep
+ * the passed buffer after the method returns.
+ * </p>
+ */
+public interface FrameJournal {
+
+    /**
+     * Appends the frame to the journal.
+     *
+     * @param receiveNanos Value of {@link System#nanoTime()} when the frame was received.
+     * @param channel      Channel the frame was received on.
+     * @param payload      Raw content of the frame, from position to limit. Position of the buffer is not changed.
+     */
+    void append(long receiveNanos, String channel, ByteBuffer payload);
+
+    /**
+     * Appends the frame received as text, encoded in UTF-8.
+     */
+    default void append(long receiveNanos, String channel, String payload) {
+        append(receiveNanos, channel, ByteBuffer.wrap(payload.getBytes(StandardCharsets.UTF_8)));
+    }
+}
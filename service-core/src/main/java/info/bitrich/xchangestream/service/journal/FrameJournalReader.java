@@ -0,0 +1,151 @@
+package info.bitrich.xchangestream.service.journal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+
+import static info.bitrich.xchangestream.service.journal.MappedFrameJournal.*;
+
+/**
+ * Reads frames written by {@link MappedFrameJournal}, segment after segment in the order they were written.
+ * <p>
+ * Segments that are still being written can be read as well, reading stops at the last complete record.
+ * </p>
+ */
+public class FrameJournalReader implements Iterator<JournalRecord>, Closeable {
+    private final Iterator<Path> segments;
+    private final Map<Integer, String> channels = new HashMap<>();
+    private MappedByteBuffer segment;
+    private long epochNanos;
+    private long headerNanos;
+    private JournalRecord next;
+
+    public FrameJournalReader(Path directory) throws IOException {
+        segments = listSegments(directory).iterator();
+    }
+
+    /**
+     * Reads all frames of the journal in the directory.
+     */
+    public static List<JournalRecord> readAll(Path directory) throws IOException {
+        List<JournalRecord> records = new ArrayList<>();
+        try (FrameJournalReader reader = new FrameJournalReader(directory)) {
+            reader.forEachRemaining(records::add);
+        }
+        return records;
+    }
+
+    /**
+     * Returns segment files of the journal in the directory, ordered as they were written.
+     */
+    static List<Path> listSegments(Path directory) throws IOException {
+        List<Path> paths = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return paths;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            stream.forEach(paths::add);
+        }
+        Collections.sort(paths);
+        return paths;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null) {
+            try {
+                next = readNext();
+            } catch (IOException e) {
+                throw new IllegalStateException("Cannot read journal segment.", e);
+            }
+        }
+        return next != null;
+    }
+
+    @Override
+    public JournalRecord next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        JournalRecord record = next;
+        next = null;
+        return record;
+    }
+
+    private JournalRecord readNext() throws IOException {
+        while (true) {
+            if (segment == null || !hasRecord()) {
+                if (!openNextSegment()) {
+                    return null;
+                }
+                continue;
+            }
+
+            int length = segment.getInt();
+            byte type = segment.get();
+            int channelId = segment.getInt();
+            if (type == CHANNEL) {
+                byte[] name = new byte[length - 1 - 4];
+                segment.get(name);
+                channels.put(channelId, new String(name, StandardCharsets.UTF_8));
+            } else if (type == FRAME) {
+                long receiveNanos = segment.getLong();
+                byte[] payload = new byte[length - 1 - 4 - 8];
+                segment.get(payload);
+                return new JournalRecord(receiveNanos, epochNanos + receiveNanos - headerNanos,
+                        channels.get(channelId), payload);
+            } else {
+                throw new IOException("Unknown record type " + type + ".");
+            }
+        }
+    }
+
+    private boolean hasRecord() {
+        if (segment.remaining() < 4) {
+            return false;
+        }
+        int length = segment.getInt(segment.position());
+        return length > 0 && segment.remaining() >= 4 + length;
+    }
+
+    private boolean openNextSegment() throws IOException {
+        if (!segments.hasNext()) {
+            return false;
+        }
+        Path path = segments.next();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (segment.remaining() < HEADER_SIZE || segment.getInt() != MAGIC) {
+            throw new IOException(path + " is not a journal segment.");
+        }
+        int version = segment.getInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported version " + version + " of journal segment " + path + ".");
+        }
+        epochNanos = TimeUnit.MILLISECONDS.toNanos(segment.getLong());
+        headerNanos = segment.getLong();
+        channels.clear();
+        return true;
+    }
+
+    @Override
+    public void close() {
+        // Mapped segments are unmapped once garbage collected.
+        segment = null;
+    }
+}
@@ -0,0 +1,64 @@
+package info.bitrich.xchangestream.service.journal;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Frame read from the journal by {@link FrameJournalReader}.
+ */
+public class JournalRecord {
+    private final long receiveNanos;
+    private final long epochNanos;
+    private final String channel;
+    private final byte[] payload;
+
+    public JournalRecord(long receiveNanos, long epochNanos, String channel, byte[] payload) {
+        this.receiveNanos = receiveNanos;
+        this.epochNanos = epochNanos;
+        this.channel = channel;
+        this.payload = payload;
+    }
+
+    /**
+     * Value of {@link System#nanoTime()} when the frame was received. Comparable between records of the same
+     * process only.
+     */
+    public long getReceiveNanos() {
+        return receiveNanos;
+    }
+
+    /**
+     * Wall clock time of receiving the frame in nanoseconds since epoch, derived from the segment header.
+     */
+    public long getEpochNanos() {
+        return epochNanos;
+    }
+
+    public long getEpochMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(epochNanos);
+    }
+
+    public String getChannel() {
+        return channel;
+    }
+
+    public byte[] getPayload() {
+        return payload;
+    }
+
+    /**
+     * Payload decoded as UTF-8 text.
+     */
+    public String getText() {
+        return new String(payload, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public String toString() {
+        return "JournalRecord{" +
+                "receiveNanos=" + receiveNanos +
+                ", channel='" + channel + '\'' +
+                ", payload=" + getText() +
+                '}';
+    }
+}
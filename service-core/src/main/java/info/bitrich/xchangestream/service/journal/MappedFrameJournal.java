@@ -0,0 +1,252 @@
+package info.bitrich.xchangestream.service.journal;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Append-only journal of raw frames stored in memory-mapped segment files.
+ * <p>
+ * {@link #append} only copies the frame and offers it to a bounded queue, so the I/O thread never waits for the
+ * disk. A single writer thread drains the queue in batches into the mapped segment. When the queue is full the
+ * frame is dropped and counted in {@link #getDroppedCount()}. Written data survive crash of the process as they live
+ * in the page cache, {@link #close()} forces them to the disk.
+ * </p>
+ * <p>
+ * Segments are named {@code frames-00000.journal}, {@code frames-00001.journal}... and are self-contained: every
+ * segment starts with a header holding the wall clock and {@link System#nanoTime()} taken at the same moment, and
+ * defines channel ids before they are used. Layout of the segment, all numbers big-endian:
+ * </p>
+ * <pre>
+ * header:  int magic, int version, long epochMillis, long nanoTime
+ * channel: int length, byte 1, int channelId, UTF-8 channel name
+ * frame:   int length, byte 2, int channelId, long receiveNanos, payload
+ * </pre>
+ * <p>
+ * Length covers everything after the length field. Length 0 marks the end of data in the segment. Segments are read
+ * by {@link FrameJournalReader}.
+ * </p>
+ */
+public class MappedFrameJournal implements FrameJournal, Closeable {
+    private static final Logger LOG = LoggerFactory.getLogger(MappedFrameJournal.class);
+
+    static final int MAGIC = 0x584A524E;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 24;
+    static final byte CHANNEL = 1;
+    static final byte FRAME = 2;
+    static final String SEGMENT_PREFIX = "frames-";
+    static final String SEGMENT_SUFFIX = ".journal";
+
+    public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+    public static final int DEFAULT_QUEUE_CAPACITY = 64 * 1024;
+
+    private static final int MAX_BATCH = 1024;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final BlockingQueue<Frame> queue;
+    private final AtomicLong dropped = new AtomicLong();
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    // Owned by the writer thread.
+    private final Map<String, Integer> channelIds = new HashMap<>();
+    private int segmentIndex;
+    private MappedByteBuffer segment;
+
+    public MappedFrameJournal(Path directory) throws IOException {
+        this(directory, DEFAULT_SEGMENT_SIZE, DEFAULT_QUEUE_CAPACITY);
+    }
+
+    /**
+     * @param directory     Directory of the segment files, created when it does not exist. Existing segments are
+     *                      kept, new segments are numbered after them.
+     * @param segmentSize   Size of one segment file in bytes. Frames larger than the segment are dropped.
+     * @param queueCapacity Number of frames waiting for the writer thread before new frames are dropped.
+     */
+    public MappedFrameJournal(Path directory, int segmentSize, int queueCapacity) throws IOException {
+        if (segmentSize <= HEADER_SIZE) {
+            throw new IllegalArgumentException("Segment size must be larger than the header.");
+        }
+        this.directory = Files.createDirectories(directory);
+        this.segmentSize = segmentSize;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.segmentIndex = FrameJournalReader.listSegments(directory).size();
+        openSegment();
+
+        writer = new Thread(this::write, "frame-journal-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @Override
+    public void append(long receiveNanos, String channel, ByteBuffer payload) {
+        if (!running) {
+            return;
+        }
+        byte[] bytes = new byte[payload.remaining()];
+        payload.duplicate().get(bytes);
+        if (!queue.offer(new Frame(receiveNanos, channel, bytes))) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    /**
+     * Number of frames that were not written because the writer thread could not keep up or the frame did not fit
+     * into the segment.
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Writes frames already appended and stops the writer thread. Frames appended afterwards are ignored.
+     */
+    @Override
+    public void close() throws IOException {
+        if (!running) {
+            return;
+        }
+        running = false;
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while closing the journal.", e);
+        }
+    }
+
+    private void write() {
+        List<Frame> batch = new ArrayList<>(MAX_BATCH);
+        try {
+            while (running || !queue.isEmpty()) {
+                Frame first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                writeFrame(first);
+                queue.drainTo(batch, MAX_BATCH);
+                for (Frame frame : batch) {
+                    writeFrame(frame);
+                }
+                batch.clear();
+            }
+            segment.force();
+        } catch (InterruptedException e) {
+            LOG.warn("Journal writer interrupted, frames waiting in the queue are lost.");
+        } catch (IOException e) {
+            running = false;
+            LOG.error("Journal in {} failed, frames are no longer recorded.", directory, e);
+        }
+    }
+
+    private void writeFrame(Frame frame) throws IOException {
+        int length = 1 + 4 + 8 + frame.payload.length;
+        byte[] name = channelIds.containsKey(frame.channel) ? null : frame.channel.getBytes(StandardCharsets.UTF_8);
+        // Channel definition might be needed in the new segment even if the channel is known now.
+        int definitionSize = 4 + 1 + 4 + (name == null ? frame.channel.length() * 3 : name.length);
+        if (4 + length + definitionSize + 4 > segmentSize - HEADER_SIZE) {
+            LOG.warn("Frame of {} bytes does not fit into the journal segment, dropping it.", frame.payload.length);
+            dropped.incrementAndGet();
+            return;
+        }
+
+        ensureCapacity(4 + length + (name == null ? 0 : definitionSize));
+        Integer channelId = channelIds.get(frame.channel);
+        if (channelId == null) {
+            channelId = defineChannel(frame.channel);
+        }
+        int start = skipLength();
+        segment.put(FRAME);
+        segment.putInt(channelId);
+        segment.putLong(frame.receiveNanos);
+        segment.put(frame.payload);
+        commit(start, length);
+    }
+
+    private int defineChannel(String channel) {
+        byte[] name = channel.getBytes(StandardCharsets.UTF_8);
+        int channelId = channelIds.size();
+        channelIds.put(channel, channelId);
+        int start = skipLength();
+        segment.put(CHANNEL);
+        segment.putInt(channelId);
+        segment.put(name);
+        commit(start, 1 + 4 + name.length);
+        return channelId;
+    }
+
+    private int skipLength() {
+        int start = segment.position();
+        segment.position(start + 4);
+        return start;
+    }
+
+    /**
+     * Length is written after the record, so readers of the segment being written never see partial records.
+     */
+    private void commit(int start, int length) {
+        segment.putInt(start, length);
+    }
+
+    /**
+     * Rolls over to a new segment unless there is enough space for the record and the end marker in the current one.
+     */
+    private void ensureCapacity(int recordSize) throws IOException {
+        if (segment.remaining() >= recordSize + 4) {
+            return;
+        }
+        segment.force();
+        segmentIndex++;
+        openSegment();
+        channelIds.clear();
+    }
+
+    private void openSegment() throws IOException {
+        Path path = directory.resolve(String.format("%s%05d%s", SEGMENT_PREFIX, segmentIndex, SEGMENT_SUFFIX));
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // Mapping stays valid after the channel is closed.
+            segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        }
+        segment.putInt(MAGIC);
+        segment.putInt(VERSION);
+        segment.putLong(System.currentTimeMillis());
+        segment.putLong(System.nanoTime());
+        LOG.info("Journaling frames to {}.", path);
+    }
+
+    private static final class Frame {
+        private final long receiveNanos;
+        private final String channel;
+        private final byte[] payload;
+
+        private Frame(long receiveNanos, String channel, byte[] payload) {
+            this.receiveNanos = receiveNanos;
+            this.channel = channel;
+            this.payload = payload;
+        }
+    }
+}
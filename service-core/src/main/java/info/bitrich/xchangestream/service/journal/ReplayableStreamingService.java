@@ -0,0 +1,29 @@
+package info.bitrich.xchangestream.service.journal;
+
+/**
+ * Streaming service that can receive frames recorded by its {@link FrameJournal} instead of frames from the network.
+ * Recorded frames go through the same parsing and routing as live frames, so subscribers get the same messages.
+ */
+public interface ReplayableStreamingService {
+
+    /**
+     * Sets the journal that records every incoming frame, or null to stop recording.
+     */
+    void setJournal(FrameJournal journal);
+
+    /**
+     * Switches the service to offline mode. Connecting then completes without opening any connection, subscribe
+     * and unsubscribe messages are not sent and subscribers receive only frames passed to {@link #replayFrame}.
+     * Must be called before connecting.
+     */
+    void setOffline(boolean offline);
+
+    /**
+     * Passes the recorded frame to subscribers as if it was received from the network. Frames recorded on channels
+     * this service does not know are ignored.
+     *
+     * @param channel Channel the frame was recorded on.
+     * @param payload Recorded content of the frame.
+     */
+    void replayFrame(String channel, byte[] payload);
+}
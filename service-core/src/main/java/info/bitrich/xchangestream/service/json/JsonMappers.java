@@ -0,0 +1,93 @@
+package info.bitrich.xchangestream.service.json;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.node.POJONode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Shared {@link ObjectMapper} of all streaming services and adapters, with readers and writers cached per type.
+ * <p>
+ * Mapper, readers and writers are thread-safe and immutable once created. Sharing them keeps Jackson's serializer and
+ * deserializer caches warm, so a message is not paying for the introspection of its DTO. Unknown properties are
+ * ignored, exchanges add fields to their messages without notice.
+ * </p>
+ * <p>
+ * When jackson-module-afterburner is on the classpath, it is registered to replace reflection with generated
+ * bytecode. Set system property {@value #AFTERBURNER_PROPERTY} to false to turn it off.
+ * </p>
+ */
+public final class JsonMappers {
+    public static final String AFTERBURNER_PROPERTY = "xchangestream.jackson.afterburner";
+
+    private static final Logger LOG = LoggerFactory.getLogger(JsonMappers.class);
+    private static final String AFTERBURNER_MODULE = "com.fasterxml.jackson.module.afterburner.AfterburnerModule";
+
+    private static final ObjectMapper MAPPER = createMapper();
+    private static final ConcurrentMap<JavaType, ObjectReader> readers = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<JavaType, ObjectWriter> writers = new ConcurrentHashMap<>();
+
+    private JsonMappers() {
+    }
+
+    /**
+     * Shared mapper. Do not reconfigure it, create a copy with {@link ObjectMapper#copy()} instead.
+     */
+    public static ObjectMapper mapper() {
+        return MAPPER;
+    }
+
+    public static ObjectReader reader(Class<?> type) {
+        return reader(MAPPER.constructType(type));
+    }
+
+    public static ObjectReader reader(TypeReference<?> type) {
+        return reader(MAPPER.getTypeFactory().constructType(type));
+    }
+
+    public static ObjectReader reader(JavaType type) {
+        return readers.computeIfAbsent(type, MAPPER::readerFor);
+    }
+
+    public static ObjectWriter writer(Class<?> type) {
+        return writers.computeIfAbsent(MAPPER.constructType(type), MAPPER::writerFor);
+    }
+
+    /**
+     * Converts the tree to the DTO with the cached reader of its type. Payloads already deserialized by the streaming
+     * service are passed as {@link POJONode} and returned as they are.
+     */
+    public static <T> T treeToValue(JsonNode node, Class<T> type) throws IOException {
+        if (node instanceof POJONode && type.isInstance(((POJONode) node).getPojo())) {
+            return type.cast(((POJONode) node).getPojo());
+        }
+        return reader(type).readValue(node);
+    }
+
+    private static ObjectMapper createMapper() {
+        ObjectMapper mapper = new ObjectMapper()
+                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        if (Boolean.parseBoolean(System.getProperty(AFTERBURNER_PROPERTY, "true"))) {
+            try {
+                mapper.registerModule((Module) Class.forName(AFTERBURNER_MODULE).newInstance());
+                LOG.debug("Jackson Afterburner registered.");
+            } catch (ClassNotFoundException e) {
+                LOG.debug("Jackson Afterburner is not on the classpath.");
+            } catch (ReflectiveOperationException | LinkageError e) {
+                LOG.warn("Cannot register Jackson Afterburner: {}", e.toString());
+            }
+        }
+        return mapper;
+    }
+}
@@ -0,0 +1,59 @@
+package info.bitrich.xchangestream.service.metrics;
+
+/**
+ * Timestamps of the frame the current thread is processing.
+ * <p>
+ * Streaming services set them when a frame arrives and once it is parsed, and clear them once the frame is passed
+ * to subscribers. Messages are passed to subscribers synchronously on the same thread, so market data services read
+ * them while adapting the message, see {@code info.bitrich.xchangestream.core.metrics.StreamingMetrics}. Zero
+ * receive time means no frame is being processed.
+ * </p>
+ */
+public final class FrameContext {
+    private static final ThreadLocal<FrameContext> CURRENT = ThreadLocal.withInitial(FrameContext::new);
+
+    private long receiveNanos;
+    private long parsedNanos;
+
+    private FrameContext() {
+    }
+
+    public static FrameContext current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Marks arrival of a new frame.
+     *
+     * @param nanos Value of {@link System#nanoTime()} when the frame was received.
+     */
+    public void received(long nanos) {
+        receiveNanos = nanos;
+        parsedNanos = nanos;
+    }
+
+    /**
+     * Marks the frame parsed by the service.
+     *
+     * @param nanos Value of {@link System#nanoTime()} when the frame was parsed.
+     */
+    public void parsed(long nanos) {
+        parsedNanos = nanos;
+    }
+
+    /**
+     * Marks the frame processed, code running on the thread afterwards does not see its timestamps.
+     */
+    public void clear() {
+        receiveNanos = 0;
+        parsedNanos = 0;
+    }
+
+    public long getReceiveNanos() {
+        return receiveNanos;
+    }
+
+    public long getParsedNanos() {
+        return parsedNanos;
+    }
+}
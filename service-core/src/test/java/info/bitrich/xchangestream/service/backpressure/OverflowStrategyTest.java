@@ -0,0 +1,42 @@
+package info.bitrich.xchangestream.service.backpressure;
+
+import io.reactivex.subjects.PublishSubject;
+import io.reactivex.subscribers.TestSubscriber;
+import org.junit.Test;
+
+public class OverflowStrategyTest {
+
+    @Test
+    public void testLatestKeepsOnlyNewestMessage() throws Exception {
+        PublishSubject<Integer> source = PublishSubject.create();
+        TestSubscriber<Integer> test = OverflowStrategy.LATEST.apply(source).test(0);
+
+        source.onNext(1);
+        source.onNext(2);
+        source.onNext(3);
+        test.request(1);
+        test.assertValues(3);
+
+        source.onNext(4);
+        test.request(1);
+        test.assertValues(3, 4);
+    }
+
+    @Test
+    public void testDropOldestKeepsBoundedBuffer() throws Exception {
+        PublishSubject<Integer> source = PublishSubject.create();
+        TestSubscriber<Integer> test = OverflowStrategy.dropOldest(2).apply(source).test(0);
+
+        for (int i = 1; i <= 5; i++) {
+            source.onNext(i);
+        }
+        test.request(10);
+        test.assertValues(4, 5);
+        test.assertNoErrors();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDropOldestWithoutCapacity() throws Exception {
+        OverflowStrategy.dropOldest(0);
+    }
+}
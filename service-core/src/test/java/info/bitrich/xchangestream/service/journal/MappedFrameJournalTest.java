@@ -0,0 +1,97 @@
+package info.bitrich.xchangestream.service.journal;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MappedFrameJournalTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testReadsFramesInOrder() throws Exception {
+        Path directory = folder.getRoot().toPath().resolve("journal");
+        try (MappedFrameJournal journal = new MappedFrameJournal(directory)) {
+            journal.append(1, "trades", "{\"id\":1}");
+            journal.append(2, "orderbook", "{\"bids\":[]}");
+            ByteBuffer buffer = ByteBuffer.wrap("xx{\"id\":2}".getBytes(StandardCharsets.UTF_8));
+            buffer.position(2);
+            journal.append(3, "trades", buffer);
+            // Buffer of the caller is left untouched.
+            assertThat(buffer.position()).isEqualTo(2);
+        }
+
+        List<JournalRecord> records = FrameJournalReader.readAll(directory);
+        assertThat(records).extracting(JournalRecord::getChannel).containsExactly("trades", "orderbook", "trades");
+        assertThat(records).extracting(JournalRecord::getText).containsExactly("{\"id\":1}", "{\"bids\":[]}", "{\"id\":2}");
+        assertThat(records).extracting(JournalRecord::getReceiveNanos).containsExactly(1L, 2L, 3L);
+        assertThat(records.get(0).getEpochNanos() + 1).isEqualTo(records.get(1).getEpochNanos());
+    }
+
+    @Test
+    public void testWallClockIsDerivedFromHeader() throws Exception {
+        long before = System.currentTimeMillis();
+        try (MappedFrameJournal journal = new MappedFrameJournal(folder.getRoot().toPath())) {
+            journal.append(System.nanoTime(), "trades", "{}");
+        }
+        long after = System.currentTimeMillis();
+
+        JournalRecord record = FrameJournalReader.readAll(folder.getRoot().toPath()).get(0);
+        assertThat(record.getEpochMillis()).isBetween(before - 1, after + 1);
+    }
+
+    @Test
+    public void testRollsOverToNewSegment() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        try (MappedFrameJournal journal = new MappedFrameJournal(directory, 256, 1024)) {
+            for (int i = 0; i < 100; i++) {
+                journal.append(i, i % 2 == 0 ? "even" : "odd", "frame " + i);
+            }
+            assertThat(journal.getDroppedCount()).isZero();
+        }
+
+        assertThat(FrameJournalReader.listSegments(directory).size()).isGreaterThan(1);
+        List<JournalRecord> records = FrameJournalReader.readAll(directory);
+        assertThat(records).hasSize(100);
+        for (int i = 0; i < 100; i++) {
+            assertThat(records.get(i).getText()).isEqualTo("frame " + i);
+            // Channels are defined again in every segment.
+            assertThat(records.get(i).getChannel()).isEqualTo(i % 2 == 0 ? "even" : "odd");
+        }
+    }
+
+    @Test
+    public void testReopenedJournalAppendsNewSegment() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        try (MappedFrameJournal journal = new MappedFrameJournal(directory)) {
+            journal.append(1, "trades", "first");
+        }
+        try (MappedFrameJournal journal = new MappedFrameJournal(directory)) {
+            journal.append(2, "trades", "second");
+        }
+
+        assertThat(FrameJournalReader.readAll(directory)).extracting(JournalRecord::getText)
+                .containsExactly("first", "second");
+    }
+
+    @Test
+    public void testDropsFrameLargerThanSegment() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        try (MappedFrameJournal journal = new MappedFrameJournal(directory, 128, 1024)) {
+            journal.append(1, "trades", new String(new char[200]).replace('\0', 'x'));
+            journal.append(2, "trades", "small");
+            journal.close();
+            assertThat(journal.getDroppedCount()).isEqualTo(1);
+        }
+
+        assertThat(FrameJournalReader.readAll(directory)).extracting(JournalRecord::getText).containsExactly("small");
+    }
+}
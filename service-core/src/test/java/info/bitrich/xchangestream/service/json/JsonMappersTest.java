@@ -0,0 +1,58 @@
+package info.bitrich.xchangestream.service.json;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.POJONode;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class JsonMappersTest {
+
+    public static class Price {
+        public String currency;
+        public double value;
+    }
+
+    @Test
+    public void testReadersAndWritersAreCached() {
+        assertThat(JsonMappers.reader(Price.class)).isSameAs(JsonMappers.reader(Price.class));
+        assertThat(JsonMappers.reader(new TypeReference<List<Price>>() {
+        })).isSameAs(JsonMappers.reader(new TypeReference<List<Price>>() {
+        }));
+        assertThat(JsonMappers.reader(new TypeReference<List<Price>>() {
+        })).isNotSameAs(JsonMappers.reader(new TypeReference<Map<String, Price>>() {
+        }));
+        assertThat(JsonMappers.writer(Price.class)).isSameAs(JsonMappers.writer(Price.class));
+    }
+
+    @Test
+    public void testIgnoresUnknownProperties() throws Exception {
+        Price price = JsonMappers.reader(Price.class).readValue("{\"currency\":\"USD\",\"value\":1.5,\"added\":true}");
+
+        assertThat(price.currency).isEqualTo("USD");
+        assertThat(price.value).isEqualTo(1.5);
+    }
+
+    @Test
+    public void testTreeToValue() throws Exception {
+        JsonNode tree = JsonMappers.mapper().readTree("{\"currency\":\"EUR\",\"value\":2}");
+        assertThat(JsonMappers.treeToValue(tree, Price.class).currency).isEqualTo("EUR");
+
+        Price price = new Price();
+        assertThat(JsonMappers.treeToValue(new POJONode(price), Price.class)).isSameAs(price);
+    }
+
+    @Test
+    public void testWritesValue() throws Exception {
+        Price price = new Price();
+        price.currency = "BTC";
+        price.value = 3;
+
+        assertThat(JsonMappers.writer(Price.class).writeValueAsString(price))
+                .isEqualTo("{\"currency\":\"BTC\",\"value\":3.0}");
+    }
+}
@@ -0,0 +1,17 @@
+package info.bitrich.xchangestream.service.netty;
+
+import info.bitrich.xchangestream.service.backpressure.OverflowStrategy;
+import io.reactivex.Flowable;
+import io.reactivex.Observable;
+
+/**
+ * Service streaming messages of named channels, over a single connection ({@link NettyStreamingService}), spread
+ * across several ({@link ShardedStreamingService}) or duplicated over several ({@link RedundantStreamingService}).
+ * Market data services should depend on this interface, so they work with all of them.
+ */
+public interface ChannelStreamingService<T> {
+
+    Observable<T> subscribeChannel(String channelName);
+
+    Flowable<T> subscribeChannelFlowable(String channelName, OverflowStrategy overflowStrategy);
+}
@@ -0,0 +1,44 @@
+package info.bitrich.xchangestream.service.netty;
+
+import io.netty.handler.ssl.OpenSsl;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.SslProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.net.ssl.SSLException;
+
+/**
+ * Client {@link SslContext} shared by all connections.
+ * <p>
+ * Building a context loads the trust store and initializes the TLS engine, which takes long enough to show in the
+ * time to the first message. The shared context is built once, with OpenSSL when netty-tcnative is on the classpath
+ * and the JDK otherwise. It also keeps the cache of TLS sessions, so a connection to a host the process was already
+ * connected to resumes the previous session and skips a round trip of the handshake.
+ * </p>
+ */
+final class ClientSslContext {
+    private static final Logger LOG = LoggerFactory.getLogger(ClientSslContext.class);
+
+    private static volatile SslContext context;
+
+    private ClientSslContext() {
+    }
+
+    static SslContext get() throws SSLException {
+        SslContext result = context;
+        if (result == null) {
+            synchronized (ClientSslContext.class) {
+                result = context;
+                if (result == null) {
+                    SslProvider provider = OpenSsl.isAvailable() ? SslProvider.OPENSSL : SslProvider.JDK;
+                    LOG.debug("Using {} TLS provider.", provider);
+                    result = SslContextBuilder.forClient().sslProvider(provider).build();
+                    context = result;
+                }
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,26 @@
+package info.bitrich.xchangestream.service.netty;
+
+/**
+ * State of the WebSocket connection of {@link NettyStreamingService}.
+ */
+public enum ConnectionState {
+    /**
+     * Not connected yet, or connection closed by {@link NettyStreamingService#disconnect()}.
+     */
+    DISCONNECTED,
+
+    /**
+     * Connection requested by {@link NettyStreamingService#connect()} is being established.
+     */
+    CONNECTING,
+
+    /**
+     * WebSocket handshake completed, messages can be sent and received.
+     */
+    CONNECTED,
+
+    /**
+     * Connection was lost and the service is waiting for the next reconnect attempt or performing it.
+     */
+    RECONNECTING
+}
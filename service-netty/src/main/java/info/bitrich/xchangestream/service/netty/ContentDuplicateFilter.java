@@ -0,0 +1,64 @@
+package info.bitrich.xchangestream.service.netty;
+
+import java.util.function.BiPredicate;
+import java.util.function.ToLongFunction;
+
+/**
+ * Recognizes copies of a message by its content, see {@link DuplicateFilter#content}. Every message passed is
+ * remembered with the connections it has arrived over. A message matches a remembered one when its hash and
+ * content are the same and it has not arrived over this connection yet, so a message repeated over the same
+ * connection is a new message, not a copy.
+ */
+final class ContentDuplicateFilter<T> implements DuplicateFilter<T> {
+    private final ToLongFunction<? super T> hash;
+    private final BiPredicate<? super T, ? super T> sameContent;
+    private final long[] hashes;
+    private final Object[] messages;
+    // Bit of every connection the remembered message has arrived over.
+    private final long[] arrivals;
+    private int size;
+    private int next;
+
+    ContentDuplicateFilter(int window, ToLongFunction<? super T> hash, BiPredicate<? super T, ? super T> sameContent) {
+        if (window < 1) {
+            throw new IllegalArgumentException("Window must hold at least one message.");
+        }
+        this.hash = hash;
+        this.sameContent = sameContent;
+        this.hashes = new long[window];
+        this.messages = new Object[window];
+        this.arrivals = new long[window];
+    }
+
+    /**
+     * Without the connection every message counts as a new one, there is nothing to be a copy of.
+     */
+    @Override
+    public boolean isFirstArrival(T message) {
+        return isFirstArrival(0, message);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean isFirstArrival(int connection, T message) {
+        long current = hash.applyAsLong(message);
+        long bit = 1L << connection;
+        // Oldest first, a message repeated over one connection is matched to its copies in order.
+        int oldest = next - size < 0 ? next - size + messages.length : next - size;
+        for (int i = 0, index = oldest; i < size; i++, index = index + 1 == messages.length ? 0 : index + 1) {
+            if (hashes[index] == current && (arrivals[index] & bit) == 0
+                    && sameContent.test((T) messages[index], message)) {
+                arrivals[index] |= bit;
+                return false;
+            }
+        }
+        hashes[next] = current;
+        messages[next] = message;
+        arrivals[next] = bit;
+        next = next + 1 == messages.length ? 0 : next + 1;
+        if (size < messages.length) {
+            size++;
+        }
+        return true;
+    }
+}
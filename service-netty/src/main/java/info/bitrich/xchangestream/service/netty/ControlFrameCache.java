@@ -0,0 +1,57 @@
+package info.bitrich.xchangestream.service.netty;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.util.CharsetUtil;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Content of subscribe or unsubscribe frames by channel name, serialized once into pooled direct buffers.
+ * <p>
+ * Every {@link #get} returns a retained duplicate of the cached content, so the frame can be written and released by
+ * the pipeline while the cached buffer stays untouched. Client frames are masked into a new buffer by the encoder,
+ * the content itself is never modified.
+ * </p>
+ */
+final class ControlFrameCache {
+    interface MessageFactory {
+        String create(String channelName) throws IOException;
+    }
+
+    private final ByteBufAllocator allocator;
+    private final Map<String, ByteBuf> frames = new HashMap<>();
+
+    ControlFrameCache(ByteBufAllocator allocator) {
+        this.allocator = allocator;
+    }
+
+    /**
+     * Returns content of the frame of the channel, the caller owns the returned buffer.
+     */
+    synchronized ByteBuf get(String channelName, MessageFactory messageFactory) throws IOException {
+        ByteBuf content = frames.get(channelName);
+        if (content == null) {
+            byte[] bytes = messageFactory.create(channelName).getBytes(CharsetUtil.UTF_8);
+            content = allocator.directBuffer(bytes.length, bytes.length).writeBytes(bytes);
+            frames.put(channelName, content);
+        }
+        return content.retainedDuplicate();
+    }
+
+    synchronized int size() {
+        return frames.size();
+    }
+
+    /**
+     * Releases all cached frames. Frames being written keep their own reference.
+     */
+    synchronized void clear() {
+        for (ByteBuf content : frames.values()) {
+            content.release();
+        }
+        frames.clear();
+    }
+}
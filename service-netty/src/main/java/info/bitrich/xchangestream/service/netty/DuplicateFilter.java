@@ -0,0 +1,107 @@
+package info.bitrich.xchangestream.service.netty;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.function.BiPredicate;
+import java.util.function.ToLongFunction;
+
+/**
+ * Tells the first copy of a message from the copies that arrive later over the other connections of
+ * {@link RedundantStreamingService}. Every channel has a filter of its own, messages are passed to it one at a time.
+ */
+@FunctionalInterface
+public interface DuplicateFilter<T> {
+
+    /**
+     * @return True when the message was not seen before and is to be emitted.
+     */
+    boolean isFirstArrival(T message);
+
+    /**
+     * Same as {@link #isFirstArrival(Object)}, with the index of the connection the message arrived over. Filters
+     * telling copies by content need it, to tell a copy from the other connection from a repeat over the same one.
+     */
+    default boolean isFirstArrival(int connection, T message) {
+        return isFirstArrival(message);
+    }
+
+    /**
+     * Passes messages with a sequence number higher than that of any message before. Best for channels numbering
+     * their messages, e.g. order book updates, as it never forgets a message. Sequence numbers must keep increasing
+     * over reconnects.
+     */
+    static <T> DuplicateFilter<T> sequence(ToLongFunction<? super T> sequence) {
+        return new DuplicateFilter<T>() {
+            private long last = Long.MIN_VALUE;
+
+            @Override
+            public boolean isFirstArrival(T message) {
+                long current = sequence.applyAsLong(message);
+                if (current <= last) {
+                    return false;
+                }
+                last = current;
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Passes messages with a key different from the keys of the last messages passed.
+     *
+     * @param key    Key identifying the message, e.g. the trade id.
+     * @param window Number of last keys remembered. Must cover the messages that can arrive over one connection
+     *               before their copy arrives over the other.
+     */
+    static <T> DuplicateFilter<T> recentKeys(ToLongFunction<? super T> key, int window) {
+        if (window < 1) {
+            throw new IllegalArgumentException("Window must hold at least one key.");
+        }
+        return new DuplicateFilter<T>() {
+            private final long[] keys = new long[window];
+            private int size;
+            private int next;
+
+            @Override
+            public boolean isFirstArrival(T message) {
+                long current = key.applyAsLong(message);
+                // Copies arrive close to each other, a linear scan of a small window beats hashing.
+                for (int i = 0; i < size; i++) {
+                    if (keys[i] == current) {
+                        return false;
+                    }
+                }
+                keys[next] = current;
+                next = next + 1 == keys.length ? 0 : next + 1;
+                if (size < keys.length) {
+                    size++;
+                }
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Passes messages that are not a copy of one of the last messages passed, for channels without sequence numbers
+     * or ids. A copy has the same hash and content as a message passed before and has not arrived over its
+     * connection yet, so identical content sent again by the exchange, e.g. an order book going back to an earlier
+     * state, is passed again.
+     *
+     * @param window      Number of last messages remembered. Must cover the messages that can arrive over one
+     *                    connection before their copy arrives over the other.
+     * @param hash        64-bit hash of the content, compared first.
+     * @param sameContent Compares content of messages with the same hash.
+     */
+    static <T> DuplicateFilter<T> content(int window, ToLongFunction<? super T> hash,
+                                          BiPredicate<? super T, ? super T> sameContent) {
+        return new ContentDuplicateFilter<>(window, hash, sameContent);
+    }
+
+    /**
+     * {@link #content} filter of JSON messages. Messages routed by {@link JsonNettyStreamingService} are compared by
+     * the bytes they were read from, so payloads bound to DTOs are compared as well; other messages by their trees.
+     */
+    static DuplicateFilter<JsonNode> jsonContent(int window) {
+        return content(window, MessageContentNode::contentHash, MessageContentNode::sameContent);
+    }
+}
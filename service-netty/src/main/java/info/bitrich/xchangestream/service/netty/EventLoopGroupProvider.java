@@ -0,0 +1,100 @@
+package info.bitrich.xchangestream.service.netty;
+
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reference counted {@link EventLoopGroup} that can be shared by many {@link NettyStreamingService} instances.
+ * <p>
+ * The group is created lazily on the first {@link #acquire()} and shut down when the last user calls
+ * {@link #release()}. Native epoll transport is used when it is available on the platform, NIO otherwise.
+ * </p>
+ */
+public class EventLoopGroupProvider {
+    private static final Logger LOG = LoggerFactory.getLogger(EventLoopGroupProvider.class);
+
+    private static final EventLoopGroupProvider DEFAULT = new EventLoopGroupProvider(0, "xchange-stream");
+
+    private final int threads;
+    private final String threadNamePrefix;
+    private final boolean epoll;
+
+    private EventLoopGroup group;
+    private int references;
+
+    /**
+     * @param threads          Number of event loop threads, 0 for netty default (2 * cores).
+     * @param threadNamePrefix Prefix of the event loop thread names.
+     */
+    public EventLoopGroupProvider(int threads, String threadNamePrefix) {
+        this(threads, threadNamePrefix, Epoll.isAvailable());
+    }
+
+    public EventLoopGroupProvider(int threads, String threadNamePrefix, boolean epoll) {
+        if (threads < 0) {
+            throw new IllegalArgumentException("Number of threads cannot be negative.");
+        }
+        if (epoll && !Epoll.isAvailable()) {
+            throw new IllegalStateException("Native epoll transport is not available.", Epoll.unavailabilityCause());
+        }
+        this.threads = threads;
+        this.threadNamePrefix = threadNamePrefix;
+        this.epoll = epoll;
+    }
+
+    /**
+     * Returns provider shared by all services that were not given their own provider.
+     */
+    public static EventLoopGroupProvider getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Acquires the event loop group, creating it when there is no other user. Every call must be paired with
+     * {@link #release()}.
+     */
+    public synchronized EventLoopGroup acquire() {
+        if (group == null) {
+            DefaultThreadFactory threadFactory = new DefaultThreadFactory(threadNamePrefix, true);
+            group = epoll ? new EpollEventLoopGroup(threads, threadFactory) : new NioEventLoopGroup(threads, threadFactory);
+            LOG.debug("Created {} event loop group {}.", epoll ? "epoll" : "nio", threadNamePrefix);
+        }
+        references++;
+        return group;
+    }
+
+    /**
+     * Releases the event loop group acquired by {@link #acquire()}. The group is shut down gracefully once it is
+     * not used by anybody.
+     */
+    public synchronized void release() {
+        if (references == 0) {
+            throw new IllegalStateException("Event loop group " + threadNamePrefix + " is not acquired.");
+        }
+        references--;
+        if (references == 0) {
+            LOG.debug("Shutting down event loop group {}.", threadNamePrefix);
+            group.shutdownGracefully();
+            group = null;
+        }
+    }
+
+    /**
+     * Socket channel implementation matching the transport of the event loop group.
+     */
+    public Class<? extends SocketChannel> getSocketChannelClass() {
+        return epoll ? EpollSocketChannel.class : NioSocketChannel.class;
+    }
+
+    public boolean isEpoll() {
+        return epoll;
+    }
+}
@@ -0,0 +1,90 @@
+package info.bitrich.xchangestream.service.netty;
+
+import io.netty.buffer.ByteBuf;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded lock-free queue of frames with their receive time, for exactly one producer thread and one consumer thread.
+ * Slots are preallocated, passing a frame through the ring allocates nothing.
+ */
+final class FrameRing {
+    interface FrameHandler {
+        void onFrame(ByteBuf content, long receiveNanos);
+    }
+
+    private final ByteBuf[] buffers;
+    private final long[] receiveNanos;
+    private final int mask;
+    // Index of the next frame to be consumed, written by the consumer only.
+    private final AtomicLong head = new AtomicLong();
+    // Index of the next free slot, written by the producer only.
+    private final AtomicLong tail = new AtomicLong();
+    // Last head seen by the producer, re-read only when the ring looks full.
+    private long cachedHead;
+
+    /**
+     * @param capacity Number of slots, rounded up to a power of two.
+     */
+    FrameRing(int capacity) {
+        if (capacity < 1 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Capacity must be between 1 and 2^30.");
+        }
+        int size = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        buffers = new ByteBuf[size];
+        receiveNanos = new long[size];
+        mask = size - 1;
+    }
+
+    int capacity() {
+        return buffers.length;
+    }
+
+    /**
+     * Adds the frame, called by the producer only.
+     *
+     * @return False when the ring is full.
+     */
+    boolean offer(ByteBuf content, long nanos) {
+        long index = tail.get();
+        if (index - cachedHead >= buffers.length) {
+            cachedHead = head.get();
+            if (index - cachedHead >= buffers.length) {
+                return false;
+            }
+        }
+        int slot = (int) index & mask;
+        buffers[slot] = content;
+        receiveNanos[slot] = nanos;
+        // Volatile write publishes the slot and orders it before the producer checks whether the consumer sleeps.
+        tail.set(index + 1);
+        return true;
+    }
+
+    /**
+     * Passes up to limit frames to the handler in the order they were offered, called by the consumer only. The
+     * handler must not throw.
+     *
+     * @return Number of frames passed to the handler.
+     */
+    int drain(FrameHandler handler, int limit) {
+        long index = head.get();
+        int count = (int) Math.min(tail.get() - index, limit);
+        for (int i = 0; i < count; i++) {
+            int slot = (int) (index + i) & mask;
+            ByteBuf content = buffers[slot];
+            buffers[slot] = null;
+            handler.onFrame(content, receiveNanos[slot]);
+            head.lazySet(index + i + 1);
+        }
+        return count;
+    }
+
+    boolean isEmpty() {
+        return tail.get() == head.get();
+    }
+
+    int size() {
+        return (int) (tail.get() - head.get());
+    }
+}
@@ -0,0 +1,167 @@
+package info.bitrich.xchangestream.service.netty;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Thread parsing and dispatching frames of one connection, so that neither parsing nor slow subscribers hold up the
+ * I/O thread. Frames are handed over through a {@link FrameRing} and handled one by one in the order they arrived.
+ * <p>
+ * When the ring is full, the I/O thread keeps the frames it still reads in an overflow queue and stops reading from
+ * the socket, so the exchange is slowed down by TCP flow control. Reading resumes once the worker catches up.
+ * </p>
+ */
+final class FrameWorker implements Runnable {
+    private static final Logger LOG = LoggerFactory.getLogger(FrameWorker.class);
+
+    private static final int BATCH_SIZE = 256;
+    private static final int SPINS = 1000;
+    private static final long PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final String name;
+    private final FrameRing ring;
+    private final FrameRing.FrameHandler handler;
+    // Frames that did not fit into the ring, accessed by the I/O thread only.
+    private final ArrayDeque<ByteBuf> overflow = new ArrayDeque<>();
+    private final ArrayDeque<Long> overflowNanos = new ArrayDeque<>();
+    private final AtomicBoolean refillScheduled = new AtomicBoolean();
+    private final FrameRing.FrameHandler safeHandler = this::handle;
+    private volatile boolean overflowed;
+    private volatile boolean running;
+    private volatile boolean parked;
+    private volatile Thread thread;
+    private Channel channel;
+
+    /**
+     * @param name     Name of the worker thread.
+     * @param capacity Number of frames the ring holds.
+     * @param handler  Parses and dispatches the frame, the content is released once it returns.
+     */
+    FrameWorker(String name, int capacity, FrameRing.FrameHandler handler) {
+        this.name = name;
+        this.ring = new FrameRing(capacity);
+        this.handler = handler;
+    }
+
+    /**
+     * Starts the worker of the channel, frames are submitted by the event loop of the channel only.
+     */
+    void start(Channel channel) {
+        this.channel = channel;
+        running = true;
+        Thread worker = new Thread(this, name);
+        worker.setDaemon(true);
+        thread = worker;
+        worker.start();
+    }
+
+    /**
+     * Passes the frame to the worker, retaining it until it is handled. Called by the I/O thread only.
+     */
+    void submit(ByteBuf content, long receiveNanos) {
+        content.retain();
+        if (overflow.isEmpty() && ring.offer(content, receiveNanos)) {
+            wakeUp();
+            return;
+        }
+        overflow.add(content);
+        overflowNanos.add(receiveNanos);
+        if (!overflowed) {
+            LOG.debug("Frames of {} are parsed slower than received, pausing reads.", name);
+            overflowed = true;
+            channel.config().setAutoRead(false);
+        }
+        wakeUp();
+    }
+
+    /**
+     * Stops the worker and releases frames that were not handled. Called by the I/O thread once the channel is
+     * closed.
+     */
+    void stop() {
+        running = false;
+        Thread worker = thread;
+        if (worker != null) {
+            LockSupport.unpark(worker);
+        }
+        ByteBuf content;
+        while ((content = overflow.poll()) != null) {
+            content.release();
+        }
+        overflowNanos.clear();
+    }
+
+    int getQueuedCount() {
+        return ring.size();
+    }
+
+    @Override
+    public void run() {
+        int idle = 0;
+        while (running) {
+            int handled = ring.drain(safeHandler, BATCH_SIZE);
+            if (overflowed && ring.size() <= ring.capacity() / 2 && refillScheduled.compareAndSet(false, true)) {
+                channel.eventLoop().execute(this::refill);
+            }
+            if (handled > 0) {
+                idle = 0;
+            } else if (++idle > SPINS) {
+                parked = true;
+                if (ring.isEmpty() && running) {
+                    LockSupport.parkNanos(this, PARK_NANOS);
+                }
+                parked = false;
+            } else {
+                Thread.yield();
+            }
+        }
+        // Channel is closed, frames left in the ring are not dispatched.
+        while (ring.drain((content, receiveNanos) -> content.release(), BATCH_SIZE) > 0) {
+            // Release until empty.
+        }
+    }
+
+    private void handle(ByteBuf content, long receiveNanos) {
+        try {
+            handler.onFrame(content, receiveNanos);
+        } catch (Throwable throwable) {
+            LOG.error("Error handling frame of {}.", name, throwable);
+        } finally {
+            content.release();
+        }
+    }
+
+    /**
+     * Moves frames from the overflow queue to the ring, resuming reads once all fit. Runs on the I/O thread.
+     */
+    private void refill() {
+        refillScheduled.set(false);
+        if (!running) {
+            return;
+        }
+        ByteBuf content;
+        while ((content = overflow.peek()) != null && ring.offer(content, overflowNanos.peek())) {
+            overflow.poll();
+            overflowNanos.poll();
+        }
+        if (overflow.isEmpty()) {
+            overflowed = false;
+            channel.config().setAutoRead(true);
+            LOG.debug("Frames of {} caught up, resuming reads.", name);
+        }
+        wakeUp();
+    }
+
+    private void wakeUp() {
+        if (parked) {
+            LockSupport.unpark(thread);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package info.bitrich.xchangestream.service.netty;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.handler.codec.http.websocketx.PingWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.PongWebSocketFrame;
+import io.netty.handler.timeout.IdleStateEvent;
+import io.netty.handler.timeout.IdleStateHandler;
+import io.netty.util.ReferenceCountUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps one connection alive and detects when it is dead.
+ * <p>
+ * Reacts to events of the {@link IdleStateHandler} in front of it. Once nothing was written for the writer idle time,
+ * a ping carrying the time it was sent is written, and the pong echoing it gives the round-trip time. Once nothing,
+ * not even a pong, was read for the reader idle time, the connection is considered dead and closed, which makes the
+ * streaming service reconnect. Pongs are consumed here, all other frames are passed on.
+ * </p>
+ */
+final class HeartbeatHandler extends ChannelInboundHandlerAdapter {
+    private static final Logger LOG = LoggerFactory.getLogger(HeartbeatHandler.class);
+
+    private volatile long roundTripNanos = -1;
+    private volatile long pongCount;
+
+    /**
+     * Creates the idle state handler that drives the heartbeat, to be added right in front of it.
+     *
+     * @param pingIntervalMillis Time without writes after which a ping is sent, 0 to never send pings.
+     * @param readTimeoutMillis  Time without reads after which the connection is closed, 0 to never close it.
+     */
+    static IdleStateHandler idleStateHandler(long pingIntervalMillis, long readTimeoutMillis) {
+        return new IdleStateHandler(readTimeoutMillis, pingIntervalMillis, 0, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Round-trip time of the last answered ping, -1 when no ping was answered yet.
+     */
+    long getRoundTripNanos() {
+        return roundTripNanos;
+    }
+
+    long getPongCount() {
+        return pongCount;
+    }
+
+    @Override
+    public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
+        if (!(evt instanceof IdleStateEvent)) {
+            super.userEventTriggered(ctx, evt);
+            return;
+        }
+
+        switch (((IdleStateEvent) evt).state()) {
+            case WRITER_IDLE:
+                ByteBuf payload = ctx.alloc().buffer(Long.BYTES).writeLong(System.nanoTime());
+                ctx.writeAndFlush(new PingWebSocketFrame(payload));
+                break;
+            case READER_IDLE:
+                LOG.warn("Nothing received from {}, closing connection.", ctx.channel().remoteAddress());
+                ctx.close();
+                break;
+            default:
+                break;
+        }
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (!(msg instanceof PongWebSocketFrame)) {
+            super.channelRead(ctx, msg);
+            return;
+        }
+
+        try {
+            ByteBuf content = ((PongWebSocketFrame) msg).content();
+            // Unsolicited pongs carry whatever the server wants, only echoes of our pings are measured.
+            if (content.readableBytes() == Long.BYTES) {
+                long rtt = System.nanoTime() - content.getLong(content.readerIndex());
+                if (rtt >= 0) {
+                    roundTripNanos = rtt;
+                    pongCount++;
+                    LOG.debug("Pong received after {} us.", TimeUnit.NANOSECONDS.toMicros(rtt));
+                }
+            }
+        } finally {
+            ReferenceCountUtil.release(msg);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package info.bitrich.xchangestream.service.netty;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Inflater;
+
+/**
+ * Inflaters shared by all connections. An inflater holds a native zlib stream and a window of 32 KiB, pooling them
+ * saves creating one for every connection after every reconnect. Inflaters above the size of the pool are ended
+ * right away rather than left to the finalizer.
+ */
+final class InflaterPool {
+    private static final int MAX_POOLED = 64;
+
+    private static final Pool WRAPPED = new Pool(false);
+    private static final Pool RAW = new Pool(true);
+
+    private InflaterPool() {
+    }
+
+    /**
+     * @param nowrap True for raw deflate streams, see {@link Inflater#Inflater(boolean)}.
+     */
+    static Inflater acquire(boolean nowrap) {
+        return (nowrap ? RAW : WRAPPED).acquire();
+    }
+
+    /**
+     * Returns the inflater to the pool, it must not be used by the caller any more.
+     */
+    static void release(Inflater inflater, boolean nowrap) {
+        (nowrap ? RAW : WRAPPED).release(inflater);
+    }
+
+    static int size(boolean nowrap) {
+        return (nowrap ? RAW : WRAPPED).size.get();
+    }
+
+    private static final class Pool {
+        private final boolean nowrap;
+        private final Queue<Inflater> inflaters = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger size = new AtomicInteger();
+
+        Pool(boolean nowrap) {
+            this.nowrap = nowrap;
+        }
+
+        Inflater acquire() {
+            Inflater inflater = inflaters.poll();
+            if (inflater == null) {
+                return new Inflater(nowrap);
+            }
+            size.decrementAndGet();
+            return inflater;
+        }
+
+        void release(Inflater inflater) {
+            if (size.incrementAndGet() > MAX_POOLED) {
+                size.decrementAndGet();
+                inflater.end();
+                return;
+            }
+            inflater.reset();
+            inflaters.add(inflater);
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package info.bitrich.xchangestream.service.netty;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.ContinuationWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocketFrame;
+import io.netty.util.ReferenceCountUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Inflates compressed payloads of binary frames into text frames, which are then handled like any other text frame.
+ * <p>
+ * A message fragmented into continuation frames is inflated fragment by fragment as they arrive, the compressed
+ * message is never assembled. Output goes to a pooled heap buffer, the inflater of JDK 8 works on arrays only, and
+ * the JSON parser reads heap buffers through their array without copying. Inflaters are taken from the
+ * {@link InflaterPool} and reused for every message of the connection. Messages that cannot be inflated, or inflate
+ * to more than the maximum message length, are dropped.
+ * </p>
+ */
+final class InflatingFrameDecoder extends ChannelInboundHandlerAdapter {
+    private static final Logger LOG = LoggerFactory.getLogger(InflatingFrameDecoder.class);
+
+    private static final int GZIP_MAGIC = 0x1f8b;
+    private static final int GZIP_FHCRC = 2;
+    private static final int GZIP_FEXTRA = 4;
+    private static final int GZIP_FNAME = 8;
+    private static final int GZIP_FCOMMENT = 16;
+    private static final int MIN_OUTPUT_CAPACITY = 256;
+
+    private final PayloadCompression compression;
+    private final int maxMessageLength;
+    private final Inflater[] inflaters = new Inflater[2];
+    private Inflater inflater;
+    // Inflated content of the message being received, null when the last message was complete or dropped.
+    private ByteBuf inflated;
+    private byte[] input = new byte[0];
+
+    InflatingFrameDecoder(PayloadCompression compression, int maxMessageLength) {
+        if (compression == PayloadCompression.NONE) {
+            throw new IllegalArgumentException("Nothing to inflate.");
+        }
+        this.compression = compression;
+        this.maxMessageLength = maxMessageLength;
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (msg instanceof BinaryWebSocketFrame) {
+            try {
+                if (inflated != null) {
+                    LOG.warn("New message started before the last fragment of the previous one, dropping it.");
+                    releaseInflated();
+                }
+                inflate(ctx, (WebSocketFrame) msg, true);
+            } finally {
+                ReferenceCountUtil.release(msg);
+            }
+        } else if (msg instanceof ContinuationWebSocketFrame && inflated != null) {
+            try {
+                inflate(ctx, (WebSocketFrame) msg, false);
+            } finally {
+                ReferenceCountUtil.release(msg);
+            }
+        } else {
+            // Text frames, their continuations and control frames.
+            ctx.fireChannelRead(msg);
+        }
+    }
+
+    private void inflate(ChannelHandlerContext ctx, WebSocketFrame frame, boolean first) {
+        ByteBuf content = frame.content();
+        try {
+            if (first) {
+                start(ctx, content);
+            }
+            feed(content);
+        } catch (DataFormatException e) {
+            LOG.error("Cannot inflate binary message: {}", e.getMessage());
+            releaseInflated();
+            return;
+        }
+        if (inflated == null) {
+            // Dropped as too long.
+            return;
+        }
+        if (frame.isFinalFragment()) {
+            ByteBuf message = inflated;
+            inflated = null;
+            ctx.fireChannelRead(new TextWebSocketFrame(true, 0, message));
+        }
+    }
+
+    private void start(ChannelHandlerContext ctx, ByteBuf content) throws DataFormatException {
+        PayloadCompression format = compression == PayloadCompression.AUTO ? detect(content) : compression;
+        if (format == PayloadCompression.GZIP) {
+            content.skipBytes(gzipHeaderLength(content));
+        }
+        boolean nowrap = format != PayloadCompression.ZLIB;
+        int index = nowrap ? 1 : 0;
+        if (inflaters[index] == null) {
+            inflaters[index] = InflaterPool.acquire(nowrap);
+        }
+        inflater = inflaters[index];
+        inflater.reset();
+        // Market data compresses well, start with room for a few times the compressed size.
+        inflated = ctx.alloc().heapBuffer(Math.min(Math.max(MIN_OUTPUT_CAPACITY, content.readableBytes() * 4),
+                maxMessageLength));
+    }
+
+    private void feed(ByteBuf content) throws DataFormatException {
+        int length = content.readableBytes();
+        if (inflater.finished() || length == 0) {
+            // Gzip trailer or padding after the end of the stream.
+            return;
+        }
+        if (content.hasArray()) {
+            inflater.setInput(content.array(), content.arrayOffset() + content.readerIndex(), length);
+        } else {
+            if (input.length < length) {
+                input = new byte[length];
+            }
+            content.getBytes(content.readerIndex(), input, 0, length);
+            inflater.setInput(input, 0, length);
+        }
+
+        while (!inflater.finished() && !inflater.needsInput()) {
+            if (!inflated.isWritable()) {
+                if (inflated.readableBytes() >= maxMessageLength) {
+                    LOG.error("Inflated message longer than {} bytes, dropping it.", maxMessageLength);
+                    releaseInflated();
+                    return;
+                }
+                inflated.ensureWritable(Math.min(Math.max(MIN_OUTPUT_CAPACITY, inflated.readableBytes()),
+                        maxMessageLength - inflated.readableBytes()));
+            }
+            int written = inflater.inflate(inflated.array(), inflated.arrayOffset() + inflated.writerIndex(),
+                    inflated.writableBytes());
+            if (written == 0 && inflater.needsDictionary()) {
+                throw new DataFormatException("Preset dictionary is not supported.");
+            }
+            inflated.writerIndex(inflated.writerIndex() + written);
+        }
+    }
+
+    static PayloadCompression detect(ByteBuf content) {
+        if (content.readableBytes() >= 2) {
+            int header = content.getUnsignedShort(content.readerIndex());
+            if (header == GZIP_MAGIC) {
+                return PayloadCompression.GZIP;
+            }
+            // Deflate method with a header checksum, RFC 1950.
+            if ((header & 0x0f00) == 0x0800 && header % 31 == 0) {
+                return PayloadCompression.ZLIB;
+            }
+        }
+        return PayloadCompression.RAW_DEFLATE;
+    }
+
+    /**
+     * Length of the gzip header, which must be within the first fragment.
+     */
+    private static int gzipHeaderLength(ByteBuf content) throws DataFormatException {
+        int start = content.readerIndex();
+        int end = content.writerIndex();
+        if (end - start < 10 || content.getUnsignedShort(start) != GZIP_MAGIC || content.getByte(start + 2) != 8) {
+            throw new DataFormatException("Not a gzip stream.");
+        }
+        int flags = content.getByte(start + 3);
+        int index = start + 10;
+        if ((flags & GZIP_FEXTRA) != 0) {
+            if (index + 2 > end) {
+                throw new DataFormatException("Truncated gzip header.");
+            }
+            index += 2 + content.getUnsignedShortLE(index);
+        }
+        if ((flags & GZIP_FNAME) != 0) {
+            index = skipZeroTerminated(content, index, end);
+        }
+        if ((flags & GZIP_FCOMMENT) != 0) {
+            index = skipZeroTerminated(content, index, end);
+        }
+        if ((flags & GZIP_FHCRC) != 0) {
+            index += 2;
+        }
+        if (index > end) {
+            throw new DataFormatException("Truncated gzip header.");
+        }
+        return index - start;
+    }
+
+    private static int skipZeroTerminated(ByteBuf content, int index, int end) throws DataFormatException {
+        int zero = content.indexOf(index, end, (byte) 0);
+        if (zero < 0) {
+            throw new DataFormatException("Truncated gzip header.");
+        }
+        return zero + 1;
+    }
+
+    private void releaseInflated() {
+        if (inflated != null) {
+            inflated.release();
+            inflated = null;
+        }
+    }
+
+    @Override
+    public void handlerRemoved(ChannelHandlerContext ctx) {
+        releaseInflated();
+        for (int i = 0; i < inflaters.length; i++) {
+            if (inflaters[i] != null) {
+                InflaterPool.release(inflaters[i], i == 1);
+                inflaters[i] = null;
+            }
+        }
+        inflater = null;
+    }
+}
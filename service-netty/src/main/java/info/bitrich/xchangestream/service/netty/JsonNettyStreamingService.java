@@ -1,24 +1,50 @@
 package info.bitrich.xchangestream.service.netty;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.fasterxml.jackson.databind.node.JsonNodeType;
+import com.fasterxml.jackson.databind.node.POJONode;
+import info.bitrich.xchangestream.service.json.JsonMappers;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.util.CharsetUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.InputStream;
 
 public abstract class JsonNettyStreamingService extends NettyStreamingService<JsonNode> {
     private static final Logger LOG = LoggerFactory.getLogger(JsonNettyStreamingService.class);
 
+    private static final ObjectMapper objectMapper = JsonMappers.mapper();
+
+    private volatile boolean retainMessageContent;
+
     public JsonNettyStreamingService(String apiUrl) {
         super(apiUrl);
     }
 
+    public JsonNettyStreamingService(String apiUrl, EventLoopGroupProvider eventLoopGroupProvider) {
+        super(apiUrl, eventLoopGroupProvider);
+    }
+
+    /**
+     * Keeps the bytes of every routed message with it, for {@link DuplicateFilter#jsonContent(int)}.
+     */
+    @Override
+    void retainMessageContent() {
+        retainMessageContent = true;
+    }
+
     @Override
     public void massegeHandler(String message) {
         LOG.debug("Received message: {}", message);
-        ObjectMapper objectMapper = new ObjectMapper();
         JsonNode jsonNode;
 
         // Parse incoming message to JSON
@@ -29,6 +55,182 @@ public abstract class JsonNettyStreamingService extends NettyStreamingService<Js
             return;
         }
 
+        handleJson(jsonNode);
+    }
+
+    @Override
+    public void massegeHandler(ByteBuf message) {
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Received message: {}", message.toString(CharsetUtil.UTF_8));
+        }
+
+        if (getChannelFieldName() != null) {
+            routeMessage(message);
+            return;
+        }
+
+        JsonNode jsonNode;
+
+        // Parse incoming message to JSON straight from the frame content.
+        try (JsonParser parser = createParser(message)) {
+            jsonNode = objectMapper.readTree(parser);
+        } catch (IOException e) {
+            LOG.error("Error parsing incoming message to JSON: {}", message.toString(CharsetUtil.UTF_8));
+            return;
+        }
+
+        if (jsonNode == null) {
+            LOG.debug("Received empty message.");
+            return;
+        }
+        handleJson(jsonNode);
+    }
+
+    /**
+     * Creates parser reading the content of the buffer without copying it. Heap buffers are read through their
+     * backing array, direct buffers through an {@link java.io.InputStream} view.
+     */
+    protected JsonParser createParser(ByteBuf message) throws IOException {
+        if (message.hasArray()) {
+            return objectMapper.getFactory().createParser(message.array(),
+                    message.arrayOffset() + message.readerIndex(), message.readableBytes());
+        }
+        return objectMapper.getFactory().createParser((InputStream) new ByteBufInputStream(message.duplicate()));
+    }
+
+    /**
+     * Name of the top-level field that holds the channel name. When not null, incoming frames are routed in a single
+     * pass of a streaming parser straight over the buffer, the rest of a frame of a channel without subscriber is
+     * skipped as soon as this field is read.
+     */
+    protected String getChannelFieldName() {
+        return null;
+    }
+
+    /**
+     * Name of the top-level field that holds the payload of the message. Used together with
+     * {@link #getPayloadReader(String)}.
+     */
+    protected String getPayloadFieldName() {
+        return "data";
+    }
+
+    /**
+     * Reader that deserializes the payload of the subscribed channel straight into its DTO. The DTO is then passed
+     * as {@link com.fasterxml.jackson.databind.node.POJONode} in the payload field, so
+     * {@link ObjectMapper#treeToValue} returns it without any conversion. Returns null when payload of the channel
+     * should be kept as a tree.
+     */
+    protected ObjectReader getPayloadReader(String channelName) {
+        return null;
+    }
+
+    private void routeMessage(ByteBuf message) {
+        try (JsonParser parser = createParser(message)) {
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.START_ARRAY) {
+                // In case of array - route every message separately.
+                while ((token = parser.nextToken()) != JsonToken.END_ARRAY && token != null) {
+                    routeValue(parser, message);
+                }
+            } else if (token != null) {
+                routeValue(parser, message);
+            }
+        } catch (IOException e) {
+            LOG.error("Error parsing incoming message to JSON: {}", message.toString(CharsetUtil.UTF_8));
+        }
+    }
+
+    /**
+     * Reads the message the parser is at in a single pass. Fields are added to the tree as they are read, once the
+     * channel field is seen, the rest of a message without subscriber is skipped and the payload is bound by the
+     * reader of the channel.
+     */
+    private void routeValue(JsonParser parser, ByteBuf message) throws IOException {
+        if (parser.getCurrentToken() != JsonToken.START_OBJECT) {
+            handleMessage(objectMapper.readTree(parser));
+            return;
+        }
+
+        long start = parser.getTokenLocation().getByteOffset();
+        JsonStreamContext messageContext = parser.getParsingContext();
+        String channelFieldName = getChannelFieldName();
+        String payloadFieldName = getPayloadFieldName();
+        MessageContentNode node = new MessageContentNode(objectMapper.getNodeFactory());
+        String channel = null;
+        ObjectReader payloadReader = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            if (channel == null && value == JsonToken.VALUE_STRING && channelFieldName.equals(fieldName)) {
+                channel = parser.getText();
+                if (!hasSubscriber(channel)) {
+                    LOG.debug("No subscriber for channel {}.", channel);
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        parser.nextToken();
+                        parser.skipChildren();
+                    }
+                    return;
+                }
+                payloadReader = getPayloadReader(channel);
+                node.put(fieldName, channel);
+            } else if (payloadReader != null && payloadFieldName.equals(fieldName)) {
+                node.set(fieldName, readPayload(parser, message, messageContext, payloadReader, channel));
+            } else {
+                node.set(fieldName, objectMapper.readTree(parser));
+            }
+        }
+
+        JsonNode payload = node.get(payloadFieldName);
+        if (payloadReader != null && payload != null && !(payload instanceof POJONode)) {
+            // Payload came before the channel field, it was read as a tree already.
+            try {
+                node.putPOJO(payloadFieldName, payloadReader.readValue(payload));
+            } catch (IOException e) {
+                LOG.debug("Cannot read payload of channel {}, keeping tree: {}", channel, e.getMessage());
+            }
+        }
+        if (retainMessageContent) {
+            // Offsets are relative to the reader index of the buffer.
+            long end = parser.getCurrentLocation().getByteOffset();
+            byte[] content = new byte[(int) (end - start)];
+            message.getBytes(message.readerIndex() + (int) start, content);
+            node.setContent(content);
+        }
+        handleMessage(node);
+    }
+
+    /**
+     * Binds the payload the parser is at. When the payload does not match the DTO, e.g. an acknowledgement sent on
+     * the data channel, it is read as a tree instead, from the parser when the reader did not consume anything yet,
+     * otherwise from its bytes in the buffer.
+     */
+    private JsonNode readPayload(JsonParser parser, ByteBuf message, JsonStreamContext messageContext,
+                                 ObjectReader payloadReader, String channel) throws IOException {
+        long start = parser.getTokenLocation().getByteOffset();
+        try {
+            return new POJONode(payloadReader.readValue(parser));
+        } catch (JsonProcessingException e) {
+            LOG.debug("Cannot read payload of channel {}, falling back to tree: {}", channel, e.getMessage());
+            if (parser.getTokenLocation().getByteOffset() == start) {
+                return objectMapper.readTree(parser);
+            }
+            // Skip the rest of the payload, then read it again from its bytes. Offsets are relative to the reader
+            // index of the buffer.
+            while (parser.getParsingContext() != messageContext) {
+                if (parser.nextToken() == null) {
+                    throw e;
+                }
+            }
+            long end = parser.getCurrentLocation().getByteOffset();
+            ByteBuf payload = message.slice(message.readerIndex() + (int) start, (int) (end - start));
+            try (JsonParser payloadParser = createParser(payload)) {
+                return objectMapper.readTree(payloadParser);
+            }
+        }
+    }
+
+    private void handleJson(JsonNode jsonNode) {
         // In case of array - handle every message separately.
         if (jsonNode.getNodeType().equals(JsonNodeType.ARRAY)) {
             for (JsonNode node : jsonNode) {
@@ -0,0 +1,55 @@
+package info.bitrich.xchangestream.service.netty;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.Arrays;
+
+/**
+ * Message routed by {@link JsonNettyStreamingService} together with the bytes it was read from, kept when the
+ * service is a connection of {@link RedundantStreamingService}. Payloads bound to DTOs cannot be compared as trees,
+ * so copies of a message are recognized by these bytes instead, see {@link DuplicateFilter#jsonContent(int)}.
+ */
+final class MessageContentNode extends ObjectNode {
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private byte[] content;
+    private long contentHash;
+
+    MessageContentNode(JsonNodeFactory factory) {
+        super(factory);
+    }
+
+    void setContent(byte[] content) {
+        this.content = content;
+        long hash = FNV_OFFSET_BASIS;
+        for (byte b : content) {
+            hash = (hash ^ (b & 0xff)) * FNV_PRIME;
+        }
+        this.contentHash = hash;
+    }
+
+    /**
+     * 64-bit hash of the bytes of the message, or of its tree when the bytes were not kept.
+     */
+    static long contentHash(JsonNode message) {
+        if (message instanceof MessageContentNode && ((MessageContentNode) message).content != null) {
+            return ((MessageContentNode) message).contentHash;
+        }
+        return message.hashCode();
+    }
+
+    /**
+     * Compares the bytes of the messages, or their trees when the bytes were not kept.
+     */
+    static boolean sameContent(JsonNode first, JsonNode second) {
+        byte[] firstContent = first instanceof MessageContentNode ? ((MessageContentNode) first).content : null;
+        byte[] secondContent = second instanceof MessageContentNode ? ((MessageContentNode) second).content : null;
+        if (firstContent != null && secondContent != null) {
+            return Arrays.equals(firstContent, secondContent);
+        }
+        return first.equals(second);
+    }
+}
@@ -1,132 +1,699 @@
 package info.bitrich.xchangestream.service.netty;
 
+import info.bitrich.xchangestream.service.backpressure.OverflowStrategy;
 import info.bitrich.xchangestream.service.exception.NotConnectedException;
+import info.bitrich.xchangestream.service.journal.FrameJournal;
+import info.bitrich.xchangestream.service.journal.ReplayableStreamingService;
+import info.bitrich.xchangestream.service.metrics.FrameContext;
 import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
 import io.netty.channel.*;
-import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.SocketChannel;
-import io.netty.channel.socket.nio.NioSocketChannel;
 import io.netty.handler.codec.http.DefaultHttpHeaders;
 import io.netty.handler.codec.http.HttpClientCodec;
 import io.netty.handler.codec.http.HttpObjectAggregator;
 import io.netty.handler.codec.http.websocketx.*;
-import io.netty.handler.codec.http.websocketx.extensions.compression.WebSocketClientCompressionHandler;
 import io.netty.handler.ssl.SslContext;
-import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.util.CharsetUtil;
+import io.netty.util.concurrent.ScheduledFuture;
 import io.reactivex.Completable;
+import io.reactivex.Flowable;
 import io.reactivex.Observable;
 import io.reactivex.ObservableEmitter;
+import io.reactivex.subjects.BehaviorSubject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
-public abstract class NettyStreamingService<T> {
+public abstract class NettyStreamingService<T> implements ChannelStreamingService<T>, ReplayableStreamingService {
     private static final Logger LOG = LoggerFactory.getLogger(NettyStreamingService.class);
+    private static final long STALE_CHECK_INTERVAL_MILLIS = 100;
+    // Only the handshake response goes through the HTTP aggregator, frames are decoded by the WebSocket decoder.
+    private static final int MAX_HANDSHAKE_RESPONSE_LENGTH = 8192;
 
     private final URI uri;
-    private Channel webSocketChannel;
-    private Map<String, ObservableEmitter<T>> channels = new ConcurrentHashMap<>();
+    private final EventLoopGroupProvider eventLoopGroupProvider;
+    private final BehaviorSubject<ConnectionState> connectionStateSubject =
+            BehaviorSubject.createDefault(ConnectionState.DISCONNECTED);
+    private volatile Channel webSocketChannel;
+    private volatile OutboundQueue outboundQueue;
+    private volatile WriteBufferWaterMark writeBufferWaterMark;
+    private volatile int parserRingCapacity;
+    private volatile int maxFramePayloadLength = WebSocketClientHandler.DEFAULT_MAX_MESSAGE_LENGTH;
+    private volatile int maxMessageLength = WebSocketClientHandler.DEFAULT_MAX_MESSAGE_LENGTH;
+    private volatile PayloadCompression payloadCompression = PayloadCompression.NONE;
+    private volatile PerMessageDeflateSettings perMessageDeflate = PerMessageDeflateSettings.DEFAULT;
+    private volatile long pingIntervalMillis;
+    private volatile long readTimeoutMillis;
+    private volatile HeartbeatHandler heartbeatHandler;
+    private volatile boolean warmStandby;
+    // Handshaken connection ready to take over, opened by warmUp() or kept with warm standby.
+    private final AtomicReference<Connection> standby = new AtomicReference<>();
+    private final StaleChannelMonitor staleChannelMonitor = new StaleChannelMonitor();
+    private final Map<String, Observable<T>> subscriptions = new ConcurrentHashMap<>();
+    private volatile Map<String, ObservableEmitter<T>> channels = new ConcurrentHashMap<>();
+    private volatile ConnectionState connectionState = ConnectionState.DISCONNECTED;
+    private volatile ReconnectPolicy reconnectPolicy = ReconnectPolicy.DEFAULT;
+    // True while connection established by connect() should be kept alive.
+    private volatile boolean reconnect;
+    private volatile int reconnectAttempt;
+    private volatile FrameJournal journal;
+    private volatile boolean offline;
+    private final AtomicLong receivedFrames = new AtomicLong();
+    private final ControlFrameCache subscribeFrames = new ControlFrameCache(PooledByteBufAllocator.DEFAULT);
+    private final ControlFrameCache unsubscribeFrames = new ControlFrameCache(PooledByteBufAllocator.DEFAULT);
 
     public NettyStreamingService(String apiUrl) {
+        this(apiUrl, EventLoopGroupProvider.getDefault());
+    }
+
+    /**
+     * @param apiUrl                 URI of the WebSocket API.
+     * @param eventLoopGroupProvider Provider of the event loop group the connection runs on. Can be shared by many
+     *                               services.
+     */
+    public NettyStreamingService(String apiUrl, EventLoopGroupProvider eventLoopGroupProvider) {
         try {
             uri = new URI(apiUrl);
         } catch (URISyntaxException e) {
             throw new IllegalArgumentException("Error parsing URI " + apiUrl, e);
         }
+        this.eventLoopGroupProvider = eventLoopGroupProvider;
+    }
+
+    /**
+     * Sets the policy of reconnecting after the connection is lost. Connection is never reestablished after
+     * {@link #disconnect()} or when the initial {@link #connect()} fails.
+     */
+    public void setReconnectPolicy(ReconnectPolicy reconnectPolicy) {
+        this.reconnectPolicy = reconnectPolicy;
+    }
+
+    public ReconnectPolicy getReconnectPolicy() {
+        return reconnectPolicy;
+    }
+
+    /**
+     * Sets the write buffer water marks of connections opened from now on. Once more than the high water mark of
+     * bytes waits to be sent, outgoing messages are queued until it drops below the low water mark. Netty defaults of
+     * 32 KiB and 64 KiB are used when not set.
+     */
+    public void setWriteBufferWaterMark(int low, int high) {
+        this.writeBufferWaterMark = new WriteBufferWaterMark(low, high);
+    }
+
+    /**
+     * Sets the maximum lengths of incoming messages of connections opened from now on, both 16 MiB by default.
+     * <p>
+     * A frame with longer payload is a protocol error, the connection is closed and reestablished. A message
+     * fragmented into several frames is reassembled from its fragments without copying them, one longer than the
+     * maximum message length is dropped and the connection is kept.
+     * </p>
+     *
+     * @param maxFramePayloadLength Maximum payload of a single frame, in bytes.
+     * @param maxMessageLength      Maximum length of a message fragmented into several frames, in bytes.
+     */
+    public void setMaxMessageLength(int maxFramePayloadLength, int maxMessageLength) {
+        if (maxFramePayloadLength < 1 || maxMessageLength < 1) {
+            throw new IllegalArgumentException("Maximum lengths must be positive.");
+        }
+        this.maxFramePayloadLength = maxFramePayloadLength;
+        this.maxMessageLength = maxMessageLength;
+    }
+
+    /**
+     * Sets the compression of binary frames of connections opened from now on. Payloads of binary frames are inflated
+     * and then handled like text frames, fragments of a message are inflated as they arrive. The maximum message
+     * length applies to the inflated message. {@link PayloadCompression#NONE} (default) passes binary frames on as
+     * they are.
+     */
+    public void setPayloadCompression(PayloadCompression payloadCompression) {
+        this.payloadCompression = payloadCompression;
+    }
+
+    /**
+     * Sets the WebSocket compression offered to the server by connections opened from now on,
+     * {@link PerMessageDeflateSettings#DEFAULT} when not set.
+     */
+    public void setPerMessageDeflate(PerMessageDeflateSettings perMessageDeflate) {
+        this.perMessageDeflate = perMessageDeflate;
+    }
+
+    /**
+     * Moves parsing and dispatching of incoming frames of connections opened from now on off the I/O thread.
+     * <p>
+     * Every connection gets its own worker thread, frames are handed over through a lock-free ring of the given
+     * capacity and handled in the order they arrived, so messages of a channel keep their order. Subscribers are
+     * then called on the worker thread. While the ring is full, reading from the socket is paused. Use
+     * {@link ShardedStreamingService} to parse channels on several threads.
+     * </p>
+     *
+     * @param ringCapacity Number of frames waiting to be parsed, rounded up to a power of two. 0 (default) parses
+     *                     frames on the I/O thread.
+     */
+    public void setParserRingCapacity(int ringCapacity) {
+        if (ringCapacity < 0) {
+            throw new IllegalArgumentException("Ring capacity cannot be negative.");
+        }
+        this.parserRingCapacity = ringCapacity;
+    }
+
+    /**
+     * Sets the heartbeat of connections opened from now on.
+     * <p>
+     * Once nothing was sent for the ping interval, a WebSocket ping is sent and the round-trip time of its pong is
+     * available from {@link #getPingRoundTripNanos()}. Once nothing, not even a pong, was received for the read
+     * timeout, the connection is considered dead and closed, and reestablished according to the reconnect policy.
+     * The read timeout should be a few ping intervals, so that a single late pong does not drop the connection.
+     * </p>
+     *
+     * @param pingIntervalMillis Time without outgoing frames after which a ping is sent, 0 (default) to never send
+     *                           pings.
+     * @param readTimeoutMillis  Time without incoming frames after which the connection is closed, 0 (default) to
+     *                           never close it.
+     */
+    public void setHeartbeat(long pingIntervalMillis, long readTimeoutMillis) {
+        if (pingIntervalMillis < 0 || readTimeoutMillis < 0) {
+            throw new IllegalArgumentException("Heartbeat intervals cannot be negative.");
+        }
+        this.pingIntervalMillis = pingIntervalMillis;
+        this.readTimeoutMillis = readTimeoutMillis;
+    }
+
+    /**
+     * Keeps a second connection open and handshaken, without subscriptions, from {@link #connect()} on. When the
+     * connection is lost, the standby takes over right away and all channels are resubscribed on it, skipping the
+     * TCP, TLS and WebSocket handshakes and the reconnect delay. A new standby is opened once it took over. Use with
+     * {@link #setHeartbeat(long, long)} to keep the idle standby from being closed by the server.
+     */
+    public void setWarmStandby(boolean warmStandby) {
+        this.warmStandby = warmStandby;
+    }
+
+    /**
+     * Opens and handshakes a connection ahead of {@link #connect()}, which then takes it over without waiting, e.g.
+     * while the rest of the application starts. The connection is closed by {@link #disconnect()}.
+     */
+    public Completable warmUp() {
+        return Completable.create(completable -> {
+            if (offline || standby.get() != null) {
+                completable.onComplete();
+                return;
+            }
+            openChannel(connection -> {
+                if (!standby.compareAndSet(null, connection)) {
+                    connection.channel.close();
+                }
+                completable.onComplete();
+            }, completable::onError);
+        });
+    }
+
+    /**
+     * Round-trip time of the last ping answered on the current connection, -1 when there was none.
+     */
+    public long getPingRoundTripNanos() {
+        HeartbeatHandler heartbeat = heartbeatHandler;
+        return heartbeat == null ? -1 : heartbeat.getRoundTripNanos();
+    }
+
+    /**
+     * Expects a message of the channel at least every given time while it has a subscriber. When the channel stays
+     * quiet for longer, its name is emitted by {@link #subscribeStaleChannels()} and, when asked for, the connection
+     * is dropped and reestablished, which resubscribes all channels. Channels are checked every
+     * {@value #STALE_CHECK_INTERVAL_MILLIS} ms.
+     *
+     * @param timeoutMillis Time without message after which the channel is stale, should be well above the usual
+     *                      cadence of the channel. 0 stops watching the channel.
+     * @param reconnect     True to reconnect when the channel goes stale, false to only signal it.
+     */
+    public void setStaleChannelTimeout(String channelName, long timeoutMillis, boolean reconnect) {
+        if (timeoutMillis < 0) {
+            throw new IllegalArgumentException("Timeout cannot be negative.");
+        }
+        if (timeoutMillis == 0) {
+            staleChannelMonitor.unwatch(channelName);
+        } else {
+            staleChannelMonitor.watch(channelName, timeoutMillis, reconnect);
+        }
+    }
+
+    /**
+     * Returns {@link Observable} of names of channels that went stale, see
+     * {@link #setStaleChannelTimeout(String, long, boolean)}.
+     */
+    public Observable<String> subscribeStaleChannels() {
+        return staleChannelMonitor.staleChannels();
+    }
+
+    /**
+     * Time since the last message of a channel with a stale timeout, or since its subscription or the last
+     * reconnect, whichever happened later. -1 when the channel has no stale timeout.
+     */
+    public long getLastMessageAgeNanos(String channelName) {
+        return staleChannelMonitor.getMessageAgeNanos(channelName, System.nanoTime());
+    }
+
+    /**
+     * Number of frames received since the service was created.
+     */
+    public long getReceivedFrameCount() {
+        return receivedFrames.get();
+    }
+
+    /**
+     * Number of channels with a subscriber.
+     */
+    public int getSubscribedChannelCount() {
+        return channels.size();
+    }
+
+    /**
+     * Number of messages waiting to be written to the current connection.
+     */
+    public int getPendingMessageCount() {
+        OutboundQueue queue = outboundQueue;
+        return queue == null ? 0 : queue.getPendingCount();
+    }
+
+    /**
+     * Sets the journal that records every incoming frame before it is parsed, or null to stop recording. Frames are
+     * recorded under the URI of the service as the channel is known only after parsing.
+     */
+    @Override
+    public void setJournal(FrameJournal journal) {
+        this.journal = journal;
+    }
+
+    @Override
+    public void setOffline(boolean offline) {
+        this.offline = offline;
+    }
+
+    /**
+     * Passes the frame to {@link #massegeHandler(ByteBuf)} when it was recorded under the URI of this service.
+     */
+    @Override
+    public void replayFrame(String channel, byte[] payload) {
+        if (uri.toString().equals(channel)) {
+            dispatchFrame(Unpooled.wrappedBuffer(payload), System.nanoTime());
+        }
+    }
+
+    public ConnectionState getConnectionState() {
+        return connectionState;
+    }
+
+    /**
+     * Returns {@link Observable} of the connection state. Current state is emitted immediately after subscription.
+     */
+    public Observable<ConnectionState> subscribeConnectionState() {
+        return connectionStateSubject.hide();
     }
 
     public Completable connect() {
         return Completable.create(completable -> {
-            try {
-                LOG.info("Connecting to {}://{}:{}{}", uri.getScheme(), uri.getHost(), uri.getPort(), uri.getPath());
-                String scheme = uri.getScheme() == null ? "ws" : uri.getScheme();
+            if (offline) {
+                setConnectionState(ConnectionState.CONNECTED);
+                completable.onComplete();
+                return;
+            }
+            setConnectionState(ConnectionState.CONNECTING);
+            Consumer<Connection> onConnected = connection -> {
+                activate(connection);
+                reconnectAttempt = 0;
+                reconnect = true;
+                setConnectionState(ConnectionState.CONNECTED);
+                completable.onComplete();
+                openStandby();
+            };
+            Connection warm = takeStandby();
+            if (warm != null) {
+                LOG.info("Connected to {} with warm connection.", uri);
+                onConnected.accept(warm);
+                return;
+            }
+            openChannel(onConnected, throwable -> {
+                setConnectionState(ConnectionState.DISCONNECTED);
+                completable.onError(throwable);
+            });
+        });
+    }
+
+    private void openChannel(Consumer<Connection> onConnected, Consumer<Throwable> onError) {
+        try {
+            LOG.info("Connecting to {}://{}:{}{}", uri.getScheme(), uri.getHost(), uri.getPort(), uri.getPath());
+            String scheme = uri.getScheme() == null ? "ws" : uri.getScheme();
+
+            String host = uri.getHost();
+            if (host == null) {
+                throw new IllegalArgumentException("Host cannot be null.");
+            }
 
-                String host = uri.getHost();
-                if (host == null) {
-                    throw new IllegalArgumentException("Host cannot be null.");
+            final int port;
+            if (uri.getPort() == -1) {
+                if ("ws".equalsIgnoreCase(scheme)) {
+                    port = 80;
+                } else if ("wss".equalsIgnoreCase(scheme)) {
+                    port = 443;
+                } else {
+                    port = -1;
                 }
+            } else {
+                port = uri.getPort();
+            }
 
-                final int port;
-                if (uri.getPort() == -1) {
-                    if ("ws".equalsIgnoreCase(scheme)) {
-                        port = 80;
-                    } else if ("wss".equalsIgnoreCase(scheme)) {
-                        port = 443;
+            if (!"ws".equalsIgnoreCase(scheme) && !"wss".equalsIgnoreCase(scheme)) {
+                throw new IllegalArgumentException("Only WS(S) is supported.");
+            }
+
+            final boolean ssl = "wss".equalsIgnoreCase(scheme);
+            final SslContext sslCtx;
+            if (ssl) {
+                sslCtx = ClientSslContext.get();
+            } else {
+                sslCtx = null;
+            }
+
+            final int ringCapacity = parserRingCapacity;
+            final FrameWorker worker = ringCapacity == 0 ? null
+                    : new FrameWorker("xchange-stream-parser-" + host, ringCapacity, this::dispatchFrame);
+
+            final WebSocketClientHandler handler =
+                    new WebSocketClientHandler(WebSocketClientHandshakerFactory.newHandshaker(
+                            uri, WebSocketVersion.V13, null, true, new DefaultHttpHeaders(), maxFramePayloadLength),
+                            new WebSocketClientHandler.WebSocketMessageHandler() {
+                                @Override
+                                public void onMessage(String message) {
+                                    // The handler passes every frame as ByteBuf, text is accepted only to
+                                    // complete the interface and goes the same way.
+                                    ByteBuf content = Unpooled.copiedBuffer(message, CharsetUtil.UTF_8);
+                                    try {
+                                        onMessage(content);
+                                    } finally {
+                                        content.release();
+                                    }
+                                }
+
+                                @Override
+                                public void onMessage(ByteBuf content) {
+                                    receivedFrames.incrementAndGet();
+                                    long receiveNanos = System.nanoTime();
+                                    FrameJournal frameJournal = journal;
+                                    if (frameJournal != null) {
+                                        frameJournal.append(receiveNanos, uri.toString(), content.nioBuffer());
+                                    }
+                                    if (worker != null) {
+                                        worker.submit(content, receiveNanos);
+                                    } else {
+                                        dispatchFrame(content, receiveNanos);
+                                    }
+                                }
+                            }, maxMessageLength);
+
+            final OutboundQueue outbound = new OutboundQueue();
+            final PerMessageDeflateSettings deflate = perMessageDeflate;
+            final PayloadCompression compression = payloadCompression;
+            final int maxInflatedLength = maxMessageLength;
+            final long pingInterval = pingIntervalMillis;
+            final long readTimeout = readTimeoutMillis;
+            final HeartbeatHandler heartbeat = pingInterval > 0 || readTimeout > 0 ? new HeartbeatHandler() : null;
+            EventLoopGroup group = eventLoopGroupProvider.acquire();
+            Bootstrap b = new Bootstrap();
+            WriteBufferWaterMark waterMark = writeBufferWaterMark;
+            if (waterMark != null) {
+                b.option(ChannelOption.WRITE_BUFFER_WATER_MARK, waterMark);
+            }
+            b.group(group)
+                    .channel(eventLoopGroupProvider.getSocketChannelClass())
+                    .handler(new ChannelInitializer<SocketChannel>() {
+                        @Override
+                        protected void initChannel(SocketChannel ch) {
+                            if (worker != null) {
+                                worker.start(ch);
+                                ch.closeFuture().addListener(future -> worker.stop());
+                            }
+                            ChannelPipeline p = ch.pipeline();
+                            if (sslCtx != null) {
+                                p.addLast(sslCtx.newHandler(ch.alloc(), host, port));
+                            }
+                            p.addLast(
+                                    new HttpClientCodec(),
+                                    new HttpObjectAggregator(MAX_HANDSHAKE_RESPONSE_LENGTH));
+                            ChannelHandler deflateHandler = deflate.newHandler();
+                            if (deflateHandler != null) {
+                                p.addLast(deflateHandler);
+                            }
+                            if (compression != PayloadCompression.NONE) {
+                                p.addLast(new InflatingFrameDecoder(compression, maxInflatedLength));
+                            }
+                            p.addLast(outbound, handler);
+                        }
+                    });
+
+            b.connect(uri.getHost(), port).addListener((ChannelFuture future) -> {
+                Channel channel = future.channel();
+                channel.closeFuture().addListener(f -> onChannelClosed(channel));
+                if (!future.isSuccess()) {
+                    onError.accept(future.cause());
+                    return;
+                }
+                handler.handshakeFuture().addListener(future1 -> {
+                    if (future1.isSuccess()) {
+                        if (heartbeat != null) {
+                            // Added only now, pings cannot be sent before the handshake is complete.
+                            ChannelPipeline p = channel.pipeline();
+                            String handlerName = p.context(handler).name();
+                            p.addBefore(handlerName, null, HeartbeatHandler.idleStateHandler(pingInterval, readTimeout));
+                            p.addBefore(handlerName, null, heartbeat);
+                        }
+                        onConnected.accept(new Connection(channel, outbound, heartbeat));
                     } else {
-                        port = -1;
+                        channel.close();
+                        onError.accept(future1.cause());
                     }
+                });
+            });
+        } catch (Exception throwable) {
+            onError.accept(throwable);
+        }
+    }
+
+    /**
+     * Makes the connection the one messages are sent and received over.
+     */
+    private void activate(Connection connection) {
+        Channel channel = connection.channel;
+        ScheduledFuture<?> staleCheck = channel.eventLoop().scheduleAtFixedRate(() -> checkStaleChannels(channel),
+                STALE_CHECK_INTERVAL_MILLIS, STALE_CHECK_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        channel.closeFuture().addListener(f -> staleCheck.cancel(false));
+        staleChannelMonitor.touchAll(System.nanoTime());
+        heartbeatHandler = connection.heartbeat;
+        outboundQueue = connection.outboundQueue;
+        webSocketChannel = channel;
+    }
+
+    /**
+     * Returns the standby connection when it is still open, or null.
+     */
+    private Connection takeStandby() {
+        Connection connection = standby.getAndSet(null);
+        if (connection != null && !connection.channel.isActive()) {
+            return null;
+        }
+        return connection;
+    }
+
+    private void openStandby() {
+        if (!warmStandby || !reconnect || standby.get() != null) {
+            return;
+        }
+        openChannel(connection -> {
+            if (!reconnect || !standby.compareAndSet(null, connection)) {
+                connection.channel.close();
+                return;
+            }
+            LOG.info("Warm standby connection to {} is ready.", uri);
+        }, throwable -> LOG.warn("Warm standby connection to {} failed: {}", uri, throwable.getMessage()));
+    }
+
+    private void dispatchFrame(ByteBuf content, long receiveNanos) {
+        FrameContext.current().received(receiveNanos);
+        try {
+            massegeHandler(content);
+        } finally {
+            FrameContext.current().clear();
+        }
+    }
+
+    private void checkStaleChannels(Channel channel) {
+        if (channel != webSocketChannel) {
+            return;
+        }
+        if (staleChannelMonitor.check(System.nanoTime(), this::hasSubscriber) && reconnect) {
+            LOG.warn("Channels of {} went stale, reconnecting.", uri);
+            channel.close();
+        }
+    }
+
+    private void onChannelClosed(Channel channel) {
+        try {
+            if (reconnect && channel == webSocketChannel) {
+                LOG.warn("Connection to {} lost.", uri);
+                Connection warm = takeStandby();
+                if (warm != null) {
+                    LOG.info("Failing over to warm standby connection to {}.", uri);
+                    activate(warm);
+                    onReconnected();
                 } else {
-                    port = uri.getPort();
+                    scheduleReconnect();
                 }
+            }
+        } finally {
+            // Event loop group is released once the channel is closed, no matter who closed it. Scheduled reconnect
+            // holds its own reference, so the group is not shut down in between.
+            eventLoopGroupProvider.release();
+        }
+    }
 
-                if (!"ws".equalsIgnoreCase(scheme) && !"wss".equalsIgnoreCase(scheme)) {
-                    throw new IllegalArgumentException("Only WS(S) is supported.");
-                }
+    private void scheduleReconnect() {
+        int attempt = reconnectAttempt++;
+        if (!reconnect) {
+            return;
+        }
+        if (!reconnectPolicy.isAttemptAllowed(attempt)) {
+            LOG.error("Giving up reconnecting to {} after {} attempts.", uri, attempt);
+            reconnect = false;
+            setConnectionState(ConnectionState.DISCONNECTED);
+            closeChannels(new NotConnectedException());
+            return;
+        }
 
-                final boolean ssl = "wss".equalsIgnoreCase(scheme);
-                final SslContext sslCtx;
-                if (ssl) {
-                    sslCtx = SslContextBuilder.forClient().build();
-                } else {
-                    sslCtx = null;
+        setConnectionState(ConnectionState.RECONNECTING);
+        long delay = reconnectPolicy.getDelay(attempt);
+        LOG.info("Reconnecting to {} in {} ms, attempt {}.", uri, delay, attempt + 1);
+        EventLoopGroup group = eventLoopGroupProvider.acquire();
+        group.schedule(() -> {
+            try {
+                if (reconnect) {
+                    openChannel(connection -> {
+                        activate(connection);
+                        onReconnected();
+                    }, throwable -> {
+                        LOG.warn("Reconnect to {} failed: {}", uri, throwable.getMessage());
+                        scheduleReconnect();
+                    });
                 }
+            } finally {
+                eventLoopGroupProvider.release();
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
 
-                EventLoopGroup group = new NioEventLoopGroup();
-
-                final WebSocketClientHandler handler =
-                        new WebSocketClientHandler(WebSocketClientHandshakerFactory.newHandshaker(
-                                uri, WebSocketVersion.V13, null, true, new DefaultHttpHeaders()),
-                                this::massegeHandler);
-
-                Bootstrap b = new Bootstrap();
-                b.group(group)
-                        .channel(NioSocketChannel.class)
-                        .handler(new ChannelInitializer<SocketChannel>() {
-                            @Override
-                            protected void initChannel(SocketChannel ch) {
-                                ChannelPipeline p = ch.pipeline();
-                                if (sslCtx != null) {
-                                    p.addLast(sslCtx.newHandler(ch.alloc(), host, port));
-                                }
-                                p.addLast(
-                                        new HttpClientCodec(),
-                                        new HttpObjectAggregator(8192),
-                                        WebSocketClientCompressionHandler.INSTANCE,
-                                        handler);
-                            }
-                        });
+    private void onReconnected() {
+        if (!reconnect) {
+            // Disconnected while reconnecting.
+            webSocketChannel.close();
+            return;
+        }
+        LOG.info("Reconnected to {}, resubscribing {} channels.", uri, channels.size());
+        reconnectAttempt = 0;
+        setConnectionState(ConnectionState.CONNECTED);
+        // Runs on the event loop of the channel, so the outbound queue writes all subscribe frames with one flush.
+        for (Map.Entry<String, ObservableEmitter<T>> channel : channels.entrySet()) {
+            try {
+                sendFrame(getSubscribeFrame(channel.getKey()));
+            } catch (IOException throwable) {
+                channel.getValue().onError(throwable);
+            }
+        }
+        openStandby();
+    }
 
-                b.connect(uri.getHost(), port).addListener((ChannelFuture future) -> {
-                    webSocketChannel = future.channel();
-                    handler.handshakeFuture().addListener(future1 -> completable.onComplete());
-                });
-            } catch (Exception throwable) {
-                completable.onError(throwable);
+    private void setConnectionState(ConnectionState state) {
+        synchronized (connectionStateSubject) {
+            if (connectionState != state) {
+                connectionState = state;
+                connectionStateSubject.onNext(state);
             }
-        });
+        }
     }
 
     public Completable disconnect() {
         return Completable.create(completable -> {
-            CloseWebSocketFrame closeFrame = new CloseWebSocketFrame();
-            webSocketChannel.writeAndFlush(closeFrame).addListener(future -> {
-                channels = new ConcurrentHashMap<>();
+            reconnect = false;
+            Connection warm = standby.getAndSet(null);
+            if (warm != null) {
+                warm.channel.close();
+            }
+            Channel channel = webSocketChannel;
+            subscribeFrames.clear();
+            unsubscribeFrames.clear();
+            if (channel == null || !channel.isOpen()) {
+                closeChannels(null);
+                setConnectionState(ConnectionState.DISCONNECTED);
                 completable.onComplete();
-            });
+                return;
+            }
+
+            CloseWebSocketFrame closeFrame = new CloseWebSocketFrame();
+            channel.writeAndFlush(closeFrame).addListener(future ->
+                    channel.close().addListener(closeFuture -> {
+                        closeChannels(null);
+                        setConnectionState(ConnectionState.DISCONNECTED);
+                        completable.onComplete();
+                    }));
         });
     }
 
+    /**
+     * Forgets all channels and terminates their streams, completes them when error is null. Shared subscriptions are
+     * dropped as well, so channels subscribed again later are subscribed on the next connection.
+     */
+    private void closeChannels(Throwable error) {
+        Map<String, ObservableEmitter<T>> closed = channels;
+        channels = new ConcurrentHashMap<>();
+        subscriptions.clear();
+        List<ObservableEmitter<T>> emitters = new ArrayList<>(closed.values());
+        // Cleared before the emitters are terminated, so their cancellables send no unsubscribe message.
+        closed.clear();
+        for (ObservableEmitter<T> emitter : emitters) {
+            if (error == null) {
+                emitter.onComplete();
+            } else {
+                emitter.onError(error);
+            }
+        }
+    }
+
     protected abstract String getChannelNameFromMessage(T message) throws IOException;
 
     public abstract String getSubscribeMessage(String channelName) throws IOException;
 
     public abstract String getUnsubscribeMessage(String channelName) throws IOException;
 
+    /**
+     * Returns true when subscribe and unsubscribe messages of a channel are always the same, so they are serialized
+     * only once and the frames are reused until {@link #disconnect()}. Override to return false when the messages
+     * change between calls, e.g. when they carry a nonce or a signature.
+     */
+    protected boolean isControlMessageCacheable() {
+        return true;
+    }
+
     /**
      * Handler that receives incoming messages.
      *
@@ -134,41 +701,131 @@ public abstract class NettyStreamingService<T> {
      */
     public abstract void massegeHandler(String message);
 
+    /**
+     * Handler that receives incoming messages as raw UTF-8 bytes, without decoding them to String first. The buffer
+     * is released once the method returns. By default the content is decoded and passed to
+     * {@link #massegeHandler(String)}.
+     *
+     * @param message Content of the message from the server.
+     */
+    public void massegeHandler(ByteBuf message) {
+        massegeHandler(message.toString(CharsetUtil.UTF_8));
+    }
+
     public void sendMessage(String message) {
         LOG.debug("Sending message: {}", message);
 
-        if (webSocketChannel == null || !webSocketChannel.isOpen()) {
-            LOG.warn("WebSocket is not open! Call connect first.");
+        if (offline) {
+            return;
+        }
+
+        send(new TextWebSocketFrame(message));
+    }
+
+    private ByteBuf getSubscribeFrame(String channelName) throws IOException {
+        if (!isControlMessageCacheable()) {
+            return Unpooled.copiedBuffer(getSubscribeMessage(channelName), CharsetUtil.UTF_8);
+        }
+        return subscribeFrames.get(channelName, this::getSubscribeMessage);
+    }
+
+    private ByteBuf getUnsubscribeFrame(String channelName) throws IOException {
+        if (!isControlMessageCacheable()) {
+            return Unpooled.copiedBuffer(getUnsubscribeMessage(channelName), CharsetUtil.UTF_8);
+        }
+        return unsubscribeFrames.get(channelName, this::getUnsubscribeMessage);
+    }
+
+    /**
+     * Sends text frame with the content, taking ownership of the buffer.
+     */
+    private void sendFrame(ByteBuf content) {
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Sending message: {}", content.toString(CharsetUtil.UTF_8));
+        }
+
+        if (offline) {
+            content.release();
             return;
         }
 
-        if (!webSocketChannel.isWritable()) {
-            LOG.warn("Cannot send data to WebSocket as it is not writable.");
+        send(new TextWebSocketFrame(content));
+    }
+
+    /**
+     * Queues the frame to be written to the current connection. Frames offered within one tick of the event loop are
+     * flushed together, frames that do not fit under the write buffer water mark wait until the channel is writable.
+     */
+    private void send(WebSocketFrame frame) {
+        Channel channel = webSocketChannel;
+        OutboundQueue queue = outboundQueue;
+        if (channel == null || !channel.isOpen() || queue == null) {
+            frame.release();
+            LOG.warn("WebSocket is not open! Call connect first.");
             return;
         }
 
-        WebSocketFrame frame = new TextWebSocketFrame(message);
-        webSocketChannel.writeAndFlush(frame);
+        queue.offer(frame);
     }
 
+    /**
+     * Subscribes to the channel. The subscription is shared: all subscribers of the channel get the same stream of
+     * messages, subscribe message is sent with the first subscriber and unsubscribe message when the last subscriber
+     * goes away.
+     */
+    @Override
     public Observable<T> subscribeChannel(String channelName) {
-        LOG.info("Subscribing to channel {}", channelName);
+        return subscriptions.computeIfAbsent(channelName, this::createSubscription);
+    }
+
+    /**
+     * Subscribes to the channel as {@link Flowable}. Overflow strategy is applied to messages before they are
+     * adapted to DTOs, so messages that are dropped are never adapted. They are parsed though, the channel of a frame
+     * is known only once it is parsed.
+     */
+    @Override
+    public Flowable<T> subscribeChannelFlowable(String channelName, OverflowStrategy overflowStrategy) {
+        return overflowStrategy.apply(subscribeChannel(channelName));
+    }
 
+    private Observable<T> createSubscription(String channelName) {
         return Observable.<T>create(e -> {
-            if (webSocketChannel == null || !webSocketChannel.isOpen()) {
+            if (connectionState != ConnectionState.CONNECTED && connectionState != ConnectionState.RECONNECTING) {
                 e.onError(new NotConnectedException());
+                return;
             }
 
-            channels.put(channelName, e);
+            LOG.info("Subscribing to channel {}", channelName);
+            // Subscribe message of channel added while reconnecting is sent once connected again.
+            Map<String, ObservableEmitter<T>> subscribedChannels = channels;
+            subscribedChannels.put(channelName, e);
+            staleChannelMonitor.touch(channelName);
+            e.setCancellable(() -> {
+                // Channels are forgotten on disconnect, there is nothing to unsubscribe then.
+                if (subscribedChannels.remove(channelName, e)) {
+                    sendFrame(getUnsubscribeFrame(channelName));
+                }
+            });
             try {
-                sendMessage(getSubscribeMessage(channelName));
+                sendFrame(getSubscribeFrame(channelName));
             } catch (IOException throwable) {
                 e.onError(throwable);
             }
-        }).doOnDispose(() -> {
-            sendMessage(getUnsubscribeMessage(channelName));
-            channels.remove(channelName);
-        });
+        }).share();
+    }
+
+    /**
+     * Called for connections of {@link RedundantStreamingService}, services that can keep the content of their
+     * messages for the duplicate filter start doing so.
+     */
+    void retainMessageContent() {
+    }
+
+    /**
+     * Returns true when there is a subscriber of the channel.
+     */
+    protected boolean hasSubscriber(String channelName) {
+        return channels.containsKey(channelName);
     }
 
     protected String getChannel(T message) {
@@ -183,6 +840,7 @@ public abstract class NettyStreamingService<T> {
     }
 
     protected void handleMessage(T message) {
+        FrameContext.current().parsed(System.nanoTime());
         String channel = getChannel(message);
         handleChannelMessage(channel, message);
     }
@@ -200,6 +858,7 @@ public abstract class NettyStreamingService<T> {
             return;
         }
 
+        staleChannelMonitor.touch(channel);
         emitter.onNext(message);
     }
 
@@ -212,4 +871,19 @@ public abstract class NettyStreamingService<T> {
 
         emitter.onError(t);
     }
+
+    /**
+     * Handshaken connection with the handlers the service talks to.
+     */
+    private static final class Connection {
+        private final Channel channel;
+        private final OutboundQueue outboundQueue;
+        private final HeartbeatHandler heartbeat;
+
+        Connection(Channel channel, OutboundQueue outboundQueue, HeartbeatHandler heartbeat) {
+            this.channel = channel;
+            this.outboundQueue = outboundQueue;
+            this.heartbeat = heartbeat;
+        }
+    }
 }
@@ -0,0 +1,110 @@
+package info.bitrich.xchangestream.service.netty;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.handler.codec.http.websocketx.WebSocketFrame;
+import io.netty.util.ReferenceCountUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Queue of frames to be sent over one connection.
+ * <p>
+ * Frames can be offered from any thread. They are written on the event loop of the channel, all frames offered until
+ * the event loop gets to them are written with a single flush. While the channel is not writable, because more than
+ * the high write buffer water mark is waiting to be sent, frames stay in the queue and are written once the channel
+ * becomes writable again. Frames are dropped only when the connection is closed.
+ * </p>
+ */
+final class OutboundQueue extends ChannelInboundHandlerAdapter {
+    private static final Logger LOG = LoggerFactory.getLogger(OutboundQueue.class);
+
+    private final Queue<WebSocketFrame> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+    private volatile Channel channel;
+
+    @Override
+    public void handlerAdded(ChannelHandlerContext ctx) {
+        channel = ctx.channel();
+    }
+
+    /**
+     * Queues the frame to be written, taking ownership of it.
+     */
+    void offer(WebSocketFrame frame) {
+        pending.add(frame);
+        pendingCount.incrementAndGet();
+        if (drainScheduled.compareAndSet(false, true)) {
+            try {
+                channel.eventLoop().execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                // Event loop is shut down, so is the channel.
+                releasePending();
+            }
+        }
+    }
+
+    /**
+     * Number of frames waiting to be written.
+     */
+    int getPendingCount() {
+        return pendingCount.get();
+    }
+
+    private void drain() {
+        drainScheduled.set(false);
+        if (!channel.isActive()) {
+            releasePending();
+            return;
+        }
+
+        int written = 0;
+        WebSocketFrame frame;
+        while (channel.isWritable() && (frame = pending.poll()) != null) {
+            pendingCount.decrementAndGet();
+            channel.write(frame);
+            written++;
+        }
+        if (written > 0) {
+            channel.flush();
+        }
+        if (!pending.isEmpty()) {
+            LOG.debug("Channel is not writable, {} frames wait until it is.", pendingCount.get());
+        }
+    }
+
+    private void releasePending() {
+        int released = 0;
+        WebSocketFrame frame;
+        while ((frame = pending.poll()) != null) {
+            pendingCount.decrementAndGet();
+            ReferenceCountUtil.release(frame);
+            released++;
+        }
+        if (released > 0) {
+            LOG.warn("Connection closed, {} frames were not sent.", released);
+        }
+    }
+
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+        if (ctx.channel().isWritable() && !pending.isEmpty()) {
+            drain();
+        }
+        super.channelWritabilityChanged(ctx);
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        releasePending();
+        super.channelInactive(ctx);
+    }
+}
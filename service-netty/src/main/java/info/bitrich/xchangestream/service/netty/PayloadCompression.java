@@ -0,0 +1,29 @@
+package info.bitrich.xchangestream.service.netty;
+
+/**
+ * Compression of the payload of binary frames, applied by the exchange on top of the WebSocket protocol. Inflated
+ * payloads are handled the same way as text frames.
+ */
+public enum PayloadCompression {
+    /**
+     * Binary frames are not compressed and passed on as they are.
+     */
+    NONE,
+    /**
+     * Deflate stream with zlib header and trailer (RFC 1950).
+     */
+    ZLIB,
+    /**
+     * Deflate stream without any header (RFC 1951).
+     */
+    RAW_DEFLATE,
+    /**
+     * Gzip stream (RFC 1952).
+     */
+    GZIP,
+    /**
+     * Detects gzip and zlib by their headers, anything else is inflated as raw deflate. For exchanges that do not
+     * document the format, or mix them.
+     */
+    AUTO
+}
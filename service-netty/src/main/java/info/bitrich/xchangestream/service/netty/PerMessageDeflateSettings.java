@@ -0,0 +1,89 @@
+package info.bitrich.xchangestream.service.netty;
+
+import io.netty.channel.ChannelHandler;
+import io.netty.handler.codec.compression.ZlibCodecFactory;
+import io.netty.handler.codec.http.websocketx.extensions.WebSocketClientExtensionHandler;
+import io.netty.handler.codec.http.websocketx.extensions.compression.DeflateFrameClientExtensionHandshaker;
+import io.netty.handler.codec.http.websocketx.extensions.compression.PerMessageDeflateClientExtensionHandshaker;
+
+/**
+ * Compression offered to the server in the WebSocket handshake (RFC 7692), see
+ * {@link NettyStreamingService#setPerMessageDeflate(PerMessageDeflateSettings)}.
+ * <p>
+ * Compression saves bandwidth at the cost of inflating every message. The server keeps a window of previous messages
+ * per connection; a smaller window or no context takeover lowers the memory needed for it on both sides, but
+ * compresses worse.
+ * </p>
+ */
+public class PerMessageDeflateSettings {
+    /**
+     * Offers permessage-deflate with the largest window and context takeover, falling back to the older deflate-frame
+     * extension, the same as Netty's {@code WebSocketClientCompressionHandler}.
+     */
+    public static final PerMessageDeflateSettings DEFAULT = new PerMessageDeflateSettings(6, 15, false, true);
+
+    /**
+     * Offers no compression, messages arrive as sent and need no inflating.
+     */
+    public static final PerMessageDeflateSettings DISABLED = new PerMessageDeflateSettings();
+
+    private final boolean enabled;
+    private final int compressionLevel;
+    private final int requestedServerWindowSize;
+    private final boolean requestedServerNoContext;
+    private final boolean deflateFrame;
+
+    /**
+     * @param compressionLevel          Level of compression of outgoing messages, from 0 to 9.
+     * @param requestedServerWindowSize Base two logarithm of the window the server is asked to compress with, from 8
+     *                                  to 15.
+     * @param requestedServerNoContext  True to ask the server to compress every message on its own, without context
+     *                                  of the previous ones.
+     * @param deflateFrame              True to offer the deflate-frame extension to servers not supporting
+     *                                  permessage-deflate.
+     */
+    public PerMessageDeflateSettings(int compressionLevel, int requestedServerWindowSize,
+                                     boolean requestedServerNoContext, boolean deflateFrame) {
+        if (compressionLevel < 0 || compressionLevel > 9) {
+            throw new IllegalArgumentException("Compression level must be between 0 and 9.");
+        }
+        if (requestedServerWindowSize < 8 || requestedServerWindowSize > 15) {
+            throw new IllegalArgumentException("Window size must be between 8 and 15.");
+        }
+        this.enabled = true;
+        this.compressionLevel = compressionLevel;
+        this.requestedServerWindowSize = requestedServerWindowSize;
+        this.requestedServerNoContext = requestedServerNoContext;
+        this.deflateFrame = deflateFrame;
+    }
+
+    private PerMessageDeflateSettings() {
+        this.enabled = false;
+        this.compressionLevel = 0;
+        this.requestedServerWindowSize = 15;
+        this.requestedServerNoContext = false;
+        this.deflateFrame = false;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Creates the handler negotiating the compression of one connection, null when compression is disabled.
+     */
+    ChannelHandler newHandler() {
+        if (!enabled) {
+            return null;
+        }
+        PerMessageDeflateClientExtensionHandshaker perMessageDeflate = new PerMessageDeflateClientExtensionHandshaker(
+                compressionLevel, ZlibCodecFactory.isSupportingWindowSizeAndMemLevel(), requestedServerWindowSize,
+                false, requestedServerNoContext);
+        if (!deflateFrame) {
+            return new WebSocketClientExtensionHandler(perMessageDeflate);
+        }
+        return new WebSocketClientExtensionHandler(perMessageDeflate,
+                new DeflateFrameClientExtensionHandshaker(compressionLevel, false),
+                new DeflateFrameClientExtensionHandshaker(compressionLevel, true));
+    }
+}
@@ -0,0 +1,100 @@
+package info.bitrich.xchangestream.service.netty;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Exponential backoff of reconnect attempts of {@link NettyStreamingService}.
+ * <p>
+ * Delay before n-th attempt (counted from 0) is {@code initialDelay * multiplier^n}, capped by {@code maxDelay}.
+ * The delay is then randomized by up to {@code jitter} of its value in both directions, so that many services
+ * disconnected at once do not reconnect all at the same moment.
+ * </p>
+ */
+public class ReconnectPolicy {
+    /**
+     * Reconnects after 100 ms, doubling the delay up to 30 s, with 20 % jitter and no limit on attempts.
+     */
+    public static final ReconnectPolicy DEFAULT = new ReconnectPolicy(100, 30_000, 2, 0.2, -1);
+
+    /**
+     * Never reconnects, the connection stays closed once it is lost.
+     */
+    public static final ReconnectPolicy DISABLED = new ReconnectPolicy(0, 0, 1, 0, 0);
+
+    private final long initialDelay;
+    private final long maxDelay;
+    private final double multiplier;
+    private final double jitter;
+    private final int maxAttempts;
+
+    /**
+     * @param initialDelay Delay before the first attempt in milliseconds.
+     * @param maxDelay     Maximal delay between attempts in milliseconds.
+     * @param multiplier   Multiplier of the delay after every failed attempt, at least 1.
+     * @param jitter       Fraction of the delay the delay is randomized by, between 0 and 1.
+     * @param maxAttempts  Maximal number of attempts in a row, negative for unlimited.
+     */
+    public ReconnectPolicy(long initialDelay, long maxDelay, double multiplier, double jitter, int maxAttempts) {
+        if (initialDelay < 0 || maxDelay < initialDelay) {
+            throw new IllegalArgumentException("Delays must satisfy 0 <= initialDelay <= maxDelay.");
+        }
+        if (multiplier < 1) {
+            throw new IllegalArgumentException("Multiplier cannot be lower than 1.");
+        }
+        if (jitter < 0 || jitter > 1) {
+            throw new IllegalArgumentException("Jitter must be between 0 and 1.");
+        }
+        this.initialDelay = initialDelay;
+        this.maxDelay = maxDelay;
+        this.multiplier = multiplier;
+        this.jitter = jitter;
+        this.maxAttempts = maxAttempts;
+    }
+
+    /**
+     * Returns true when the attempt with the given number (counted from 0) should be made.
+     */
+    public boolean isAttemptAllowed(int attempt) {
+        return maxAttempts < 0 || attempt < maxAttempts;
+    }
+
+    /**
+     * Returns delay before the attempt with the given number (counted from 0) in milliseconds, without jitter.
+     */
+    public long getBaseDelay(int attempt) {
+        double delay = initialDelay * Math.pow(multiplier, attempt);
+        return delay >= maxDelay ? maxDelay : (long) delay;
+    }
+
+    /**
+     * Returns randomized delay before the attempt with the given number (counted from 0) in milliseconds.
+     */
+    public long getDelay(int attempt) {
+        long delay = getBaseDelay(attempt);
+        if (jitter == 0 || delay == 0) {
+            return delay;
+        }
+        double spread = delay * jitter;
+        return Math.max(0, Math.round(delay + ThreadLocalRandom.current().nextDouble(-spread, spread)));
+    }
+
+    public long getInitialDelay() {
+        return initialDelay;
+    }
+
+    public long getMaxDelay() {
+        return maxDelay;
+    }
+
+    public double getMultiplier() {
+        return multiplier;
+    }
+
+    public double getJitter() {
+        return jitter;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+}
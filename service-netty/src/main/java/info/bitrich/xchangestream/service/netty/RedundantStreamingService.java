@@ -0,0 +1,187 @@
+package info.bitrich.xchangestream.service.netty;
+
+import info.bitrich.xchangestream.service.backpressure.OverflowStrategy;
+import info.bitrich.xchangestream.service.journal.FrameJournal;
+import info.bitrich.xchangestream.service.journal.ReplayableStreamingService;
+import io.reactivex.Completable;
+import io.reactivex.Flowable;
+import io.reactivex.Observable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+/**
+ * Subscribes every channel on several independent connections and emits whichever copy of a message arrives first.
+ * <p>
+ * A connection stalled by a lost packet or a slow server no longer delays messages, as long as another connection
+ * delivers them in time. When a connection is lost, the others keep delivering while it reconnects, so there is no
+ * gap in the stream. Copies are recognized by the {@link DuplicateFilter} of the channel. Subscribers get an error
+ * only when every connection failed. Give every connection an {@link EventLoopGroupProvider} of its own, so that
+ * connections do not wait for each other.
+ * </p>
+ * <pre>
+ * RedundantStreamingService&lt;JsonNode&gt; service = new RedundantStreamingService&lt;&gt;(2,
+ *         connection -&gt; new OkCoinStreamingService(API_URI, new EventLoopGroupProvider(1, "okcoin-" + connection)),
+ *         channel -&gt; DuplicateFilter.jsonContent(256));
+ * </pre>
+ */
+public class RedundantStreamingService<T> implements ChannelStreamingService<T>, ReplayableStreamingService {
+    private final List<NettyStreamingService<T>> connections;
+    private final Function<String, ? extends DuplicateFilter<T>> filterFactory;
+    private final Map<String, Observable<T>> subscriptions = new ConcurrentHashMap<>();
+
+    /**
+     * @param connections       Number of connections, at least 2 to be of any use, at most 64.
+     * @param connectionFactory Creates the service of the connection with the given index.
+     * @param filterFactory     Creates the duplicate filter of the channel with the given name. Prefer filters by
+     *                          sequence number or id where the channel has them.
+     */
+    public RedundantStreamingService(int connections,
+                                     IntFunction<? extends NettyStreamingService<T>> connectionFactory,
+                                     Function<String, ? extends DuplicateFilter<T>> filterFactory) {
+        if (connections < 1 || connections > 64) {
+            throw new IllegalArgumentException("Between 1 and 64 connections are supported.");
+        }
+        List<NettyStreamingService<T>> services = new ArrayList<>(connections);
+        for (int i = 0; i < connections; i++) {
+            services.add(connectionFactory.apply(i));
+        }
+        this.connections = Collections.unmodifiableList(services);
+        this.filterFactory = filterFactory;
+        services.forEach(NettyStreamingService::retainMessageContent);
+    }
+
+    public RedundantStreamingService(List<? extends NettyStreamingService<T>> connections,
+                                     Function<String, ? extends DuplicateFilter<T>> filterFactory) {
+        if (connections.isEmpty() || connections.size() > 64) {
+            throw new IllegalArgumentException("Between 1 and 64 connections are supported.");
+        }
+        this.connections = Collections.unmodifiableList(new ArrayList<>(connections));
+        this.filterFactory = filterFactory;
+        connections.forEach(NettyStreamingService::retainMessageContent);
+    }
+
+    /**
+     * Connects all connections. When any of them fails, the others are disconnected again.
+     */
+    public Completable connect() {
+        List<Completable> connects = new ArrayList<>(connections.size());
+        for (NettyStreamingService<T> connection : connections) {
+            connects.add(connection.connect());
+        }
+        return Completable.merge(connects)
+                .onErrorResumeNext(throwable -> disconnect().onErrorComplete().andThen(Completable.error(throwable)));
+    }
+
+    public Completable disconnect() {
+        // Streams of the connections complete on disconnect, later subscribers start new ones.
+        subscriptions.clear();
+        List<Completable> disconnects = new ArrayList<>(connections.size());
+        for (NettyStreamingService<T> connection : connections) {
+            disconnects.add(connection.disconnect());
+        }
+        return Completable.merge(disconnects);
+    }
+
+    /**
+     * Subscribes to the channel on all connections. The subscription is shared, all subscribers of the channel get
+     * the same stream of messages.
+     */
+    @Override
+    public Observable<T> subscribeChannel(String channelName) {
+        return subscriptions.computeIfAbsent(channelName, this::createSubscription);
+    }
+
+    @Override
+    public Flowable<T> subscribeChannelFlowable(String channelName, OverflowStrategy overflowStrategy) {
+        return overflowStrategy.apply(subscribeChannel(channelName));
+    }
+
+    private Observable<T> createSubscription(String channelName) {
+        return Observable.defer(() -> {
+            DuplicateFilter<T> filter = filterFactory.apply(channelName);
+            List<Observable<T>> copies = new ArrayList<>(connections.size());
+            for (int i = 0; i < connections.size(); i++) {
+                int connection = i;
+                // Filter is told the connection of the message, calls from the connections are serialized.
+                copies.add(connections.get(i).subscribeChannel(channelName).filter(message -> {
+                    synchronized (filter) {
+                        return filter.isFirstArrival(connection, message);
+                    }
+                }));
+            }
+            return Observable.mergeDelayError(copies);
+        }).share();
+    }
+
+    public List<NettyStreamingService<T>> getConnections() {
+        return connections;
+    }
+
+    /**
+     * Returns state of the connections, which is {@link ConnectionState#CONNECTED} as long as any of them is
+     * connected, otherwise the state of the connection that is closest to it.
+     */
+    public ConnectionState getConnectionState() {
+        List<ConnectionState> states = new ArrayList<>(connections.size());
+        for (NettyStreamingService<T> connection : connections) {
+            states.add(connection.getConnectionState());
+        }
+        return combine(states);
+    }
+
+    /**
+     * Returns {@link Observable} of the state of the connections as returned by {@link #getConnectionState()}.
+     */
+    public Observable<ConnectionState> subscribeConnectionState() {
+        List<Observable<ConnectionState>> states = new ArrayList<>(connections.size());
+        for (NettyStreamingService<T> connection : connections) {
+            states.add(connection.subscribeConnectionState());
+        }
+        return Observable.combineLatest(states, values -> {
+            List<ConnectionState> list = new ArrayList<>(values.length);
+            for (Object value : values) {
+                list.add((ConnectionState) value);
+            }
+            return combine(list);
+        }).distinctUntilChanged();
+    }
+
+    /**
+     * Sets the journal of the first connection only, recording the copies of the other connections would record
+     * every message several times. Frames lost by the first connection are missing in the recording.
+     */
+    @Override
+    public void setJournal(FrameJournal journal) {
+        connections.get(0).setJournal(journal);
+    }
+
+    @Override
+    public void setOffline(boolean offline) {
+        connections.forEach(connection -> connection.setOffline(offline));
+    }
+
+    /**
+     * Passes the frame to all connections, the way it arrives live, copies are dropped by the duplicate filters.
+     */
+    @Override
+    public void replayFrame(String channel, byte[] payload) {
+        connections.forEach(connection -> connection.replayFrame(channel, payload));
+    }
+
+    static ConnectionState combine(List<ConnectionState> states) {
+        for (ConnectionState state : Arrays.asList(ConnectionState.CONNECTED, ConnectionState.RECONNECTING,
+                ConnectionState.CONNECTING)) {
+            if (states.contains(state)) {
+                return state;
+            }
+        }
+        return ConnectionState.DISCONNECTED;
+    }
+}
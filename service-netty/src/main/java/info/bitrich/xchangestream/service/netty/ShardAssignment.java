@@ -0,0 +1,41 @@
+package info.bitrich.xchangestream.service.netty;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Assigns channels to the connections of {@link ShardedStreamingService}. Must always return the same shard for the
+ * same channel.
+ */
+@FunctionalInterface
+public interface ShardAssignment {
+
+    /**
+     * @param channelName Name of the channel.
+     * @param shards      Number of connections.
+     * @return Index of the connection the channel is subscribed on, from 0 to shards - 1.
+     */
+    int shardOf(String channelName, int shards);
+
+    /**
+     * Spreads channels evenly by the hash of their name.
+     */
+    static ShardAssignment hash() {
+        return (channelName, shards) -> {
+            int hash = channelName.hashCode();
+            return Math.floorMod(hash ^ (hash >>> 16), shards);
+        };
+    }
+
+    /**
+     * Subscribes listed channels on the given connections, e.g. to give a heavy depth channel a connection of its
+     * own, and the other channels by the fallback.
+     */
+    static ShardAssignment explicit(Map<String, Integer> assignment, ShardAssignment fallback) {
+        Map<String, Integer> copy = new HashMap<>(assignment);
+        return (channelName, shards) -> {
+            Integer shard = copy.get(channelName);
+            return shard == null ? fallback.shardOf(channelName, shards) : shard;
+        };
+    }
+}
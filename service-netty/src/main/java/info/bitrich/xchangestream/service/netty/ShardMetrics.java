@@ -0,0 +1,55 @@
+package info.bitrich.xchangestream.service.netty;
+
+/**
+ * Snapshot of the state of one connection of {@link ShardedStreamingService}.
+ */
+public final class ShardMetrics {
+    private final int shard;
+    private final ConnectionState connectionState;
+    private final int channelCount;
+    private final long receivedFrameCount;
+    private final int pendingMessageCount;
+
+    ShardMetrics(int shard, NettyStreamingService<?> service) {
+        this.shard = shard;
+        this.connectionState = service.getConnectionState();
+        this.channelCount = service.getSubscribedChannelCount();
+        this.receivedFrameCount = service.getReceivedFrameCount();
+        this.pendingMessageCount = service.getPendingMessageCount();
+    }
+
+    public int getShard() {
+        return shard;
+    }
+
+    public ConnectionState getConnectionState() {
+        return connectionState;
+    }
+
+    /**
+     * Number of channels subscribed on the connection.
+     */
+    public int getChannelCount() {
+        return channelCount;
+    }
+
+    /**
+     * Number of frames received since the service was created.
+     */
+    public long getReceivedFrameCount() {
+        return receivedFrameCount;
+    }
+
+    /**
+     * Number of messages waiting to be written to the connection.
+     */
+    public int getPendingMessageCount() {
+        return pendingMessageCount;
+    }
+
+    @Override
+    public String toString() {
+        return "shard " + shard + ": " + connectionState + ", channels=" + channelCount +
+                ", received=" + receivedFrameCount + ", pending=" + pendingMessageCount;
+    }
+}
@@ -0,0 +1,183 @@
+package info.bitrich.xchangestream.service.netty;
+
+import info.bitrich.xchangestream.service.backpressure.OverflowStrategy;
+import info.bitrich.xchangestream.service.journal.FrameJournal;
+import info.bitrich.xchangestream.service.journal.ReplayableStreamingService;
+import io.reactivex.Completable;
+import io.reactivex.Flowable;
+import io.reactivex.Observable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.IntFunction;
+
+/**
+ * Spreads channels of one exchange across several connections, so that messages of different channels are received
+ * and parsed in parallel, and a heavy channel does not delay messages of the others.
+ * <p>
+ * Every channel is subscribed on the connection chosen by the {@link ShardAssignment}. Messages of one channel keep
+ * their order, as they always arrive over the same connection. Give every connection an
+ * {@link EventLoopGroupProvider} of its own to run it on its own event loop thread.
+ * </p>
+ * <pre>
+ * ShardedStreamingService&lt;JsonNode&gt; service = new ShardedStreamingService&lt;&gt;(4,
+ *         shard -&gt; new OkCoinStreamingService(API_URI, new EventLoopGroupProvider(1, "okcoin-" + shard)),
+ *         ShardAssignment.hash());
+ * </pre>
+ */
+public class ShardedStreamingService<T> implements ChannelStreamingService<T>, ReplayableStreamingService {
+    private final List<NettyStreamingService<T>> shards;
+    private final ShardAssignment assignment;
+
+    /**
+     * @param connections  Number of connections.
+     * @param shardFactory Creates the service of the connection with the given index.
+     * @param assignment   Assigns channels to connections.
+     */
+    public ShardedStreamingService(int connections, IntFunction<? extends NettyStreamingService<T>> shardFactory,
+                                   ShardAssignment assignment) {
+        if (connections < 1) {
+            throw new IllegalArgumentException("At least one connection is required.");
+        }
+        List<NettyStreamingService<T>> services = new ArrayList<>(connections);
+        for (int i = 0; i < connections; i++) {
+            services.add(shardFactory.apply(i));
+        }
+        this.shards = Collections.unmodifiableList(services);
+        this.assignment = assignment;
+    }
+
+    public ShardedStreamingService(List<? extends NettyStreamingService<T>> shards, ShardAssignment assignment) {
+        if (shards.isEmpty()) {
+            throw new IllegalArgumentException("At least one connection is required.");
+        }
+        this.shards = Collections.unmodifiableList(new ArrayList<>(shards));
+        this.assignment = assignment;
+    }
+
+    /**
+     * Connects all connections. When any of them fails, the others are disconnected again.
+     */
+    public Completable connect() {
+        List<Completable> connects = new ArrayList<>(shards.size());
+        for (NettyStreamingService<T> shard : shards) {
+            connects.add(shard.connect());
+        }
+        return Completable.merge(connects)
+                .onErrorResumeNext(throwable -> disconnect().onErrorComplete().andThen(Completable.error(throwable)));
+    }
+
+    public Completable disconnect() {
+        List<Completable> disconnects = new ArrayList<>(shards.size());
+        for (NettyStreamingService<T> shard : shards) {
+            disconnects.add(shard.disconnect());
+        }
+        return Completable.merge(disconnects);
+    }
+
+    @Override
+    public Observable<T> subscribeChannel(String channelName) {
+        return getShard(channelName).subscribeChannel(channelName);
+    }
+
+    @Override
+    public Flowable<T> subscribeChannelFlowable(String channelName, OverflowStrategy overflowStrategy) {
+        return getShard(channelName).subscribeChannelFlowable(channelName, overflowStrategy);
+    }
+
+    /**
+     * Index of the connection the channel is subscribed on.
+     */
+    public int getShardIndex(String channelName) {
+        int shard = assignment.shardOf(channelName, shards.size());
+        if (shard < 0 || shard >= shards.size()) {
+            throw new IllegalStateException("Channel " + channelName + " is assigned to shard " + shard + " of " +
+                    shards.size() + ".");
+        }
+        return shard;
+    }
+
+    public NettyStreamingService<T> getShard(String channelName) {
+        return shards.get(getShardIndex(channelName));
+    }
+
+    public List<NettyStreamingService<T>> getShards() {
+        return shards;
+    }
+
+    /**
+     * Returns state of the connections, which is {@link ConnectionState#CONNECTED} only when all are connected,
+     * otherwise the state of the connection that is furthest from it.
+     */
+    public ConnectionState getConnectionState() {
+        List<ConnectionState> states = new ArrayList<>(shards.size());
+        for (NettyStreamingService<T> shard : shards) {
+            states.add(shard.getConnectionState());
+        }
+        return combine(states);
+    }
+
+    /**
+     * Returns {@link Observable} of the state of the connections as returned by {@link #getConnectionState()}.
+     */
+    public Observable<ConnectionState> subscribeConnectionState() {
+        List<Observable<ConnectionState>> states = new ArrayList<>(shards.size());
+        for (NettyStreamingService<T> shard : shards) {
+            states.add(shard.subscribeConnectionState());
+        }
+        return Observable.combineLatest(states, values -> {
+            List<ConnectionState> list = new ArrayList<>(values.length);
+            for (Object value : values) {
+                list.add((ConnectionState) value);
+            }
+            return combine(list);
+        }).distinctUntilChanged();
+    }
+
+    /**
+     * Returns snapshot of the metrics of every connection, in the order of shards.
+     */
+    public List<ShardMetrics> getShardMetrics() {
+        List<ShardMetrics> metrics = new ArrayList<>(shards.size());
+        for (int i = 0; i < shards.size(); i++) {
+            metrics.add(new ShardMetrics(i, shards.get(i)));
+        }
+        return metrics;
+    }
+
+    /**
+     * Sets the journal of all connections. They all record frames under the same URI, so a recording made with any
+     * number of connections can be replayed with any other.
+     */
+    @Override
+    public void setJournal(FrameJournal journal) {
+        shards.forEach(shard -> shard.setJournal(journal));
+    }
+
+    @Override
+    public void setOffline(boolean offline) {
+        shards.forEach(shard -> shard.setOffline(offline));
+    }
+
+    /**
+     * Passes the frame to all connections, every one of them emits only messages of the channels subscribed on it.
+     */
+    @Override
+    public void replayFrame(String channel, byte[] payload) {
+        shards.forEach(shard -> shard.replayFrame(channel, payload));
+    }
+
+    static ConnectionState combine(List<ConnectionState> states) {
+        if (states.contains(ConnectionState.DISCONNECTED)) {
+            return ConnectionState.DISCONNECTED;
+        }
+        if (states.contains(ConnectionState.RECONNECTING)) {
+            return ConnectionState.RECONNECTING;
+        }
+        if (states.contains(ConnectionState.CONNECTING)) {
+            return ConnectionState.CONNECTING;
+        }
+        return ConnectionState.CONNECTED;
+    }
+}
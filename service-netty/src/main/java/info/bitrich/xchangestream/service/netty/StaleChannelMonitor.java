@@ -0,0 +1,111 @@
+package info.bitrich.xchangestream.service.netty;
+
+import io.reactivex.Observable;
+import io.reactivex.subjects.PublishSubject;
+import io.reactivex.subjects.Subject;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Age of the last message of channels with an expected cadence.
+ * <p>
+ * A channel is stale when no message arrived for longer than its timeout while it has a subscriber. Every stale
+ * period is signalled once, the channel is signalled again only after it received a message and went quiet again.
+ * Only channels being watched are tracked, so a feed without timeouts pays for a single emptiness check per message.
+ * </p>
+ */
+final class StaleChannelMonitor {
+    private static final class Watch {
+        private final long timeoutNanos;
+        private final boolean reconnect;
+        private volatile long lastMessageNanos;
+        private volatile boolean stale;
+
+        Watch(long timeoutNanos, boolean reconnect, long lastMessageNanos) {
+            this.timeoutNanos = timeoutNanos;
+            this.reconnect = reconnect;
+            this.lastMessageNanos = lastMessageNanos;
+        }
+    }
+
+    private final Map<String, Watch> watches = new ConcurrentHashMap<>();
+    private final Subject<String> staleChannels = PublishSubject.<String>create().toSerialized();
+
+    /**
+     * @param timeoutMillis Time without message after which the channel is stale.
+     * @param reconnect     True to reconnect when the channel goes stale, false to only signal it.
+     */
+    void watch(String channelName, long timeoutMillis, boolean reconnect) {
+        watches.put(channelName, new Watch(TimeUnit.MILLISECONDS.toNanos(timeoutMillis), reconnect, System.nanoTime()));
+    }
+
+    void unwatch(String channelName) {
+        watches.remove(channelName);
+    }
+
+    /**
+     * Records a message of the channel, or its subscription, received now.
+     */
+    void touch(String channelName) {
+        if (watches.isEmpty()) {
+            return;
+        }
+        Watch watch = watches.get(channelName);
+        if (watch != null) {
+            watch.lastMessageNanos = System.nanoTime();
+            if (watch.stale) {
+                watch.stale = false;
+            }
+        }
+    }
+
+    /**
+     * Restarts the clock of every channel, e.g. after a new connection is established.
+     */
+    void touchAll(long nanos) {
+        for (Watch watch : watches.values()) {
+            watch.lastMessageNanos = nanos;
+            watch.stale = false;
+        }
+    }
+
+    /**
+     * Time since the last message of the channel, or -1 when the channel is not watched.
+     */
+    long getMessageAgeNanos(String channelName, long nanos) {
+        Watch watch = watches.get(channelName);
+        return watch == null ? -1 : nanos - watch.lastMessageNanos;
+    }
+
+    Observable<String> staleChannels() {
+        return staleChannels.hide();
+    }
+
+    /**
+     * Signals channels that went stale since the last check.
+     *
+     * @param subscribed Tells which channels have a subscriber, only those can go stale.
+     * @return True when one of the stale channels asks for a reconnect.
+     */
+    boolean check(long nanos, Predicate<String> subscribed) {
+        boolean reconnect = false;
+        for (Map.Entry<String, Watch> entry : watches.entrySet()) {
+            Watch watch = entry.getValue();
+            if (watch.stale || nanos - watch.lastMessageNanos <= watch.timeoutNanos) {
+                continue;
+            }
+            if (!subscribed.test(entry.getKey())) {
+                // Nothing is expected without a subscription, the clock starts again once subscribed.
+                watch.lastMessageNanos = nanos;
+                continue;
+            }
+            watch.stale = true;
+            reconnect |= watch.reconnect;
+            staleChannels.onNext(entry.getKey());
+        }
+        return reconnect;
+    }
+}
@@ -1,6 +1,8 @@
 package info.bitrich.xchangestream.service.netty;
 
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
 import io.netty.channel.*;
 import io.netty.handler.codec.http.FullHttpResponse;
 import io.netty.handler.codec.http.websocketx.*;
@@ -8,20 +10,50 @@ import io.netty.util.CharsetUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Completes the handshake and passes messages of text and binary frames to the {@link WebSocketMessageHandler}.
+ * <p>
+ * A message fragmented into continuation frames is passed on once its last fragment arrived. Fragments are not
+ * copied, they are kept as components of a {@link CompositeByteBuf} that is read as a stream by the parser, so a large
+ * snapshot is never copied into one contiguous buffer. Messages longer than the maximum message length are dropped.
+ * </p>
+ */
 public class WebSocketClientHandler extends SimpleChannelInboundHandler<Object> {
     private static final Logger LOG = LoggerFactory.getLogger(WebSocketClientHandler.class);
 
+    public static final int DEFAULT_MAX_MESSAGE_LENGTH = 16 * 1024 * 1024;
+
     public interface WebSocketMessageHandler {
         public void onMessage(String message);
+
+        /**
+         * Receives the raw UTF-8 content of the frame. The buffer is released once the method returns, so it must
+         * not be kept. By default the content is decoded to String.
+         */
+        default void onMessage(ByteBuf content) {
+            onMessage(content.toString(CharsetUtil.UTF_8));
+        }
     }
 
     private final WebSocketClientHandshaker handshaker;
     private final WebSocketMessageHandler handler;
+    private final int maxMessageLength;
     private ChannelPromise handshakeFuture;
+    // Fragments of the message being received, null when the last message was complete or dropped.
+    private CompositeByteBuf fragments;
 
     public WebSocketClientHandler(WebSocketClientHandshaker handshaker, WebSocketMessageHandler handler) {
+        this(handshaker, handler, DEFAULT_MAX_MESSAGE_LENGTH);
+    }
+
+    /**
+     * @param maxMessageLength Maximum length of a message fragmented into several frames, in bytes.
+     */
+    public WebSocketClientHandler(WebSocketClientHandshaker handshaker, WebSocketMessageHandler handler,
+                                  int maxMessageLength) {
         this.handshaker = handshaker;
         this.handler = handler;
+        this.maxMessageLength = maxMessageLength;
     }
 
     public ChannelFuture handshakeFuture() {
@@ -41,6 +73,12 @@ public class WebSocketClientHandler extends SimpleChannelInboundHandler<Object>
     @Override
     public void channelInactive(ChannelHandlerContext ctx) {
         LOG.info("WebSocket Client disconnected!");
+        releaseFragments();
+    }
+
+    @Override
+    public void handlerRemoved(ChannelHandlerContext ctx) {
+        releaseFragments();
     }
 
     @Override
@@ -61,9 +99,25 @@ public class WebSocketClientHandler extends SimpleChannelInboundHandler<Object>
         }
 
         WebSocketFrame frame = (WebSocketFrame) msg;
-        if (frame instanceof TextWebSocketFrame) {
-            TextWebSocketFrame textFrame = (TextWebSocketFrame) frame;
-            handler.onMessage(textFrame.text());
+        if (frame instanceof TextWebSocketFrame || frame instanceof BinaryWebSocketFrame) {
+            if (fragments != null) {
+                LOG.warn("New message started before the last fragment of the previous one, dropping it.");
+                releaseFragments();
+            }
+            if (frame.isFinalFragment()) {
+                handler.onMessage(frame.content());
+            } else {
+                fragments = ctx.alloc().compositeBuffer(Integer.MAX_VALUE);
+                appendFragment(frame);
+            }
+        } else if (frame instanceof ContinuationWebSocketFrame) {
+            // Fragments of a dropped message are ignored as well.
+            if (fragments != null) {
+                appendFragment(frame);
+            }
+        } else if (frame instanceof PingWebSocketFrame) {
+            LOG.debug("WebSocket Client received ping");
+            ch.writeAndFlush(new PongWebSocketFrame(frame.content().retain()));
         } else if (frame instanceof PongWebSocketFrame) {
             LOG.debug("WebSocket Client received pong");
         } else if (frame instanceof CloseWebSocketFrame) {
@@ -72,6 +126,32 @@ public class WebSocketClientHandler extends SimpleChannelInboundHandler<Object>
         }
     }
 
+    private void appendFragment(WebSocketFrame frame) {
+        ByteBuf content = frame.content();
+        if (fragments.readableBytes() + content.readableBytes() > maxMessageLength) {
+            LOG.error("Message longer than {} bytes, dropping it.", maxMessageLength);
+            releaseFragments();
+            return;
+        }
+        fragments.addComponent(true, content.retain());
+        if (frame.isFinalFragment()) {
+            CompositeByteBuf message = fragments;
+            fragments = null;
+            try {
+                handler.onMessage(message);
+            } finally {
+                message.release();
+            }
+        }
+    }
+
+    private void releaseFragments() {
+        if (fragments != null) {
+            fragments.release();
+            fragments = null;
+        }
+    }
+
     @Override
     public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
         cause.printStackTrace();
@@ -0,0 +1,51 @@
+package info.bitrich.xchangestream.service.netty;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.util.CharsetUtil;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ControlFrameCacheTest {
+
+    @Test
+    public void testSerializesMessageOnce() throws Exception {
+        ControlFrameCache cache = new ControlFrameCache(PooledByteBufAllocator.DEFAULT);
+        AtomicInteger created = new AtomicInteger();
+        ControlFrameCache.MessageFactory factory = channelName -> {
+            created.incrementAndGet();
+            return "{\"subscribe\":\"" + channelName + "\"}";
+        };
+
+        ByteBuf first = cache.get("trades", factory);
+        ByteBuf second = cache.get("trades", factory);
+
+        assertThat(created.get()).isEqualTo(1);
+        assertThat(first.isDirect()).isTrue();
+        assertThat(first.toString(CharsetUtil.UTF_8)).isEqualTo("{\"subscribe\":\"trades\"}");
+        assertThat(second.toString(CharsetUtil.UTF_8)).isEqualTo("{\"subscribe\":\"trades\"}");
+        assertThat(cache.size()).isEqualTo(1);
+
+        // Reading or releasing one frame does not affect the cached content.
+        first.skipBytes(first.readableBytes());
+        first.release();
+        assertThat(cache.get("trades", factory).toString(CharsetUtil.UTF_8)).isEqualTo("{\"subscribe\":\"trades\"}");
+        second.release();
+    }
+
+    @Test
+    public void testClearReleasesCachedFrames() throws Exception {
+        ControlFrameCache cache = new ControlFrameCache(PooledByteBufAllocator.DEFAULT);
+        ByteBuf frame = cache.get("trades", channelName -> channelName);
+
+        cache.clear();
+
+        // Frame being written keeps the content alive until it is released.
+        assertThat(cache.size()).isZero();
+        assertThat(frame.toString(CharsetUtil.UTF_8)).isEqualTo("trades");
+        assertThat(frame.release()).isTrue();
+    }
+}
@@ -0,0 +1,44 @@
+package info.bitrich.xchangestream.service.netty;
+
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class EventLoopGroupProviderTest {
+
+    @Test
+    public void testGroupIsSharedUntilLastRelease() throws Exception {
+        EventLoopGroupProvider provider = new EventLoopGroupProvider(1, "test", false);
+
+        EventLoopGroup first = provider.acquire();
+        EventLoopGroup second = provider.acquire();
+        assertThat(second).isSameAs(first);
+
+        provider.release();
+        assertThat(first.isShuttingDown()).isFalse();
+
+        provider.release();
+        assertThat(first.isShuttingDown()).isTrue();
+    }
+
+    @Test
+    public void testGroupIsRecreatedAfterShutdown() throws Exception {
+        EventLoopGroupProvider provider = new EventLoopGroupProvider(1, "test", false);
+
+        EventLoopGroup first = provider.acquire();
+        provider.release();
+        EventLoopGroup second = provider.acquire();
+
+        assertThat(second).isNotSameAs(first);
+        assertThat(second.isShuttingDown()).isFalse();
+        assertThat(provider.getSocketChannelClass()).isEqualTo(NioSocketChannel.class);
+        provider.release();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testReleaseWithoutAcquire() throws Exception {
+        new EventLoopGroupProvider(1, "test", false).release();
+    }
+}
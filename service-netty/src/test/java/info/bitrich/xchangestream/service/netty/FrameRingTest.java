@@ -0,0 +1,55 @@
+package info.bitrich.xchangestream.service.netty;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class FrameRingTest {
+
+    @Test
+    public void testCapacityIsRoundedToPowerOfTwo() {
+        assertThat(new FrameRing(1).capacity()).isEqualTo(1);
+        assertThat(new FrameRing(3).capacity()).isEqualTo(4);
+        assertThat(new FrameRing(1024).capacity()).isEqualTo(1024);
+    }
+
+    @Test
+    public void testKeepsOrderAcrossWrapAround() {
+        FrameRing ring = new FrameRing(4);
+        List<Long> handled = new ArrayList<>();
+        long next = 0;
+        for (int round = 0; round < 10; round++) {
+            while (ring.offer(Unpooled.EMPTY_BUFFER, next)) {
+                next++;
+            }
+            assertThat(ring.size()).isEqualTo(4);
+            ring.drain((content, receiveNanos) -> handled.add(receiveNanos), 3);
+        }
+        ring.drain((content, receiveNanos) -> handled.add(receiveNanos), Integer.MAX_VALUE);
+
+        assertThat(ring.isEmpty()).isTrue();
+        assertThat(handled).hasSize((int) next);
+        for (int i = 0; i < handled.size(); i++) {
+            assertThat(handled.get(i)).isEqualTo(i);
+        }
+    }
+
+    @Test
+    public void testRejectsFrameWhenFull() {
+        FrameRing ring = new FrameRing(2);
+        ByteBuf content = Unpooled.EMPTY_BUFFER;
+
+        assertThat(ring.offer(content, 1)).isTrue();
+        assertThat(ring.offer(content, 2)).isTrue();
+        assertThat(ring.offer(content, 3)).isFalse();
+
+        assertThat(ring.drain((buffer, receiveNanos) -> {
+        }, 1)).isEqualTo(1);
+        assertThat(ring.offer(content, 3)).isTrue();
+    }
+}
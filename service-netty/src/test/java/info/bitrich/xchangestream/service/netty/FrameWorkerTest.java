@@ -0,0 +1,113 @@
+package info.bitrich.xchangestream.service.netty;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelConfig;
+import io.netty.channel.DefaultEventLoop;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class FrameWorkerTest {
+
+    private DefaultEventLoop eventLoop;
+    private Channel channel;
+    private ChannelConfig config;
+
+    @Before
+    public void setUp() {
+        eventLoop = new DefaultEventLoop();
+        channel = mock(Channel.class);
+        config = mock(ChannelConfig.class);
+        when(channel.eventLoop()).thenReturn(eventLoop);
+        when(channel.config()).thenReturn(config);
+    }
+
+    @After
+    public void tearDown() {
+        eventLoop.shutdownGracefully(0, 1, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testHandlesFramesInOrderOffTheIoThread() throws Exception {
+        List<Integer> handled = new CopyOnWriteArrayList<>();
+        List<String> threads = new CopyOnWriteArrayList<>();
+        FrameWorker worker = new FrameWorker("test-parser", 8, (content, receiveNanos) -> {
+            handled.add(content.getInt(0));
+            threads.add(Thread.currentThread().getName());
+            if (handled.size() % 100 == 0) {
+                // Slow subscriber makes the ring overflow.
+                sleep(5);
+            }
+        });
+        worker.start(channel);
+
+        List<ByteBuf> frames = new ArrayList<>();
+        eventLoop.submit(() -> {
+            for (int i = 0; i < 2000; i++) {
+                ByteBuf frame = Unpooled.buffer(4).writeInt(i);
+                frames.add(frame);
+                worker.submit(frame, i);
+                // I/O thread releases the frame once the handler returns.
+                frame.release();
+            }
+        }).sync();
+
+        for (int i = 0; i < 500 && handled.size() < 2000; i++) {
+            Thread.sleep(10);
+        }
+        assertThat(handled).hasSize(2000);
+        for (int i = 0; i < 2000; i++) {
+            assertThat(handled.get(i)).isEqualTo(i);
+        }
+        assertThat(threads).containsOnly("test-parser");
+        assertThat(frames).allMatch(frame -> frame.refCnt() == 0);
+        verify(config, atLeastOnce()).setAutoRead(false);
+        verify(config, atLeastOnce()).setAutoRead(true);
+
+        eventLoop.submit(worker::stop).sync();
+    }
+
+    @Test
+    public void testStopReleasesPendingFrames() throws Exception {
+        FrameWorker worker = new FrameWorker("test-parser", 1, (content, receiveNanos) -> sleep(1000));
+        worker.start(channel);
+
+        List<ByteBuf> frames = new ArrayList<>();
+        eventLoop.submit(() -> {
+            for (int i = 0; i < 5; i++) {
+                ByteBuf frame = Unpooled.buffer(4).writeInt(i);
+                frames.add(frame);
+                worker.submit(frame, i);
+                frame.release();
+            }
+            worker.stop();
+        }).sync();
+
+        // Frames in the overflow queue are released right away, the one being handled once the handler returns.
+        for (int i = 0; i < 300 && !frames.stream().allMatch(frame -> frame.refCnt() == 0); i++) {
+            Thread.sleep(10);
+        }
+        assertThat(frames).allMatch(frame -> frame.refCnt() == 0);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package info.bitrich.xchangestream.service.netty;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.websocketx.PingWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.PongWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.handler.timeout.IdleStateEvent;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class HeartbeatHandlerTest {
+
+    private HeartbeatHandler heartbeat;
+    private EmbeddedChannel channel;
+
+    @Before
+    public void setUp() {
+        heartbeat = new HeartbeatHandler();
+        channel = new EmbeddedChannel(heartbeat);
+    }
+
+    @Test
+    public void testMeasuresRoundTripOfPing() {
+        assertThat(heartbeat.getRoundTripNanos()).isEqualTo(-1);
+
+        channel.pipeline().fireUserEventTriggered(IdleStateEvent.FIRST_WRITER_IDLE_STATE_EVENT);
+        PingWebSocketFrame ping = channel.readOutbound();
+        assertThat(ping.content().readableBytes()).isEqualTo(Long.BYTES);
+
+        channel.writeInbound(new PongWebSocketFrame(ping.content()));
+
+        assertThat(heartbeat.getRoundTripNanos()).isGreaterThanOrEqualTo(0);
+        assertThat(heartbeat.getPongCount()).isEqualTo(1);
+        assertThat(ping.refCnt()).isZero();
+        // Pongs are consumed.
+        assertThat((Object) channel.readInbound()).isNull();
+    }
+
+    @Test
+    public void testIgnoresUnsolicitedPong() {
+        channel.writeInbound(new PongWebSocketFrame(Unpooled.wrappedBuffer(new byte[]{1, 2, 3})));
+
+        assertThat(heartbeat.getRoundTripNanos()).isEqualTo(-1);
+        assertThat(heartbeat.getPongCount()).isZero();
+    }
+
+    @Test
+    public void testPassesOtherFramesOn() {
+        TextWebSocketFrame frame = new TextWebSocketFrame("trade");
+        channel.writeInbound(frame);
+
+        assertThat((Object) channel.readInbound()).isSameAs(frame);
+        frame.release();
+    }
+
+    @Test
+    public void testClosesConnectionWhenNothingIsRead() {
+        channel.pipeline().fireUserEventTriggered(IdleStateEvent.FIRST_READER_IDLE_STATE_EVENT);
+
+        assertThat(channel.isOpen()).isFalse();
+    }
+}
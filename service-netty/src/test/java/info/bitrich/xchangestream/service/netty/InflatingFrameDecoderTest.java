@@ -0,0 +1,147 @@
+package info.bitrich.xchangestream.service.netty;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.ContinuationWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.PingWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class InflatingFrameDecoderTest {
+
+    private static final String MESSAGE = "{\"channel\":\"ok_sub_spot_btc_usd_depth\",\"data\":{\"asks\":[[1000.5,2]]}}";
+
+    @Test
+    public void testInflatesEveryFormat() throws Exception {
+        assertInflates(PayloadCompression.ZLIB, deflate(MESSAGE, false));
+        assertInflates(PayloadCompression.RAW_DEFLATE, deflate(MESSAGE, true));
+        assertInflates(PayloadCompression.GZIP, gzip(MESSAGE));
+    }
+
+    @Test
+    public void testDetectsFormat() throws Exception {
+        assertInflates(PayloadCompression.AUTO, deflate(MESSAGE, false));
+        assertInflates(PayloadCompression.AUTO, deflate(MESSAGE, true));
+        assertInflates(PayloadCompression.AUTO, gzip(MESSAGE));
+    }
+
+    @Test
+    public void testInflatesFragmentsAsTheyArrive() throws Exception {
+        StringBuilder snapshot = new StringBuilder("[");
+        for (int i = 0; i < 10000; i++) {
+            snapshot.append(i == 0 ? "" : ",").append(i);
+        }
+        String message = snapshot.append(']').toString();
+        byte[] compressed = gzip(message);
+        EmbeddedChannel channel = new EmbeddedChannel(new InflatingFrameDecoder(PayloadCompression.GZIP, 1 << 20));
+
+        int third = compressed.length / 3;
+        channel.writeInbound(new BinaryWebSocketFrame(false, 0, Unpooled.wrappedBuffer(compressed, 0, third)));
+        channel.writeInbound(new ContinuationWebSocketFrame(false, 0,
+                Unpooled.wrappedBuffer(compressed, third, third)));
+        assertThat((Object) channel.readInbound()).isNull();
+        // Direct buffers are inflated as well.
+        ByteBuf last = Unpooled.directBuffer().writeBytes(compressed, 2 * third, compressed.length - 2 * third);
+        channel.writeInbound(new ContinuationWebSocketFrame(true, 0, last));
+
+        assertThat(readText(channel)).isEqualTo(message);
+        assertThat(channel.finish()).isFalse();
+    }
+
+    @Test
+    public void testDropsMessageLongerThanMaximum() throws Exception {
+        EmbeddedChannel channel = new EmbeddedChannel(new InflatingFrameDecoder(PayloadCompression.ZLIB, 16));
+
+        channel.writeInbound(new BinaryWebSocketFrame(Unpooled.wrappedBuffer(deflate(MESSAGE, false))));
+        assertThat((Object) channel.readInbound()).isNull();
+
+        channel.writeInbound(new BinaryWebSocketFrame(Unpooled.wrappedBuffer(deflate("{}", false))));
+        assertThat(readText(channel)).isEqualTo("{}");
+    }
+
+    @Test
+    public void testDropsCorruptMessage() throws Exception {
+        EmbeddedChannel channel = new EmbeddedChannel(new InflatingFrameDecoder(PayloadCompression.ZLIB, 1 << 20));
+        byte[] corrupt = deflate(MESSAGE, false);
+        Arrays.fill(corrupt, 2, corrupt.length, (byte) 0xff);
+
+        channel.writeInbound(new BinaryWebSocketFrame(Unpooled.wrappedBuffer(corrupt)));
+        assertThat((Object) channel.readInbound()).isNull();
+
+        channel.writeInbound(new BinaryWebSocketFrame(Unpooled.wrappedBuffer(deflate(MESSAGE, false))));
+        assertThat(readText(channel)).isEqualTo(MESSAGE);
+    }
+
+    @Test
+    public void testPassesOtherFramesOn() {
+        EmbeddedChannel channel = new EmbeddedChannel(new InflatingFrameDecoder(PayloadCompression.AUTO, 1 << 20));
+
+        channel.writeInbound(new TextWebSocketFrame(MESSAGE), new PingWebSocketFrame());
+
+        assertThat(readText(channel)).isEqualTo(MESSAGE);
+        PingWebSocketFrame ping = channel.readInbound();
+        assertThat(ping.release()).isTrue();
+    }
+
+    @Test
+    public void testReturnsInflatersToPool() throws Exception {
+        EmbeddedChannel channel = new EmbeddedChannel(new InflatingFrameDecoder(PayloadCompression.RAW_DEFLATE, 1024));
+        channel.writeInbound(new BinaryWebSocketFrame(Unpooled.wrappedBuffer(deflate(MESSAGE, true))));
+        readText(channel);
+        int pooled = InflaterPool.size(true);
+
+        channel.finish();
+
+        assertThat(InflaterPool.size(true)).isEqualTo(pooled + 1);
+    }
+
+    private static void assertInflates(PayloadCompression compression, byte[] compressed) {
+        EmbeddedChannel channel = new EmbeddedChannel(new InflatingFrameDecoder(compression, 1 << 20));
+
+        channel.writeInbound(new BinaryWebSocketFrame(Unpooled.wrappedBuffer(compressed)));
+        // Inflater is reset between messages.
+        channel.writeInbound(new BinaryWebSocketFrame(Unpooled.wrappedBuffer(compressed)));
+
+        assertThat(readText(channel)).isEqualTo(MESSAGE);
+        assertThat(readText(channel)).isEqualTo(MESSAGE);
+        channel.finish();
+    }
+
+    private static String readText(EmbeddedChannel channel) {
+        TextWebSocketFrame frame = channel.readInbound();
+        try {
+            return frame.text();
+        } finally {
+            frame.release();
+        }
+    }
+
+    private static byte[] deflate(String message, boolean nowrap) {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, nowrap);
+        deflater.setInput(message.getBytes(StandardCharsets.UTF_8));
+        deflater.finish();
+        byte[] buffer = new byte[message.length() + 64];
+        int length = deflater.deflate(buffer);
+        deflater.end();
+        return Arrays.copyOf(buffer, length);
+    }
+
+    private static byte[] gzip(String message) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(message.getBytes(StandardCharsets.UTF_8));
+        }
+        return bytes.toByteArray();
+    }
+}
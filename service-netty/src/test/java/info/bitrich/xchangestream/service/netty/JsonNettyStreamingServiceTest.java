@@ -0,0 +1,214 @@
+package info.bitrich.xchangestream.service.netty;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.node.POJONode;
+import info.bitrich.xchangestream.service.metrics.FrameContext;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.util.CharsetUtil;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class JsonNettyStreamingServiceTest {
+
+    private List<JsonNode> handled;
+    private List<Long> receiveTimes;
+    private JsonNettyStreamingService streamingService;
+    private JsonNettyStreamingService routingService;
+
+    @Before
+    public void setUp() throws Exception {
+        handled = new ArrayList<>();
+        receiveTimes = new ArrayList<>();
+        streamingService = new JsonNettyStreamingService("ws://localhost/websocket") {
+            @Override
+            protected String getChannelNameFromMessage(JsonNode message) {
+                return message.get("channel").asText();
+            }
+
+            @Override
+            public String getSubscribeMessage(String channelName) {
+                return channelName;
+            }
+
+            @Override
+            public String getUnsubscribeMessage(String channelName) {
+                return channelName;
+            }
+
+            @Override
+            protected void handleMessage(JsonNode message) {
+                handled.add(message);
+                receiveTimes.add(FrameContext.current().getReceiveNanos());
+            }
+        };
+
+        routingService = new JsonNettyStreamingService("ws://localhost/websocket") {
+            @Override
+            protected String getChannelNameFromMessage(JsonNode message) {
+                return message.get("channel").asText();
+            }
+
+            @Override
+            public String getSubscribeMessage(String channelName) {
+                return channelName;
+            }
+
+            @Override
+            public String getUnsubscribeMessage(String channelName) {
+                return channelName;
+            }
+
+            @Override
+            protected String getChannelFieldName() {
+                return "channel";
+            }
+
+            @Override
+            protected ObjectReader getPayloadReader(String channelName) {
+                return "typed".equals(channelName) ? new ObjectMapper().readerFor(int[].class) : null;
+            }
+
+            @Override
+            protected boolean hasSubscriber(String channelName) {
+                return !"unsubscribed".equals(channelName);
+            }
+
+            @Override
+            protected void handleMessage(JsonNode message) {
+                handled.add(message);
+            }
+        };
+    }
+
+    @Test
+    public void testHeapBufferMessage() throws Exception {
+        ByteBuf content = Unpooled.copiedBuffer("xx{\"channel\":\"a\",\"data\":1}", CharsetUtil.UTF_8);
+        content.skipBytes(2);
+
+        streamingService.massegeHandler(content);
+
+        assertThat(handled).hasSize(1);
+        assertThat(handled.get(0).get("data").asInt()).isEqualTo(1);
+        assertThat(content.readableBytes()).as("Reader index is untouched").isEqualTo(24);
+    }
+
+    @Test
+    public void testReceiveTimeIsClearedAfterFrame() throws Exception {
+        streamingService.replayFrame("ws://localhost/websocket", "{\"channel\":\"a\"}".getBytes(CharsetUtil.UTF_8));
+
+        assertThat(receiveTimes).hasSize(1);
+        assertThat(receiveTimes.get(0)).isGreaterThan(0);
+        assertThat(FrameContext.current().getReceiveNanos()).isZero();
+    }
+
+    @Test
+    public void testDirectBufferArrayMessage() throws Exception {
+        byte[] bytes = "[{\"channel\":\"a\"},{\"channel\":\"b\"}]".getBytes(CharsetUtil.UTF_8);
+        ByteBuf content = Unpooled.directBuffer(bytes.length).writeBytes(bytes);
+
+        streamingService.massegeHandler(content);
+
+        assertThat(handled).extracting(node -> node.get("channel").asText()).containsExactly("a", "b");
+        content.release();
+    }
+
+    @Test
+    public void testRoutingDropsUnsubscribedChannels() throws Exception {
+        String message = "[{\"data\":{\"channel\":\"nested\"},\"channel\":\"unsubscribed\"},"
+                + "{\"channel\":\"subscribed\",\"data\":[1,2]},"
+                + "{\"success\":false}]";
+
+        routingService.massegeHandler(Unpooled.copiedBuffer(message, CharsetUtil.UTF_8));
+
+        assertThat(handled).hasSize(2);
+        assertThat(handled.get(0).get("channel").asText()).isEqualTo("subscribed");
+        assertThat(handled.get(0).get("data").get(1).asInt()).isEqualTo(2);
+        assertThat(handled.get(1).get("success").asBoolean()).isFalse();
+    }
+
+    @Test
+    public void testRoutingReadsPayloadStraightToDto() throws Exception {
+        byte[] bytes = "{\"channel\":\"typed\",\"data\":[1,2]}".getBytes(CharsetUtil.UTF_8);
+        ByteBuf content = Unpooled.directBuffer(bytes.length).writeBytes(bytes);
+
+        routingService.massegeHandler(content);
+
+        assertThat(handled).hasSize(1);
+        assertThat(handled.get(0).get("data")).isInstanceOf(POJONode.class);
+        assertThat(new ObjectMapper().treeToValue(handled.get(0).get("data"), int[].class)).containsExactly(1, 2);
+        content.release();
+    }
+
+    @Test
+    public void testRoutedCopiesHaveSameContent() throws Exception {
+        routingService.retainMessageContent();
+        byte[] bytes = "{\"channel\":\"typed\",\"data\":[1,2]}".getBytes(CharsetUtil.UTF_8);
+        ByteBuf heap = Unpooled.copiedBuffer("[1,", CharsetUtil.UTF_8).writeBytes(bytes).writeByte(']').skipBytes(3);
+        ByteBuf direct = Unpooled.directBuffer(bytes.length).writeBytes(bytes);
+
+        routingService.massegeHandler(heap);
+        routingService.massegeHandler(direct);
+        routingService.massegeHandler(Unpooled.copiedBuffer("{\"channel\":\"typed\",\"data\":[1,3]}", CharsetUtil.UTF_8));
+
+        // DTOs cannot be compared, messages are compared by the bytes they were read from.
+        assertThat(handled).hasSize(3);
+        assertThat(MessageContentNode.contentHash(handled.get(0))).isEqualTo(MessageContentNode.contentHash(handled.get(1)));
+        assertThat(MessageContentNode.sameContent(handled.get(0), handled.get(1))).isTrue();
+        assertThat(MessageContentNode.contentHash(handled.get(0))).isNotEqualTo(MessageContentNode.contentHash(handled.get(2)));
+        assertThat(MessageContentNode.sameContent(handled.get(0), handled.get(2))).isFalse();
+        direct.release();
+    }
+
+    @Test
+    public void testRoutingFallsBackToTreeWhenPayloadDoesNotMatch() throws Exception {
+        routingService.massegeHandler(Unpooled.copiedBuffer("{\"channel\":\"typed\",\"data\":{\"result\":true}}", CharsetUtil.UTF_8));
+
+        assertThat(handled).hasSize(1);
+        assertThat(handled.get(0).get("data").get("result").asBoolean()).isTrue();
+    }
+
+    @Test
+    public void testRoutingFallsBackToTreeAfterPartOfPayloadIsRead() throws Exception {
+        byte[] bytes = ("xx[{\"channel\":\"typed\",\"data\":[1,\"x\",3],\"id\":7},"
+                + "{\"channel\":\"subscribed\",\"data\":2}]").getBytes(CharsetUtil.UTF_8);
+        ByteBuf content = Unpooled.directBuffer(bytes.length).writeBytes(bytes).skipBytes(2);
+
+        routingService.massegeHandler(content);
+
+        assertThat(handled).hasSize(2);
+        assertThat(handled.get(0).get("data").get(1).asText()).isEqualTo("x");
+        assertThat(handled.get(0).get("id").asInt()).isEqualTo(7);
+        assertThat(handled.get(1).get("data").asInt()).isEqualTo(2);
+        content.release();
+    }
+
+    @Test
+    public void testRoutingReadsCompositeBufferInPlace() throws Exception {
+        CompositeByteBuf content = Unpooled.compositeBuffer();
+        content.addComponent(true, Unpooled.copiedBuffer("{\"channel\":\"typed\",\"da", CharsetUtil.UTF_8));
+        content.addComponent(true, Unpooled.copiedBuffer("ta\":[1,2]}", CharsetUtil.UTF_8));
+
+        routingService.massegeHandler(content);
+
+        assertThat(handled).hasSize(1);
+        assertThat(new ObjectMapper().treeToValue(handled.get(0).get("data"), int[].class)).containsExactly(1, 2);
+        content.release();
+    }
+
+    @Test
+    public void testInvalidMessageIsDropped() throws Exception {
+        streamingService.massegeHandler(Unpooled.copiedBuffer("{invalid", CharsetUtil.UTF_8));
+        streamingService.massegeHandler(Unpooled.EMPTY_BUFFER);
+
+        assertThat(handled).isEmpty();
+    }
+}
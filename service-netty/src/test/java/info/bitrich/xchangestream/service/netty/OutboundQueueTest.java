@@ -0,0 +1,82 @@
+package info.bitrich.xchangestream.service.netty;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.WriteBufferWaterMark;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class OutboundQueueTest {
+
+    private OutboundQueue queue;
+    private EmbeddedChannel channel;
+
+    @Before
+    public void setUp() {
+        queue = new OutboundQueue();
+        channel = new EmbeddedChannel(queue);
+        channel.config().setWriteBufferWaterMark(new WriteBufferWaterMark(16, 32));
+    }
+
+    @Test
+    public void testWritesFramesOfOneTickWithSingleFlush() {
+        queue.offer(new TextWebSocketFrame("a"));
+        queue.offer(new TextWebSocketFrame("b"));
+        queue.offer(new TextWebSocketFrame("c"));
+
+        assertThat(channel.outboundMessages()).isEmpty();
+        assertThat(queue.getPendingCount()).isEqualTo(3);
+
+        channel.runPendingTasks();
+
+        assertThat(readText()).isEqualTo("a");
+        assertThat(readText()).isEqualTo("b");
+        assertThat(readText()).isEqualTo("c");
+        assertThat(queue.getPendingCount()).isZero();
+    }
+
+    @Test
+    public void testWaitsUntilChannelIsWritable() {
+        // Fill the outbound buffer above the high water mark without flushing it.
+        channel.write(Unpooled.wrappedBuffer(new byte[64]));
+        assertThat(channel.isWritable()).isFalse();
+
+        queue.offer(new TextWebSocketFrame("subscribe"));
+        channel.runPendingTasks();
+        assertThat(queue.getPendingCount()).isEqualTo(1);
+
+        // Flushing the buffer makes the channel writable again and the queued frame is written.
+        channel.flush();
+        channel.runPendingTasks();
+
+        assertThat(((ByteBuf) channel.readOutbound()).release()).isTrue();
+        assertThat(readText()).isEqualTo("subscribe");
+        assertThat(queue.getPendingCount()).isZero();
+    }
+
+    @Test
+    public void testReleasesFramesWhenChannelCloses() {
+        channel.write(Unpooled.wrappedBuffer(new byte[64]));
+        TextWebSocketFrame frame = new TextWebSocketFrame("subscribe");
+        queue.offer(frame);
+        channel.runPendingTasks();
+
+        channel.close();
+
+        assertThat(queue.getPendingCount()).isZero();
+        assertThat(frame.refCnt()).isZero();
+    }
+
+    private String readText() {
+        TextWebSocketFrame frame = channel.readOutbound();
+        try {
+            return frame.text();
+        } finally {
+            frame.release();
+        }
+    }
+}
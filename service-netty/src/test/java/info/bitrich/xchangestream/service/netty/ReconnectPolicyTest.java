@@ -0,0 +1,41 @@
+package info.bitrich.xchangestream.service.netty;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ReconnectPolicyTest {
+
+    @Test
+    public void testDelayGrowsExponentiallyUpToMax() throws Exception {
+        ReconnectPolicy policy = new ReconnectPolicy(100, 1000, 2, 0, -1);
+
+        assertThat(policy.getDelay(0)).isEqualTo(100);
+        assertThat(policy.getDelay(1)).isEqualTo(200);
+        assertThat(policy.getDelay(3)).isEqualTo(800);
+        assertThat(policy.getDelay(4)).isEqualTo(1000);
+        assertThat(policy.getDelay(100)).isEqualTo(1000);
+        assertThat(policy.isAttemptAllowed(Integer.MAX_VALUE)).isTrue();
+    }
+
+    @Test
+    public void testJitterStaysWithinBounds() throws Exception {
+        ReconnectPolicy policy = new ReconnectPolicy(1000, 1000, 2, 0.2, 3);
+
+        for (int i = 0; i < 1000; i++) {
+            assertThat(policy.getDelay(0)).isBetween(800L, 1200L);
+        }
+        assertThat(policy.isAttemptAllowed(2)).isTrue();
+        assertThat(policy.isAttemptAllowed(3)).isFalse();
+    }
+
+    @Test
+    public void testDisabled() throws Exception {
+        assertThat(ReconnectPolicy.DISABLED.isAttemptAllowed(0)).isFalse();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidJitter() throws Exception {
+        new ReconnectPolicy(100, 1000, 2, 1.5, -1);
+    }
+}
@@ -0,0 +1,174 @@
+package info.bitrich.xchangestream.service.netty;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import info.bitrich.xchangestream.service.netty.replay.RecordedFrame;
+import info.bitrich.xchangestream.service.netty.replay.ReplayWebSocketServer;
+import io.reactivex.observers.TestObserver;
+import io.reactivex.subjects.PublishSubject;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class RedundantStreamingServiceTest {
+
+    private ReplayWebSocketServer server;
+    private RedundantStreamingService<JsonNode> streamingService;
+
+    @After
+    public void tearDown() throws Exception {
+        if (streamingService != null) {
+            streamingService.disconnect().blockingAwait(5, TimeUnit.SECONDS);
+        }
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    @Test
+    public void testSequenceFilterPassesOnlyNewerMessages() {
+        DuplicateFilter<Long> filter = DuplicateFilter.sequence(Long::longValue);
+
+        assertThat(filter.isFirstArrival(1L)).isTrue();
+        assertThat(filter.isFirstArrival(1L)).isFalse();
+        assertThat(filter.isFirstArrival(3L)).isTrue();
+        assertThat(filter.isFirstArrival(2L)).isFalse();
+    }
+
+    @Test
+    public void testRecentKeysFilterForgetsOldestKeys() {
+        DuplicateFilter<Long> filter = DuplicateFilter.recentKeys(Long::longValue, 2);
+
+        assertThat(filter.isFirstArrival(1L)).isTrue();
+        assertThat(filter.isFirstArrival(2L)).isTrue();
+        assertThat(filter.isFirstArrival(1L)).isFalse();
+        assertThat(filter.isFirstArrival(3L)).isTrue();
+        // Key 1 fell out of the window.
+        assertThat(filter.isFirstArrival(1L)).isTrue();
+        assertThat(filter.isFirstArrival(3L)).isFalse();
+    }
+
+    @Test
+    public void testContentFilterDropsOnlyCopiesFromOtherConnections() {
+        DuplicateFilter<String> filter = DuplicateFilter.content(16, value -> value.hashCode(), String::equals);
+
+        assertThat(filter.isFirstArrival(0, "A")).isTrue();
+        assertThat(filter.isFirstArrival(1, "A")).isFalse();
+        assertThat(filter.isFirstArrival(0, "B")).isTrue();
+        // Same content again over the same connection is a new message.
+        assertThat(filter.isFirstArrival(0, "A")).isTrue();
+        assertThat(filter.isFirstArrival(1, "B")).isFalse();
+        assertThat(filter.isFirstArrival(1, "A")).isFalse();
+        assertThat(filter.isFirstArrival(1, "A")).isTrue();
+    }
+
+    @Test
+    public void testContentFilterComparesContentOfCollidingHashes() {
+        DuplicateFilter<String> filter = DuplicateFilter.content(16, value -> 0L, String::equals);
+
+        assertThat(filter.isFirstArrival(0, "A")).isTrue();
+        assertThat(filter.isFirstArrival(1, "B")).isTrue();
+        assertThat(filter.isFirstArrival(1, "A")).isFalse();
+        assertThat(filter.isFirstArrival(0, "B")).isFalse();
+    }
+
+    @Test
+    public void testCombinesConnectionStates() {
+        assertThat(RedundantStreamingService.combine(Arrays.asList(ConnectionState.CONNECTED, ConnectionState.DISCONNECTED)))
+                .isEqualTo(ConnectionState.CONNECTED);
+        assertThat(RedundantStreamingService.combine(Arrays.asList(ConnectionState.RECONNECTING, ConnectionState.DISCONNECTED)))
+                .isEqualTo(ConnectionState.RECONNECTING);
+        assertThat(RedundantStreamingService.combine(Arrays.asList(ConnectionState.DISCONNECTED, ConnectionState.DISCONNECTED)))
+                .isEqualTo(ConnectionState.DISCONNECTED);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testEmitsFirstCopyAndSurvivesLossOfConnection() {
+        PublishSubject<Long> first = PublishSubject.create();
+        PublishSubject<Long> second = PublishSubject.create();
+        NettyStreamingService<Long> firstConnection = mock(NettyStreamingService.class);
+        NettyStreamingService<Long> secondConnection = mock(NettyStreamingService.class);
+        when(firstConnection.subscribeChannel("trades")).thenReturn(first);
+        when(secondConnection.subscribeChannel("trades")).thenReturn(second);
+        RedundantStreamingService<Long> service = new RedundantStreamingService<>(
+                Arrays.asList(firstConnection, secondConnection), channel -> DuplicateFilter.sequence(Long::longValue));
+
+        TestObserver<Long> test = service.subscribeChannel("trades").test();
+        first.onNext(1L);
+        second.onNext(1L);
+        second.onNext(2L);
+        first.onNext(2L);
+        first.onError(new IOException("Connection lost"));
+        second.onNext(3L);
+
+        test.assertValues(1L, 2L, 3L);
+        test.assertNotTerminated();
+
+        // Errors of all connections are delivered together.
+        second.onError(new IOException("Connection lost"));
+        test.assertTerminated();
+        assertThat(test.errorCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void testDeduplicatesMessagesOfAllConnections() throws Exception {
+        List<RecordedFrame> frames = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            frames.add(new RecordedFrame(0, "{\"channel\":\"trades\",\"data\":" + i + "}"));
+        }
+        server = new ReplayWebSocketServer(frames);
+        server.setSpeed(ReplayWebSocketServer.AS_FAST_AS_POSSIBLE);
+        String uri = server.start().toString();
+
+        streamingService = new RedundantStreamingService<>(2, connection -> new TestStreamingService(uri, connection),
+                channel -> DuplicateFilter.jsonContent(16));
+        streamingService.connect().blockingAwait(5, TimeUnit.SECONDS);
+        assertThat(streamingService.getConnectionState()).isEqualTo(ConnectionState.CONNECTED);
+
+        TestObserver<JsonNode> test = streamingService.subscribeChannel("trades").test();
+        assertThat(server.getReceivedMessages().poll(5, TimeUnit.SECONDS)).isEqualTo("trades");
+        assertThat(server.getReceivedMessages().poll(5, TimeUnit.SECONDS)).isEqualTo("trades");
+
+        // Both connections get the whole replay.
+        for (int i = 0; i < 100 && streamingService.getConnections().stream()
+                .anyMatch(connection -> connection.getReceivedFrameCount() < 3); i++) {
+            Thread.sleep(10);
+        }
+        // Frame is counted before it is dispatched.
+        Thread.sleep(100);
+        test.assertValueCount(3);
+        for (int i = 0; i < 3; i++) {
+            assertThat(test.values().get(i).get("data").asInt()).isEqualTo(i);
+        }
+    }
+
+    private static class TestStreamingService extends JsonNettyStreamingService {
+        TestStreamingService(String uri, int connection) {
+            super(uri, new EventLoopGroupProvider(1, "test-connection-" + connection));
+        }
+
+        @Override
+        protected String getChannelNameFromMessage(JsonNode message) {
+            return message.get("channel").asText();
+        }
+
+        @Override
+        public String getSubscribeMessage(String channelName) {
+            return channelName;
+        }
+
+        @Override
+        public String getUnsubscribeMessage(String channelName) {
+            return "unsubscribe " + channelName;
+        }
+    }
+}
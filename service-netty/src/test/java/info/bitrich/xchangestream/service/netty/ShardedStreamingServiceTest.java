@@ -0,0 +1,133 @@
+package info.bitrich.xchangestream.service.netty;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import info.bitrich.xchangestream.service.netty.replay.RecordedFrame;
+import info.bitrich.xchangestream.service.netty.replay.ReplayWebSocketServer;
+import io.reactivex.observers.TestObserver;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ShardedStreamingServiceTest {
+
+    private ReplayWebSocketServer server;
+    private ShardedStreamingService<JsonNode> streamingService;
+
+    @After
+    public void tearDown() throws Exception {
+        if (streamingService != null) {
+            streamingService.disconnect().blockingAwait(5, TimeUnit.SECONDS);
+        }
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    @Test
+    public void testHashAssignmentSpreadsChannels() {
+        ShardAssignment assignment = ShardAssignment.hash();
+        int[] counts = new int[4];
+        for (int i = 0; i < 1000; i++) {
+            int shard = assignment.shardOf("ok_btcusd_depth_" + i, 4);
+            assertThat(assignment.shardOf("ok_btcusd_depth_" + i, 4)).isEqualTo(shard);
+            counts[shard]++;
+        }
+        for (int count : counts) {
+            assertThat(count).isBetween(150, 350);
+        }
+    }
+
+    @Test
+    public void testExplicitAssignmentOverridesFallback() {
+        ShardAssignment assignment = ShardAssignment.explicit(Collections.singletonMap("depth", 3), (channel, shards) -> 0);
+
+        assertThat(assignment.shardOf("depth", 4)).isEqualTo(3);
+        assertThat(assignment.shardOf("ticker", 4)).isZero();
+    }
+
+    @Test
+    public void testCombinesConnectionStates() {
+        assertThat(ShardedStreamingService.combine(Arrays.asList(ConnectionState.CONNECTED, ConnectionState.CONNECTED)))
+                .isEqualTo(ConnectionState.CONNECTED);
+        assertThat(ShardedStreamingService.combine(Arrays.asList(ConnectionState.CONNECTED, ConnectionState.RECONNECTING)))
+                .isEqualTo(ConnectionState.RECONNECTING);
+        assertThat(ShardedStreamingService.combine(Arrays.asList(ConnectionState.RECONNECTING, ConnectionState.DISCONNECTED)))
+                .isEqualTo(ConnectionState.DISCONNECTED);
+    }
+
+    @Test
+    public void testSubscribesChannelsOnAssignedConnections() throws Exception {
+        List<RecordedFrame> frames = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            frames.add(new RecordedFrame(0, "{\"channel\":\"trades\",\"data\":" + i + "}"));
+        }
+        server = new ReplayWebSocketServer(frames);
+        server.setSpeed(ReplayWebSocketServer.AS_FAST_AS_POSSIBLE);
+        String uri = server.start().toString();
+
+        List<String> channels = Arrays.asList("trades", "ticker", "depth");
+        streamingService = new ShardedStreamingService<>(3, shard -> new TestStreamingService(uri, shard),
+                (channel, shards) -> channels.indexOf(channel));
+        streamingService.connect().blockingAwait(5, TimeUnit.SECONDS);
+        assertThat(streamingService.getConnectionState()).isEqualTo(ConnectionState.CONNECTED);
+
+        TestObserver<JsonNode> trades = streamingService.subscribeChannel("trades").test();
+        streamingService.subscribeChannel("ticker").test();
+        streamingService.subscribeChannel("depth").test();
+
+        Set<String> subscribed = new HashSet<>();
+        for (int i = 0; i < 3; i++) {
+            subscribed.add(server.getReceivedMessages().poll(5, TimeUnit.SECONDS));
+        }
+        assertThat(subscribed).containsOnlyElementsOf(channels).hasSize(3);
+        assertThat(server.getClientCount()).isEqualTo(3);
+
+        // Every connection replays the recording, only the one with trades channel emits it.
+        for (int i = 0; i < 100 && trades.valueCount() < 3; i++) {
+            Thread.sleep(10);
+        }
+        trades.assertValueCount(3);
+        for (int i = 0; i < 100 && streamingService.getShardMetrics().stream()
+                .anyMatch(shard -> shard.getReceivedFrameCount() < 3); i++) {
+            Thread.sleep(10);
+        }
+
+        List<ShardMetrics> metrics = streamingService.getShardMetrics();
+        assertThat(metrics).hasSize(3);
+        for (ShardMetrics shard : metrics) {
+            assertThat(shard.getConnectionState()).isEqualTo(ConnectionState.CONNECTED);
+            assertThat(shard.getChannelCount()).isEqualTo(1);
+            assertThat(shard.getReceivedFrameCount()).isEqualTo(3);
+        }
+    }
+
+    private static class TestStreamingService extends JsonNettyStreamingService {
+        TestStreamingService(String uri, int shard) {
+            super(uri, new EventLoopGroupProvider(1, "test-shard-" + shard));
+        }
+
+        @Override
+        protected String getChannelNameFromMessage(JsonNode message) {
+            return message.get("channel").asText();
+        }
+
+        @Override
+        public String getSubscribeMessage(String channelName) {
+            return channelName;
+        }
+
+        @Override
+        public String getUnsubscribeMessage(String channelName) {
+            return "unsubscribe " + channelName;
+        }
+    }
+}
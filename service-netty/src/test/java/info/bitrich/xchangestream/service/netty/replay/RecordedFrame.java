@@ -0,0 +1,74 @@
+package info.bitrich.xchangestream.service.netty.replay;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Text frame captured from the exchange together with the time it was received, relative to the start of the capture.
+ */
+public class RecordedFrame {
+    private final long offsetNanos;
+    private final String text;
+
+    public RecordedFrame(long offsetNanos, String text) {
+        this.offsetNanos = offsetNanos;
+        this.text = text;
+    }
+
+    /**
+     * Frame that is sent right after the previous one.
+     */
+    public RecordedFrame(String text) {
+        this(0, text);
+    }
+
+    /**
+     * Reads the capture with one frame per line. Line can be prefixed with the time the frame was received in
+     * microseconds since the start of the capture, separated by a tab. Frames without time are sent right after the
+     * previous frame. Empty lines are skipped.
+     */
+    public static List<RecordedFrame> read(Path capture) throws IOException {
+        List<RecordedFrame> frames = new ArrayList<>();
+        long offset = 0;
+        for (String line : Files.readAllLines(capture, StandardCharsets.UTF_8)) {
+            if (line.isEmpty()) {
+                continue;
+            }
+            int tab = line.indexOf('\t');
+            if (tab > 0 && isNumber(line, tab)) {
+                offset = TimeUnit.MICROSECONDS.toNanos(Long.parseLong(line.substring(0, tab)));
+                frames.add(new RecordedFrame(offset, line.substring(tab + 1)));
+            } else {
+                frames.add(new RecordedFrame(offset, line));
+            }
+        }
+        return frames;
+    }
+
+    private static boolean isNumber(String line, int end) {
+        for (int i = 0; i < end; i++) {
+            if (!Character.isDigit(line.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public long getOffsetNanos() {
+        return offsetNanos;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    @Override
+    public String toString() {
+        return "RecordedFrame [offsetNanos=" + offsetNanos + ", text=" + text + "]";
+    }
+}
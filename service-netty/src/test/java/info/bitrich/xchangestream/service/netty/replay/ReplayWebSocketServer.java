@@ -0,0 +1,341 @@
+package info.bitrich.xchangestream.service.netty.replay;
+
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.group.ChannelGroup;
+import io.netty.channel.group.DefaultChannelGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpServerCodec;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http.websocketx.CloseWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.ContinuationWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.PingWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.PongWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocketServerHandshaker;
+import io.netty.handler.codec.http.websocketx.WebSocketServerHandshakerFactory;
+import io.netty.util.CharsetUtil;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import io.netty.util.concurrent.GlobalEventExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Embedded WebSocket server standing in for the exchange in tests. Every connected client gets the recorded frames
+ * replayed at the configured speed.
+ * <p>
+ * By default the replay starts with the first text message received from the client, typically the subscribe
+ * message. Messages received from clients are kept in {@link #getReceivedMessages()}. Pings are answered with pongs,
+ * close frames are answered with close frames, and pongs received after {@link #sendPing()} are counted.
+ * </p>
+ */
+public class ReplayWebSocketServer implements Closeable {
+    private static final Logger LOG = LoggerFactory.getLogger(ReplayWebSocketServer.class);
+
+    /**
+     * Replays frames one after another, as fast as the client reads them.
+     */
+    public static final double AS_FAST_AS_POSSIBLE = Double.POSITIVE_INFINITY;
+
+    private final List<ByteBuf> frames;
+    private final long[] offsets;
+    private final long duration;
+    private final BlockingQueue<String> receivedMessages = new LinkedBlockingQueue<>();
+    private final AtomicInteger pongs = new AtomicInteger();
+    private final ChannelGroup clients = new DefaultChannelGroup(GlobalEventExecutor.INSTANCE);
+    // Clients that sent at least one text message.
+    private final ChannelGroup activeClients = new DefaultChannelGroup(GlobalEventExecutor.INSTANCE);
+
+    private volatile double speed = 1;
+    private volatile int repeat = 1;
+    private volatile boolean replayOnSubscribe = true;
+    private volatile int fragmentSize;
+    private EventLoopGroup group;
+    private Channel serverChannel;
+    private URI uri;
+
+    public ReplayWebSocketServer(List<RecordedFrame> recordedFrames) {
+        frames = new ArrayList<>(recordedFrames.size());
+        offsets = new long[recordedFrames.size()];
+        for (int i = 0; i < offsets.length; i++) {
+            RecordedFrame frame = recordedFrames.get(i);
+            // Encoded once and shared by all writes, frames are never released.
+            frames.add(Unpooled.unreleasableBuffer(Unpooled.copiedBuffer(frame.getText(), CharsetUtil.UTF_8)));
+            offsets[i] = frame.getOffsetNanos();
+        }
+        duration = offsets.length == 0 ? 0 : offsets[offsets.length - 1];
+    }
+
+    /**
+     * Sets speed of the replay relative to the recording, e.g. 2 replays twice as fast as recorded.
+     * {@link #AS_FAST_AS_POSSIBLE} ignores recorded times. Default is 1, the recorded speed.
+     */
+    public void setSpeed(double speed) {
+        if (!(speed > 0)) {
+            throw new IllegalArgumentException("Speed must be positive.");
+        }
+        this.speed = speed;
+    }
+
+    /**
+     * Sets how many times the recording is replayed to every client. Default is 1.
+     */
+    public void setRepeat(int repeat) {
+        if (repeat < 1) {
+            throw new IllegalArgumentException("Recording must be replayed at least once.");
+        }
+        this.repeat = repeat;
+    }
+
+    /**
+     * When true (default) the replay starts with the first text message received from the client, otherwise right
+     * after the handshake.
+     */
+    public void setReplayOnSubscribe(boolean replayOnSubscribe) {
+        this.replayOnSubscribe = replayOnSubscribe;
+    }
+
+    /**
+     * Sends frames longer than the given size as a text frame followed by continuation frames of at most that size,
+     * the way exchanges send large snapshots. 0 (default) sends every frame whole.
+     */
+    public void setFragmentSize(int fragmentSize) {
+        if (fragmentSize < 0) {
+            throw new IllegalArgumentException("Fragment size cannot be negative.");
+        }
+        this.fragmentSize = fragmentSize;
+    }
+
+    /**
+     * Starts the server on an ephemeral port of the loopback interface.
+     *
+     * @return URI clients connect to.
+     */
+    public synchronized URI start() throws InterruptedException {
+        if (serverChannel != null) {
+            return uri;
+        }
+        group = new NioEventLoopGroup(1, new DefaultThreadFactory("replay-server", true));
+        serverChannel = new ServerBootstrap()
+                .group(group)
+                .channel(NioServerSocketChannel.class)
+                .childHandler(new ChannelInitializer<SocketChannel>() {
+                    @Override
+                    protected void initChannel(SocketChannel ch) {
+                        ch.pipeline().addLast(
+                                new HttpServerCodec(),
+                                new HttpObjectAggregator(65536),
+                                new ReplayHandler());
+                    }
+                })
+                .bind("127.0.0.1", 0).sync().channel();
+        int port = ((InetSocketAddress) serverChannel.localAddress()).getPort();
+        uri = URI.create("ws://127.0.0.1:" + port + "/websocket");
+        LOG.info("Replay server listening on {}.", uri);
+        return uri;
+    }
+
+    public URI getUri() {
+        return uri;
+    }
+
+    /**
+     * Text messages received from all clients, in order of arrival.
+     */
+    public BlockingQueue<String> getReceivedMessages() {
+        return receivedMessages;
+    }
+
+    /**
+     * Number of pongs received from clients.
+     */
+    public int getPongCount() {
+        return pongs.get();
+    }
+
+    /**
+     * Number of connected clients that completed the handshake.
+     */
+    public int getClientCount() {
+        return clients.size();
+    }
+
+    /**
+     * Sends ping to all connected clients.
+     */
+    public void sendPing() {
+        clients.writeAndFlush(new PingWebSocketFrame(Unpooled.copiedBuffer("ping", CharsetUtil.UTF_8)));
+    }
+
+    /**
+     * Closes connections of all clients with the close frame, the way a server going down for maintenance does.
+     */
+    public void closeClients() {
+        clients.writeAndFlush(new CloseWebSocketFrame(1001, "Going away")).addListener(future -> clients.close());
+    }
+
+    /**
+     * Drops connections of all clients without the close frame, the way a broken network does.
+     */
+    public void dropClients() {
+        clients.close();
+    }
+
+    /**
+     * Drops connections of clients that sent a text message, e.g. a subscription, leaving idle connections open.
+     */
+    public void dropActiveClients() {
+        activeClients.close();
+    }
+
+    @Override
+    public synchronized void close() {
+        if (serverChannel == null) {
+            return;
+        }
+        clients.close().awaitUninterruptibly();
+        serverChannel.close().awaitUninterruptibly();
+        group.shutdownGracefully(0, 1, TimeUnit.SECONDS).awaitUninterruptibly();
+        serverChannel = null;
+    }
+
+    private class ReplayHandler extends SimpleChannelInboundHandler<Object> {
+        private WebSocketServerHandshaker handshaker;
+        private boolean replaying;
+        private int loop;
+        private int index;
+        private long startNanos;
+
+        @Override
+        protected void channelRead0(ChannelHandlerContext ctx, Object msg) {
+            if (msg instanceof FullHttpRequest) {
+                handshake(ctx, (FullHttpRequest) msg);
+                return;
+            }
+
+            WebSocketFrame frame = (WebSocketFrame) msg;
+            if (frame instanceof TextWebSocketFrame) {
+                receivedMessages.add(((TextWebSocketFrame) frame).text());
+                activeClients.add(ctx.channel());
+                if (!replaying) {
+                    startReplay(ctx);
+                }
+            } else if (frame instanceof PingWebSocketFrame) {
+                ctx.writeAndFlush(new PongWebSocketFrame(frame.content().retain()));
+            } else if (frame instanceof PongWebSocketFrame) {
+                pongs.incrementAndGet();
+            } else if (frame instanceof CloseWebSocketFrame) {
+                handshaker.close(ctx.channel(), (CloseWebSocketFrame) frame.retain());
+            }
+        }
+
+        private void handshake(ChannelHandlerContext ctx, FullHttpRequest request) {
+            String location = "ws://" + request.headers().get("Host") + request.uri();
+            handshaker = new WebSocketServerHandshakerFactory(location, null, true, 65536).newHandshaker(request);
+            if (handshaker == null) {
+                WebSocketServerHandshakerFactory.sendUnsupportedVersionResponse(ctx.channel());
+                return;
+            }
+            handshaker.handshake(ctx.channel(), request).addListener((ChannelFutureListener) future -> {
+                if (!future.isSuccess()) {
+                    ctx.writeAndFlush(new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.BAD_REQUEST))
+                            .addListener(ChannelFutureListener.CLOSE);
+                    return;
+                }
+                clients.add(ctx.channel());
+                if (!replayOnSubscribe) {
+                    startReplay(ctx);
+                }
+            });
+        }
+
+        private void startReplay(ChannelHandlerContext ctx) {
+            replaying = true;
+            startNanos = System.nanoTime();
+            replay(ctx);
+        }
+
+        /**
+         * Writes frames that are due, then either waits until the channel is writable again or schedules itself
+         * for the next frame.
+         */
+        private void replay(ChannelHandlerContext ctx) {
+            Channel channel = ctx.channel();
+            boolean written = false;
+            while (loop < repeat && !frames.isEmpty() && channel.isActive()) {
+                if (!channel.isWritable()) {
+                    // Continues from channelWritabilityChanged.
+                    break;
+                }
+                if (speed != AS_FAST_AS_POSSIBLE) {
+                    long due = (long) ((loop * duration + offsets[index]) / speed);
+                    long delay = due - (System.nanoTime() - startNanos);
+                    if (delay > 0) {
+                        ctx.executor().schedule(() -> replay(ctx), delay, TimeUnit.NANOSECONDS);
+                        break;
+                    }
+                }
+                write(ctx, frames.get(index).duplicate());
+                written = true;
+                if (++index == frames.size()) {
+                    index = 0;
+                    loop++;
+                }
+            }
+            if (written) {
+                ctx.flush();
+            }
+        }
+
+        private void write(ChannelHandlerContext ctx, ByteBuf content) {
+            int size = fragmentSize;
+            if (size == 0 || content.readableBytes() <= size) {
+                ctx.write(new TextWebSocketFrame(content));
+                return;
+            }
+            ctx.write(new TextWebSocketFrame(false, 0, content.readSlice(size)));
+            while (content.readableBytes() > size) {
+                ctx.write(new ContinuationWebSocketFrame(false, 0, content.readSlice(size)));
+            }
+            ctx.write(new ContinuationWebSocketFrame(true, 0, content));
+        }
+
+        @Override
+        public void channelWritabilityChanged(ChannelHandlerContext ctx) {
+            if (replaying && ctx.channel().isWritable()) {
+                replay(ctx);
+            }
+            ctx.fireChannelWritabilityChanged();
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+            LOG.warn("Closing replay connection: {}", cause.toString());
+            ctx.close();
+        }
+    }
+}
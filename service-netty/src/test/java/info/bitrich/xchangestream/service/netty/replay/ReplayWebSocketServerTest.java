@@ -0,0 +1,374 @@
+package info.bitrich.xchangestream.service.netty.replay;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import info.bitrich.xchangestream.service.netty.ConnectionState;
+import info.bitrich.xchangestream.service.netty.JsonNettyStreamingService;
+import info.bitrich.xchangestream.service.netty.ReconnectPolicy;
+import io.reactivex.observers.TestObserver;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ReplayWebSocketServerTest {
+
+    private ReplayWebSocketServer server;
+    private JsonNettyStreamingService streamingService;
+
+    @Before
+    public void setUp() throws Exception {
+        List<RecordedFrame> frames = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            frames.add(new RecordedFrame(TimeUnit.MILLISECONDS.toNanos(20 * i), "{\"channel\":\"trades\",\"data\":" + i + "}"));
+        }
+        server = new ReplayWebSocketServer(frames);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (streamingService != null) {
+            streamingService.disconnect().blockingAwait(5, TimeUnit.SECONDS);
+        }
+        server.close();
+    }
+
+    @Test
+    public void testReplaysRecordingAfterSubscribe() throws Exception {
+        server.setSpeed(ReplayWebSocketServer.AS_FAST_AS_POSSIBLE);
+        server.setRepeat(100);
+        connect();
+
+        TestObserver<JsonNode> test = streamingService.subscribeChannel("trades").test();
+
+        awaitCount(test, 300);
+        test.assertValueCount(300);
+        assertThat(test.values().get(299).get("data").asInt()).isEqualTo(2);
+        assertThat(server.getReceivedMessages().poll(5, TimeUnit.SECONDS)).isEqualTo("trades");
+    }
+
+    @Test
+    public void testParsesFramesOnWorkerThread() throws Exception {
+        server.setSpeed(ReplayWebSocketServer.AS_FAST_AS_POSSIBLE);
+        server.setRepeat(100);
+        connect(64);
+
+        List<String> threads = new CopyOnWriteArrayList<>();
+        TestObserver<JsonNode> test = streamingService.subscribeChannel("trades")
+                .doOnNext(message -> threads.add(Thread.currentThread().getName()))
+                .test();
+
+        awaitCount(test, 300);
+        test.assertValueCount(300);
+        for (int i = 0; i < 300; i++) {
+            assertThat(test.values().get(i).get("data").asInt()).isEqualTo(i % 3);
+        }
+        assertThat(threads).allMatch(thread -> thread.startsWith("xchange-stream-parser-"));
+    }
+
+    @Test
+    public void testReassemblesFragmentedMessages() throws Exception {
+        StringBuilder snapshot = new StringBuilder("{\"channel\":\"depth\",\"data\":[");
+        for (int i = 0; i < 10000; i++) {
+            snapshot.append(i == 0 ? "" : ",").append(i);
+        }
+        snapshot.append("]}");
+        server.close();
+        server = new ReplayWebSocketServer(Arrays.asList(
+                new RecordedFrame(0, snapshot.toString()),
+                new RecordedFrame(0, "{\"channel\":\"depth\",\"data\":[]}")));
+        server.setSpeed(ReplayWebSocketServer.AS_FAST_AS_POSSIBLE);
+        server.setFragmentSize(1000);
+        connect();
+
+        TestObserver<JsonNode> test = streamingService.subscribeChannel("depth").test();
+
+        awaitCount(test, 2);
+        test.assertValueCount(2);
+        assertThat(test.values().get(0).get("data").size()).isEqualTo(10000);
+        assertThat(test.values().get(0).get("data").get(9999).asInt()).isEqualTo(9999);
+        assertThat(test.values().get(1).get("data").size()).isZero();
+    }
+
+    @Test
+    public void testDropsFragmentedMessageLongerThanMaximum() throws Exception {
+        server.close();
+        server = new ReplayWebSocketServer(Arrays.asList(
+                new RecordedFrame(0, "{\"channel\":\"depth\",\"data\":\"" + new String(new char[100]).replace('\0', 'x') + "\"}"),
+                new RecordedFrame(0, "{\"channel\":\"depth\",\"data\":\"short\"}")));
+        server.setSpeed(ReplayWebSocketServer.AS_FAST_AS_POSSIBLE);
+        server.setFragmentSize(30);
+        streamingService = createService();
+        streamingService.setMaxMessageLength(1000, 100);
+        streamingService.connect().blockingAwait(5, TimeUnit.SECONDS);
+
+        TestObserver<JsonNode> test = streamingService.subscribeChannel("depth").test();
+
+        awaitCount(test, 1);
+        test.assertValueCount(1);
+        assertThat(test.values().get(0).get("data").asText()).isEqualTo("short");
+        assertThat(streamingService.getConnectionState()).isEqualTo(ConnectionState.CONNECTED);
+    }
+
+    @Test
+    public void testReplaysAtRecordedSpeed() throws Exception {
+        server.setSpeed(2);
+        connect();
+
+        long start = System.nanoTime();
+        TestObserver<JsonNode> test = streamingService.subscribeChannel("trades").test();
+
+        awaitCount(test, 3);
+        test.assertValueCount(3);
+        // Last frame was recorded 40 ms after the first one.
+        assertThat(System.nanoTime() - start).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(20));
+    }
+
+    @Test
+    public void testPingIsAnsweredWithPong() throws Exception {
+        connect();
+        // Client may see the handshake response before the server registers the connection.
+        for (int i = 0; i < 100 && server.getClientCount() == 0; i++) {
+            Thread.sleep(50);
+        }
+
+        server.sendPing();
+
+        for (int i = 0; i < 100 && server.getPongCount() == 0; i++) {
+            Thread.sleep(50);
+        }
+        assertThat(server.getPongCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void testHeartbeatMeasuresPingRoundTrip() throws Exception {
+        server.setReplayOnSubscribe(false);
+        connect();
+        streamingService.disconnect().blockingAwait(5, TimeUnit.SECONDS);
+        streamingService.setHeartbeat(20, 1000);
+        streamingService.connect().blockingAwait(5, TimeUnit.SECONDS);
+
+        for (int i = 0; i < 100 && streamingService.getPingRoundTripNanos() < 0; i++) {
+            Thread.sleep(50);
+        }
+        assertThat(streamingService.getPingRoundTripNanos()).isBetween(0L, TimeUnit.SECONDS.toNanos(5));
+    }
+
+    @Test
+    public void testSignalsStaleChannelAndReconnects() throws Exception {
+        server.setReplayOnSubscribe(false);
+        connect();
+        streamingService.setReconnectPolicy(new ReconnectPolicy(10, 10, 1, 0, -1));
+        streamingService.setStaleChannelTimeout("quiet", 200, true);
+        TestObserver<String> stale = streamingService.subscribeStaleChannels().test();
+
+        TestObserver<JsonNode> test = streamingService.subscribeChannel("quiet").test();
+        assertThat(server.getReceivedMessages().poll(5, TimeUnit.SECONDS)).isEqualTo("quiet");
+        assertThat(streamingService.getLastMessageAgeNanos("quiet")).isGreaterThanOrEqualTo(0);
+        assertThat(streamingService.getLastMessageAgeNanos("trades")).isEqualTo(-1);
+
+        // Channel is resubscribed on the new connection.
+        assertThat(server.getReceivedMessages().poll(5, TimeUnit.SECONDS)).isEqualTo("quiet");
+        assertThat(stale.values()).first().isEqualTo("quiet");
+        test.assertNotTerminated();
+    }
+
+    @Test
+    public void testConnectTakesOverWarmConnection() throws Exception {
+        server.setSpeed(ReplayWebSocketServer.AS_FAST_AS_POSSIBLE);
+        streamingService = createService();
+        streamingService.warmUp().blockingAwait(5, TimeUnit.SECONDS);
+        awaitClientCount(1);
+
+        streamingService.connect().blockingAwait(5, TimeUnit.SECONDS);
+        assertThat(streamingService.getConnectionState()).isEqualTo(ConnectionState.CONNECTED);
+
+        TestObserver<JsonNode> test = streamingService.subscribeChannel("trades").test();
+        awaitCount(test, 3);
+        test.assertValueCount(3);
+        assertThat(server.getClientCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void testFailsOverToWarmStandby() throws Exception {
+        server.setSpeed(ReplayWebSocketServer.AS_FAST_AS_POSSIBLE);
+        streamingService = createService();
+        streamingService.setWarmStandby(true);
+        // Reconnect delay this long would fail the test if the standby did not take over.
+        streamingService.setReconnectPolicy(new ReconnectPolicy(60000, 60000, 1, 0, -1));
+        streamingService.connect().blockingAwait(5, TimeUnit.SECONDS);
+        awaitClientCount(2);
+        TestObserver<ConnectionState> states = streamingService.subscribeConnectionState().test();
+
+        TestObserver<JsonNode> test = streamingService.subscribeChannel("trades").test();
+        awaitCount(test, 3);
+        assertThat(server.getReceivedMessages().poll(5, TimeUnit.SECONDS)).isEqualTo("trades");
+
+        server.dropActiveClients();
+
+        assertThat(server.getReceivedMessages().poll(5, TimeUnit.SECONDS)).isEqualTo("trades");
+        awaitCount(test, 6);
+        test.assertValueCount(6);
+        test.assertNotTerminated();
+        assertThat(states.values()).containsOnly(ConnectionState.CONNECTED);
+        // New standby is opened once the previous one took over.
+        awaitClientCount(2);
+        assertThat(server.getClientCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void testReconnectsAndResubscribesWhenServerCloses() throws Exception {
+        server.setSpeed(ReplayWebSocketServer.AS_FAST_AS_POSSIBLE);
+        connect();
+        streamingService.setReconnectPolicy(new ReconnectPolicy(10, 10, 1, 0, -1));
+        TestObserver<ConnectionState> states = streamingService.subscribeConnectionState().test();
+
+        TestObserver<JsonNode> test = streamingService.subscribeChannel("trades").test();
+        awaitCount(test, 3);
+        assertThat(server.getReceivedMessages().poll(5, TimeUnit.SECONDS)).isEqualTo("trades");
+
+        server.closeClients();
+
+        // Subscribe message is sent again on the new connection and the same subscriber gets the replay.
+        assertThat(server.getReceivedMessages().poll(5, TimeUnit.SECONDS)).isEqualTo("trades");
+        awaitCount(test, 6);
+        test.assertValueCount(6);
+        test.assertNotTerminated();
+        assertThat(states.values()).contains(ConnectionState.RECONNECTING);
+        assertThat(streamingService.getConnectionState()).isEqualTo(ConnectionState.CONNECTED);
+    }
+
+    @Test
+    public void testSubscribesAgainAfterDisconnectAndConnect() throws Exception {
+        server.setSpeed(ReplayWebSocketServer.AS_FAST_AS_POSSIBLE);
+        connect();
+        TestObserver<JsonNode> before = streamingService.subscribeChannel("trades").test();
+        awaitCount(before, 3);
+        assertThat(server.getReceivedMessages().poll(5, TimeUnit.SECONDS)).isEqualTo("trades");
+
+        streamingService.disconnect().blockingAwait(5, TimeUnit.SECONDS);
+        before.assertComplete();
+        assertThat(streamingService.getSubscribedChannelCount()).isZero();
+        streamingService.connect().blockingAwait(5, TimeUnit.SECONDS);
+
+        TestObserver<JsonNode> after = streamingService.subscribeChannel("trades").test();
+        assertThat(server.getReceivedMessages().poll(5, TimeUnit.SECONDS)).isEqualTo("trades");
+        awaitCount(after, 3);
+        after.assertValueCount(3);
+        after.assertNotTerminated();
+    }
+
+    @Test
+    public void testResubscribesAllChannelsAfterReconnect() throws Exception {
+        server.setReplayOnSubscribe(false);
+        connect();
+        streamingService.setReconnectPolicy(new ReconnectPolicy(10, 10, 1, 0, -1));
+
+        List<TestObserver<JsonNode>> subscribers = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            subscribers.add(streamingService.subscribeChannel("channel-" + i).test());
+        }
+        for (int i = 0; i < 50; i++) {
+            assertThat(server.getReceivedMessages().poll(5, TimeUnit.SECONDS)).isEqualTo("channel-" + i);
+        }
+
+        server.closeClients();
+
+        List<String> resubscribed = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            resubscribed.add(server.getReceivedMessages().poll(5, TimeUnit.SECONDS));
+        }
+        assertThat(resubscribed).hasSize(50).doesNotContainNull().doesNotHaveDuplicates().allMatch(m -> m.startsWith("channel-"));
+
+        // Cached unsubscribe frame is sent for every subscriber that goes away.
+        subscribers.get(7).dispose();
+        assertThat(server.getReceivedMessages().poll(5, TimeUnit.SECONDS)).isEqualTo("unsubscribe channel-7");
+    }
+
+    @Test
+    public void testQueuesMessagesWhileNotWritable() throws Exception {
+        server.setReplayOnSubscribe(false);
+        connect();
+        streamingService.disconnect().blockingAwait(5, TimeUnit.SECONDS);
+        // Water marks this low make the channel unwritable after every message.
+        streamingService.setWriteBufferWaterMark(8, 16);
+        streamingService.connect().blockingAwait(5, TimeUnit.SECONDS);
+
+        for (int i = 0; i < 500; i++) {
+            streamingService.sendMessage("message-" + i);
+        }
+
+        for (int i = 0; i < 500; i++) {
+            assertThat(server.getReceivedMessages().poll(5, TimeUnit.SECONDS)).isEqualTo("message-" + i);
+        }
+        assertThat(streamingService.getPendingMessageCount()).isZero();
+    }
+
+    @Test
+    public void testRecordsFramesToJournal() throws Exception {
+        server.setSpeed(ReplayWebSocketServer.AS_FAST_AS_POSSIBLE);
+        connect();
+        List<String> journal = new CopyOnWriteArrayList<>();
+        streamingService.setJournal((receiveNanos, channel, payload) ->
+                journal.add(channel + " " + StandardCharsets.UTF_8.decode(payload.duplicate())));
+
+        TestObserver<JsonNode> test = streamingService.subscribeChannel("trades").test();
+
+        awaitCount(test, 3);
+        assertThat(journal).containsExactly(
+                server.getUri() + " {\"channel\":\"trades\",\"data\":0}",
+                server.getUri() + " {\"channel\":\"trades\",\"data\":1}",
+                server.getUri() + " {\"channel\":\"trades\",\"data\":2}");
+    }
+
+    private static void awaitCount(TestObserver<?> test, int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (test.valueCount() < count && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    private void connect() throws Exception {
+        connect(0);
+    }
+
+    private void awaitClientCount(int count) throws InterruptedException {
+        // Client may see the handshake response before the server registers the connection.
+        for (int i = 0; i < 100 && server.getClientCount() != count; i++) {
+            Thread.sleep(50);
+        }
+    }
+
+    private void connect(int parserRingCapacity) throws Exception {
+        streamingService = createService();
+        streamingService.setParserRingCapacity(parserRingCapacity);
+        streamingService.connect().blockingAwait(5, TimeUnit.SECONDS);
+        assertThat(streamingService.getConnectionState()).isEqualTo(ConnectionState.CONNECTED);
+    }
+
+    private JsonNettyStreamingService createService() throws Exception {
+        return new JsonNettyStreamingService(server.start().toString()) {
+            @Override
+            protected String getChannelNameFromMessage(JsonNode message) {
+                return message.get("channel").asText();
+            }
+
+            @Override
+            public String getSubscribeMessage(String channelName) {
+                return channelName;
+            }
+
+            @Override
+            public String getUnsubscribeMessage(String channelName) {
+                return "unsubscribe " + channelName;
+            }
+        };
+    }
+}
@@ -2,22 +2,41 @@ package info.bitrich.xchangestream.service.pusher;
 
 import com.pusher.client.Pusher;
 import com.pusher.client.channel.Channel;
+import com.pusher.client.channel.SubscriptionEventListener;
 import com.pusher.client.connection.ConnectionEventListener;
 import com.pusher.client.connection.ConnectionState;
 import com.pusher.client.connection.ConnectionStateChange;
+import info.bitrich.xchangestream.service.backpressure.OverflowStrategy;
 import info.bitrich.xchangestream.service.exception.NotConnectedException;
+import info.bitrich.xchangestream.service.journal.FrameJournal;
+import info.bitrich.xchangestream.service.journal.ReplayableStreamingService;
+import info.bitrich.xchangestream.service.metrics.FrameContext;
 import io.reactivex.Completable;
+import io.reactivex.Flowable;
 import io.reactivex.Observable;
+import io.reactivex.ObservableEmitter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.nio.charset.StandardCharsets;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
-public class PusherStreamingService {
+public class PusherStreamingService implements ReplayableStreamingService {
     private static final Logger LOG = LoggerFactory.getLogger(PusherStreamingService.class);
 
     private final Pusher pusher;
+    private final Map<String, Observable<String>> subscriptions = new ConcurrentHashMap<>();
+    // Number of subscriptions of different events per subscribed channel.
+    private final Map<String, Integer> channelReferences = new HashMap<>();
+    // Listeners bound in offline mode per channelName/eventName.
+    private final Map<String, List<SubscriptionEventListener>> offlineListeners = new ConcurrentHashMap<>();
+    private volatile FrameJournal journal;
+    private volatile boolean offline;
 
     public PusherStreamingService(String apiKey) {
         pusher = new Pusher(apiKey);
@@ -30,7 +49,47 @@ public class PusherStreamingService {
         this.pusher = pusher;
     }
 
+    /**
+     * Sets the journal that records every incoming event, or null to stop recording. Events are recorded under
+     * channel {@code channelName/eventName}.
+     */
+    @Override
+    public void setJournal(FrameJournal journal) {
+        this.journal = journal;
+    }
+
+    @Override
+    public void setOffline(boolean offline) {
+        this.offline = offline;
+    }
+
+    /**
+     * Passes the event recorded under {@code channelName/eventName} to listeners bound to the event.
+     */
+    @Override
+    public void replayFrame(String channel, byte[] payload) {
+        List<SubscriptionEventListener> listeners = offlineListeners.get(channel);
+        if (listeners == null || listeners.isEmpty()) {
+            return;
+        }
+        int separator = channel.lastIndexOf('/');
+        String channelName = channel.substring(0, separator);
+        String eventName = channel.substring(separator + 1);
+        String data = new String(payload, StandardCharsets.UTF_8);
+        FrameContext.current().received(System.nanoTime());
+        try {
+            for (SubscriptionEventListener listener : listeners) {
+                listener.onEvent(channelName, eventName, data);
+            }
+        } finally {
+            FrameContext.current().clear();
+        }
+    }
+
     public Completable connect() {
+        if (offline) {
+            return Completable.complete();
+        }
         return Completable.create(e -> pusher.connect(new ConnectionEventListener() {
             @Override
             public void onConnectionStateChange(ConnectionStateChange change) {
@@ -50,7 +109,9 @@ public class PusherStreamingService {
 
     public Completable disconnect() {
         return Completable.create(completable -> {
-            pusher.disconnect();
+            if (!offline) {
+                pusher.disconnect();
+            }
             completable.onComplete();
         });
     }
@@ -59,20 +120,103 @@ public class PusherStreamingService {
         return subscribeChannel(channelName, Collections.singletonList(eventName));
     }
 
+    /**
+     * Subscribes to the events of the channel. The subscription is shared: all subscribers of the same channel and
+     * events get the same stream, the channel is subscribed at Pusher once and unsubscribed when the last subscriber
+     * goes away.
+     */
     public Observable<String> subscribeChannel(String channelName, List<String> eventsName) {
-        LOG.info("Subscribing to channel {}.", channelName);
+        return subscriptions.computeIfAbsent(channelName + eventsName,
+                key -> createSubscription(channelName, eventsName));
+    }
+
+    /**
+     * Subscribes to the events of the channel as {@link Flowable}. Overflow strategy is applied to raw messages, so
+     * messages that are dropped are never parsed.
+     */
+    public Flowable<String> subscribeChannelFlowable(String channelName, String eventName, OverflowStrategy overflowStrategy) {
+        return overflowStrategy.apply(subscribeChannel(channelName, eventName));
+    }
+
+    public Flowable<String> subscribeChannelFlowable(String channelName, List<String> eventsName, OverflowStrategy overflowStrategy) {
+        return overflowStrategy.apply(subscribeChannel(channelName, eventsName));
+    }
+
+    private Observable<String> createSubscription(String channelName, List<String> eventsName) {
         return Observable.<String>create(e -> {
+            if (offline) {
+                bindOffline(e, channelName, eventsName);
+                return;
+            }
             if (!ConnectionState.CONNECTED.equals(pusher.getConnection().getState())) {
                 e.onError(new NotConnectedException());
                 return;
             }
-            Channel channel = pusher.subscribe(channelName);
-            for (String event : eventsName) {
-                channel.bind(event, (channel1, ev, data) -> {
-                    LOG.debug("Incoming data: {}", data);
+            LOG.info("Subscribing to channel {}.", channelName);
+            Channel channel = acquireChannel(channelName);
+            SubscriptionEventListener listener = (channel1, ev, data) -> {
+                long receiveNanos = System.nanoTime();
+                FrameContext.current().received(receiveNanos);
+                FrameJournal frameJournal = journal;
+                if (frameJournal != null) {
+                    frameJournal.append(receiveNanos, channel1 + "/" + ev, data);
+                }
+                LOG.debug("Incoming data: {}", data);
+                try {
                     e.onNext(data);
-                });
+                } finally {
+                    FrameContext.current().clear();
+                }
+            };
+            for (String event : eventsName) {
+                channel.bind(event, listener);
+            }
+            e.setCancellable(() -> {
+                for (String event : eventsName) {
+                    channel.unbind(event, listener);
+                }
+                releaseChannel(channelName);
+            });
+        }).share();
+    }
+
+    private void bindOffline(ObservableEmitter<String> e, String channelName, List<String> eventsName) {
+        SubscriptionEventListener listener = (channel, ev, data) -> e.onNext(data);
+        for (String event : eventsName) {
+            offlineListeners.computeIfAbsent(channelName + "/" + event, key -> new CopyOnWriteArrayList<>()).add(listener);
+        }
+        e.setCancellable(() -> {
+            for (String event : eventsName) {
+                offlineListeners.get(channelName + "/" + event).remove(listener);
+            }
+        });
+    }
+
+    /**
+     * Subscribes the channel at Pusher unless it is already subscribed for other events.
+     */
+    private Channel acquireChannel(String channelName) {
+        synchronized (channelReferences) {
+            Integer references = channelReferences.get(channelName);
+            Channel channel = references == null ? pusher.subscribe(channelName) : pusher.getChannel(channelName);
+            channelReferences.put(channelName, references == null ? 1 : references + 1);
+            return channel;
+        }
+    }
+
+    private void releaseChannel(String channelName) {
+        synchronized (channelReferences) {
+            Integer references = channelReferences.get(channelName);
+            if (references == null) {
+                return;
+            }
+            if (references == 1) {
+                LOG.info("Unsubscribing from channel {}.", channelName);
+                channelReferences.remove(channelName);
+                pusher.unsubscribe(channelName);
+            } else {
+                channelReferences.put(channelName, references - 1);
             }
-        }).doOnDispose(() -> pusher.unsubscribe(channelName));
+        }
     }
 }
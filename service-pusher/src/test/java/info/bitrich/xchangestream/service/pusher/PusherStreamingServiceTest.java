@@ -17,6 +17,7 @@ import org.mockito.MockitoAnnotations;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 public class PusherStreamingServiceTest {
@@ -76,6 +77,35 @@ public class PusherStreamingServiceTest {
         test.assertValue("data");
     }
 
+    @Test
+    public void testSubscriptionIsShared() throws Exception {
+        when(pusher.getConnection()).thenReturn(connection);
+        when(connection.getState()).thenReturn(ConnectionState.CONNECTED);
+        when(pusher.subscribe(any())).thenReturn(channel);
+        when(pusher.getChannel(any())).thenReturn(channel);
+
+        TestObserver<String> first = streamingService.subscribeChannel("channelName", "eventName").test();
+        TestObserver<String> second = streamingService.subscribeChannel("channelName", "eventName").test();
+        TestObserver<String> other = streamingService.subscribeChannel("channelName", "otherEvent").test();
+
+        // Channel is subscribed once, events are bound once per event.
+        verify(pusher, times(1)).subscribe("channelName");
+        ArgumentCaptor<SubscriptionEventListener> subscription = ArgumentCaptor.forClass(SubscriptionEventListener.class);
+        verify(channel).bind(eq("eventName"), subscription.capture());
+
+        subscription.getValue().onEvent("channelName", "eventName", "data");
+        first.assertValue("data");
+        second.assertValue("data");
+        other.assertNoValues();
+
+        // Channel is unsubscribed once the last subscriber goes away.
+        first.dispose();
+        other.dispose();
+        verify(pusher, never()).unsubscribe(anyString());
+        second.dispose();
+        verify(pusher).unsubscribe("channelName");
+    }
+
     @Test
     public void testSubscribeChannelNotConnected() throws Exception {
         when(pusher.getConnection()).thenReturn(connection);
@@ -1,9 +1,19 @@
 package info.bitrich.xchangestream.service.wamp;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import hu.akarnokd.rxjava.interop.RxJavaInterop;
 import info.bitrich.xchangestream.service.exception.NotConnectedException;
+import info.bitrich.xchangestream.service.journal.FrameJournal;
+import info.bitrich.xchangestream.service.journal.ReplayableStreamingService;
+import info.bitrich.xchangestream.service.json.JsonMappers;
+import info.bitrich.xchangestream.service.metrics.FrameContext;
 import io.reactivex.Completable;
 import io.reactivex.Observable;
+import io.reactivex.subjects.PublishSubject;
+import io.reactivex.subjects.Subject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import ws.wamp.jawampa.PubSubData;
@@ -12,22 +22,98 @@ import ws.wamp.jawampa.WampClientBuilder;
 import ws.wamp.jawampa.connection.IWampConnectorProvider;
 import ws.wamp.jawampa.transport.netty.NettyWampClientConnectorProvider;
 
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
-public class WampStreamingService {
+public class WampStreamingService implements ReplayableStreamingService {
     private static final Logger LOG = LoggerFactory.getLogger(WampStreamingService.class);
+    private static final ObjectMapper objectMapper = JsonMappers.mapper();
 
     private final String uri;
     private final String realm;
     private WampClient client;
     private WampClient.State connectedState;
+    // Events of subscribed topics in offline mode.
+    private final Map<String, Subject<PubSubData>> offlineTopics = new ConcurrentHashMap<>();
+    private volatile FrameJournal journal;
+    private volatile boolean offline;
 
     public WampStreamingService(String uri, String realm) {
         this.uri = uri;
         this.realm = realm;
     }
 
+    /**
+     * Sets the journal that records every incoming event, or null to stop recording. Arguments of the event are
+     * recorded as JSON array under the topic as channel; events with keyword arguments as JSON object with fields
+     * arguments and keywordArguments.
+     */
+    @Override
+    public void setJournal(FrameJournal journal) {
+        this.journal = journal;
+    }
+
+    @Override
+    public void setOffline(boolean offline) {
+        this.offline = offline;
+    }
+
+    public boolean isOffline() {
+        return offline;
+    }
+
+    /**
+     * Records the event as if it was received on the topic, e.g. a snapshot loaded by the polling API, so that
+     * replay passes it to subscribers of the topic at the same point. Does nothing when no journal is set.
+     */
+    public void appendToJournal(String channel, PubSubData data) {
+        FrameJournal frameJournal = journal;
+        if (frameJournal != null) {
+            frameJournal.append(System.nanoTime(), channel, recordedFrame(data));
+        }
+    }
+
+    private static String recordedFrame(PubSubData data) {
+        if (data.keywordArguments() == null || data.keywordArguments().size() == 0) {
+            return String.valueOf(data.arguments());
+        }
+        ObjectNode frame = objectMapper.createObjectNode();
+        frame.set("arguments", data.arguments());
+        frame.set("keywordArguments", data.keywordArguments());
+        return frame.toString();
+    }
+
+    /**
+     * Passes event arguments recorded under the topic to subscribers of the topic.
+     */
+    @Override
+    public void replayFrame(String channel, byte[] payload) {
+        Subject<PubSubData> topic = offlineTopics.get(channel);
+        if (topic == null || !topic.hasObservers()) {
+            return;
+        }
+        try {
+            FrameContext.current().received(System.nanoTime());
+            JsonNode frame = objectMapper.readTree(payload);
+            if (frame.isArray()) {
+                topic.onNext(new PubSubData(null, (ArrayNode) frame, null));
+            } else {
+                topic.onNext(new PubSubData(null, (ArrayNode) frame.get("arguments"),
+                        (ObjectNode) frame.get("keywordArguments")));
+            }
+        } catch (IOException | ClassCastException e) {
+            LOG.error("Cannot parse recorded arguments of topic {}: {}", channel, e.getMessage());
+        } finally {
+            FrameContext.current().clear();
+        }
+    }
+
     public Completable connect() {
+        if (offline) {
+            return Completable.complete();
+        }
         return Completable.create(completable -> {
             IWampConnectorProvider connectorProvider = new NettyWampClientConnectorProvider();
 
@@ -69,11 +155,30 @@ public class WampStreamingService {
         });
     }
 
+    public Completable disconnect() {
+        if (offline || client == null) {
+            return Completable.complete();
+        }
+        return RxJavaInterop.toV2Observable(client.close()).ignoreElements();
+    }
+
     public Observable<PubSubData> subscribeChannel(String channel) {
+        if (offline) {
+            return offlineTopics.computeIfAbsent(channel, topic -> PublishSubject.<PubSubData>create().toSerialized());
+        }
         if (!(connectedState instanceof WampClient.ConnectedState)) {
             return Observable.error(new NotConnectedException());
         }
 
-        return RxJavaInterop.toV2Observable(client.makeSubscription(channel));
+        return RxJavaInterop.toV2Observable(client.makeSubscription(channel))
+                .doOnNext(data -> {
+                    long receiveNanos = System.nanoTime();
+                    FrameContext.current().received(receiveNanos);
+                    FrameJournal frameJournal = journal;
+                    if (frameJournal != null) {
+                        frameJournal.append(receiveNanos, channel, recordedFrame(data));
+                    }
+                })
+                .doAfterNext(data -> FrameContext.current().clear());
     }
 }
@@ -2,6 +2,9 @@ package info.bitrich.xchangestream.bitstamp;
 
 import info.bitrich.xchangestream.core.StreamingExchange;
 import info.bitrich.xchangestream.core.StreamingMarketDataService;
+import info.bitrich.xchangestream.core.metrics.StreamingMetrics;
+import info.bitrich.xchangestream.core.replay.VirtualClock;
+import info.bitrich.xchangestream.service.journal.ReplayableStreamingService;
 import info.bitrich.xchangestream.service.pusher.PusherStreamingService;
 import io.reactivex.Completable;
 import org.knowm.xchange.bitstamp.BitstampExchange;
@@ -9,8 +12,10 @@ import org.knowm.xchange.bitstamp.BitstampExchange;
 public class BitstampStreamingExchange extends BitstampExchange implements StreamingExchange {
     private static final String API_KEY = "de504dc5763aeef9ff52";
     private final PusherStreamingService streamingService;
+    private final StreamingMetrics metrics = new StreamingMetrics("Bitstamp");
 
     private BitstampStreamingMarketDataService streamingMarketDataService;
+    private VirtualClock clock;
 
     public BitstampStreamingExchange() {
         streamingService = new PusherStreamingService(API_KEY);
@@ -19,7 +24,8 @@ public class BitstampStreamingExchange extends BitstampExchange implements Strea
     @Override
     protected void initServices() {
         super.initServices();
-        streamingMarketDataService = new BitstampStreamingMarketDataService(streamingService);
+        streamingMarketDataService = new BitstampStreamingMarketDataService(streamingService, metrics);
+        streamingMarketDataService.setClock(clock);
     }
 
     @Override
@@ -32,6 +38,24 @@ public class BitstampStreamingExchange extends BitstampExchange implements Strea
         return streamingService.disconnect();
     }
 
+    @Override
+    public StreamingMetrics getMetrics() {
+        return metrics;
+    }
+
+    @Override
+    public void setClock(VirtualClock clock) {
+        this.clock = clock;
+        if (streamingMarketDataService != null) {
+            streamingMarketDataService.setClock(clock);
+        }
+    }
+
+    @Override
+    public ReplayableStreamingService getReplayableService() {
+        return streamingService;
+    }
+
     @Override
     public StreamingMarketDataService getStreamingMarketDataService() {
         return streamingMarketDataService;
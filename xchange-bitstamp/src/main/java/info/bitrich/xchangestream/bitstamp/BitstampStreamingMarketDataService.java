@@ -1,27 +1,56 @@
 package info.bitrich.xchangestream.bitstamp;
 
-import com.fasterxml.jackson.databind.DeserializationFeature;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import info.bitrich.xchangestream.bitstamp.dto.BitstampWebSocketTransaction;
-import info.bitrich.xchangestream.core.StreamingMarketDataService;
+import info.bitrich.xchangestream.core.StreamingOrderBook;
+import info.bitrich.xchangestream.core.fixedpoint.FixedPoint;
+import info.bitrich.xchangestream.core.fixedpoint.FixedPointOrderBook;
+import info.bitrich.xchangestream.core.fixedpoint.FixedPointScale;
+import info.bitrich.xchangestream.core.fixedpoint.FixedPointStreamingMarketDataService;
+import info.bitrich.xchangestream.core.metrics.StreamingMetrics;
+import info.bitrich.xchangestream.core.replay.VirtualClock;
 import info.bitrich.xchangestream.service.pusher.PusherStreamingService;
+import info.bitrich.xchangestream.service.backpressure.OverflowStrategy;
+import info.bitrich.xchangestream.service.json.JsonMappers;
+import io.reactivex.Flowable;
 import io.reactivex.Observable;
 import org.knowm.xchange.bitstamp.BitstampAdapters;
 import org.knowm.xchange.bitstamp.dto.marketdata.BitstampOrderBook;
 import org.knowm.xchange.currency.CurrencyPair;
+import org.knowm.xchange.dto.Order;
 import org.knowm.xchange.dto.marketdata.OrderBook;
 import org.knowm.xchange.dto.marketdata.Ticker;
 import org.knowm.xchange.dto.marketdata.Trade;
 import org.knowm.xchange.exceptions.NotAvailableFromExchangeException;
 
+import java.io.IOException;
+import java.math.BigDecimal;
 import java.util.Arrays;
 import java.util.Date;
+import java.util.List;
+
+public class BitstampStreamingMarketDataService implements FixedPointStreamingMarketDataService {
+    private static final List<String> TRADE_EVENTS = Arrays.asList("order_created", "order_changed", "order_deleted");
 
-public class BitstampStreamingMarketDataService implements StreamingMarketDataService {
     private final PusherStreamingService service;
+    private final StreamingMetrics metrics;
+    private volatile VirtualClock clock;
 
     BitstampStreamingMarketDataService(PusherStreamingService service) {
+        this(service, new StreamingMetrics("Bitstamp"));
+    }
+
+    BitstampStreamingMarketDataService(PusherStreamingService service, StreamingMetrics metrics) {
         this.service = service;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Sets the clock order books without timestamp are stamped with. Null, the default, leaves their time empty.
+     */
+    void setClock(VirtualClock clock) {
+        this.clock = clock;
     }
 
     @Override
@@ -29,14 +58,54 @@ public class BitstampStreamingMarketDataService implements StreamingMarketDataSe
         String channelName = "order_book" + getChannelPostfix(currencyPair);
 
         return service.subscribeChannel(channelName, "data")
-                .map(s -> {
-                    ObjectMapper mapper = new ObjectMapper();
-                    mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
-                    BitstampOrderBook bitstampOrderBook = mapper.readValue(s, BitstampOrderBook.class);
-                    bitstampOrderBook = new BitstampOrderBook(new Date().getTime(), bitstampOrderBook.getBids(), bitstampOrderBook.getAsks());
-
-                    return BitstampAdapters.adaptOrderBook(bitstampOrderBook, currencyPair, 1000);
-                });
+                .compose(metrics.adapt(channelName, s -> adaptOrderBook(s, currencyPair), OrderBook::getTimeStamp));
+    }
+
+    @Override
+    public Flowable<OrderBook> getOrderBookFlowable(CurrencyPair currencyPair, OverflowStrategy overflowStrategy, Object... args) {
+        String channelName = "order_book" + getChannelPostfix(currencyPair);
+
+        return metrics.adaptFlowable(channelName, service.subscribeChannel(channelName, "data"), overflowStrategy,
+                s -> adaptOrderBook(s, currencyPair), OrderBook::getTimeStamp);
+    }
+
+    private OrderBook adaptOrderBook(String s, CurrencyPair currencyPair) throws IOException {
+        BitstampOrderBook bitstampOrderBook = JsonMappers.reader(BitstampOrderBook.class).readValue(s);
+        if (bitstampOrderBook.getTimestamp() != null) {
+            // Timestamp is sent in seconds.
+            return BitstampAdapters.adaptOrderBook(bitstampOrderBook, currencyPair, 1000);
+        }
+
+        // Local time would hide the latency of the message, book without timestamp gets only the time of the clock.
+        return new OrderBook(timestamp(null),
+                BitstampAdapters.createOrders(currencyPair, Order.OrderType.ASK, bitstampOrderBook.getAsks()),
+                BitstampAdapters.createOrders(currencyPair, Order.OrderType.BID, bitstampOrderBook.getBids()));
+    }
+
+    @Override
+    public Observable<StreamingOrderBook> getStreamingOrderBook(CurrencyPair currencyPair, Object... args) {
+        String channelName = "order_book" + getChannelPostfix(currencyPair);
+
+        return Observable.defer(() -> {
+            StreamingOrderBook orderBook = new StreamingOrderBook(currencyPair);
+            return service.subscribeChannel(channelName, "data")
+                    .map(s -> {
+                        // Order book channel sends the snapshot of the top of the book with every message.
+                        BitstampOrderBook bitstampOrderBook = JsonMappers.reader(BitstampOrderBook.class).readValue(s);
+                        Long timestamp = bitstampOrderBook.getTimestamp();
+                        synchronized (orderBook) {
+                            orderBook.clear();
+                            for (List<BigDecimal> ask : bitstampOrderBook.getAsks()) {
+                                orderBook.update(Order.OrderType.ASK, ask.get(0), ask.get(1));
+                            }
+                            for (List<BigDecimal> bid : bitstampOrderBook.getBids()) {
+                                orderBook.update(Order.OrderType.BID, bid.get(0), bid.get(1));
+                            }
+                            orderBook.setTimestamp(timestamp(timestamp));
+                        }
+                        return orderBook;
+                    });
+        });
     }
 
     @Override
@@ -49,14 +118,76 @@ public class BitstampStreamingMarketDataService implements StreamingMarketDataSe
     public Observable<Trade> getTrades(CurrencyPair currencyPair, Object... args) {
         String channelName = "live_orders" + getChannelPostfix(currencyPair);
 
-        return service.subscribeChannel(channelName, Arrays.asList("order_created", "order_changed", "order_deleted"))
-                .map(s -> {
-                    ObjectMapper mapper = new ObjectMapper();
-                    mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
-                    BitstampWebSocketTransaction transactions = mapper.readValue(s, BitstampWebSocketTransaction.class);
+        return service.subscribeChannel(channelName, TRADE_EVENTS)
+                .compose(metrics.adapt(channelName, s -> adaptTrade(s, currencyPair), Trade::getTimestamp));
+    }
+
+    @Override
+    public Flowable<Trade> getTradesFlowable(CurrencyPair currencyPair, OverflowStrategy overflowStrategy, Object... args) {
+        String channelName = "live_orders" + getChannelPostfix(currencyPair);
+
+        return metrics.adaptFlowable(channelName, service.subscribeChannel(channelName, TRADE_EVENTS), overflowStrategy,
+                s -> adaptTrade(s, currencyPair), Trade::getTimestamp);
+    }
+
+    private Trade adaptTrade(String s, CurrencyPair currencyPair) throws IOException {
+        BitstampWebSocketTransaction transactions = JsonMappers.reader(BitstampWebSocketTransaction.class).readValue(s);
 
-                    return BitstampAdapters.adaptTrade(transactions, currencyPair, 1000);
-                });
+        return BitstampAdapters.adaptTrade(transactions, currencyPair, 1000);
+    }
+
+    @Override
+    public Observable<FixedPointOrderBook> getFixedPointOrderBook(CurrencyPair currencyPair, FixedPointScale scale, Object... args) {
+        String channelName = "order_book" + getChannelPostfix(currencyPair);
+
+        return service.subscribeChannel(channelName, "data")
+                .compose(metrics.adapt(channelName, s -> adaptFixedPointOrderBook(s, currencyPair, scale),
+                        orderBook -> StreamingMetrics.fixedPointTimestamp(orderBook.getTimestamp())));
+    }
+
+    private FixedPointOrderBook adaptFixedPointOrderBook(String s, CurrencyPair currencyPair, FixedPointScale scale) throws IOException {
+        FixedPointOrderBook.Builder orderBook = new FixedPointOrderBook.Builder(currencyPair, scale);
+        try (JsonParser parser = JsonMappers.mapper().getFactory().createParser(s)) {
+            parser.nextToken();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                parser.nextToken();
+                if ("timestamp".equals(field)) {
+                    orderBook.timestamp(Long.parseLong(parser.getText()) * 1000);
+                } else if ("asks".equals(field) || "bids".equals(field)) {
+                    // Every level is an array of price and amount.
+                    while (parser.nextToken() == JsonToken.START_ARRAY) {
+                        parser.nextToken();
+                        long price = FixedPoint.parse(parser, scale.getPriceScale());
+                        parser.nextToken();
+                        long amount = FixedPoint.parse(parser, scale.getAmountScale());
+                        while (parser.nextToken() != JsonToken.END_ARRAY) {
+                            parser.skipChildren();
+                        }
+                        if ("asks".equals(field)) {
+                            orderBook.addAsk(price, amount);
+                        } else {
+                            orderBook.addBid(price, amount);
+                        }
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return orderBook.build();
+    }
+
+    /**
+     * Time of the order book sent in seconds, time of the clock when the book has none, the same for
+     * {@link #getOrderBook} and {@link #getStreamingOrderBook}.
+     */
+    private Date timestamp(Long seconds) {
+        if (seconds != null) {
+            return new Date(seconds * 1000);
+        }
+        VirtualClock virtualClock = clock;
+        return virtualClock == null ? null : new Date(virtualClock.currentTimeMillis());
     }
 
     private String getChannelPostfix(CurrencyPair currencyPair) {
@@ -0,0 +1,52 @@
+package info.bitrich.xchangestream.bitstamp;
+
+import info.bitrich.xchangestream.core.replay.ReplayStreamingExchange;
+import info.bitrich.xchangestream.core.replay.VirtualClock;
+import info.bitrich.xchangestream.service.journal.MappedFrameJournal;
+import io.reactivex.observers.TestObserver;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.knowm.xchange.ExchangeSpecification;
+import org.knowm.xchange.currency.CurrencyPair;
+import org.knowm.xchange.dto.marketdata.OrderBook;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BitstampReplayTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testReplaysRecordedOrderBook() throws Exception {
+        String orderBook = new String(Files.readAllBytes(Paths.get(ClassLoader.getSystemResource("order-book.json").toURI())));
+        Path journal = folder.getRoot().toPath();
+        try (MappedFrameJournal frameJournal = new MappedFrameJournal(journal)) {
+            for (int i = 0; i < 1000; i++) {
+                frameJournal.append(System.nanoTime(), "order_book_btceur/data", orderBook);
+            }
+            frameJournal.append(System.nanoTime(), "order_book/data", orderBook);
+        }
+
+        BitstampStreamingExchange live = new BitstampStreamingExchange();
+        ExchangeSpecification specification = live.getDefaultExchangeSpecification();
+        specification.setShouldLoadRemoteMetaData(false);
+        live.applySpecification(specification);
+
+        ReplayStreamingExchange exchange = new ReplayStreamingExchange(live, journal, VirtualClock.maxSpeed());
+        exchange.connect().blockingAwait();
+        TestObserver<OrderBook> test = exchange.getStreamingMarketDataService().getOrderBook(CurrencyPair.BTC_EUR).test();
+        exchange.replay().blockingAwait();
+
+        // Frames of the BTC/USD channel are not subscribed.
+        test.assertValueCount(1000);
+        assertThat(test.values().get(999).getBids().get(0).getLimitPrice()).isEqualTo(new BigDecimal("819.9"));
+        exchange.disconnect().blockingAwait();
+    }
+}
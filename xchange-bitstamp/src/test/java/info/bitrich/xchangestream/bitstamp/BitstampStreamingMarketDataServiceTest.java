@@ -1,8 +1,13 @@
 package info.bitrich.xchangestream.bitstamp;
 
+import info.bitrich.xchangestream.core.fixedpoint.FixedPointOrderBook;
+import info.bitrich.xchangestream.core.fixedpoint.FixedPointScale;
+import info.bitrich.xchangestream.core.metrics.StreamingMetrics;
 import info.bitrich.xchangestream.service.pusher.PusherStreamingService;
 import io.reactivex.Observable;
 import io.reactivex.observers.TestObserver;
+import io.reactivex.subjects.PublishSubject;
+import io.reactivex.subscribers.TestSubscriber;
 import org.junit.Before;
 import org.junit.Test;
 import org.knowm.xchange.currency.CurrencyPair;
@@ -64,6 +69,81 @@ public class BitstampStreamingMarketDataServiceTest {
         });
     }
 
+    @Test
+    public void testGetOrderBookKeepsExchangeTimestamp() throws Exception {
+        String orderBook = "{\"timestamp\": \"1484915096\", \"bids\": [[\"819.9\", \"0.922\"]], \"asks\": [[\"821.7\", \"2.89\"]]}";
+        String withoutTimestamp = "{\"bids\": [[\"819.9\", \"0.922\"]], \"asks\": [[\"821.7\", \"2.89\"]]}";
+        when(streamingService.subscribeChannel(eq("order_book_btceur"), eq("data")))
+                .thenReturn(Observable.just(orderBook, withoutTimestamp));
+
+        TestObserver<OrderBook> test = marketDataService.getOrderBook(CurrencyPair.BTC_EUR).test();
+
+        test.assertValueCount(2);
+        // Timestamp is sent in seconds.
+        assertThat(test.values().get(0).getTimeStamp()).isEqualTo(new Date(1484915096000L));
+        assertThat(test.values().get(1).getTimeStamp()).isNull();
+        assertThat(test.values().get(1).getBids()).hasSize(1);
+    }
+
+    @Test
+    public void testGetStreamingOrderBookKeepsExchangeTimestamp() throws Exception {
+        String orderBook = "{\"timestamp\": \"1484915096\", \"bids\": [[\"819.9\", \"0.922\"]], \"asks\": [[\"821.7\", \"2.89\"]]}";
+        String withoutTimestamp = "{\"bids\": [[\"819.9\", \"0.922\"]], \"asks\": [[\"821.7\", \"2.89\"]]}";
+        when(streamingService.subscribeChannel(eq("order_book_btceur"), eq("data")))
+                .thenReturn(Observable.just(orderBook, withoutTimestamp));
+
+        List<Date> timestamps = new ArrayList<>();
+        marketDataService.getStreamingOrderBook(CurrencyPair.BTC_EUR)
+                .subscribe(streamingOrderBook -> timestamps.add(streamingOrderBook.getTimestamp()));
+
+        // Same as the order book, no local time for a book without timestamp.
+        assertThat(timestamps).containsExactly(new Date(1484915096000L), null);
+    }
+
+    @Test
+    public void testGetOrderBookFlowableKeepsLatest() throws Exception {
+        String orderBook = new String(Files.readAllBytes(Paths.get(ClassLoader.getSystemResource("order-book.json").toURI())));
+        PublishSubject<String> messages = PublishSubject.create();
+
+        when(streamingService.subscribeChannel(eq("order_book_btceur"), eq("data"))).thenReturn(messages);
+
+        TestSubscriber<OrderBook> test = marketDataService.getOrderBookFlowable(CurrencyPair.BTC_EUR).test(0);
+
+        // Messages not requested yet are conflated to the latest one before parsing.
+        messages.onNext("not parsed");
+        messages.onNext(orderBook);
+        test.request(1);
+
+        test.assertNoErrors();
+        test.assertValueCount(1);
+        assertThat(test.values().get(0).getAsks()).as("Asks").hasSize(3);
+    }
+
+    @Test
+    public void testGetFixedPointOrderBook() throws Exception {
+        String orderBook = new String(Files.readAllBytes(Paths.get(ClassLoader.getSystemResource("order-book.json").toURI())));
+
+        when(streamingService.subscribeChannel(eq("order_book_btceur"), eq("data"))).thenReturn(Observable.just(orderBook));
+        StreamingMetrics metrics = new StreamingMetrics("Bitstamp");
+        metrics.setEnabled(true);
+        marketDataService = new BitstampStreamingMarketDataService(streamingService, metrics);
+
+        TestObserver<FixedPointOrderBook> test = marketDataService.getFixedPointOrderBook(CurrencyPair.BTC_EUR, new FixedPointScale(2, 3)).test();
+
+        // Levels are sorted best first.
+        test.assertValue(book -> {
+            assertThat(book.getAskDepth()).as("Ask depth").isEqualTo(3);
+            assertThat(book.getAskPrice(0)).as("Best ask").isEqualTo(82160L);
+            assertThat(book.getAskAmount(0)).as("Best ask amount").isEqualTo(35L);
+            assertThat(book.getBidDepth()).as("Bid depth").isEqualTo(2);
+            assertThat(book.getBidPrice(0)).as("Best bid").isEqualTo(81990L);
+            return true;
+        });
+        assertThat(metrics.channel("order_book_btceur").getMessageCount()).isEqualTo(1);
+        assertThat(metrics.channel("order_book_btceur").getLastExchangeTimestamp())
+                .isEqualTo(test.values().get(0).getTimestamp());
+    }
+
     @Test
     public void testGetTrades() throws Exception {
         // Given order book in JSON
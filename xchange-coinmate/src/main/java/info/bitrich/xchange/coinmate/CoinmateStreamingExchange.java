@@ -2,6 +2,8 @@ package info.bitrich.xchange.coinmate;
 
 import info.bitrich.xchangestream.core.StreamingExchange;
 import info.bitrich.xchangestream.core.StreamingMarketDataService;
+import info.bitrich.xchangestream.core.metrics.StreamingMetrics;
+import info.bitrich.xchangestream.service.journal.ReplayableStreamingService;
 import info.bitrich.xchangestream.service.pusher.PusherStreamingService;
 import io.reactivex.Completable;
 import org.knowm.xchange.coinmate.CoinmateExchange;
@@ -9,6 +11,7 @@ import org.knowm.xchange.coinmate.CoinmateExchange;
 public class CoinmateStreamingExchange extends CoinmateExchange implements StreamingExchange {
     private static final String API_KEY = "af76597b6b928970fbb0";
     private final PusherStreamingService streamingService;
+    private final StreamingMetrics metrics = new StreamingMetrics("Coinmate");
 
     private CoinmateStreamingMarketDataService streamingMarketDataService;
 
@@ -19,7 +22,7 @@ public class CoinmateStreamingExchange extends CoinmateExchange implements Strea
     @Override
     protected void initServices() {
         super.initServices();
-        streamingMarketDataService = new CoinmateStreamingMarketDataService(streamingService);
+        streamingMarketDataService = new CoinmateStreamingMarketDataService(streamingService, metrics);
     }
 
     @Override
@@ -32,6 +35,16 @@ public class CoinmateStreamingExchange extends CoinmateExchange implements Strea
         return streamingService.disconnect();
     }
 
+    @Override
+    public StreamingMetrics getMetrics() {
+        return metrics;
+    }
+
+    @Override
+    public ReplayableStreamingService getReplayableService() {
+        return streamingService;
+    }
+
     @Override
     public StreamingMarketDataService getStreamingMarketDataService() {
         return streamingMarketDataService;
@@ -1,29 +1,52 @@
 package info.bitrich.xchange.coinmate;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.DeserializationFeature;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import info.bitrich.xchange.coinmate.dto.CoinmateWebSocketTrade;
-import info.bitrich.xchangestream.core.StreamingMarketDataService;
+import info.bitrich.xchangestream.core.StreamingOrderBook;
+import info.bitrich.xchangestream.core.fixedpoint.FixedPoint;
+import info.bitrich.xchangestream.core.fixedpoint.FixedPointOrderBook;
+import info.bitrich.xchangestream.core.fixedpoint.FixedPointScale;
+import info.bitrich.xchangestream.core.fixedpoint.FixedPointStreamingMarketDataService;
+import info.bitrich.xchangestream.core.fixedpoint.FixedPointTrade;
+import info.bitrich.xchangestream.core.metrics.StreamingMetrics;
+import info.bitrich.xchangestream.service.backpressure.OverflowStrategy;
+import info.bitrich.xchangestream.service.json.JsonMappers;
 import info.bitrich.xchangestream.service.pusher.PusherStreamingService;
+import io.reactivex.Flowable;
 import io.reactivex.Observable;
 import org.knowm.xchange.coinmate.CoinmateAdapters;
 import org.knowm.xchange.coinmate.CoinmateUtils;
 import org.knowm.xchange.coinmate.dto.marketdata.CoinmateOrderBook;
 import org.knowm.xchange.coinmate.dto.marketdata.CoinmateOrderBookData;
+import org.knowm.xchange.coinmate.dto.marketdata.CoinmateOrderBookEntry;
 import org.knowm.xchange.currency.CurrencyPair;
+import org.knowm.xchange.dto.Order;
 import org.knowm.xchange.dto.marketdata.OrderBook;
 import org.knowm.xchange.dto.marketdata.Ticker;
 import org.knowm.xchange.dto.marketdata.Trade;
 import org.knowm.xchange.exceptions.NotAvailableFromExchangeException;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 
-public class CoinmateStreamingMarketDataService implements StreamingMarketDataService {
+public class CoinmateStreamingMarketDataService implements FixedPointStreamingMarketDataService {
+    private static final ObjectReader tradesReader = JsonMappers.reader(new TypeReference<List<CoinmateWebSocketTrade>>() {
+    });
+
     private final PusherStreamingService service;
+    private final StreamingMetrics metrics;
 
     CoinmateStreamingMarketDataService(PusherStreamingService service) {
+        this(service, new StreamingMetrics("Coinmate"));
+    }
+
+    CoinmateStreamingMarketDataService(PusherStreamingService service, StreamingMetrics metrics) {
         this.service = service;
+        this.metrics = metrics;
     }
 
     @Override
@@ -31,14 +54,46 @@ public class CoinmateStreamingMarketDataService implements StreamingMarketDataSe
         String channelName = "order_book-" + getChannelPostfix(currencyPair);
 
         return service.subscribeChannel(channelName, "order_book")
-                .map(s -> {
-                    ObjectMapper mapper = new ObjectMapper();
-                    mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
-                    CoinmateOrderBookData orderBookData = mapper.readValue(s, CoinmateOrderBookData.class);
-                    CoinmateOrderBook coinmateOrderBook = new CoinmateOrderBook(false, null, orderBookData);
+                .compose(metrics.adapt(channelName, s -> adaptOrderBook(s, currencyPair), OrderBook::getTimeStamp));
+    }
 
-                    return CoinmateAdapters.adaptOrderBook(coinmateOrderBook, currencyPair);
-                });
+    @Override
+    public Flowable<OrderBook> getOrderBookFlowable(CurrencyPair currencyPair, OverflowStrategy overflowStrategy, Object... args) {
+        String channelName = "order_book-" + getChannelPostfix(currencyPair);
+
+        return metrics.adaptFlowable(channelName, service.subscribeChannel(channelName, "order_book"), overflowStrategy,
+                s -> adaptOrderBook(s, currencyPair), OrderBook::getTimeStamp);
+    }
+
+    private OrderBook adaptOrderBook(String s, CurrencyPair currencyPair) throws IOException {
+        CoinmateOrderBookData orderBookData = JsonMappers.reader(CoinmateOrderBookData.class).readValue(s);
+        CoinmateOrderBook coinmateOrderBook = new CoinmateOrderBook(false, null, orderBookData);
+
+        return CoinmateAdapters.adaptOrderBook(coinmateOrderBook, currencyPair);
+    }
+
+    @Override
+    public Observable<StreamingOrderBook> getStreamingOrderBook(CurrencyPair currencyPair, Object... args) {
+        String channelName = "order_book-" + getChannelPostfix(currencyPair);
+
+        return Observable.defer(() -> {
+            StreamingOrderBook orderBook = new StreamingOrderBook(currencyPair);
+            return service.subscribeChannel(channelName, "order_book")
+                    .map(s -> {
+                        // Order book channel sends the snapshot of the top of the book with every message.
+                        CoinmateOrderBookData orderBookData = JsonMappers.reader(CoinmateOrderBookData.class).readValue(s);
+                        synchronized (orderBook) {
+                            orderBook.clear();
+                            for (CoinmateOrderBookEntry ask : orderBookData.getAsks()) {
+                                orderBook.update(Order.OrderType.ASK, ask.getPrice(), ask.getAmount());
+                            }
+                            for (CoinmateOrderBookEntry bid : orderBookData.getBids()) {
+                                orderBook.update(Order.OrderType.BID, bid.getPrice(), bid.getAmount());
+                            }
+                        }
+                        return orderBook;
+                    });
+        });
     }
 
     @Override
@@ -52,15 +107,115 @@ public class CoinmateStreamingMarketDataService implements StreamingMarketDataSe
         String channelName = "trades-" + getChannelPostfix(currencyPair);
 
         return service.subscribeChannel(channelName, "new_trades")
-                .map(s -> {
-                    ObjectMapper mapper = new ObjectMapper();
-                    mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
-                    List<CoinmateWebSocketTrade> list = mapper.readValue(s, new TypeReference<List<CoinmateWebSocketTrade>>() {
-                    });
-                    return list;
-                })
-                .flatMapIterable(coinmateWebSocketTrades -> coinmateWebSocketTrades)
-                .map(coinmateWebSocketTrade -> CoinmateAdapters.adaptTrade(coinmateWebSocketTrade.toTransactionEntry(CoinmateUtils.getPair(currencyPair))));
+                .compose(metrics.adapt(channelName, s -> adaptTrades(s, currencyPair), StreamingMetrics::lastTimestamp))
+                .flatMapIterable(trades -> trades);
+    }
+
+    @Override
+    public Flowable<Trade> getTradesFlowable(CurrencyPair currencyPair, OverflowStrategy overflowStrategy, Object... args) {
+        String channelName = "trades-" + getChannelPostfix(currencyPair);
+
+        return metrics.adaptFlowable(channelName, service.subscribeChannel(channelName, "new_trades"), overflowStrategy,
+                s -> adaptTrades(s, currencyPair), StreamingMetrics::lastTimestamp)
+                .flatMapIterable(trades -> trades);
+    }
+
+    private List<Trade> adaptTrades(String s, CurrencyPair currencyPair) throws IOException {
+        List<CoinmateWebSocketTrade> list = tradesReader.readValue(s);
+        List<Trade> trades = new ArrayList<>(list.size());
+        for (CoinmateWebSocketTrade coinmateWebSocketTrade : list) {
+            trades.add(CoinmateAdapters.adaptTrade(coinmateWebSocketTrade.toTransactionEntry(CoinmateUtils.getPair(currencyPair))));
+        }
+        return trades;
+    }
+
+    @Override
+    public Observable<FixedPointOrderBook> getFixedPointOrderBook(CurrencyPair currencyPair, FixedPointScale scale, Object... args) {
+        String channelName = "order_book-" + getChannelPostfix(currencyPair);
+
+        return service.subscribeChannel(channelName, "order_book")
+                .compose(metrics.adapt(channelName, s -> adaptFixedPointOrderBook(s, currencyPair, scale),
+                        orderBook -> StreamingMetrics.fixedPointTimestamp(orderBook.getTimestamp())));
+    }
+
+    private FixedPointOrderBook adaptFixedPointOrderBook(String s, CurrencyPair currencyPair, FixedPointScale scale) throws IOException {
+        FixedPointOrderBook.Builder orderBook = new FixedPointOrderBook.Builder(currencyPair, scale);
+        try (JsonParser parser = JsonMappers.mapper().getFactory().createParser(s)) {
+            expect(parser.nextToken(), JsonToken.START_OBJECT);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String side = parser.getCurrentName();
+                parser.nextToken();
+                if (!"asks".equals(side) && !"bids".equals(side)) {
+                    parser.skipChildren();
+                    continue;
+                }
+                expect(parser.getCurrentToken(), JsonToken.START_ARRAY);
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    long price = 0;
+                    long amount = 0;
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        String field = parser.getCurrentName();
+                        parser.nextToken();
+                        if ("price".equals(field)) {
+                            price = FixedPoint.parse(parser, scale.getPriceScale());
+                        } else if ("amount".equals(field)) {
+                            amount = FixedPoint.parse(parser, scale.getAmountScale());
+                        } else {
+                            parser.skipChildren();
+                        }
+                    }
+                    if ("asks".equals(side)) {
+                        orderBook.addAsk(price, amount);
+                    } else {
+                        orderBook.addBid(price, amount);
+                    }
+                }
+            }
+        }
+        return orderBook.build();
+    }
+
+    @Override
+    public Observable<FixedPointTrade> getFixedPointTrades(CurrencyPair currencyPair, FixedPointScale scale, Object... args) {
+        String channelName = "trades-" + getChannelPostfix(currencyPair);
+
+        return service.subscribeChannel(channelName, "new_trades")
+                .compose(metrics.adapt(channelName, s -> adaptFixedPointTrades(s, currencyPair, scale),
+                        StreamingMetrics::lastFixedPointTimestamp))
+                .flatMapIterable(trades -> trades);
+    }
+
+    private List<FixedPointTrade> adaptFixedPointTrades(String s, CurrencyPair currencyPair, FixedPointScale scale) throws IOException {
+        List<FixedPointTrade> trades = new ArrayList<>();
+        try (JsonParser parser = JsonMappers.mapper().getFactory().createParser(s)) {
+            expect(parser.nextToken(), JsonToken.START_ARRAY);
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                long timestamp = 0;
+                long price = 0;
+                long amount = 0;
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.getCurrentName();
+                    parser.nextToken();
+                    if ("date".equals(field)) {
+                        timestamp = parser.getLongValue();
+                    } else if ("price".equals(field)) {
+                        price = FixedPoint.parse(parser, scale.getPriceScale());
+                    } else if ("amount".equals(field)) {
+                        amount = FixedPoint.parse(parser, scale.getAmountScale());
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+                trades.add(new FixedPointTrade(currencyPair, scale, null, price, amount, timestamp, null));
+            }
+        }
+        return trades;
+    }
+
+    private static void expect(JsonToken actual, JsonToken expected) throws IOException {
+        if (actual != expected) {
+            throw new IOException("Expected " + expected + " but got " + actual + ".");
+        }
     }
 
     private String getChannelPostfix(CurrencyPair currencyPair) {
@@ -1,5 +1,9 @@
 package info.bitrich.xchange.coinmate;
 
+import info.bitrich.xchangestream.core.fixedpoint.FixedPointOrderBook;
+import info.bitrich.xchangestream.core.fixedpoint.FixedPointScale;
+import info.bitrich.xchangestream.core.fixedpoint.FixedPointTrade;
+import info.bitrich.xchangestream.core.metrics.StreamingMetrics;
 import info.bitrich.xchangestream.service.pusher.PusherStreamingService;
 import io.reactivex.Observable;
 import io.reactivex.observers.TestObserver;
@@ -28,12 +32,15 @@ import static org.mockito.Mockito.when;
 public class CoinmateStreamingMarketDataServiceTest {
     @Mock
     private PusherStreamingService streamingService;
+    private StreamingMetrics metrics;
     private CoinmateStreamingMarketDataService marketDataService;
 
     @Before
     public void setUp() throws Exception {
         MockitoAnnotations.initMocks(this);
-        marketDataService = new CoinmateStreamingMarketDataService(streamingService);
+        metrics = new StreamingMetrics("Coinmate");
+        metrics.setEnabled(true);
+        marketDataService = new CoinmateStreamingMarketDataService(streamingService, metrics);
     }
 
     @Test
@@ -99,6 +106,45 @@ public class CoinmateStreamingMarketDataServiceTest {
         test.assertNoErrors();
     }
 
+    @Test
+    public void testGetFixedPointTrades() throws Exception {
+        String trade = new String(Files.readAllBytes(Paths.get(ClassLoader.getSystemResource("trades.json").toURI())));
+
+        when(streamingService.subscribeChannel(eq("trades-BTC_CZK"), eq("new_trades"))).thenReturn(Observable.just(trade));
+
+        TestObserver<FixedPointTrade> test = marketDataService.getFixedPointTrades(CurrencyPair.BTC_CZK, new FixedPointScale(2, 8)).test();
+
+        test.assertValueCount(2);
+        FixedPointTrade trade1 = test.values().get(0);
+        assertThat(trade1.getPrice()).as("Price").isEqualTo(85529L);
+        assertThat(trade1.getAmount()).as("Amount").isEqualTo(8233888L);
+        assertThat(trade1.getTimestamp()).as("Timestamp").isEqualTo(1484863030522L);
+        assertThat(trade1.toTrade().getPrice()).as("Price").isEqualByComparingTo("855.29");
+        assertThat(test.values().get(1).getAmount()).as("Amount").isEqualTo(200428L);
+        assertThat(metrics.channel("trades-BTC_CZK").getMessageCount()).isEqualTo(1);
+        assertThat(metrics.channel("trades-BTC_CZK").getLastExchangeTimestamp())
+                .isEqualTo(test.values().get(1).getTimestamp());
+    }
+
+    @Test
+    public void testGetFixedPointOrderBook() throws Exception {
+        String orderBook = new String(Files.readAllBytes(Paths.get(ClassLoader.getSystemResource("order-book.json").toURI())));
+
+        when(streamingService.subscribeChannel(eq("order_book-BTC_EUR"), eq("order_book"))).thenReturn(Observable.just(orderBook));
+
+        TestObserver<FixedPointOrderBook> test = marketDataService.getFixedPointOrderBook(CurrencyPair.BTC_EUR, new FixedPointScale(2, 8)).test();
+
+        test.assertValueCount(1);
+        FixedPointOrderBook book = test.values().get(0);
+        assertThat(book.getAskDepth()).isEqualTo(3);
+        assertThat(book.getAskPrice(0)).isEqualTo(85335L);
+        assertThat(book.getAskAmount(0)).isEqualTo(4000000L);
+        assertThat(book.getBidDepth()).isEqualTo(2);
+        assertThat(book.getBidPrice(0)).isEqualTo(85280L);
+        assertThat(book.getBidAmount(1)).isEqualTo(50521505L);
+        assertThat(metrics.channel("order_book-BTC_EUR").getMessageCount()).isEqualTo(1);
+    }
+
     @Test(expected = NotAvailableFromExchangeException.class)
     public void testGetTicker() throws Exception {
         marketDataService.getTicker(CurrencyPair.BTC_EUR).test();
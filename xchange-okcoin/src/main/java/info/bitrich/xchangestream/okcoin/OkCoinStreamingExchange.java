@@ -1,14 +1,39 @@
 package info.bitrich.xchangestream.okcoin;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import info.bitrich.xchangestream.core.StreamingExchange;
 import info.bitrich.xchangestream.core.StreamingMarketDataService;
+import info.bitrich.xchangestream.core.metrics.StreamingMetrics;
+import info.bitrich.xchangestream.service.journal.ReplayableStreamingService;
+import info.bitrich.xchangestream.service.netty.ConnectionState;
+import info.bitrich.xchangestream.service.netty.DuplicateFilter;
+import info.bitrich.xchangestream.service.netty.EventLoopGroupProvider;
+import info.bitrich.xchangestream.service.netty.RedundantStreamingService;
+import info.bitrich.xchangestream.service.netty.ShardAssignment;
+import info.bitrich.xchangestream.service.netty.ShardedStreamingService;
 import io.reactivex.Completable;
+import io.reactivex.Observable;
 import org.knowm.xchange.okcoin.OkCoinExchange;
 
 public class OkCoinStreamingExchange extends OkCoinExchange implements StreamingExchange {
     private static final String API_URI = "wss://real.okcoin.com:10440/websocket/okcoinapi";
 
+    /**
+     * Exchange specific parameter with the number of WebSocket connections channels are spread across, 1 by
+     * default. Every connection runs on its own event loop thread.
+     */
+    public static final String CONNECTIONS = "Connections";
+
+    /**
+     * Exchange specific parameter, when true every channel is subscribed on two connections and the copy of a
+     * message that arrives first is emitted. Cannot be combined with {@link #CONNECTIONS}.
+     */
+    public static final String HOT_STANDBY = "HotStandby";
+
     private final OkCoinStreamingService streamingService;
+    private ShardedStreamingService<JsonNode> shardedStreamingService;
+    private RedundantStreamingService<JsonNode> redundantStreamingService;
+    private final StreamingMetrics metrics = new StreamingMetrics("OkCoin");
     private OkCoinStreamingMarketDataService streamingMarketDataService;
 
     public OkCoinStreamingExchange() {
@@ -18,17 +43,85 @@ public class OkCoinStreamingExchange extends OkCoinExchange implements Streaming
     @Override
     protected void initServices() {
         super.initServices();
-        streamingMarketDataService = new OkCoinStreamingMarketDataService(streamingService);
+        Object connections = getExchangeSpecification().getExchangeSpecificParametersItem(CONNECTIONS);
+        int count = connections == null ? 1 : Integer.parseInt(connections.toString());
+        boolean hotStandby = Boolean.parseBoolean(
+                String.valueOf(getExchangeSpecification().getExchangeSpecificParametersItem(HOT_STANDBY)));
+        if (hotStandby && count > 1) {
+            throw new IllegalArgumentException(HOT_STANDBY + " cannot be combined with " + CONNECTIONS + ".");
+        }
+        if (count > 1 && shardedStreamingService == null) {
+            shardedStreamingService = new ShardedStreamingService<>(count,
+                    shard -> new OkCoinStreamingService(API_URI, new EventLoopGroupProvider(1, "okcoin-" + shard)),
+                    ShardAssignment.hash());
+        }
+        if (hotStandby && redundantStreamingService == null) {
+            redundantStreamingService = new RedundantStreamingService<>(2,
+                    connection -> new OkCoinStreamingService(API_URI,
+                            new EventLoopGroupProvider(1, "okcoin-" + connection)),
+                    // Neither depth, ticker nor trade messages carry a sequence number or id.
+                    channel -> DuplicateFilter.jsonContent(256));
+        }
+        if (redundantStreamingService != null) {
+            streamingMarketDataService = new OkCoinStreamingMarketDataService(redundantStreamingService, metrics);
+        } else {
+            streamingMarketDataService = new OkCoinStreamingMarketDataService(
+                    shardedStreamingService != null ? shardedStreamingService : streamingService, metrics);
+        }
     }
 
     @Override
     public Completable connect() {
-        return streamingService.connect();
+        if (redundantStreamingService != null) {
+            return redundantStreamingService.connect();
+        }
+        return shardedStreamingService != null ? shardedStreamingService.connect() : streamingService.connect();
     }
 
     @Override
     public Completable disconnect() {
-        return streamingService.disconnect();
+        if (redundantStreamingService != null) {
+            return redundantStreamingService.disconnect();
+        }
+        return shardedStreamingService != null ? shardedStreamingService.disconnect() : streamingService.disconnect();
+    }
+
+    @Override
+    public StreamingMetrics getMetrics() {
+        return metrics;
+    }
+
+    @Override
+    public ReplayableStreamingService getReplayableService() {
+        if (redundantStreamingService != null) {
+            return redundantStreamingService;
+        }
+        return shardedStreamingService != null ? shardedStreamingService : streamingService;
+    }
+
+    /**
+     * Returns {@link Observable} of the state of the WebSocket connection, including automatic reconnects.
+     */
+    public Observable<ConnectionState> subscribeConnectionState() {
+        if (redundantStreamingService != null) {
+            return redundantStreamingService.subscribeConnectionState();
+        }
+        return shardedStreamingService != null
+                ? shardedStreamingService.subscribeConnectionState() : streamingService.subscribeConnectionState();
+    }
+
+    /**
+     * Returns the connections channels are spread across, or null when there is only one.
+     */
+    public ShardedStreamingService<JsonNode> getShardedStreamingService() {
+        return shardedStreamingService;
+    }
+
+    /**
+     * Returns the connections every channel is subscribed on, or null when {@link #HOT_STANDBY} is off.
+     */
+    public RedundantStreamingService<JsonNode> getRedundantStreamingService() {
+        return redundantStreamingService;
     }
 
     @Override
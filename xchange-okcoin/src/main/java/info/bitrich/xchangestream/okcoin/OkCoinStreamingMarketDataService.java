@@ -1,11 +1,24 @@
 package info.bitrich.xchangestream.okcoin;
 
-import com.fasterxml.jackson.databind.DeserializationFeature;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import info.bitrich.xchangestream.core.StreamingMarketDataService;
+import com.fasterxml.jackson.databind.JsonNode;
+import info.bitrich.xchangestream.core.StreamingOrderBook;
+import info.bitrich.xchangestream.core.fixedpoint.FixedPoint;
+import info.bitrich.xchangestream.core.fixedpoint.FixedPointOrderBook;
+import info.bitrich.xchangestream.core.fixedpoint.FixedPointScale;
+import info.bitrich.xchangestream.core.fixedpoint.FixedPointStreamingMarketDataService;
+import info.bitrich.xchangestream.core.fixedpoint.FixedPointTicker;
+import info.bitrich.xchangestream.core.fixedpoint.FixedPointTrade;
+import info.bitrich.xchangestream.core.metrics.StreamingMetrics;
+import info.bitrich.xchangestream.okcoin.dto.OkCoinWebSocketDepth;
+import info.bitrich.xchangestream.okcoin.dto.OkCoinWebSocketTicker;
 import info.bitrich.xchangestream.okcoin.dto.OkCoinWebSocketTrade;
+import info.bitrich.xchangestream.service.backpressure.OverflowStrategy;
+import info.bitrich.xchangestream.service.json.JsonMappers;
+import info.bitrich.xchangestream.service.netty.ChannelStreamingService;
+import io.reactivex.Flowable;
 import io.reactivex.Observable;
 import org.knowm.xchange.currency.CurrencyPair;
+import org.knowm.xchange.dto.Order;
 import org.knowm.xchange.dto.marketdata.OrderBook;
 import org.knowm.xchange.dto.marketdata.Ticker;
 import org.knowm.xchange.dto.marketdata.Trade;
@@ -15,11 +28,24 @@ import org.knowm.xchange.okcoin.dto.marketdata.OkCoinDepth;
 import org.knowm.xchange.okcoin.dto.marketdata.OkCoinTicker;
 import org.knowm.xchange.okcoin.dto.marketdata.OkCoinTickerResponse;
 
-public class OkCoinStreamingMarketDataService implements StreamingMarketDataService {
-    private final OkCoinStreamingService service;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TimeZone;
 
-    OkCoinStreamingMarketDataService(OkCoinStreamingService service) {
+public class OkCoinStreamingMarketDataService implements FixedPointStreamingMarketDataService {
+    private final ChannelStreamingService<JsonNode> service;
+    private final StreamingMetrics metrics;
+
+    OkCoinStreamingMarketDataService(ChannelStreamingService<JsonNode> service) {
+        this(service, new StreamingMetrics("OkCoin"));
+    }
+
+    OkCoinStreamingMarketDataService(ChannelStreamingService<JsonNode> service, StreamingMetrics metrics) {
         this.service = service;
+        this.metrics = metrics;
     }
 
     @Override
@@ -27,12 +53,60 @@ public class OkCoinStreamingMarketDataService implements StreamingMarketDataServ
         String channel = String.format("ok_%s%s_depth", currencyPair.base.toString().toLowerCase(), currencyPair.counter.toString().toLowerCase());
 
         return service.subscribeChannel(channel)
-                .map(s -> {
-                    ObjectMapper mapper = new ObjectMapper();
-                    mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
-                    OkCoinDepth okCoinDepth = mapper.treeToValue(s.get("data"), OkCoinDepth.class);
-                    return OkCoinAdapters.adaptOrderBook(okCoinDepth, currencyPair);
-                });
+                .compose(metrics.adapt(channel, s -> adaptOrderBook(s, currencyPair), OrderBook::getTimeStamp));
+    }
+
+    @Override
+    public Flowable<OrderBook> getOrderBookFlowable(CurrencyPair currencyPair, OverflowStrategy overflowStrategy, Object... args) {
+        String channel = String.format("ok_%s%s_depth", currencyPair.base.toString().toLowerCase(), currencyPair.counter.toString().toLowerCase());
+
+        return metrics.adaptFlowable(channel, service.subscribeChannel(channel), overflowStrategy,
+                s -> adaptOrderBook(s, currencyPair), OrderBook::getTimeStamp);
+    }
+
+    private OrderBook adaptOrderBook(JsonNode s, CurrencyPair currencyPair) throws IOException {
+        OkCoinDepth okCoinDepth = JsonMappers.treeToValue(s.get("data"), OkCoinWebSocketDepth.class).toOkCoinDepth();
+        return OkCoinAdapters.adaptOrderBook(okCoinDepth, currencyPair);
+    }
+
+    /**
+     * Depth payload is bound to {@link OkCoinWebSocketDepth} once by the streaming service as the frame is parsed,
+     * levels are scaled from the text of its numbers without going through {@link BigDecimal}.
+     */
+    @Override
+    public Observable<FixedPointOrderBook> getFixedPointOrderBook(CurrencyPair currencyPair, FixedPointScale scale, Object... args) {
+        String channel = String.format("ok_%s%s_depth", currencyPair.base.toString().toLowerCase(), currencyPair.counter.toString().toLowerCase());
+
+        return service.subscribeChannel(channel)
+                .compose(metrics.adapt(channel,
+                        s -> JsonMappers.treeToValue(s.get("data"), OkCoinWebSocketDepth.class).toFixedPointOrderBook(currencyPair, scale),
+                        orderBook -> StreamingMetrics.fixedPointTimestamp(orderBook.getTimestamp())));
+    }
+
+    @Override
+    public Observable<StreamingOrderBook> getStreamingOrderBook(CurrencyPair currencyPair, Object... args) {
+        String channel = String.format("ok_%s%s_depth", currencyPair.base.toString().toLowerCase(), currencyPair.counter.toString().toLowerCase());
+
+        return Observable.defer(() -> {
+            StreamingOrderBook orderBook = new StreamingOrderBook(currencyPair);
+            return service.subscribeChannel(channel)
+                    .map(s -> {
+                        // Depth channel sends the snapshot of the top of the book with every message.
+                        OkCoinDepth okCoinDepth = JsonMappers.treeToValue(s.get("data"), OkCoinWebSocketDepth.class)
+                                .toOkCoinDepth();
+                        synchronized (orderBook) {
+                            orderBook.clear();
+                            for (BigDecimal[] ask : okCoinDepth.getAsks()) {
+                                orderBook.update(Order.OrderType.ASK, ask[0], ask[1]);
+                            }
+                            for (BigDecimal[] bid : okCoinDepth.getBids()) {
+                                orderBook.update(Order.OrderType.BID, bid[0], bid[1]);
+                            }
+                            orderBook.setTimestamp(okCoinDepth.getTimestamp());
+                        }
+                        return orderBook;
+                    });
+        });
     }
 
     @Override
@@ -40,13 +114,31 @@ public class OkCoinStreamingMarketDataService implements StreamingMarketDataServ
         String channel = String.format("ok_%s%s_ticker", currencyPair.base.toString().toLowerCase(), currencyPair.counter.toString().toLowerCase());
 
         return service.subscribeChannel(channel)
-                .map(s -> {
-                    ObjectMapper mapper = new ObjectMapper();
-                    // TODO: fix parsing of BigDecimal attribute val that has format: 1,625.23
-                    mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
-                    OkCoinTicker okCoinTicker = mapper.treeToValue(s.get("data"), OkCoinTicker.class);
-                    return OkCoinAdapters.adaptTicker(new OkCoinTickerResponse(okCoinTicker), currencyPair);
-                });
+                .compose(metrics.adapt(channel, s -> adaptTicker(s, currencyPair), Ticker::getTimestamp));
+    }
+
+    @Override
+    public Flowable<Ticker> getTickerFlowable(CurrencyPair currencyPair, OverflowStrategy overflowStrategy, Object... args) {
+        String channel = String.format("ok_%s%s_ticker", currencyPair.base.toString().toLowerCase(), currencyPair.counter.toString().toLowerCase());
+
+        return metrics.adaptFlowable(channel, service.subscribeChannel(channel), overflowStrategy,
+                s -> adaptTicker(s, currencyPair), Ticker::getTimestamp);
+    }
+
+    private Ticker adaptTicker(JsonNode s, CurrencyPair currencyPair) throws IOException {
+        // TODO: fix parsing of BigDecimal attribute val that has format: 1,625.23
+        OkCoinTicker okCoinTicker = JsonMappers.treeToValue(s.get("data"), OkCoinWebSocketTicker.class).toOkCoinTicker();
+        return OkCoinAdapters.adaptTicker(new OkCoinTickerResponse(okCoinTicker), currencyPair);
+    }
+
+    @Override
+    public Observable<FixedPointTicker> getFixedPointTicker(CurrencyPair currencyPair, FixedPointScale scale, Object... args) {
+        String channel = String.format("ok_%s%s_ticker", currencyPair.base.toString().toLowerCase(), currencyPair.counter.toString().toLowerCase());
+
+        return service.subscribeChannel(channel)
+                .compose(metrics.adapt(channel,
+                        s -> JsonMappers.treeToValue(s.get("data"), OkCoinWebSocketTicker.class).toFixedPointTicker(currencyPair, scale),
+                        ticker -> StreamingMetrics.fixedPointTimestamp(ticker.getTimestamp())));
     }
 
     @Override
@@ -54,19 +146,65 @@ public class OkCoinStreamingMarketDataService implements StreamingMarketDataServ
         String channel = String.format("ok_%s%s_trades", currencyPair.base.toString().toLowerCase(), currencyPair.counter.toString().toLowerCase());
 
         return service.subscribeChannel(channel)
-                .map(s -> {
-                    ObjectMapper mapper = new ObjectMapper();
-                    mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
-                    String[][] trades = mapper.treeToValue(s.get("data"), String[][].class);
-
-                    // I don't know how to parse this array of arrays in Jacson.
-                    OkCoinWebSocketTrade[] okCoinTrades = new OkCoinWebSocketTrade[trades.length];
-                    for (int i = 0; i < trades.length; ++i) {
-                        OkCoinWebSocketTrade okCoinWebSocketTrade = new OkCoinWebSocketTrade(trades[i]);
-                        okCoinTrades[i] = okCoinWebSocketTrade;
-                    }
-
-                    return OkCoinAdapters.adaptTrades(okCoinTrades, currencyPair);
-                }).flatMapIterable(Trades::getTrades);
+                .compose(metrics.adapt(channel, s -> adaptTrades(s, currencyPair), trades -> StreamingMetrics.lastTimestamp(trades.getTrades())))
+                .flatMapIterable(Trades::getTrades);
+    }
+
+    @Override
+    public Flowable<Trade> getTradesFlowable(CurrencyPair currencyPair, OverflowStrategy overflowStrategy, Object... args) {
+        String channel = String.format("ok_%s%s_trades", currencyPair.base.toString().toLowerCase(), currencyPair.counter.toString().toLowerCase());
+
+        return metrics.adaptFlowable(channel, service.subscribeChannel(channel), overflowStrategy,
+                s -> adaptTrades(s, currencyPair), trades -> StreamingMetrics.lastTimestamp(trades.getTrades()))
+                .flatMapIterable(Trades::getTrades);
+    }
+
+    private Trades adaptTrades(JsonNode s, CurrencyPair currencyPair) throws IOException, ParseException {
+        String[][] trades = JsonMappers.treeToValue(s.get("data"), String[][].class);
+
+        // I don't know how to parse this array of arrays in Jacson.
+        OkCoinWebSocketTrade[] okCoinTrades = new OkCoinWebSocketTrade[trades.length];
+        for (int i = 0; i < trades.length; ++i) {
+            OkCoinWebSocketTrade okCoinWebSocketTrade = new OkCoinWebSocketTrade(trades[i]);
+            okCoinTrades[i] = okCoinWebSocketTrade;
+        }
+
+        return OkCoinAdapters.adaptTrades(okCoinTrades, currencyPair);
+    }
+
+    @Override
+    public Observable<FixedPointTrade> getFixedPointTrades(CurrencyPair currencyPair, FixedPointScale scale, Object... args) {
+        String channel = String.format("ok_%s%s_trades", currencyPair.base.toString().toLowerCase(), currencyPair.counter.toString().toLowerCase());
+
+        return service.subscribeChannel(channel)
+                .compose(metrics.adapt(channel, s -> adaptFixedPointTrades(s, currencyPair, scale),
+                        StreamingMetrics::lastFixedPointTimestamp))
+                .flatMapIterable(trades -> trades);
+    }
+
+    private List<FixedPointTrade> adaptFixedPointTrades(JsonNode s, CurrencyPair currencyPair, FixedPointScale scale) {
+        // Every trade is an array of price, amount, time and type.
+        JsonNode data = s.get("data");
+        List<FixedPointTrade> trades = new ArrayList<>(data.size());
+        for (JsonNode trade : data) {
+            Order.OrderType type = "bid".equals(trade.get(3).asText()) || "buy".equals(trade.get(3).asText())
+                    ? Order.OrderType.BID : Order.OrderType.ASK;
+            trades.add(new FixedPointTrade(currencyPair, scale, type,
+                    FixedPoint.parse(trade.get(0), scale.getPriceScale()),
+                    FixedPoint.parse(trade.get(1), scale.getAmountScale()),
+                    parseTime(trade.get(2).asText()), null));
+        }
+        return trades;
+    }
+
+    /**
+     * Parses time of the trade in format HH:mm:ss. Like {@link OkCoinWebSocketTrade}, the date part is not known.
+     */
+    private static long parseTime(String time) {
+        int hours = (time.charAt(0) - '0') * 10 + time.charAt(1) - '0';
+        int minutes = (time.charAt(3) - '0') * 10 + time.charAt(4) - '0';
+        int seconds = (time.charAt(6) - '0') * 10 + time.charAt(7) - '0';
+        long millis = ((hours * 60L + minutes) * 60L + seconds) * 1000L;
+        return millis - TimeZone.getDefault().getOffset(millis);
     }
 }
@@ -1,38 +1,64 @@
 package info.bitrich.xchangestream.okcoin;
 
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import info.bitrich.xchangestream.okcoin.dto.OkCoinWebSocketDepth;
+import info.bitrich.xchangestream.okcoin.dto.OkCoinWebSocketTicker;
 import info.bitrich.xchangestream.okcoin.dto.WebSocketMessage;
+import info.bitrich.xchangestream.service.json.JsonMappers;
+import info.bitrich.xchangestream.service.netty.EventLoopGroupProvider;
 import info.bitrich.xchangestream.service.netty.JsonNettyStreamingService;
 import org.knowm.xchange.exceptions.ExchangeException;
 
 import java.io.IOException;
 
 public class OkCoinStreamingService extends JsonNettyStreamingService {
+    private static final ObjectReader depthReader = JsonMappers.reader(OkCoinWebSocketDepth.class);
+    private static final ObjectReader tickerReader = JsonMappers.reader(OkCoinWebSocketTicker.class);
+    private static final ObjectWriter messageWriter = JsonMappers.writer(WebSocketMessage.class);
 
     public OkCoinStreamingService(String apiUrl) {
         super(apiUrl);
     }
 
+    public OkCoinStreamingService(String apiUrl, EventLoopGroupProvider eventLoopGroupProvider) {
+        super(apiUrl, eventLoopGroupProvider);
+    }
+
     @Override
     protected String getChannelNameFromMessage(JsonNode message) throws IOException {
         return message.get("channel").asText();
     }
 
+    @Override
+    protected String getChannelFieldName() {
+        return "channel";
+    }
+
+    @Override
+    protected ObjectReader getPayloadReader(String channelName) {
+        if (channelName.endsWith("_depth")) {
+            return depthReader;
+        }
+        if (channelName.endsWith("_ticker")) {
+            return tickerReader;
+        }
+        return null;
+    }
+
     @Override
     public String getSubscribeMessage(String channelName) throws IOException {
         WebSocketMessage webSocketMessage = new WebSocketMessage("addChannel", channelName);
 
-        ObjectMapper objectMapper = new ObjectMapper();
-        return objectMapper.writeValueAsString(webSocketMessage);
+        return messageWriter.writeValueAsString(webSocketMessage);
     }
 
     @Override
     public String getUnsubscribeMessage(String channelName) throws IOException {
         WebSocketMessage webSocketMessage = new WebSocketMessage("removeChannel", channelName);
 
-        ObjectMapper objectMapper = new ObjectMapper();
-        return objectMapper.writeValueAsString(webSocketMessage);
+        return messageWriter.writeValueAsString(webSocketMessage);
     }
 
     @Override
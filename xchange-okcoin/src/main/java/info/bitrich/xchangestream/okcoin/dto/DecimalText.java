@@ -0,0 +1,54 @@
+package info.bitrich.xchangestream.okcoin.dto;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import info.bitrich.xchangestream.core.fixedpoint.FixedPoint;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+/**
+ * Numbers of a payload kept as the characters they were sent as, in one buffer. They are parsed straight to
+ * {@link BigDecimal} or to fixed-point, neither is converted through the other.
+ */
+final class DecimalText {
+    private char[] chars = new char[64];
+    private int length;
+    // Offset and length of every number.
+    private int[] bounds = new int[16];
+    private int count;
+
+    /**
+     * Copies number or string value of the current token of the parser.
+     *
+     * @return index of the number.
+     */
+    int add(JsonParser parser) throws IOException {
+        JsonToken token = parser.getCurrentToken();
+        if (token != JsonToken.VALUE_STRING && token != JsonToken.VALUE_NUMBER_INT && token != JsonToken.VALUE_NUMBER_FLOAT) {
+            throw JsonMappingException.from(parser, "Expected number but got " + token + ".");
+        }
+        int textLength = parser.getTextLength();
+        if (length + textLength > chars.length) {
+            chars = Arrays.copyOf(chars, Math.max(chars.length * 2, length + textLength));
+        }
+        if (2 * count + 2 > bounds.length) {
+            bounds = Arrays.copyOf(bounds, bounds.length * 2);
+        }
+        System.arraycopy(parser.getTextCharacters(), parser.getTextOffset(), chars, length, textLength);
+        bounds[2 * count] = length;
+        bounds[2 * count + 1] = textLength;
+        length += textLength;
+        return count++;
+    }
+
+    BigDecimal toBigDecimal(int index) {
+        return new BigDecimal(chars, bounds[2 * index], bounds[2 * index + 1]);
+    }
+
+    long toFixedPoint(int index, int scale) {
+        return FixedPoint.parse(chars, bounds[2 * index], bounds[2 * index + 1], scale);
+    }
+}
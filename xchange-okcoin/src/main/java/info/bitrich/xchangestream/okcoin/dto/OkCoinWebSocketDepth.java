@@ -0,0 +1,111 @@
+package info.bitrich.xchangestream.okcoin.dto;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import info.bitrich.xchangestream.core.fixedpoint.FixedPointOrderBook;
+import info.bitrich.xchangestream.core.fixedpoint.FixedPointScale;
+import org.knowm.xchange.currency.CurrencyPair;
+import org.knowm.xchange.okcoin.dto.marketdata.OkCoinDepth;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Date;
+
+/**
+ * Payload of the depth channel. Prices and amounts are kept as text, so the order book is adapted to
+ * {@link OkCoinDepth} or to {@link FixedPointOrderBook} without parsing the message again.
+ */
+@JsonDeserialize(using = OkCoinWebSocketDepth.Deserializer.class)
+public final class OkCoinWebSocketDepth {
+    private final DecimalText numbers = new DecimalText();
+    // Index of the price of every level, the amount follows it.
+    private int[] asks = new int[0];
+    private int[] bids = new int[0];
+    private long timestamp;
+
+    public OkCoinDepth toOkCoinDepth() {
+        return new OkCoinDepth(toBigDecimals(asks), toBigDecimals(bids),
+                timestamp == 0 ? null : new Date(timestamp));
+    }
+
+    public FixedPointOrderBook toFixedPointOrderBook(CurrencyPair currencyPair, FixedPointScale scale) {
+        FixedPointOrderBook.Builder orderBook = new FixedPointOrderBook.Builder(currencyPair, scale);
+        orderBook.timestamp(timestamp);
+        for (int i = 0; i < asks.length; i++) {
+            orderBook.addAsk(numbers.toFixedPoint(asks[i], scale.getPriceScale()),
+                    numbers.toFixedPoint(asks[i] + 1, scale.getAmountScale()));
+        }
+        for (int i = 0; i < bids.length; i++) {
+            orderBook.addBid(numbers.toFixedPoint(bids[i], scale.getPriceScale()),
+                    numbers.toFixedPoint(bids[i] + 1, scale.getAmountScale()));
+        }
+        return orderBook.build();
+    }
+
+    private BigDecimal[][] toBigDecimals(int[] levels) {
+        BigDecimal[][] result = new BigDecimal[levels.length][];
+        for (int i = 0; i < levels.length; i++) {
+            result[i] = new BigDecimal[]{numbers.toBigDecimal(levels[i]), numbers.toBigDecimal(levels[i] + 1)};
+        }
+        return result;
+    }
+
+    /**
+     * Copies text of the numbers token by token, each level is an array of price and amount.
+     */
+    static final class Deserializer extends JsonDeserializer<OkCoinWebSocketDepth> {
+        @Override
+        public OkCoinWebSocketDepth deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            OkCoinWebSocketDepth depth = new OkCoinWebSocketDepth();
+            JsonToken token = parser.getCurrentToken();
+            if (token == JsonToken.START_OBJECT) {
+                token = parser.nextToken();
+            }
+            for (; token == JsonToken.FIELD_NAME; token = parser.nextToken()) {
+                String fieldName = parser.getCurrentName();
+                token = parser.nextToken();
+                if ("asks".equals(fieldName) && token == JsonToken.START_ARRAY) {
+                    depth.asks = readLevels(parser, depth.numbers);
+                } else if ("bids".equals(fieldName) && token == JsonToken.START_ARRAY) {
+                    depth.bids = readLevels(parser, depth.numbers);
+                } else if ("timestamp".equals(fieldName)) {
+                    // Sent as number or string.
+                    depth.timestamp = parser.getValueAsLong();
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            return depth;
+        }
+
+        private static int[] readLevels(JsonParser parser, DecimalText numbers) throws IOException {
+            int[] levels = new int[16];
+            int count = 0;
+            while (parser.nextToken() == JsonToken.START_ARRAY) {
+                if (count == levels.length) {
+                    levels = Arrays.copyOf(levels, count * 2);
+                }
+                parser.nextToken();
+                levels[count++] = numbers.add(parser);
+                parser.nextToken();
+                numbers.add(parser);
+                // Skip anything after the amount.
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    if (parser.getCurrentToken() == null) {
+                        throw JsonMappingException.from(parser, "Unexpected end of order book level.");
+                    }
+                    parser.skipChildren();
+                }
+            }
+            if (parser.getCurrentToken() != JsonToken.END_ARRAY) {
+                throw JsonMappingException.from(parser, "Expected order book level but got " + parser.getCurrentToken() + ".");
+            }
+            return Arrays.copyOf(levels, count);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package info.bitrich.xchangestream.okcoin.dto;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import info.bitrich.xchangestream.core.fixedpoint.FixedPointScale;
+import info.bitrich.xchangestream.core.fixedpoint.FixedPointTicker;
+import org.knowm.xchange.currency.CurrencyPair;
+import org.knowm.xchange.okcoin.dto.marketdata.OkCoinTicker;
+
+import java.io.IOException;
+
+/**
+ * Payload of the ticker channel. Values are kept as text, so the ticker is adapted to {@link OkCoinTicker} or to
+ * {@link FixedPointTicker} without parsing the message again.
+ */
+@JsonDeserialize(using = OkCoinWebSocketTicker.Deserializer.class)
+public final class OkCoinWebSocketTicker {
+    private static final String[] FIELDS = {"high", "low", "buy", "sell", "last", "vol"};
+    private static final int HIGH = 0, LOW = 1, BUY = 2, SELL = 3, LAST = 4, VOL = 5;
+
+    private final DecimalText numbers = new DecimalText();
+    // Index of the number of every field.
+    private final int[] values = {-1, -1, -1, -1, -1, -1};
+    private long timestamp;
+
+    public OkCoinTicker toOkCoinTicker() {
+        return new OkCoinTicker(numbers.toBigDecimal(values[HIGH]), numbers.toBigDecimal(values[LOW]),
+                numbers.toBigDecimal(values[BUY]), numbers.toBigDecimal(values[SELL]),
+                numbers.toBigDecimal(values[LAST]), numbers.toBigDecimal(values[VOL]));
+    }
+
+    public FixedPointTicker toFixedPointTicker(CurrencyPair currencyPair, FixedPointScale scale) {
+        int priceScale = scale.getPriceScale();
+        return new FixedPointTicker(currencyPair, scale,
+                numbers.toFixedPoint(values[LAST], priceScale),
+                numbers.toFixedPoint(values[BUY], priceScale),
+                numbers.toFixedPoint(values[SELL], priceScale),
+                numbers.toFixedPoint(values[HIGH], priceScale),
+                numbers.toFixedPoint(values[LOW], priceScale),
+                numbers.toFixedPoint(values[VOL], scale.getAmountScale()),
+                timestamp);
+    }
+
+    /**
+     * Copies text of the known fields, the rest is skipped. All of them are required.
+     */
+    static final class Deserializer extends JsonDeserializer<OkCoinWebSocketTicker> {
+        @Override
+        public OkCoinWebSocketTicker deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            OkCoinWebSocketTicker ticker = new OkCoinWebSocketTicker();
+            JsonToken token = parser.getCurrentToken();
+            if (token == JsonToken.START_OBJECT) {
+                token = parser.nextToken();
+            }
+            for (; token == JsonToken.FIELD_NAME; token = parser.nextToken()) {
+                String fieldName = parser.getCurrentName();
+                token = parser.nextToken();
+                int field = field(fieldName);
+                if (field >= 0) {
+                    ticker.values[field] = ticker.numbers.add(parser);
+                } else if ("timestamp".equals(fieldName)) {
+                    // Sent as number or string.
+                    ticker.timestamp = parser.getValueAsLong();
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            for (int i = 0; i < FIELDS.length; i++) {
+                if (ticker.values[i] < 0) {
+                    throw JsonMappingException.from(parser, "Ticker has no " + FIELDS[i] + ".");
+                }
+            }
+            return ticker;
+        }
+
+        private static int field(String fieldName) {
+            for (int i = 0; i < FIELDS.length; i++) {
+                if (FIELDS[i].equals(fieldName)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+}
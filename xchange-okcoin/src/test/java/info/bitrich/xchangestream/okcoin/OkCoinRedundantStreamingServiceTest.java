@@ -0,0 +1,59 @@
+package info.bitrich.xchangestream.okcoin;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.POJONode;
+import info.bitrich.xchangestream.okcoin.dto.OkCoinWebSocketDepth;
+import info.bitrich.xchangestream.service.netty.DuplicateFilter;
+import info.bitrich.xchangestream.service.netty.RedundantStreamingService;
+import io.reactivex.observers.TestObserver;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class OkCoinRedundantStreamingServiceTest {
+    private static final String URI = "wss://example.com/websocket";
+
+    private RedundantStreamingService<JsonNode> streamingService;
+
+    @Before
+    public void setUp() throws Exception {
+        streamingService = new RedundantStreamingService<>(2, connection -> new OkCoinStreamingService(URI),
+                channel -> DuplicateFilter.jsonContent(16));
+        streamingService.setOffline(true);
+        streamingService.connect().blockingAwait();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        streamingService.disconnect().blockingAwait();
+    }
+
+    @Test
+    public void testDropsOnlyCopiesOfDepthBoundToDto() throws Exception {
+        byte[] orderBook = Files.readAllBytes(Paths.get(ClassLoader.getSystemResource("order-book.json").toURI()));
+        byte[] changed = new String(orderBook, StandardCharsets.UTF_8).replace("819.9", "820.1")
+                .getBytes(StandardCharsets.UTF_8);
+        TestObserver<JsonNode> test = streamingService.subscribeChannel("ok_btcusd_depth").test();
+
+        // Every frame arrives over both connections.
+        streamingService.replayFrame(URI, orderBook);
+        streamingService.replayFrame(URI, changed);
+        streamingService.replayFrame(URI, orderBook);
+
+        // Copies from the other connection are dropped, the book going back to its first state is not.
+        test.assertValueCount(3);
+        JsonNode first = test.values().get(0).get("data");
+        assertThat(first).isInstanceOf(POJONode.class);
+        assertThat(((POJONode) first).getPojo()).isInstanceOf(OkCoinWebSocketDepth.class);
+        assertThat(((OkCoinWebSocketDepth) ((POJONode) test.values().get(1).get("data")).getPojo()).toOkCoinDepth().getBids()[0][0])
+                .isEqualByComparingTo("820.1");
+        assertThat(((OkCoinWebSocketDepth) ((POJONode) test.values().get(2).get("data")).getPojo()).toOkCoinDepth().getBids()[0][0])
+                .isEqualByComparingTo("819.9");
+    }
+}
@@ -2,6 +2,10 @@ package info.bitrich.xchangestream.okcoin;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import info.bitrich.xchangestream.core.fixedpoint.FixedPointOrderBook;
+import info.bitrich.xchangestream.core.fixedpoint.FixedPointScale;
+import info.bitrich.xchangestream.core.fixedpoint.FixedPointTicker;
+import info.bitrich.xchangestream.core.fixedpoint.FixedPointTrade;
 import io.reactivex.Observable;
 import io.reactivex.observers.TestObserver;
 import org.junit.Before;
@@ -9,6 +13,7 @@ import org.junit.Test;
 import org.knowm.xchange.currency.CurrencyPair;
 import org.knowm.xchange.dto.Order;
 import org.knowm.xchange.dto.marketdata.OrderBook;
+import org.knowm.xchange.dto.marketdata.Trade;
 import org.knowm.xchange.dto.trade.LimitOrder;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
@@ -18,6 +23,7 @@ import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.when;
 
@@ -58,4 +64,59 @@ public class OkCoinStreamingMarketDataServiceTest {
         // Get order book object in correct order
         test.assertResult(expected);
     }
+
+    @Test
+    public void testGetFixedPointOrderBook() throws Exception {
+        JsonNode jsonNode = new ObjectMapper().readTree(ClassLoader.getSystemClassLoader().getResourceAsStream("order-book.json"));
+        when(okCoinStreamingService.subscribeChannel(any())).thenReturn(Observable.just(jsonNode));
+
+        FixedPointOrderBook orderBook = marketDataService.getFixedPointOrderBook(CurrencyPair.BTC_USD,
+                new FixedPointScale(2, 3)).blockingFirst();
+
+        assertThat(orderBook.getTimestamp()).isEqualTo(1484602135246L);
+        assertThat(orderBook.getAskDepth()).isEqualTo(3);
+        assertThat(orderBook.getAskPrice(0)).isEqualTo(82160L);
+        assertThat(orderBook.getAskAmount(0)).isEqualTo(35L);
+        assertThat(orderBook.getBidPrice(0)).isEqualTo(81990L);
+        assertThat(orderBook.getBidAmount(1)).isEqualTo(85L);
+    }
+
+    @Test
+    public void testGetFixedPointTicker() throws Exception {
+        JsonNode jsonNode = new ObjectMapper().readTree("{\"channel\":\"ok_btcusd_ticker\",\"data\":{\"buy\":\"819.9\","
+                + "\"high\":\"830.5\",\"last\":\"820.01\",\"low\":\"810\",\"sell\":821.6,\"timestamp\":1484602135246,"
+                + "\"vol\":\"1625.231\"}}");
+        when(okCoinStreamingService.subscribeChannel(any())).thenReturn(Observable.just(jsonNode));
+
+        FixedPointTicker ticker = marketDataService.getFixedPointTicker(CurrencyPair.BTC_USD,
+                new FixedPointScale(2, 3)).blockingFirst();
+
+        assertThat(ticker.getLast()).isEqualTo(82001L);
+        assertThat(ticker.getBid()).isEqualTo(81990L);
+        assertThat(ticker.getAsk()).isEqualTo(82160L);
+        assertThat(ticker.getHigh()).isEqualTo(83050L);
+        assertThat(ticker.getLow()).isEqualTo(81000L);
+        assertThat(ticker.getVolume()).isEqualTo(1625231L);
+        assertThat(ticker.getTimestamp()).isEqualTo(1484602135246L);
+        assertThat(marketDataService.getTicker(CurrencyPair.BTC_USD).blockingFirst().getLast())
+                .isEqualByComparingTo("820.01");
+    }
+
+    @Test
+    public void testGetTrades() throws Exception {
+        JsonNode jsonNode = new ObjectMapper().readTree(ClassLoader.getSystemClassLoader().getResourceAsStream("trades.json"));
+        when(okCoinStreamingService.subscribeChannel(any())).thenReturn(Observable.just(jsonNode.get(0)));
+
+        List<Trade> trades = marketDataService.getTrades(CurrencyPair.BTC_USD).toList().blockingGet();
+        List<FixedPointTrade> fixedPointTrades = marketDataService.getFixedPointTrades(CurrencyPair.BTC_USD,
+                new FixedPointScale(2, 3)).toList().blockingGet();
+
+        assertThat(trades).hasSize(2);
+        assertThat(trades.get(0).getPrice()).isEqualByComparingTo("821.65");
+        assertThat(fixedPointTrades).hasSize(2);
+        assertThat(fixedPointTrades.get(0).getPrice()).isEqualTo(82165L);
+        assertThat(fixedPointTrades.get(0).getAmount()).isEqualTo(35L);
+        assertThat(fixedPointTrades.get(0).getType()).isEqualTo(Order.OrderType.ASK);
+        assertThat(fixedPointTrades.get(1).getType()).isEqualTo(Order.OrderType.BID);
+    }
 }
@@ -2,13 +2,26 @@ package info.bitrich.xchangestream.okcoin;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.POJONode;
+import info.bitrich.xchangestream.okcoin.dto.OkCoinWebSocketDepth;
+import info.bitrich.xchangestream.service.netty.WebSocketClientHandler;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.websocketx.ContinuationWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocketClientHandshaker;
 import org.junit.Before;
 import org.junit.Test;
 
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 public class OkCoinStreamingServiceTest {
 
@@ -41,4 +54,69 @@ public class OkCoinStreamingServiceTest {
 
         assertThat(channel).isEqualTo("ok_btcusd_depth");
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testDepthPayloadIsReadStraightToDto() throws Exception {
+        List<JsonNode> handled = new ArrayList<>();
+        OkCoinStreamingService routingService = new OkCoinStreamingService("wss://example.com/websocket") {
+            @Override
+            protected boolean hasSubscriber(String channelName) {
+                return true;
+            }
+
+            @Override
+            protected void handleChannelMessage(String channel, JsonNode message) {
+                handled.add(message);
+            }
+        };
+        byte[] message = Files.readAllBytes(Paths.get(ClassLoader.getSystemResource("order-book.json").toURI()));
+
+        routingService.massegeHandler(Unpooled.wrappedBuffer(message));
+
+        assertThat(handled).hasSize(1);
+        assertThat(handled.get(0).get("channel").asText()).isEqualTo("ok_btcusd_depth");
+        assertThat(((POJONode) handled.get(0).get("data")).getPojo()).isInstanceOf(OkCoinWebSocketDepth.class);
+    }
+
+    @Test
+    public void testFragmentedDepthIsReadStraightToDto() throws Exception {
+        List<JsonNode> handled = new ArrayList<>();
+        OkCoinStreamingService routingService = new OkCoinStreamingService("wss://example.com/websocket") {
+            @Override
+            protected boolean hasSubscriber(String channelName) {
+                return true;
+            }
+
+            @Override
+            protected void handleChannelMessage(String channel, JsonNode message) {
+                handled.add(message);
+            }
+        };
+        WebSocketClientHandshaker handshaker = mock(WebSocketClientHandshaker.class);
+        when(handshaker.isHandshakeComplete()).thenReturn(true);
+        EmbeddedChannel channel = new EmbeddedChannel(new WebSocketClientHandler(handshaker,
+                new WebSocketClientHandler.WebSocketMessageHandler() {
+                    @Override
+                    public void onMessage(String message) {
+                        routingService.massegeHandler(message);
+                    }
+
+                    @Override
+                    public void onMessage(ByteBuf content) {
+                        routingService.massegeHandler(content);
+                    }
+                }));
+        byte[] message = Files.readAllBytes(Paths.get(ClassLoader.getSystemResource("order-book.json").toURI()));
+        int third = message.length / 3;
+
+        channel.writeInbound(new TextWebSocketFrame(false, 0, Unpooled.wrappedBuffer(message, 0, third)));
+        channel.writeInbound(new ContinuationWebSocketFrame(false, 0, Unpooled.wrappedBuffer(message, third, third)));
+        assertThat(handled).isEmpty();
+        channel.writeInbound(new ContinuationWebSocketFrame(true, 0,
+                Unpooled.wrappedBuffer(message, 2 * third, message.length - 2 * third)));
+
+        assertThat(handled).hasSize(1);
+        assertThat(((POJONode) handled.get(0).get("data")).getPojo()).isInstanceOf(OkCoinWebSocketDepth.class);
+        assertThat(channel.finish()).isFalse();
+    }
+}
@@ -2,16 +2,22 @@ package info.bitrich.xchangestream.poloniex;
 
 import info.bitrich.xchangestream.core.StreamingExchange;
 import info.bitrich.xchangestream.core.StreamingMarketDataService;
+import info.bitrich.xchangestream.core.metrics.StreamingMetrics;
+import info.bitrich.xchangestream.core.replay.VirtualClock;
+import info.bitrich.xchangestream.service.journal.ReplayableStreamingService;
 import info.bitrich.xchangestream.service.wamp.WampStreamingService;
 import io.reactivex.Completable;
 import org.knowm.xchange.poloniex.PoloniexExchange;
+import org.knowm.xchange.poloniex.service.PoloniexMarketDataServiceRaw;
 
 public class PoloniexStreamingExchange extends PoloniexExchange implements StreamingExchange {
     private static final String API_URI = "wss://api.poloniex.com";
     private static final String API_REALM = "realm1";
 
     private final WampStreamingService streamingService;
+    private final StreamingMetrics metrics = new StreamingMetrics("Poloniex");
     private PoloniexStreamingMarketDataService streamingMarketDataService;
+    private VirtualClock clock;
 
     public PoloniexStreamingExchange() {
         streamingService = new WampStreamingService(API_URI, API_REALM);
@@ -20,7 +26,9 @@ public class PoloniexStreamingExchange extends PoloniexExchange implements Strea
     @Override
     protected void initServices() {
         super.initServices();
-        streamingMarketDataService = new PoloniexStreamingMarketDataService(streamingService);
+        streamingMarketDataService = new PoloniexStreamingMarketDataService(streamingService,
+                (PoloniexMarketDataServiceRaw) getMarketDataService(), metrics);
+        streamingMarketDataService.setClock(clock);
     }
 
     @Override
@@ -30,7 +38,25 @@ public class PoloniexStreamingExchange extends PoloniexExchange implements Strea
 
     @Override
     public Completable disconnect() {
-        return null;
+        return streamingService.disconnect();
+    }
+
+    @Override
+    public StreamingMetrics getMetrics() {
+        return metrics;
+    }
+
+    @Override
+    public void setClock(VirtualClock clock) {
+        this.clock = clock;
+        if (streamingMarketDataService != null) {
+            streamingMarketDataService.setClock(clock);
+        }
+    }
+
+    @Override
+    public ReplayableStreamingService getReplayableService() {
+        return streamingService;
     }
 
     @Override
@@ -1,54 +1,369 @@
 package info.bitrich.xchangestream.poloniex;
 
-import info.bitrich.xchangestream.core.StreamingMarketDataService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import info.bitrich.xchangestream.core.StreamingOrderBook;
+import info.bitrich.xchangestream.core.fixedpoint.FixedPoint;
+import info.bitrich.xchangestream.core.fixedpoint.FixedPointScale;
+import info.bitrich.xchangestream.core.fixedpoint.FixedPointStreamingMarketDataService;
+import info.bitrich.xchangestream.core.fixedpoint.FixedPointTicker;
+import info.bitrich.xchangestream.core.metrics.StreamingMetrics;
+import info.bitrich.xchangestream.core.replay.VirtualClock;
+import info.bitrich.xchangestream.service.backpressure.OverflowStrategy;
 import info.bitrich.xchangestream.service.wamp.WampStreamingService;
+import io.reactivex.Flowable;
 import io.reactivex.Observable;
+import io.reactivex.schedulers.Schedulers;
+import io.reactivex.subjects.PublishSubject;
+import io.reactivex.subjects.Subject;
 import org.knowm.xchange.currency.CurrencyPair;
+import org.knowm.xchange.dto.Order;
 import org.knowm.xchange.dto.marketdata.OrderBook;
 import org.knowm.xchange.dto.marketdata.Ticker;
 import org.knowm.xchange.dto.marketdata.Trade;
+import org.knowm.xchange.exceptions.ExchangeException;
 import org.knowm.xchange.exceptions.NotYetImplementedForExchangeException;
 import org.knowm.xchange.poloniex.PoloniexAdapters;
 import org.knowm.xchange.poloniex.PoloniexUtils;
+import org.knowm.xchange.poloniex.dto.marketdata.PoloniexDepth;
 import org.knowm.xchange.poloniex.dto.marketdata.PoloniexMarketData;
 import org.knowm.xchange.poloniex.dto.marketdata.PoloniexTicker;
+import org.knowm.xchange.poloniex.service.PoloniexMarketDataServiceRaw;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ws.wamp.jawampa.PubSubData;
 
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.util.ArrayDeque;
+import java.util.Date;
+import java.util.Deque;
+import java.util.List;
+
+public class PoloniexStreamingMarketDataService implements FixedPointStreamingMarketDataService {
+    private static final Logger LOG = LoggerFactory.getLogger(PoloniexStreamingMarketDataService.class);
+    // Type of the event carrying the order book loaded by the polling API.
+    static final String ORDER_BOOK_SNAPSHOT = "orderBookSnapshot";
+    // Updates kept while a replayed book is out of sync, to be applied on top of the next recorded snapshot.
+    private static final int MAX_REPLAYED_UPDATES = 1024;
 
-public class PoloniexStreamingMarketDataService implements StreamingMarketDataService {
     private final WampStreamingService streamingService;
+    private final PoloniexMarketDataServiceRaw marketDataService;
+    private final StreamingMetrics metrics;
+    private volatile VirtualClock clock;
 
     public PoloniexStreamingMarketDataService(WampStreamingService streamingService) {
+        this(streamingService, null);
+    }
+
+    public PoloniexStreamingMarketDataService(WampStreamingService streamingService,
+                                              PoloniexMarketDataServiceRaw marketDataService) {
+        this(streamingService, marketDataService, new StreamingMetrics("Poloniex"));
+    }
+
+    /**
+     * @param streamingService  Service providing the push API.
+     * @param marketDataService Polling service used to load the order book snapshot, the push API sends only its
+     *                          updates. Can be null, order book then starts empty and updates are applied as they
+     *                          come.
+     * @param metrics           Metrics the ticker stream is measured by.
+     */
+    public PoloniexStreamingMarketDataService(WampStreamingService streamingService,
+                                              PoloniexMarketDataServiceRaw marketDataService, StreamingMetrics metrics) {
         this.streamingService = streamingService;
+        this.marketDataService = marketDataService;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Sets the clock order books are stamped with, Poloniex sends no time with their updates. Null, the default,
+     * leaves the time of the book empty.
+     */
+    void setClock(VirtualClock clock) {
+        this.clock = clock;
     }
 
     @Override
     public Observable<OrderBook> getOrderBook(CurrencyPair currencyPair, Object... args) {
-        throw new NotYetImplementedForExchangeException();
+        return getStreamingOrderBook(currencyPair, args).map(StreamingOrderBook::toOrderBook);
+    }
+
+    /**
+     * Keeps the order book in sync with the market topic. Updates received while the snapshot is loading are
+     * buffered; once it arrives, updates with sequence number up to the one of the snapshot are dropped and the rest
+     * is applied. A gap in the sequence loads a new snapshot.
+     * <p>
+     * Loaded snapshots are recorded to the journal of the streaming service with the updates. In offline mode
+     * nothing is loaded, the book is built from the snapshots replayed from the journal. Until the first snapshot
+     * and after a gap, replayed updates are applied as they come, like without the polling service, and the book
+     * is in sync again with the next recorded snapshot.
+     * </p>
+     */
+    @Override
+    public Observable<StreamingOrderBook> getStreamingOrderBook(CurrencyPair currencyPair, Object... args) {
+        String topic = PoloniexUtils.toPairString(currencyPair);
+
+        return Observable.defer(() -> {
+            StreamingOrderBook orderBook = new StreamingOrderBook(currencyPair);
+            if (streamingService.isOffline()) {
+                OrderBookSync sync = new OrderBookSync(orderBook, null);
+                return streamingService.subscribeChannel(topic)
+                        .filter(sync::apply)
+                        .map(pubSubData -> orderBook);
+            }
+            if (marketDataService == null) {
+                return streamingService.subscribeChannel(topic)
+                        .filter(pubSubData -> applyOrderBookUpdates(orderBook, pubSubData))
+                        .map(pubSubData -> orderBook);
+            }
+
+            Subject<Boolean> resync = PublishSubject.<Boolean>create().toSerialized();
+            OrderBookSync sync = new OrderBookSync(orderBook, () -> resync.onNext(true));
+            // Snapshot is loaded only after subscribing to the updates, so none of them is missed.
+            Observable<PubSubData> snapshots = resync.startWith(true)
+                    .switchMap(load -> Observable.fromCallable(() -> loadOrderBookSnapshot(currencyPair))
+                            .subscribeOn(Schedulers.io())
+                            .doOnNext(snapshot -> streamingService.appendToJournal(topic, snapshot)));
+            return streamingService.subscribeChannel(topic)
+                    .mergeWith(snapshots)
+                    .filter(sync::apply)
+                    .map(pubSubData -> orderBook);
+        });
+    }
+
+    @Override
+    public Flowable<OrderBook> getOrderBookFlowable(CurrencyPair currencyPair, OverflowStrategy overflowStrategy, Object... args) {
+        Observable<StreamingOrderBook> orderBooks = getStreamingOrderBook(currencyPair, args);
+        if (overflowStrategy.isQueueing()) {
+            // The same book is emitted on every update, queued messages must be copies of its state at the time.
+            return overflowStrategy.apply(orderBooks.map(StreamingOrderBook::toOrderBook));
+        }
+        // Updates are applied to the book as they come, copy of the book is made only when requested.
+        return overflowStrategy.apply(orderBooks).map(StreamingOrderBook::toOrderBook);
     }
 
     @Override
     public Observable<Ticker> getTicker(CurrencyPair currencyPair, Object... args) {
+        String pair = PoloniexUtils.toPairString(currencyPair);
+
+        // Tickers of other pairs are dropped before they are adapted.
+        return streamingService.subscribeChannel("ticker")
+                .filter(pubSubData -> pair.equals(pubSubData.arguments().get(0).asText()))
+                .compose(metrics.adapt("ticker", this::adaptTicker, Ticker::getTimestamp));
+    }
+
+    @Override
+    public Flowable<Ticker> getTickerFlowable(CurrencyPair currencyPair, OverflowStrategy overflowStrategy, Object... args) {
+        String pair = PoloniexUtils.toPairString(currencyPair);
+
+        return metrics.adaptFlowable("ticker", streamingService.subscribeChannel("ticker")
+                        .filter(pubSubData -> pair.equals(pubSubData.arguments().get(0).asText())),
+                overflowStrategy, this::adaptTicker, Ticker::getTimestamp);
+    }
+
+    private Ticker adaptTicker(PubSubData pubSubData) {
+        PoloniexMarketData marketData = new PoloniexMarketData();
+        marketData.setLast(new BigDecimal(pubSubData.arguments().get(1).asText()));
+        marketData.setLowestAsk(new BigDecimal(pubSubData.arguments().get(2).asText()));
+        marketData.setHighestBid(new BigDecimal(pubSubData.arguments().get(3).asText()));
+        marketData.setPercentChange(new BigDecimal(pubSubData.arguments().get(4).asText()));
+        marketData.setBaseVolume(new BigDecimal(pubSubData.arguments().get(5).asText()));
+        marketData.setQuoteVolume(new BigDecimal(pubSubData.arguments().get(6).asText()));
+        marketData.setHigh24hr(new BigDecimal(pubSubData.arguments().get(8).asText()));
+        marketData.setLow24hr(new BigDecimal(pubSubData.arguments().get(9).asText()));
+
+        PoloniexTicker ticker = new PoloniexTicker(marketData, PoloniexUtils.toCurrencyPair(pubSubData.arguments().get(0).asText()));
+        return PoloniexAdapters.adaptPoloniexTicker(ticker, ticker.getCurrencyPair());
+    }
+
+    @Override
+    public Observable<FixedPointTicker> getFixedPointTicker(CurrencyPair currencyPair, FixedPointScale scale, Object... args) {
+        String pair = PoloniexUtils.toPairString(currencyPair);
+
         return streamingService.subscribeChannel("ticker")
-                .map(pubSubData -> {
-                    PoloniexMarketData marketData = new PoloniexMarketData();
-                    marketData.setLast(new BigDecimal(pubSubData.arguments().get(1).asText()));
-                    marketData.setLowestAsk(new BigDecimal(pubSubData.arguments().get(2).asText()));
-                    marketData.setHighestBid(new BigDecimal(pubSubData.arguments().get(3).asText()));
-                    marketData.setPercentChange(new BigDecimal(pubSubData.arguments().get(4).asText()));
-                    marketData.setBaseVolume(new BigDecimal(pubSubData.arguments().get(5).asText()));
-                    marketData.setQuoteVolume(new BigDecimal(pubSubData.arguments().get(6).asText()));
-                    marketData.setHigh24hr(new BigDecimal(pubSubData.arguments().get(8).asText()));
-                    marketData.setLow24hr(new BigDecimal(pubSubData.arguments().get(9).asText()));
-
-                    PoloniexTicker ticker = new PoloniexTicker(marketData, PoloniexUtils.toCurrencyPair(pubSubData.arguments().get(0).asText()));
-                    return PoloniexAdapters.adaptPoloniexTicker(ticker, ticker.getCurrencyPair());
-                })
-                .filter(ticker -> ticker.getCurrencyPair().equals(currencyPair));
+                .filter(pubSubData -> pair.equals(pubSubData.arguments().get(0).asText()))
+                .compose(metrics.adapt("ticker", pubSubData -> adaptFixedPointTicker(pubSubData, currencyPair, scale),
+                        ticker -> StreamingMetrics.fixedPointTimestamp(ticker.getTimestamp())));
+    }
+
+    private static FixedPointTicker adaptFixedPointTicker(PubSubData pubSubData, CurrencyPair currencyPair, FixedPointScale scale) {
+        ArrayNode arguments = pubSubData.arguments();
+        int priceScale = scale.getPriceScale();
+        return new FixedPointTicker(currencyPair, scale,
+                FixedPoint.parse(arguments.get(1), priceScale),
+                FixedPoint.parse(arguments.get(3), priceScale),
+                FixedPoint.parse(arguments.get(2), priceScale),
+                FixedPoint.parse(arguments.get(8), priceScale),
+                FixedPoint.parse(arguments.get(9), priceScale),
+                FixedPoint.parse(arguments.get(6), scale.getAmountScale()),
+                0);
     }
 
     @Override
     public Observable<Trade> getTrades(CurrencyPair currencyPair, Object... args) {
         throw new NotYetImplementedForExchangeException();
     }
+
+    /**
+     * Loads the order book by the polling API as an {@value #ORDER_BOOK_SNAPSHOT} event, with the sequence number of
+     * the last update it includes in keyword argument seq like the events of the market topic.
+     */
+    private PubSubData loadOrderBookSnapshot(CurrencyPair currencyPair) throws IOException {
+        PoloniexDepth depth = marketDataService.getPoloniexDepth(currencyPair);
+        Object seq = depth.getAdditionalProperties().get("seq");
+        if (!(seq instanceof Number)) {
+            throw new ExchangeException("Order book of " + currencyPair + " has no sequence number.");
+        }
+
+        ObjectNode data = JsonNodeFactory.instance.objectNode();
+        data.set("asks", levels(depth.getAsks()));
+        data.set("bids", levels(depth.getBids()));
+        ObjectNode event = JsonNodeFactory.instance.objectNode();
+        event.put("type", ORDER_BOOK_SNAPSHOT);
+        event.set("data", data);
+        ObjectNode keywordArguments = JsonNodeFactory.instance.objectNode();
+        keywordArguments.put("seq", ((Number) seq).longValue());
+        return new PubSubData(null, JsonNodeFactory.instance.arrayNode().add(event), keywordArguments);
+    }
+
+    private static ArrayNode levels(List<List<BigDecimal>> levels) {
+        ArrayNode node = JsonNodeFactory.instance.arrayNode();
+        for (List<BigDecimal> level : levels) {
+            node.addArray().add(level.get(0).toPlainString()).add(level.get(1).toPlainString());
+        }
+        return node;
+    }
+
+    /**
+     * Applies orderBookSnapshot, orderBookModify and orderBookRemove events of the market topic to the order book.
+     *
+     * @return true when the order book has been changed.
+     */
+    private boolean applyOrderBookUpdates(StreamingOrderBook orderBook, PubSubData pubSubData) {
+        boolean updated = false;
+        synchronized (orderBook) {
+            for (JsonNode event : pubSubData.arguments()) {
+                String type = event.path("type").asText();
+                JsonNode data = event.path("data");
+                Order.OrderType side = "bid".equals(data.path("type").asText()) ? Order.OrderType.BID : Order.OrderType.ASK;
+
+                if ("orderBookModify".equals(type)) {
+                    orderBook.update(side, new BigDecimal(data.get("rate").asText()), new BigDecimal(data.get("amount").asText()));
+                    updated = true;
+                } else if ("orderBookRemove".equals(type)) {
+                    orderBook.remove(side, new BigDecimal(data.get("rate").asText()));
+                    updated = true;
+                } else if (ORDER_BOOK_SNAPSHOT.equals(type)) {
+                    orderBook.clear();
+                    for (JsonNode ask : data.path("asks")) {
+                        orderBook.update(Order.OrderType.ASK, new BigDecimal(ask.get(0).asText()), new BigDecimal(ask.get(1).asText()));
+                    }
+                    for (JsonNode bid : data.path("bids")) {
+                        orderBook.update(Order.OrderType.BID, new BigDecimal(bid.get(0).asText()), new BigDecimal(bid.get(1).asText()));
+                    }
+                    updated = true;
+                }
+            }
+            VirtualClock virtualClock = clock;
+            if (updated && virtualClock != null) {
+                orderBook.setTimestamp(new Date(virtualClock.currentTimeMillis()));
+            }
+        }
+        return updated;
+    }
+
+    private static boolean isSnapshot(PubSubData pubSubData) {
+        JsonNode first = pubSubData.arguments().path(0);
+        return ORDER_BOOK_SNAPSHOT.equals(first.path("type").asText());
+    }
+
+    /**
+     * Sequence number of the event, -1 when it has none.
+     */
+    private static long sequence(PubSubData pubSubData) {
+        return pubSubData.keywordArguments() == null ? -1 : pubSubData.keywordArguments().path("seq").asLong(-1);
+    }
+
+    /**
+     * Reconciles the snapshot with updates of the market topic. Events are passed one at a time, in the order they
+     * were received.
+     */
+    private final class OrderBookSync {
+        private final StreamingOrderBook orderBook;
+        private final Runnable resync;
+        // Updates waiting for the snapshot, null when the book is in sync.
+        private Deque<PubSubData> buffered = new ArrayDeque<>();
+        private long sequence;
+
+        /**
+         * @param resync Loads the snapshot again after a gap. Null when replaying, updates out of sync are then
+         *               applied as they come until the next recorded snapshot.
+         */
+        OrderBookSync(StreamingOrderBook orderBook, Runnable resync) {
+            this.orderBook = orderBook;
+            this.resync = resync;
+        }
+
+        /**
+         * @return true when the order book has been changed.
+         */
+        boolean apply(PubSubData pubSubData) {
+            if (isSnapshot(pubSubData)) {
+                if (buffered == null) {
+                    // Snapshot loaded after a gap that has been resolved meanwhile.
+                    return false;
+                }
+                applyOrderBookUpdates(orderBook, pubSubData);
+                sequence = sequence(pubSubData);
+                Deque<PubSubData> updates = buffered;
+                buffered = null;
+                for (PubSubData update : updates) {
+                    if (buffered != null) {
+                        buffered.add(update);
+                    } else {
+                        applyUpdate(update);
+                    }
+                }
+                return true;
+            }
+            if (buffered != null) {
+                buffered.add(pubSubData);
+                if (resync != null) {
+                    return false;
+                }
+                if (buffered.size() > MAX_REPLAYED_UPDATES) {
+                    buffered.removeFirst();
+                }
+                return applyOrderBookUpdates(orderBook, pubSubData);
+            }
+            return applyUpdate(pubSubData);
+        }
+
+        private boolean applyUpdate(PubSubData pubSubData) {
+            long updateSequence = sequence(pubSubData);
+            if (updateSequence >= 0) {
+                if (updateSequence <= sequence) {
+                    // Already included in the snapshot.
+                    return false;
+                }
+                if (updateSequence != sequence + 1) {
+                    buffered = new ArrayDeque<>();
+                    if (resync == null) {
+                        LOG.warn("Order book update {} of {} missed, replayed book is out of sync until the next "
+                                + "recorded snapshot.", sequence + 1, orderBook.getCurrencyPair());
+                        return apply(pubSubData);
+                    }
+                    LOG.warn("Order book update {} of {} missed, loading the book again.", sequence + 1,
+                            orderBook.getCurrencyPair());
+                    buffered.add(pubSubData);
+                    resync.run();
+                    return false;
+                }
+                sequence = updateSequence;
+            }
+            return applyOrderBookUpdates(orderBook, pubSubData);
+        }
+    }
 }
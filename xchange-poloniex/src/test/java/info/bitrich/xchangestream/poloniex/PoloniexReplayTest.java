@@ -0,0 +1,127 @@
+package info.bitrich.xchangestream.poloniex;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import info.bitrich.xchangestream.core.StreamingOrderBook;
+import info.bitrich.xchangestream.core.replay.ReplayStreamingExchange;
+import info.bitrich.xchangestream.core.replay.VirtualClock;
+import info.bitrich.xchangestream.service.journal.MappedFrameJournal;
+import info.bitrich.xchangestream.service.wamp.WampStreamingService;
+import io.reactivex.observers.TestObserver;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.knowm.xchange.ExchangeSpecification;
+import org.knowm.xchange.currency.CurrencyPair;
+import org.knowm.xchange.dto.Order;
+import org.knowm.xchange.dto.trade.LimitOrder;
+import ws.wamp.jawampa.PubSubData;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PoloniexReplayTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testReplaysOrderBookFromRecordedSnapshot() throws Exception {
+        Path journal = folder.getRoot().toPath();
+        WampStreamingService recorder = new WampStreamingService("wss://api.poloniex.com", "realm1");
+        try (MappedFrameJournal frameJournal = new MappedFrameJournal(journal)) {
+            recorder.setJournal(frameJournal);
+            recorder.appendToJournal("BTC_ETH", pubSubData(10, "[{\"type\":\"orderBookModify\",\"data\":{\"type\":\"bid\",\"rate\":\"0.0028\",\"amount\":\"5\"}}]"));
+            recorder.appendToJournal("BTC_ETH", pubSubData(10, "[{\"type\":\"orderBookSnapshot\",\"data\":{\"asks\":[[\"0.0031\",\"2\"]],\"bids\":[[\"0.0029\",\"1\"]]}}]"));
+            recorder.appendToJournal("BTC_ETH", pubSubData(11, "[{\"type\":\"orderBookModify\",\"data\":{\"type\":\"bid\",\"rate\":\"0.0030\",\"amount\":\"5\"}}]"));
+        }
+
+        ReplayStreamingExchange exchange = replayExchange(journal);
+        TestObserver<StreamingOrderBook> test = exchange.getStreamingMarketDataService()
+                .getStreamingOrderBook(CurrencyPair.ETH_BTC).test();
+        exchange.replay().blockingAwait();
+
+        // Update 10 is applied until the snapshot replaces the book, the book is not loaded by the polling API.
+        test.assertValueCount(3);
+        StreamingOrderBook orderBook = test.values().get(2);
+        assertThat(orderBook.getBestBid()).isEqualTo(limitOrder(Order.OrderType.BID, "0.0030", "5"));
+        assertThat(orderBook.getBids(10)).hasSize(2);
+        assertThat(orderBook.getTimestamp().getTime()).isEqualTo(exchange.getClock().currentTimeMillis());
+        exchange.disconnect().blockingAwait();
+    }
+
+    @Test
+    public void testReplaysOrderBookWithoutSnapshot() throws Exception {
+        Path journal = folder.getRoot().toPath();
+        WampStreamingService recorder = new WampStreamingService("wss://api.poloniex.com", "realm1");
+        try (MappedFrameJournal frameJournal = new MappedFrameJournal(journal)) {
+            recorder.setJournal(frameJournal);
+            recorder.appendToJournal("BTC_ETH", pubSubData(10, "[{\"type\":\"orderBookModify\",\"data\":{\"type\":\"bid\",\"rate\":\"0.0028\",\"amount\":\"5\"}}]"));
+            recorder.appendToJournal("BTC_ETH", pubSubData(11, "[{\"type\":\"orderBookModify\",\"data\":{\"type\":\"ask\",\"rate\":\"0.0031\",\"amount\":\"2\"}}]"));
+        }
+
+        ReplayStreamingExchange exchange = replayExchange(journal);
+        TestObserver<StreamingOrderBook> test = exchange.getStreamingMarketDataService()
+                .getStreamingOrderBook(CurrencyPair.ETH_BTC).test();
+        exchange.replay().blockingAwait();
+
+        // Recorded without the polling API, updates are applied as they come.
+        test.assertValueCount(2);
+        StreamingOrderBook orderBook = test.values().get(1);
+        assertThat(orderBook.getBestBid()).isEqualTo(limitOrder(Order.OrderType.BID, "0.0028", "5"));
+        assertThat(orderBook.getBestAsk()).isEqualTo(limitOrder(Order.OrderType.ASK, "0.0031", "2"));
+        exchange.disconnect().blockingAwait();
+    }
+
+    @Test
+    public void testReplaysOrderBookAfterGap() throws Exception {
+        Path journal = folder.getRoot().toPath();
+        WampStreamingService recorder = new WampStreamingService("wss://api.poloniex.com", "realm1");
+        try (MappedFrameJournal frameJournal = new MappedFrameJournal(journal)) {
+            recorder.setJournal(frameJournal);
+            recorder.appendToJournal("BTC_ETH", pubSubData(10, "[{\"type\":\"orderBookSnapshot\",\"data\":{\"asks\":[[\"0.0031\",\"2\"]],\"bids\":[[\"0.0029\",\"1\"]]}}]"));
+            // Update 11 was missed, live session loaded the book again.
+            recorder.appendToJournal("BTC_ETH", pubSubData(12, "[{\"type\":\"orderBookModify\",\"data\":{\"type\":\"bid\",\"rate\":\"0.0030\",\"amount\":\"5\"}}]"));
+            recorder.appendToJournal("BTC_ETH", pubSubData(13, "[{\"type\":\"orderBookModify\",\"data\":{\"type\":\"ask\",\"rate\":\"0.0032\",\"amount\":\"1\"}}]"));
+            recorder.appendToJournal("BTC_ETH", pubSubData(12, "[{\"type\":\"orderBookSnapshot\",\"data\":{\"asks\":[[\"0.0041\",\"2\"]],\"bids\":[[\"0.0039\",\"1\"]]}}]"));
+            recorder.appendToJournal("BTC_ETH", pubSubData(14, "[{\"type\":\"orderBookModify\",\"data\":{\"type\":\"bid\",\"rate\":\"0.0040\",\"amount\":\"5\"}}]"));
+        }
+
+        ReplayStreamingExchange exchange = replayExchange(journal);
+        TestObserver<StreamingOrderBook> test = exchange.getStreamingMarketDataService()
+                .getStreamingOrderBook(CurrencyPair.ETH_BTC).test();
+        exchange.replay().blockingAwait();
+
+        // Updates out of sync are applied as they come, the recorded snapshot brings the book in sync again with
+        // update 13 applied on top of it.
+        test.assertValueCount(5);
+        StreamingOrderBook orderBook = test.values().get(4);
+        assertThat(orderBook.getAsks(10)).containsExactly(limitOrder(Order.OrderType.ASK, "0.0032", "1"),
+                limitOrder(Order.OrderType.ASK, "0.0041", "2"));
+        assertThat(orderBook.getBids(10)).containsExactly(limitOrder(Order.OrderType.BID, "0.0040", "5"),
+                limitOrder(Order.OrderType.BID, "0.0039", "1"));
+        exchange.disconnect().blockingAwait();
+    }
+
+    private static ReplayStreamingExchange replayExchange(Path journal) {
+        PoloniexStreamingExchange live = new PoloniexStreamingExchange();
+        ExchangeSpecification specification = live.getDefaultExchangeSpecification();
+        specification.setShouldLoadRemoteMetaData(false);
+        live.applySpecification(specification);
+
+        ReplayStreamingExchange exchange = new ReplayStreamingExchange(live, journal, VirtualClock.maxSpeed());
+        exchange.connect().blockingAwait();
+        return exchange;
+    }
+
+    private static PubSubData pubSubData(long seq, String arguments) throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+        return new PubSubData(null, (ArrayNode) mapper.readTree(arguments), mapper.createObjectNode().put("seq", seq));
+    }
+
+    private static LimitOrder limitOrder(Order.OrderType type, String price, String amount) {
+        return new LimitOrder(type, new BigDecimal(amount), CurrencyPair.ETH_BTC, null, null, new BigDecimal(price));
+    }
+}
@@ -0,0 +1,160 @@
+package info.bitrich.xchangestream.poloniex;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import info.bitrich.xchangestream.core.StreamingOrderBook;
+import info.bitrich.xchangestream.service.wamp.WampStreamingService;
+import info.bitrich.xchangestream.service.backpressure.OverflowStrategy;
+import io.reactivex.observers.TestObserver;
+import io.reactivex.plugins.RxJavaPlugins;
+import io.reactivex.schedulers.Schedulers;
+import io.reactivex.subjects.PublishSubject;
+import io.reactivex.subscribers.TestSubscriber;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.knowm.xchange.currency.CurrencyPair;
+import org.knowm.xchange.dto.Order;
+import org.knowm.xchange.dto.marketdata.OrderBook;
+import org.knowm.xchange.dto.trade.LimitOrder;
+import org.knowm.xchange.poloniex.dto.marketdata.PoloniexDepth;
+import org.knowm.xchange.poloniex.service.PoloniexMarketDataServiceRaw;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import ws.wamp.jawampa.PubSubData;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class PoloniexStreamingMarketDataServiceTest {
+    @Mock
+    private WampStreamingService streamingService;
+
+    @Mock
+    private PoloniexMarketDataServiceRaw marketDataService;
+
+    private PoloniexStreamingMarketDataService marketDataStreamingService;
+
+    @Before
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        marketDataStreamingService = new PoloniexStreamingMarketDataService(streamingService, marketDataService);
+        // Snapshot is loaded on the calling thread.
+        RxJavaPlugins.setIoSchedulerHandler(scheduler -> Schedulers.trampoline());
+    }
+
+    @After
+    public void tearDown() {
+        RxJavaPlugins.reset();
+    }
+
+    @Test
+    public void testGetStreamingOrderBook() throws Exception {
+        // Given initial order book from polling API.
+        when(marketDataService.getPoloniexDepth(CurrencyPair.ETH_BTC)).thenReturn(depth(10, "0.0031", "0.0029"));
+        PublishSubject<PubSubData> updates = PublishSubject.create();
+        when(streamingService.subscribeChannel(eq("BTC_ETH"))).thenReturn(updates);
+
+        TestObserver<StreamingOrderBook> test = marketDataStreamingService.getStreamingOrderBook(CurrencyPair.ETH_BTC).test();
+
+        // And updates from push API, the first one already included in the snapshot.
+        updates.onNext(pubSubData(10, "[{\"type\":\"orderBookModify\",\"data\":{\"type\":\"bid\",\"rate\":\"0.0028\",\"amount\":\"5\"}}]"));
+        updates.onNext(pubSubData(11, "[{\"type\":\"orderBookModify\",\"data\":{\"type\":\"bid\",\"rate\":\"0.0030\",\"amount\":\"5\"}}]"));
+        updates.onNext(pubSubData(12, "[{\"type\":\"newTrade\",\"data\":{\"type\":\"sell\",\"rate\":\"0.0030\",\"amount\":\"1\"}}]"));
+        updates.onNext(pubSubData(13, "[{\"type\":\"orderBookRemove\",\"data\":{\"type\":\"ask\",\"rate\":\"0.0031\"}}]"));
+
+        // Snapshot and the two updates changing the book are emitted.
+        test.assertValueCount(3);
+        StreamingOrderBook orderBook = test.values().get(2);
+        assertThat(orderBook.getBestBid()).isEqualTo(limitOrder(Order.OrderType.BID, "0.0030", "5"));
+        assertThat(orderBook.getBids(10)).hasSize(2);
+        assertThat(orderBook.getBestAsk()).isNull();
+        assertThat(orderBook.getTimestamp()).isNull();
+    }
+
+    @Test
+    public void testBuffersUpdatesUntilSnapshot() throws Exception {
+        PublishSubject<PubSubData> updates = PublishSubject.create();
+        when(streamingService.subscribeChannel(eq("BTC_ETH"))).thenReturn(updates);
+        // Updates arrive while the snapshot is loading.
+        when(marketDataService.getPoloniexDepth(CurrencyPair.ETH_BTC)).thenAnswer(invocation -> {
+            updates.onNext(pubSubData(10, "[{\"type\":\"orderBookRemove\",\"data\":{\"type\":\"ask\",\"rate\":\"0.0031\"}}]"));
+            updates.onNext(pubSubData(11, "[{\"type\":\"orderBookRemove\",\"data\":{\"type\":\"bid\",\"rate\":\"0.0029\"}}]"));
+            return depth(10, "0.0032", "0.0029");
+        });
+
+        TestObserver<StreamingOrderBook> test = marketDataStreamingService.getStreamingOrderBook(CurrencyPair.ETH_BTC).test();
+
+        // Update 10 is in the snapshot, 11 is applied on top of it.
+        test.assertValueCount(1);
+        StreamingOrderBook orderBook = test.values().get(0);
+        assertThat(orderBook.getBestAsk()).isEqualTo(limitOrder(Order.OrderType.ASK, "0.0032", "2"));
+        assertThat(orderBook.getBestBid()).isNull();
+    }
+
+    @Test
+    public void testLoadsSnapshotAgainAfterGap() throws Exception {
+        when(marketDataService.getPoloniexDepth(CurrencyPair.ETH_BTC))
+                .thenReturn(depth(10, "0.0031", "0.0029"), depth(20, "0.0041", "0.0039"));
+        PublishSubject<PubSubData> updates = PublishSubject.create();
+        when(streamingService.subscribeChannel(eq("BTC_ETH"))).thenReturn(updates);
+
+        TestObserver<StreamingOrderBook> test = marketDataStreamingService.getStreamingOrderBook(CurrencyPair.ETH_BTC).test();
+        updates.onNext(pubSubData(12, "[{\"type\":\"orderBookModify\",\"data\":{\"type\":\"bid\",\"rate\":\"0.0030\",\"amount\":\"5\"}}]"));
+        updates.onNext(pubSubData(21, "[{\"type\":\"orderBookModify\",\"data\":{\"type\":\"bid\",\"rate\":\"0.0040\",\"amount\":\"5\"}}]"));
+
+        // Update 11 was missed, book is rebuilt from the second snapshot.
+        verify(marketDataService, times(2)).getPoloniexDepth(CurrencyPair.ETH_BTC);
+        test.assertValueCount(3);
+        StreamingOrderBook orderBook = test.values().get(2);
+        assertThat(orderBook.getBestAsk()).isEqualTo(limitOrder(Order.OrderType.ASK, "0.0041", "2"));
+        assertThat(orderBook.getBestBid()).isEqualTo(limitOrder(Order.OrderType.BID, "0.0040", "5"));
+        assertThat(orderBook.getBids(10)).hasSize(2);
+    }
+
+    @Test
+    public void testBufferedOrderBooksAreCopiesOfEachState() throws Exception {
+        when(marketDataService.getPoloniexDepth(CurrencyPair.ETH_BTC)).thenReturn(depth(10, "0.0031", "0.0029"));
+        PublishSubject<PubSubData> updates = PublishSubject.create();
+        when(streamingService.subscribeChannel(eq("BTC_ETH"))).thenReturn(updates);
+
+        TestSubscriber<OrderBook> test = marketDataStreamingService
+                .getOrderBookFlowable(CurrencyPair.ETH_BTC, OverflowStrategy.BUFFER).test(0);
+        updates.onNext(pubSubData(11, "[{\"type\":\"orderBookModify\",\"data\":{\"type\":\"bid\",\"rate\":\"0.0030\",\"amount\":\"5\"}}]"));
+        test.request(2);
+
+        // Queued books keep the state they were emitted with.
+        test.assertValueCount(2);
+        assertThat(test.values().get(0).getBids()).hasSize(1);
+        assertThat(test.values().get(1).getBids()).hasSize(2);
+    }
+
+    private static PoloniexDepth depth(long seq, String ask, String bid) {
+        PoloniexDepth depth = new PoloniexDepth();
+        depth.setAsks(Collections.singletonList(level(ask, "2")));
+        depth.setBids(Collections.singletonList(level(bid, "1")));
+        depth.setAdditionalProperty("seq", seq);
+        return depth;
+    }
+
+    private static List<BigDecimal> level(String price, String amount) {
+        return Arrays.asList(new BigDecimal(price), new BigDecimal(amount));
+    }
+
+    private static PubSubData pubSubData(long seq, String arguments) throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+        return new PubSubData(null, (ArrayNode) mapper.readTree(arguments), mapper.createObjectNode().put("seq", seq));
+    }
+
+    private static LimitOrder limitOrder(Order.OrderType type, String price, String amount) {
+        return new LimitOrder(type, new BigDecimal(amount), CurrencyPair.ETH_BTC, null, null, new BigDecimal(price));
+    }
+}
@@ -0,0 +1,84 @@
+package info.bitrich.xchange.coinmate;
+
+import info.bitrich.xchangestream.benchmarks.BenchmarkPusherStreamingService;
+import info.bitrich.xchangestream.benchmarks.Fixtures;
+import info.bitrich.xchangestream.benchmarks.SlowSubscriber;
+import info.bitrich.xchangestream.core.fixedpoint.FixedPointScale;
+import io.reactivex.disposables.Disposable;
+import org.knowm.xchange.currency.CurrencyPair;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replays the recorded Pusher event data through the market data stream selected by {@link #stream}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CoinmateMarketDataBenchmark {
+
+    @Param({"orderBook", "orderBookFlowable", "fixedPointOrderBook", "trades", "fixedPointTrades"})
+    public String stream;
+
+    private BenchmarkPusherStreamingService service;
+    private String message;
+    private Disposable subscription;
+    private SlowSubscriber<Object> slowSubscriber;
+    private Object last;
+
+    @Setup
+    public void setUp() throws Exception {
+        service = new BenchmarkPusherStreamingService();
+        CoinmateStreamingMarketDataService marketDataService = new CoinmateStreamingMarketDataService(service);
+        String fixture = "coinmate/order-book.json";
+        switch (stream) {
+            case "orderBook":
+                subscription = marketDataService.getOrderBook(CurrencyPair.BTC_EUR).subscribe(this::consume);
+                break;
+            case "orderBookFlowable":
+                // Only every tenth book is requested, the others are dropped before they are adapted.
+                slowSubscriber = new SlowSubscriber<>(this::consume);
+                subscription = marketDataService.getOrderBookFlowable(CurrencyPair.BTC_EUR).subscribeWith(slowSubscriber);
+                break;
+            case "fixedPointOrderBook":
+                subscription = marketDataService.getFixedPointOrderBook(CurrencyPair.BTC_EUR, FixedPointScale.DEFAULT)
+                        .subscribe(this::consume);
+                break;
+            case "trades":
+                fixture = "coinmate/trades.json";
+                subscription = marketDataService.getTrades(CurrencyPair.BTC_EUR).subscribe(this::consume);
+                break;
+            case "fixedPointTrades":
+                fixture = "coinmate/trades.json";
+                subscription = marketDataService.getFixedPointTrades(CurrencyPair.BTC_EUR, FixedPointScale.DEFAULT)
+                        .subscribe(this::consume);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown stream " + stream);
+        }
+        message = new String(Fixtures.read(fixture), StandardCharsets.UTF_8);
+    }
+
+    @TearDown
+    public void tearDown() {
+        subscription.dispose();
+    }
+
+    @Benchmark
+    public Object message() {
+        service.publish(message);
+        if (slowSubscriber != null) {
+            slowSubscriber.frameReplayed();
+        }
+        return last;
+    }
+
+    private void consume(Object value) {
+        last = value;
+    }
+}
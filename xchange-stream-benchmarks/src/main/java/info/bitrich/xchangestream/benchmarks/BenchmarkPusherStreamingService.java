@@ -0,0 +1,28 @@
+package info.bitrich.xchangestream.benchmarks;
+
+import com.pusher.client.Pusher;
+import info.bitrich.xchangestream.service.pusher.PusherStreamingService;
+import io.reactivex.Observable;
+import io.reactivex.subjects.PublishSubject;
+
+import java.util.List;
+
+/**
+ * Pusher service without connection, every channel receives messages published by {@link #publish(String)}.
+ */
+public class BenchmarkPusherStreamingService extends PusherStreamingService {
+    private final PublishSubject<String> messages = PublishSubject.create();
+
+    public BenchmarkPusherStreamingService() {
+        super((Pusher) null);
+    }
+
+    public void publish(String message) {
+        messages.onNext(message);
+    }
+
+    @Override
+    public Observable<String> subscribeChannel(String channelName, List<String> eventsName) {
+        return messages;
+    }
+}
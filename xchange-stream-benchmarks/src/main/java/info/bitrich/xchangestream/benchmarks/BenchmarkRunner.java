@@ -0,0 +1,25 @@
+package info.bitrich.xchangestream.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs all benchmarks, or the ones matching the regular expression given as the first argument, with allocation
+ * profiling enabled. Throughput and latency percentiles are reported by the modes of the benchmarks, allocation rate
+ * per message as {@code gc.alloc.rate.norm}.
+ * <p>
+ * Build with {@code mvn -P benchmarks package} and run {@code java -jar xchange-stream-benchmarks/target/benchmarks.jar}.
+ * </p>
+ */
+public class BenchmarkRunner {
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(args.length > 0 ? args[0] : ".*MarketDataBenchmark.*")
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
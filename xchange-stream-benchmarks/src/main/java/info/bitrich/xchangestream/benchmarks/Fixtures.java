@@ -0,0 +1,29 @@
+package info.bitrich.xchangestream.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Loads payloads recorded for the exchange tests. They are copied to the benchmark classpath under the name of the
+ * exchange, e.g. {@code bitstamp/order-book.json}.
+ */
+public final class Fixtures {
+    private Fixtures() {
+    }
+
+    public static byte[] read(String name) throws IOException {
+        try (InputStream in = Fixtures.class.getClassLoader().getResourceAsStream(name)) {
+            if (in == null) {
+                throw new IOException("Fixture " + name + " not found.");
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        }
+    }
+}
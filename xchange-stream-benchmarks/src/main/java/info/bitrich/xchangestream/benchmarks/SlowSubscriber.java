@@ -0,0 +1,50 @@
+package info.bitrich.xchangestream.benchmarks;
+
+import io.reactivex.subscribers.DisposableSubscriber;
+
+import java.util.function.Consumer;
+
+/**
+ * Subscriber of a {@link io.reactivex.Flowable} that requests nothing by itself, the benchmark requests items one by
+ * one to emulate a consumer slower than the feed. Items arriving between requests are left to the overflow strategy.
+ */
+public class SlowSubscriber<T> extends DisposableSubscriber<T> {
+    /**
+     * Number of frames replayed per requested item.
+     */
+    public static final int FRAMES_PER_REQUEST = 10;
+
+    private final Consumer<? super T> consumer;
+    private long frames;
+
+    public SlowSubscriber(Consumer<? super T> consumer) {
+        this.consumer = consumer;
+    }
+
+    @Override
+    protected void onStart() {
+    }
+
+    /**
+     * Counts the replayed frame, requesting the next item after every {@link #FRAMES_PER_REQUEST} frames.
+     */
+    public void frameReplayed() {
+        if (++frames % FRAMES_PER_REQUEST == 0) {
+            request(1);
+        }
+    }
+
+    @Override
+    public void onNext(T value) {
+        consumer.accept(value);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        throw new IllegalStateException("Benchmark stream failed.", throwable);
+    }
+
+    @Override
+    public void onComplete() {
+    }
+}
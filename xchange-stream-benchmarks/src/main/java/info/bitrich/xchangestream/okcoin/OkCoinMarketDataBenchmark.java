@@ -0,0 +1,114 @@
+package info.bitrich.xchangestream.okcoin;
+
+import info.bitrich.xchangestream.benchmarks.Fixtures;
+import info.bitrich.xchangestream.benchmarks.SlowSubscriber;
+import info.bitrich.xchangestream.core.fixedpoint.FixedPointScale;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.reactivex.disposables.Disposable;
+import org.knowm.xchange.currency.CurrencyPair;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replays the recorded message through {@link OkCoinStreamingService#massegeHandler} and the market data stream
+ * selected by {@link #stream}. The service is connected in offline mode, so frames go through the same routing,
+ * payload binding and channel dispatch as frames from the network.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OkCoinMarketDataBenchmark {
+
+    @Param({"orderBook", "streamingOrderBook", "orderBookFlowable", "fixedPointOrderBook", "trades", "fixedPointTrades"})
+    public String stream;
+
+    private OkCoinStreamingService service;
+    private ByteBuf frame;
+    private String message;
+    private Disposable subscription;
+    private SlowSubscriber<Object> slowSubscriber;
+    private Object last;
+
+    @Setup
+    public void setUp() throws Exception {
+        service = new OkCoinStreamingService("ws://localhost/benchmark");
+        service.setOffline(true);
+        service.connect().blockingAwait();
+        OkCoinStreamingMarketDataService marketDataService = new OkCoinStreamingMarketDataService(service);
+        String fixture = "okcoin/order-book.json";
+        switch (stream) {
+            case "orderBook":
+                subscription = marketDataService.getOrderBook(CurrencyPair.BTC_USD).subscribe(this::consume);
+                break;
+            case "streamingOrderBook":
+                subscription = marketDataService.getStreamingOrderBook(CurrencyPair.BTC_USD)
+                        .map(orderBook -> orderBook.getBestAskPrice())
+                        .subscribe(this::consume);
+                break;
+            case "orderBookFlowable":
+                // Only every tenth book is requested, the others are dropped before they are adapted.
+                slowSubscriber = new SlowSubscriber<>(this::consume);
+                subscription = marketDataService.getOrderBookFlowable(CurrencyPair.BTC_USD).subscribeWith(slowSubscriber);
+                break;
+            case "fixedPointOrderBook":
+                subscription = marketDataService.getFixedPointOrderBook(CurrencyPair.BTC_USD, FixedPointScale.DEFAULT)
+                        .subscribe(this::consume);
+                break;
+            case "trades":
+                fixture = "okcoin/trades.json";
+                subscription = marketDataService.getTrades(CurrencyPair.BTC_USD).subscribe(this::consume);
+                break;
+            case "fixedPointTrades":
+                fixture = "okcoin/trades.json";
+                subscription = marketDataService.getFixedPointTrades(CurrencyPair.BTC_USD, FixedPointScale.DEFAULT)
+                        .subscribe(this::consume);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown stream " + stream);
+        }
+        byte[] payload = Fixtures.read(fixture);
+        frame = Unpooled.wrappedBuffer(payload);
+        message = new String(payload, StandardCharsets.UTF_8);
+    }
+
+    @TearDown
+    public void tearDown() {
+        subscription.dispose();
+        service.disconnect().blockingAwait();
+    }
+
+    /**
+     * Frame content as received from netty, parsed straight from the buffer.
+     */
+    @Benchmark
+    public Object frame() {
+        service.massegeHandler(frame.duplicate());
+        return replayed();
+    }
+
+    /**
+     * Frame content decoded to String first.
+     */
+    @Benchmark
+    public Object text() {
+        service.massegeHandler(message);
+        return replayed();
+    }
+
+    private Object replayed() {
+        if (slowSubscriber != null) {
+            slowSubscriber.frameReplayed();
+        }
+        return last;
+    }
+
+    private void consume(Object value) {
+        last = value;
+    }
+}
@@ -1,5 +1,9 @@
 package info.bitrich.xchangestream.core;
 
+import info.bitrich.xchangestream.service.journal.FrameJournal;
+import info.bitrich.xchangestream.service.journal.ReplayableStreamingService;
+import info.bitrich.xchangestream.core.metrics.StreamingMetrics;
+import info.bitrich.xchangestream.core.replay.VirtualClock;
 import io.reactivex.Completable;
 import org.knowm.xchange.Exchange;
 
@@ -18,6 +22,44 @@ public interface StreamingExchange extends Exchange {
      */
     Completable disconnect();
 
+    /**
+     * Sets the journal that records raw frames received from the exchange, e.g.
+     * {@link info.bitrich.xchangestream.service.journal.MappedFrameJournal}, or null to stop recording.
+     *
+     * @throws UnsupportedOperationException when the exchange has no {@link #getReplayableService()}.
+     */
+    default void setJournal(FrameJournal journal) {
+        ReplayableStreamingService service = getReplayableService();
+        if (service == null) {
+            throw new UnsupportedOperationException("Exchange does not support journaling.");
+        }
+        service.setJournal(journal);
+    }
+
+    /**
+     * Returns the streaming service of the exchange, used to record and replay its frames, or null when the
+     * exchange does not support it. See {@link info.bitrich.xchangestream.core.replay.ReplayStreamingExchange}.
+     */
+    default ReplayableStreamingService getReplayableService() {
+        return null;
+    }
+
+    /**
+     * Returns latency metrics of the streams of the exchange, or null when the exchange does not measure them.
+     * Metrics are disabled until {@link StreamingMetrics#setEnabled(boolean)} is called.
+     */
+    default StreamingMetrics getMetrics() {
+        return null;
+    }
+
+    /**
+     * Sets the clock the exchange reads the time from where its messages carry none, e.g. the clock of a replay so
+     * that replayed books get the recorded time. Null leaves such times empty. Exchanges whose messages always carry
+     * their time ignore the clock.
+     */
+    default void setClock(VirtualClock clock) {
+    }
+
     /**
      * Returns service that can be used to access market data.
      */
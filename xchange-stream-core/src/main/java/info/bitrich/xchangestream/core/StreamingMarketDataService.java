@@ -1,5 +1,7 @@
 package info.bitrich.xchangestream.core;
 
+import info.bitrich.xchangestream.service.backpressure.OverflowStrategy;
+import io.reactivex.Flowable;
 import io.reactivex.Observable;
 import org.knowm.xchange.currency.CurrencyPair;
 import org.knowm.xchange.dto.marketdata.OrderBook;
@@ -8,6 +10,11 @@ import org.knowm.xchange.dto.marketdata.Trade;
 
 
 public interface StreamingMarketDataService {
+    /**
+     * Number of trade messages buffered by {@link #getTradesFlowable(CurrencyPair, Object...)}.
+     */
+    int TRADES_BUFFER_SIZE = 1024;
+
     /**
      * Get an order book representing the current offered exchange rates (market depth).
      * Emits {@link info.bitrich.xchangestream.service.exception.NotConnectedException} When not connected to the WebSocket API.
@@ -34,4 +41,95 @@ public interface StreamingMarketDataService {
      * @return {@link Observable} that emits {@link OrderBook} when exchange sends the update.
      */
     Observable<Trade> getTrades(CurrencyPair currencyPair, Object... args);
+
+    /**
+     * Get an order book that is kept up to date in place instead of being rebuilt for every update.
+     * Emits {@link info.bitrich.xchangestream.service.exception.NotConnectedException} When not connected to the WebSocket API.
+     * <p>
+     * Every subscription gets its own {@link StreamingOrderBook}. By default it is filled from {@link #getOrderBook},
+     * exchanges override this to apply their updates straight to the book.
+     * </p>
+     *
+     * @param currencyPair Currency pair of the order book
+     * @return {@link Observable} that emits the same {@link StreamingOrderBook} instance whenever it was updated.
+     */
+    default Observable<StreamingOrderBook> getStreamingOrderBook(CurrencyPair currencyPair, Object... args) {
+        return Observable.defer(() -> {
+            StreamingOrderBook orderBook = new StreamingOrderBook(currencyPair);
+            return getOrderBook(currencyPair, args).map(snapshot -> {
+                orderBook.snapshot(snapshot);
+                return orderBook;
+            });
+        });
+    }
+
+    /**
+     * Get an order book as {@link Flowable} that keeps only the latest update when the subscriber cannot keep up.
+     *
+     * @param currencyPair Currency pair of the order book
+     * @return {@link Flowable} that emits {@link OrderBook} when exchange sends the update.
+     */
+    default Flowable<OrderBook> getOrderBookFlowable(CurrencyPair currencyPair, Object... args) {
+        return getOrderBookFlowable(currencyPair, OverflowStrategy.LATEST, args);
+    }
+
+    /**
+     * Get an order book as {@link Flowable} that handles slow subscribers according to the overflow strategy.
+     * <p>
+     * By default the strategy is applied to {@link #getOrderBook}, exchanges override this to apply it to messages
+     * of the channel, so updates that are dropped are never adapted. Pusher exchanges drop the raw text before it is
+     * parsed, exchanges on {@code NettyStreamingService} drop messages after the frame is parsed, see
+     * {@link OverflowStrategy}.
+     * </p>
+     *
+     * @param currencyPair     Currency pair of the order book
+     * @param overflowStrategy What to do with updates the subscriber has not requested yet
+     * @return {@link Flowable} that emits {@link OrderBook} when exchange sends the update.
+     */
+    default Flowable<OrderBook> getOrderBookFlowable(CurrencyPair currencyPair, OverflowStrategy overflowStrategy, Object... args) {
+        return overflowStrategy.apply(getOrderBook(currencyPair, args));
+    }
+
+    /**
+     * Get a ticker as {@link Flowable} that keeps only the latest ticker when the subscriber cannot keep up.
+     *
+     * @param currencyPair Currency pair of the ticker
+     * @return {@link Flowable} that emits {@link Ticker} when exchange sends the update.
+     */
+    default Flowable<Ticker> getTickerFlowable(CurrencyPair currencyPair, Object... args) {
+        return getTickerFlowable(currencyPair, OverflowStrategy.LATEST, args);
+    }
+
+    /**
+     * Get a ticker as {@link Flowable} that handles slow subscribers according to the overflow strategy.
+     *
+     * @param currencyPair     Currency pair of the ticker
+     * @param overflowStrategy What to do with tickers the subscriber has not requested yet
+     * @return {@link Flowable} that emits {@link Ticker} when exchange sends the update.
+     */
+    default Flowable<Ticker> getTickerFlowable(CurrencyPair currencyPair, OverflowStrategy overflowStrategy, Object... args) {
+        return overflowStrategy.apply(getTicker(currencyPair, args));
+    }
+
+    /**
+     * Get the trades as {@link Flowable} that buffers up to {@value #TRADES_BUFFER_SIZE} messages and drops the
+     * oldest ones when the subscriber cannot keep up.
+     *
+     * @param currencyPair Currency pair of the trades
+     * @return {@link Flowable} that emits {@link Trade} when exchange sends the update.
+     */
+    default Flowable<Trade> getTradesFlowable(CurrencyPair currencyPair, Object... args) {
+        return getTradesFlowable(currencyPair, OverflowStrategy.dropOldest(TRADES_BUFFER_SIZE), args);
+    }
+
+    /**
+     * Get the trades as {@link Flowable} that handles slow subscribers according to the overflow strategy.
+     *
+     * @param currencyPair     Currency pair of the trades
+     * @param overflowStrategy What to do with trades the subscriber has not requested yet
+     * @return {@link Flowable} that emits {@link Trade} when exchange sends the update.
+     */
+    default Flowable<Trade> getTradesFlowable(CurrencyPair currencyPair, OverflowStrategy overflowStrategy, Object... args) {
+        return overflowStrategy.apply(getTrades(currencyPair, args));
+    }
 }
@@ -0,0 +1,186 @@
+package info.bitrich.xchangestream.core;
+
+import org.knowm.xchange.currency.CurrencyPair;
+import org.knowm.xchange.dto.Order;
+import org.knowm.xchange.dto.marketdata.OrderBook;
+import org.knowm.xchange.dto.trade.LimitOrder;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Mutable order book of a single currency pair that is kept up to date by streaming updates.
+ * <p>
+ * Price levels are kept sorted, best first, and updated in place, so top of the book and first N levels can be read
+ * without rebuilding the whole book. All methods synchronize on the book instance, so several updates can be applied
+ * atomically by synchronizing on it as well.
+ * </p>
+ */
+public class StreamingOrderBook {
+    private final CurrencyPair currencyPair;
+    private final NavigableMap<BigDecimal, BigDecimal> asks = new TreeMap<>();
+    private final NavigableMap<BigDecimal, BigDecimal> bids = new TreeMap<>(Comparator.reverseOrder());
+    private Date timestamp;
+
+    public StreamingOrderBook(CurrencyPair currencyPair) {
+        this.currencyPair = currencyPair;
+    }
+
+    public CurrencyPair getCurrencyPair() {
+        return currencyPair;
+    }
+
+    public synchronized Date getTimestamp() {
+        return timestamp;
+    }
+
+    public synchronized void setTimestamp(Date timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    /**
+     * Removes all price levels of the book.
+     */
+    public synchronized void clear() {
+        asks.clear();
+        bids.clear();
+    }
+
+    /**
+     * Sets amount of the price level. Level with zero amount is removed from the book.
+     *
+     * @param type   {@link Order.OrderType#ASK} or {@link Order.OrderType#BID} side of the book.
+     * @param price  Price of the level.
+     * @param amount Total amount offered on the level.
+     */
+    public synchronized void update(Order.OrderType type, BigDecimal price, BigDecimal amount) {
+        if (amount.signum() == 0) {
+            side(type).remove(price);
+        } else {
+            side(type).put(price, amount);
+        }
+    }
+
+    /**
+     * Removes the price level from the book.
+     */
+    public synchronized void remove(Order.OrderType type, BigDecimal price) {
+        side(type).remove(price);
+    }
+
+    /**
+     * Replaces content of the book by the snapshot.
+     */
+    public synchronized void snapshot(OrderBook orderBook) {
+        clear();
+        for (LimitOrder order : orderBook.getAsks()) {
+            update(Order.OrderType.ASK, order.getLimitPrice(), order.getTradableAmount());
+        }
+        for (LimitOrder order : orderBook.getBids()) {
+            update(Order.OrderType.BID, order.getLimitPrice(), order.getTradableAmount());
+        }
+        timestamp = orderBook.getTimeStamp();
+    }
+
+    public synchronized BigDecimal getBestAskPrice() {
+        return asks.isEmpty() ? null : asks.firstKey();
+    }
+
+    public synchronized BigDecimal getBestBidPrice() {
+        return bids.isEmpty() ? null : bids.firstKey();
+    }
+
+    /**
+     * Returns the lowest ask or null when there is no ask in the book.
+     */
+    public synchronized LimitOrder getBestAsk() {
+        Map.Entry<BigDecimal, BigDecimal> level = asks.firstEntry();
+        return level == null ? null : toLimitOrder(Order.OrderType.ASK, level);
+    }
+
+    /**
+     * Returns the highest bid or null when there is no bid in the book.
+     */
+    public synchronized LimitOrder getBestBid() {
+        Map.Entry<BigDecimal, BigDecimal> level = bids.firstEntry();
+        return level == null ? null : toLimitOrder(Order.OrderType.BID, level);
+    }
+
+    /**
+     * Returns first {@code depth} asks, lowest price first.
+     */
+    public synchronized List<LimitOrder> getAsks(int depth) {
+        return getLevels(Order.OrderType.ASK, depth);
+    }
+
+    /**
+     * Returns first {@code depth} bids, highest price first.
+     */
+    public synchronized List<LimitOrder> getBids(int depth) {
+        return getLevels(Order.OrderType.BID, depth);
+    }
+
+    /**
+     * Returns number of price levels on the side of the book.
+     */
+    public synchronized int getDepth(Order.OrderType type) {
+        return side(type).size();
+    }
+
+    /**
+     * Returns immutable copy of the whole book.
+     */
+    public synchronized OrderBook toOrderBook() {
+        return toOrderBook(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Returns immutable copy of first {@code depth} levels of both sides of the book.
+     */
+    public synchronized OrderBook toOrderBook(int depth) {
+        return new OrderBook(timestamp, getAsks(depth), getBids(depth));
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "StreamingOrderBook [currencyPair=" + currencyPair + ", timestamp=" + timestamp
+                + ", bestAsk=" + getBestAskPrice() + ", bestBid=" + getBestBidPrice() + "]";
+    }
+
+    private List<LimitOrder> getLevels(Order.OrderType type, int depth) {
+        NavigableMap<BigDecimal, BigDecimal> side = side(type);
+        if (side.isEmpty() || depth <= 0) {
+            return Collections.emptyList();
+        }
+        List<LimitOrder> levels = new ArrayList<>(Math.min(depth, side.size()));
+        for (Map.Entry<BigDecimal, BigDecimal> level : side.entrySet()) {
+            if (levels.size() == depth) {
+                break;
+            }
+            levels.add(toLimitOrder(type, level));
+        }
+        return levels;
+    }
+
+    private LimitOrder toLimitOrder(Order.OrderType type, Map.Entry<BigDecimal, BigDecimal> level) {
+        return new LimitOrder(type, level.getValue(), currencyPair, null, null, level.getKey());
+    }
+
+    private NavigableMap<BigDecimal, BigDecimal> side(Order.OrderType type) {
+        switch (type) {
+            case ASK:
+                return asks;
+            case BID:
+                return bids;
+            default:
+                throw new IllegalArgumentException("Order book has no " + type + " side.");
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package info.bitrich.xchangestream.core.bus;
+
+import info.bitrich.xchangestream.core.StreamingMarketDataService;
+import io.reactivex.disposables.Disposable;
+import org.knowm.xchange.currency.CurrencyPair;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Merges market data of many exchanges into one stream without locks and without allocating per event, in the
+ * manner of the LMAX Disruptor.
+ * <p>
+ * Events are written into a ring of preallocated {@link MarketDataEvent} slots by any number of producers, usually
+ * the I/O threads of the exchanges. Every consumer reads all events in the order they were published, on a thread of
+ * its own, in batches of everything published since its last read. While the ring is full, producers wait for the
+ * slowest consumer, so a consumer that cannot keep up slows the exchanges down rather than losing events.
+ * </p>
+ * <pre>
+ * MarketDataBus bus = new MarketDataBus(1 &lt;&lt; 16, WaitStrategy.yielding());
+ * bus.addConsumer("arbitrage", (event, sequence, endOfBatch) -&gt; ...);
+ * bus.start();
+ * bus.publishTrades("OkCoin", okCoin.getStreamingMarketDataService(), CurrencyPair.BTC_USD);
+ * bus.publishTrades("Bitstamp", bitstamp.getStreamingMarketDataService(), CurrencyPair.BTC_USD);
+ * </pre>
+ */
+public class MarketDataBus implements Closeable {
+    private static final Logger LOG = LoggerFactory.getLogger(MarketDataBus.class);
+
+    private final MarketDataEvent[] events;
+    private final int mask;
+    private final int indexShift;
+    // Round of the ring in which the slot was last published, tells consumers which slots are ready to be read.
+    private final AtomicIntegerArray published;
+    private final WaitStrategy waitStrategy;
+    // Highest sequence claimed by producers.
+    private final Sequence cursor = new Sequence();
+    private final List<Consumer> consumers = new ArrayList<>();
+    private volatile Sequence[] gatingSequences = new Sequence[0];
+    // Lowest sequence of consumers seen by producers, re-read only when the ring looks full.
+    private volatile long cachedGatingSequence = -1;
+    private volatile boolean running;
+
+    /**
+     * @param bufferSize   Number of slots, must be a power of two.
+     * @param waitStrategy What consumers do while there is nothing to read and producers while the ring is full.
+     */
+    public MarketDataBus(int bufferSize, WaitStrategy waitStrategy) {
+        if (bufferSize < 1 || Integer.bitCount(bufferSize) != 1) {
+            throw new IllegalArgumentException("Buffer size must be a power of two.");
+        }
+        this.events = new MarketDataEvent[bufferSize];
+        for (int i = 0; i < bufferSize; i++) {
+            events[i] = new MarketDataEvent();
+        }
+        this.mask = bufferSize - 1;
+        this.indexShift = Integer.numberOfTrailingZeros(bufferSize);
+        this.published = new AtomicIntegerArray(bufferSize);
+        for (int i = 0; i < bufferSize; i++) {
+            published.set(i, -1);
+        }
+        this.waitStrategy = waitStrategy;
+    }
+
+    /**
+     * Adds consumer that gets every event published after {@link #start()}. Consumers cannot be added once the bus
+     * is started.
+     *
+     * @param name    Name of the consumer thread.
+     * @param handler Handles the events.
+     */
+    public synchronized MarketDataBus addConsumer(String name, MarketDataEventHandler handler) {
+        if (running) {
+            throw new IllegalStateException("Consumers must be added before the bus is started.");
+        }
+        consumers.add(new Consumer(name, handler));
+        return this;
+    }
+
+    /**
+     * Starts thread of every consumer.
+     */
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        if (consumers.isEmpty()) {
+            throw new IllegalStateException("Bus has no consumer.");
+        }
+        Sequence[] sequences = new Sequence[consumers.size()];
+        for (int i = 0; i < sequences.length; i++) {
+            sequences[i] = consumers.get(i).sequence;
+        }
+        gatingSequences = sequences;
+        running = true;
+        for (Consumer consumer : consumers) {
+            Thread thread = new Thread(consumer, consumer.name);
+            thread.setDaemon(true);
+            consumer.thread = thread;
+            thread.start();
+        }
+    }
+
+    /**
+     * Stops consumers, events not read yet are not handled.
+     */
+    @Override
+    public synchronized void close() {
+        running = false;
+        for (Consumer consumer : consumers) {
+            if (consumer.thread != null) {
+                try {
+                    consumer.thread.join(TimeUnit.SECONDS.toMillis(1));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    public int getBufferSize() {
+        return events.length;
+    }
+
+    /**
+     * Sequence of the last claimed slot, -1 when nothing was published.
+     */
+    public long getCursor() {
+        return cursor.get();
+    }
+
+    /**
+     * Publishes the event, waiting while the ring is full. Can be called from any thread once the bus is started.
+     */
+    public void publish(MarketDataEvent.Type type, String exchange, CurrencyPair currencyPair, Object payload) {
+        if (!running) {
+            throw new IllegalStateException("Bus is not running.");
+        }
+        long sequence = cursor.incrementAndGet();
+        long wrapPoint = sequence - events.length;
+        if (wrapPoint > cachedGatingSequence) {
+            int counter = 0;
+            long gatingSequence;
+            while (wrapPoint > (gatingSequence = minimumGatingSequence())) {
+                if (!running) {
+                    throw new IllegalStateException("Bus is not running.");
+                }
+                counter = waitStrategy.idle(counter);
+            }
+            cachedGatingSequence = gatingSequence;
+        }
+        int index = (int) sequence & mask;
+        events[index].set(type, exchange, currencyPair, payload, System.nanoTime());
+        // Ordered write publishes the slot written above.
+        published.lazySet(index, (int) (sequence >>> indexShift));
+    }
+
+    /**
+     * Publishes every trade of the pair to the bus until disposed.
+     *
+     * @param exchange Name of the exchange events are published with.
+     */
+    public Disposable publishTrades(String exchange, StreamingMarketDataService service, CurrencyPair currencyPair,
+                                    Object... args) {
+        return service.getTrades(currencyPair, args)
+                .subscribe(trade -> publish(MarketDataEvent.Type.TRADE, exchange, currencyPair, trade),
+                        throwable -> LOG.error("Trades of {} {} failed.", exchange, currencyPair, throwable));
+    }
+
+    /**
+     * Publishes every ticker of the pair to the bus until disposed.
+     */
+    public Disposable publishTickers(String exchange, StreamingMarketDataService service, CurrencyPair currencyPair,
+                                     Object... args) {
+        return service.getTicker(currencyPair, args)
+                .subscribe(ticker -> publish(MarketDataEvent.Type.TICKER, exchange, currencyPair, ticker),
+                        throwable -> LOG.error("Tickers of {} {} failed.", exchange, currencyPair, throwable));
+    }
+
+    /**
+     * Publishes every order book of the pair to the bus until disposed.
+     */
+    public Disposable publishOrderBooks(String exchange, StreamingMarketDataService service,
+                                        CurrencyPair currencyPair, Object... args) {
+        return service.getOrderBook(currencyPair, args)
+                .subscribe(orderBook -> publish(MarketDataEvent.Type.ORDER_BOOK, exchange, currencyPair, orderBook),
+                        throwable -> LOG.error("Order books of {} {} failed.", exchange, currencyPair, throwable));
+    }
+
+    private long minimumGatingSequence() {
+        long minimum = Long.MAX_VALUE;
+        for (Sequence sequence : gatingSequences) {
+            minimum = Math.min(minimum, sequence.get());
+        }
+        return minimum;
+    }
+
+    /**
+     * Returns the highest sequence up to which all slots from the given one are published.
+     */
+    private long highestPublished(long from, long to) {
+        for (long sequence = from; sequence <= to; sequence++) {
+            if (published.get((int) sequence & mask) != (int) (sequence >>> indexShift)) {
+                return sequence - 1;
+            }
+        }
+        return to;
+    }
+
+    private class Consumer implements Runnable {
+        private final String name;
+        private final MarketDataEventHandler handler;
+        private final Sequence sequence = new Sequence();
+        private Thread thread;
+
+        Consumer(String name, MarketDataEventHandler handler) {
+            this.name = name;
+            this.handler = handler;
+        }
+
+        @Override
+        public void run() {
+            long next = sequence.get() + 1;
+            int counter = 0;
+            while (running) {
+                long available = highestPublished(next, cursor.get());
+                if (available < next) {
+                    counter = waitStrategy.idle(counter);
+                    continue;
+                }
+                counter = 0;
+                for (long current = next; current <= available; current++) {
+                    try {
+                        handler.onEvent(events[(int) current & mask], current, current == available);
+                    } catch (Exception e) {
+                        LOG.error("Consumer {} failed to handle event {}.", name, current, e);
+                    }
+                }
+                sequence.setOrdered(available);
+                next = available + 1;
+            }
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package info.bitrich.xchangestream.core.bus;
+
+import org.knowm.xchange.currency.CurrencyPair;
+import org.knowm.xchange.dto.marketdata.OrderBook;
+import org.knowm.xchange.dto.marketdata.Ticker;
+import org.knowm.xchange.dto.marketdata.Trade;
+
+/**
+ * Slot of the {@link MarketDataBus}. Slots are allocated once with the bus and overwritten by every event that
+ * passes through them, so handlers must copy whatever they need to keep after {@link MarketDataEventHandler#onEvent}
+ * returns.
+ */
+public final class MarketDataEvent {
+    public enum Type {
+        TRADE, TICKER, ORDER_BOOK
+    }
+
+    private Type type;
+    private String exchange;
+    private CurrencyPair currencyPair;
+    private Object payload;
+    private long publishNanos;
+
+    MarketDataEvent() {
+    }
+
+    void set(Type type, String exchange, CurrencyPair currencyPair, Object payload, long publishNanos) {
+        this.type = type;
+        this.exchange = exchange;
+        this.currencyPair = currencyPair;
+        this.payload = payload;
+        this.publishNanos = publishNanos;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Name the exchange was given when it was connected to the bus.
+     */
+    public String getExchange() {
+        return exchange;
+    }
+
+    public CurrencyPair getCurrencyPair() {
+        return currencyPair;
+    }
+
+    /**
+     * The {@link Trade}, {@link Ticker} or {@link OrderBook} of the event.
+     */
+    public Object getPayload() {
+        return payload;
+    }
+
+    public Trade getTrade() {
+        return (Trade) payload;
+    }
+
+    public Ticker getTicker() {
+        return (Ticker) payload;
+    }
+
+    public OrderBook getOrderBook() {
+        return (OrderBook) payload;
+    }
+
+    /**
+     * Value of {@link System#nanoTime()} when the event was published.
+     */
+    public long getPublishNanos() {
+        return publishNanos;
+    }
+
+    @Override
+    public String toString() {
+        return type + " " + exchange + " " + currencyPair + " " + payload;
+    }
+}
@@ -0,0 +1,16 @@
+package info.bitrich.xchangestream.core.bus;
+
+/**
+ * Consumer of events of the {@link MarketDataBus}, called on the thread of the consumer.
+ */
+@FunctionalInterface
+public interface MarketDataEventHandler {
+
+    /**
+     * @param event      Event, valid only until the method returns.
+     * @param sequence   Sequence number of the event on the bus.
+     * @param endOfBatch True for the last event that was available when the batch started, e.g. to flush work
+     *                   accumulated over the batch.
+     */
+    void onEvent(MarketDataEvent event, long sequence, boolean endOfBatch) throws Exception;
+}
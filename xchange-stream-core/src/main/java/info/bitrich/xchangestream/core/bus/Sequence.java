@@ -0,0 +1,37 @@
+package info.bitrich.xchangestream.core.bus;
+
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+class SequenceLeftPadding {
+    protected long p1, p2, p3, p4, p5, p6, p7;
+}
+
+class SequenceValue extends SequenceLeftPadding {
+    protected volatile long value = -1;
+}
+
+/**
+ * Sequence number padded to a cache line of its own, so threads updating sequences next to each other do not
+ * invalidate each other's caches.
+ */
+final class Sequence extends SequenceValue {
+    private static final AtomicLongFieldUpdater<SequenceValue> VALUE =
+            AtomicLongFieldUpdater.newUpdater(SequenceValue.class, "value");
+
+    protected long p9, p10, p11, p12, p13, p14, p15;
+
+    long get() {
+        return value;
+    }
+
+    /**
+     * Ordered write, cheaper than a volatile one. Readers see it shortly after, in program order.
+     */
+    void setOrdered(long sequence) {
+        VALUE.lazySet(this, sequence);
+    }
+
+    long incrementAndGet() {
+        return VALUE.incrementAndGet(this);
+    }
+}
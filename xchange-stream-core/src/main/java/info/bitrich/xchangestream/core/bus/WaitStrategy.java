@@ -0,0 +1,54 @@
+package info.bitrich.xchangestream.core.bus;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * What consumers of the {@link MarketDataBus} do while there is no event to read, and producers while the bus is
+ * full. Trades latency for CPU: busy spinning hands events over fastest but burns a core per consumer.
+ */
+@FunctionalInterface
+public interface WaitStrategy {
+
+    /**
+     * Called every time the thread finds nothing to do.
+     *
+     * @param counter 0 on the first call after the thread did some work, then the value returned by the previous
+     *                call.
+     * @return Counter passed to the next call.
+     */
+    int idle(int counter);
+
+    /**
+     * Keeps checking without ever giving up the CPU. Lowest latency, use only with a core per consumer.
+     */
+    static WaitStrategy busySpin() {
+        return counter -> counter + 1;
+    }
+
+    /**
+     * Spins for a while, then yields the CPU to other threads between checks.
+     */
+    static WaitStrategy yielding() {
+        return counter -> {
+            if (counter > 100) {
+                Thread.yield();
+            }
+            return counter + 1;
+        };
+    }
+
+    /**
+     * Spins, yields, then parks the thread for the given time between checks. Lowest CPU usage, latency of waking up
+     * is the park time at least.
+     */
+    static WaitStrategy parking(long parkNanos) {
+        return counter -> {
+            if (counter > 200) {
+                LockSupport.parkNanos(parkNanos);
+            } else if (counter > 100) {
+                Thread.yield();
+            }
+            return counter + 1;
+        };
+    }
+}
@@ -0,0 +1,223 @@
+package info.bitrich.xchangestream.core.fixedpoint;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Conversions between decimal numbers and scaled long values, eg. 821.65 with scale 4 is 8216500.
+ * <p>
+ * Parsing methods work straight on the characters and do not allocate. Digits beyond the scale are rounded half up.
+ * </p>
+ */
+public final class FixedPoint {
+    private static final long[] POWERS_OF_TEN = new long[19];
+    private static final int BUFFER_SIZE = 64;
+    private static final ThreadLocal<char[]> BUFFER = ThreadLocal.withInitial(() -> new char[BUFFER_SIZE]);
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private FixedPoint() {
+    }
+
+    /**
+     * Parses decimal number, optionally with exponent, to the scaled long.
+     *
+     * @throws NumberFormatException When the text is not a number or the value does not fit to long.
+     */
+    public static long parse(char[] chars, int offset, int length, int scale) {
+        checkScale(scale);
+        int end = offset + length;
+        int i = offset;
+        if (i == end) {
+            throw new NumberFormatException("Empty number.");
+        }
+
+        boolean negative = chars[i] == '-';
+        if (negative || chars[i] == '+') {
+            i++;
+        }
+
+        // Read all the digits first, then move the decimal point by the exponent.
+        long digits = 0;
+        int digitCount = 0;
+        int fractionDigits = 0;
+        boolean fraction = false;
+        int firstDropped = -1;
+        boolean anyDigit = false;
+        for (; i < end; i++) {
+            char c = chars[i];
+            if (c >= '0' && c <= '9') {
+                anyDigit = true;
+                if (digitCount < 18) {
+                    digits = digits * 10 + (c - '0');
+                    if (digits != 0) {
+                        digitCount++;
+                    }
+                    if (fraction) {
+                        fractionDigits++;
+                    }
+                } else if (fraction) {
+                    // Digits beyond the precision of long, only the first one is kept for rounding.
+                    if (firstDropped < 0) {
+                        firstDropped = c - '0';
+                    }
+                } else {
+                    throw new NumberFormatException("Number " + new String(chars, offset, length) + " does not fit to long.");
+                }
+            } else if (c == '.' && !fraction) {
+                fraction = true;
+            } else if (c == 'e' || c == 'E') {
+                break;
+            } else {
+                throw new NumberFormatException("Invalid number " + new String(chars, offset, length) + ".");
+            }
+        }
+
+        if (!anyDigit) {
+            throw new NumberFormatException("Invalid number " + new String(chars, offset, length) + ".");
+        }
+
+        int exponent = 0;
+        if (i < end) {
+            exponent = parseExponent(chars, i + 1, end, offset, length);
+        }
+
+        long value = rescale(digits, scale - fractionDigits + exponent, firstDropped, chars, offset, length);
+        return negative ? -value : value;
+    }
+
+    /**
+     * Parses decimal number, optionally with exponent, to the scaled long.
+     *
+     * @throws NumberFormatException When the text is not a number or the value does not fit to long.
+     */
+    public static long parse(CharSequence text, int scale) {
+        int length = text.length();
+        if (length <= BUFFER_SIZE) {
+            char[] chars = BUFFER.get();
+            if (text instanceof String) {
+                ((String) text).getChars(0, length, chars, 0);
+            } else {
+                for (int i = 0; i < length; i++) {
+                    chars[i] = text.charAt(i);
+                }
+            }
+            return parse(chars, 0, length, scale);
+        }
+        return parse(text.toString().toCharArray(), 0, length, scale);
+    }
+
+    /**
+     * Parses number or string value of the current token of the parser without materializing it as String or
+     * {@link BigDecimal}.
+     */
+    public static long parse(JsonParser parser, int scale) throws IOException {
+        JsonToken token = parser.getCurrentToken();
+        if (token != JsonToken.VALUE_STRING && token != JsonToken.VALUE_NUMBER_INT && token != JsonToken.VALUE_NUMBER_FLOAT) {
+            throw new NumberFormatException("Expected number but got " + token + ".");
+        }
+        return parse(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength(), scale);
+    }
+
+    /**
+     * Parses value of the tree node. Text is parsed from the String the node holds and integers are scaled straight,
+     * neither is converted to another String. Used where messages are delivered as trees already, eg. by the WAMP
+     * client.
+     */
+    public static long parse(JsonNode node, int scale) {
+        if (node.isTextual()) {
+            return parse(node.textValue(), scale);
+        }
+        if (node.isIntegralNumber() && node.canConvertToLong()) {
+            checkScale(scale);
+            long value = node.longValue();
+            if (Math.abs(value) > Long.MAX_VALUE / POWERS_OF_TEN[scale]) {
+                throw new NumberFormatException("Number " + value + " does not fit to long.");
+            }
+            return value * POWERS_OF_TEN[scale];
+        }
+        if (node.isNumber()) {
+            try {
+                return fromBigDecimal(node.decimalValue(), scale);
+            } catch (ArithmeticException e) {
+                throw new NumberFormatException("Number " + node + " does not fit to long.");
+            }
+        }
+        throw new NumberFormatException("Expected number but got " + node.getNodeType() + ".");
+    }
+
+    public static BigDecimal toBigDecimal(long value, int scale) {
+        return BigDecimal.valueOf(value, scale);
+    }
+
+    /**
+     * Converts the number to the scaled long, rounding half up digits beyond the scale.
+     *
+     * @throws ArithmeticException When the value does not fit to long.
+     */
+    public static long fromBigDecimal(BigDecimal value, int scale) {
+        checkScale(scale);
+        return value.setScale(scale, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    public static double toDouble(long value, int scale) {
+        return value / (double) POWERS_OF_TEN[scale];
+    }
+
+    private static int parseExponent(char[] chars, int i, int end, int offset, int length) {
+        if (i == end) {
+            throw new NumberFormatException("Invalid number " + new String(chars, offset, length) + ".");
+        }
+        boolean negative = chars[i] == '-';
+        if (negative || chars[i] == '+') {
+            i++;
+        }
+        int exponent = 0;
+        for (; i < end; i++) {
+            char c = chars[i];
+            if (c < '0' || c > '9' || exponent > 1000) {
+                throw new NumberFormatException("Invalid number " + new String(chars, offset, length) + ".");
+            }
+            exponent = exponent * 10 + (c - '0');
+        }
+        return negative ? -exponent : exponent;
+    }
+
+    private static long rescale(long digits, int shift, int firstDropped, char[] chars, int offset, int length) {
+        if (shift >= 0) {
+            if (digits == 0) {
+                return 0;
+            }
+            if (shift >= POWERS_OF_TEN.length || digits > Long.MAX_VALUE / POWERS_OF_TEN[shift]) {
+                throw new NumberFormatException("Number " + new String(chars, offset, length) + " does not fit to long.");
+            }
+            long value = digits * POWERS_OF_TEN[shift];
+            if (firstDropped < 0) {
+                return value;
+            }
+            return shift == 0 ? value + (firstDropped >= 5 ? 1 : 0) : value + firstDropped * POWERS_OF_TEN[shift - 1];
+        }
+        if (-shift >= POWERS_OF_TEN.length) {
+            return 0;
+        }
+        long divisor = POWERS_OF_TEN[-shift];
+        long value = digits / divisor;
+        return digits % divisor >= divisor / 2 ? value + 1 : value;
+    }
+
+    private static void checkScale(int scale) {
+        if (scale < 0 || scale >= POWERS_OF_TEN.length) {
+            throw new IllegalArgumentException("Scale must be between 0 and " + (POWERS_OF_TEN.length - 1) + ".");
+        }
+    }
+}
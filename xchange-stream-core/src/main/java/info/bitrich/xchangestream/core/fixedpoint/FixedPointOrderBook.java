@@ -0,0 +1,192 @@
+package info.bitrich.xchangestream.core.fixedpoint;
+
+import org.knowm.xchange.currency.CurrencyPair;
+import org.knowm.xchange.dto.Order;
+import org.knowm.xchange.dto.marketdata.OrderBook;
+import org.knowm.xchange.dto.trade.LimitOrder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Order book levels with prices and amounts in fixed-point representation, see {@link FixedPoint}. Levels are kept
+ * in primitive arrays sorted best first and are addressed by index, 0 being the top of the book.
+ */
+public final class FixedPointOrderBook {
+    private final CurrencyPair currencyPair;
+    private final FixedPointScale scale;
+    private final long timestamp;
+    private final long[] askPrices;
+    private final long[] askAmounts;
+    private final int askDepth;
+    private final long[] bidPrices;
+    private final long[] bidAmounts;
+    private final int bidDepth;
+
+    private FixedPointOrderBook(Builder builder) {
+        this.currencyPair = builder.currencyPair;
+        this.scale = builder.scale;
+        this.timestamp = builder.timestamp;
+        this.askPrices = builder.askPrices;
+        this.askAmounts = builder.askAmounts;
+        this.askDepth = builder.askDepth;
+        this.bidPrices = builder.bidPrices;
+        this.bidAmounts = builder.bidAmounts;
+        this.bidDepth = builder.bidDepth;
+    }
+
+    public CurrencyPair getCurrencyPair() {
+        return currencyPair;
+    }
+
+    public FixedPointScale getScale() {
+        return scale;
+    }
+
+    /**
+     * Time of the order book in milliseconds since epoch, zero when unknown.
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public int getAskDepth() {
+        return askDepth;
+    }
+
+    public long getAskPrice(int level) {
+        return askPrices[checkLevel(level, askDepth)];
+    }
+
+    public long getAskAmount(int level) {
+        return askAmounts[checkLevel(level, askDepth)];
+    }
+
+    public int getBidDepth() {
+        return bidDepth;
+    }
+
+    public long getBidPrice(int level) {
+        return bidPrices[checkLevel(level, bidDepth)];
+    }
+
+    public long getBidAmount(int level) {
+        return bidAmounts[checkLevel(level, bidDepth)];
+    }
+
+    public OrderBook toOrderBook() {
+        return new OrderBook(timestamp == 0 ? null : new Date(timestamp),
+                toLimitOrders(Order.OrderType.ASK, askPrices, askAmounts, askDepth),
+                toLimitOrders(Order.OrderType.BID, bidPrices, bidAmounts, bidDepth));
+    }
+
+    /**
+     * Converts XChange order book, for exchanges that do not parse fixed-point values natively.
+     */
+    public static FixedPointOrderBook of(CurrencyPair currencyPair, OrderBook orderBook, FixedPointScale scale) {
+        Builder builder = new Builder(currencyPair, scale);
+        for (LimitOrder ask : orderBook.getAsks()) {
+            builder.addAsk(FixedPoint.fromBigDecimal(ask.getLimitPrice(), scale.getPriceScale()),
+                    FixedPoint.fromBigDecimal(ask.getTradableAmount(), scale.getAmountScale()));
+        }
+        for (LimitOrder bid : orderBook.getBids()) {
+            builder.addBid(FixedPoint.fromBigDecimal(bid.getLimitPrice(), scale.getPriceScale()),
+                    FixedPoint.fromBigDecimal(bid.getTradableAmount(), scale.getAmountScale()));
+        }
+        if (orderBook.getTimeStamp() != null) {
+            builder.timestamp(orderBook.getTimeStamp().getTime());
+        }
+        return builder.build();
+    }
+
+    @Override
+    public String toString() {
+        return "FixedPointOrderBook [currencyPair=" + currencyPair + ", timestamp=" + timestamp
+                + ", askDepth=" + askDepth + ", bidDepth=" + bidDepth + "]";
+    }
+
+    private List<LimitOrder> toLimitOrders(Order.OrderType type, long[] prices, long[] amounts, int depth) {
+        List<LimitOrder> orders = new ArrayList<>(depth);
+        for (int i = 0; i < depth; i++) {
+            orders.add(new LimitOrder(type, FixedPoint.toBigDecimal(amounts[i], scale.getAmountScale()), currencyPair,
+                    null, null, FixedPoint.toBigDecimal(prices[i], scale.getPriceScale())));
+        }
+        return orders;
+    }
+
+    private static int checkLevel(int level, int depth) {
+        if (level < 0 || level >= depth) {
+            throw new IndexOutOfBoundsException("Level " + level + " is out of the book depth " + depth + ".");
+        }
+        return level;
+    }
+
+    /**
+     * Collects levels in any order, {@link #build()} sorts them best first.
+     */
+    public static final class Builder {
+        private final CurrencyPair currencyPair;
+        private final FixedPointScale scale;
+        private long timestamp;
+        private long[] askPrices = new long[32];
+        private long[] askAmounts = new long[32];
+        private int askDepth;
+        private long[] bidPrices = new long[32];
+        private long[] bidAmounts = new long[32];
+        private int bidDepth;
+
+        public Builder(CurrencyPair currencyPair, FixedPointScale scale) {
+            this.currencyPair = currencyPair;
+            this.scale = scale;
+        }
+
+        public Builder timestamp(long timestamp) {
+            this.timestamp = timestamp;
+            return this;
+        }
+
+        public Builder addAsk(long price, long amount) {
+            if (askDepth == askPrices.length) {
+                askPrices = Arrays.copyOf(askPrices, askDepth * 2);
+                askAmounts = Arrays.copyOf(askAmounts, askDepth * 2);
+            }
+            askPrices[askDepth] = price;
+            askAmounts[askDepth++] = amount;
+            return this;
+        }
+
+        public Builder addBid(long price, long amount) {
+            if (bidDepth == bidPrices.length) {
+                bidPrices = Arrays.copyOf(bidPrices, bidDepth * 2);
+                bidAmounts = Arrays.copyOf(bidAmounts, bidDepth * 2);
+            }
+            bidPrices[bidDepth] = price;
+            bidAmounts[bidDepth++] = amount;
+            return this;
+        }
+
+        public FixedPointOrderBook build() {
+            sort(askPrices, askAmounts, askDepth, true);
+            sort(bidPrices, bidAmounts, bidDepth, false);
+            return new FixedPointOrderBook(this);
+        }
+
+        // Insertion sort, books come from exchanges almost sorted and only few levels deep.
+        private static void sort(long[] prices, long[] amounts, int depth, boolean ascending) {
+            for (int i = 1; i < depth; i++) {
+                long price = prices[i];
+                long amount = amounts[i];
+                int j = i - 1;
+                while (j >= 0 && (ascending ? prices[j] > price : prices[j] < price)) {
+                    prices[j + 1] = prices[j];
+                    amounts[j + 1] = amounts[j];
+                    j--;
+                }
+                prices[j + 1] = price;
+                amounts[j + 1] = amount;
+            }
+        }
+    }
+}
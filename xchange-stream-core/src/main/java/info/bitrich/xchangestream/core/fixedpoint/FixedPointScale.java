@@ -0,0 +1,48 @@
+package info.bitrich.xchangestream.core.fixedpoint;
+
+/**
+ * Number of decimal places of prices and amounts of a currency pair in fixed-point representation.
+ */
+public final class FixedPointScale {
+    /**
+     * Scale that fits most of the crypto currency pairs, satoshi precision for both price and amount.
+     */
+    public static final FixedPointScale DEFAULT = new FixedPointScale(8, 8);
+
+    private final int priceScale;
+    private final int amountScale;
+
+    public FixedPointScale(int priceScale, int amountScale) {
+        if (priceScale < 0 || priceScale > 18 || amountScale < 0 || amountScale > 18) {
+            throw new IllegalArgumentException("Scale must be between 0 and 18.");
+        }
+        this.priceScale = priceScale;
+        this.amountScale = amountScale;
+    }
+
+    public int getPriceScale() {
+        return priceScale;
+    }
+
+    public int getAmountScale() {
+        return amountScale;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        FixedPointScale that = (FixedPointScale) o;
+        return priceScale == that.priceScale && amountScale == that.amountScale;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * priceScale + amountScale;
+    }
+
+    @Override
+    public String toString() {
+        return "FixedPointScale [priceScale=" + priceScale + ", amountScale=" + amountScale + "]";
+    }
+}
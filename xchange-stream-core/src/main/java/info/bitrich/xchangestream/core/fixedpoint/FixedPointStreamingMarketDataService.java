@@ -0,0 +1,47 @@
+package info.bitrich.xchangestream.core.fixedpoint;
+
+import info.bitrich.xchangestream.core.StreamingMarketDataService;
+import io.reactivex.Observable;
+import org.knowm.xchange.currency.CurrencyPair;
+
+/**
+ * Opt-in market data in fixed-point representation that avoids {@link java.math.BigDecimal} on the hot path.
+ * <p>
+ * Exchanges override the methods to parse values straight from the message. The default implementations convert the
+ * regular streams and are there only for the completeness of the API.
+ * </p>
+ */
+public interface FixedPointStreamingMarketDataService extends StreamingMarketDataService {
+    /**
+     * Get an order book representing the current offered exchange rates (market depth).
+     *
+     * @param currencyPair Currency pair of the order book
+     * @param scale        Scale of prices and amounts of the currency pair
+     * @return {@link Observable} that emits {@link FixedPointOrderBook} when exchange sends the update.
+     */
+    default Observable<FixedPointOrderBook> getFixedPointOrderBook(CurrencyPair currencyPair, FixedPointScale scale, Object... args) {
+        return getOrderBook(currencyPair, args).map(orderBook -> FixedPointOrderBook.of(currencyPair, orderBook, scale));
+    }
+
+    /**
+     * Get a ticker representing the current exchange rate.
+     *
+     * @param currencyPair Currency pair of the ticker
+     * @param scale        Scale of prices and volume of the currency pair
+     * @return {@link Observable} that emits {@link FixedPointTicker} when exchange sends the update.
+     */
+    default Observable<FixedPointTicker> getFixedPointTicker(CurrencyPair currencyPair, FixedPointScale scale, Object... args) {
+        return getTicker(currencyPair, args).map(ticker -> FixedPointTicker.of(ticker, scale));
+    }
+
+    /**
+     * Get the trades performed by the exchange.
+     *
+     * @param currencyPair Currency pair of the trades
+     * @param scale        Scale of prices and amounts of the currency pair
+     * @return {@link Observable} that emits {@link FixedPointTrade} when exchange sends the update.
+     */
+    default Observable<FixedPointTrade> getFixedPointTrades(CurrencyPair currencyPair, FixedPointScale scale, Object... args) {
+        return getTrades(currencyPair, args).map(trade -> FixedPointTrade.of(trade, scale));
+    }
+}
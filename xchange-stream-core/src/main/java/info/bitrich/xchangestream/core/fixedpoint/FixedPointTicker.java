@@ -0,0 +1,117 @@
+package info.bitrich.xchangestream.core.fixedpoint;
+
+import org.knowm.xchange.currency.CurrencyPair;
+import org.knowm.xchange.dto.marketdata.Ticker;
+
+import java.math.BigDecimal;
+import java.util.Date;
+
+/**
+ * Ticker with prices and volume in fixed-point representation, see {@link FixedPoint}. Prices are scaled by
+ * {@link FixedPointScale#getPriceScale()}, volume by {@link FixedPointScale#getAmountScale()}. Values not provided by
+ * the exchange are zero.
+ */
+public final class FixedPointTicker {
+    private final CurrencyPair currencyPair;
+    private final FixedPointScale scale;
+    private final long last;
+    private final long bid;
+    private final long ask;
+    private final long high;
+    private final long low;
+    private final long volume;
+    private final long timestamp;
+
+    public FixedPointTicker(CurrencyPair currencyPair, FixedPointScale scale, long last, long bid, long ask, long high,
+                            long low, long volume, long timestamp) {
+        this.currencyPair = currencyPair;
+        this.scale = scale;
+        this.last = last;
+        this.bid = bid;
+        this.ask = ask;
+        this.high = high;
+        this.low = low;
+        this.volume = volume;
+        this.timestamp = timestamp;
+    }
+
+    public CurrencyPair getCurrencyPair() {
+        return currencyPair;
+    }
+
+    public FixedPointScale getScale() {
+        return scale;
+    }
+
+    public long getLast() {
+        return last;
+    }
+
+    public long getBid() {
+        return bid;
+    }
+
+    public long getAsk() {
+        return ask;
+    }
+
+    public long getHigh() {
+        return high;
+    }
+
+    public long getLow() {
+        return low;
+    }
+
+    public long getVolume() {
+        return volume;
+    }
+
+    /**
+     * Time of the ticker in milliseconds since epoch, zero when unknown.
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public Ticker toTicker() {
+        int priceScale = scale.getPriceScale();
+        return new Ticker.Builder()
+                .currencyPair(currencyPair)
+                .last(FixedPoint.toBigDecimal(last, priceScale))
+                .bid(FixedPoint.toBigDecimal(bid, priceScale))
+                .ask(FixedPoint.toBigDecimal(ask, priceScale))
+                .high(FixedPoint.toBigDecimal(high, priceScale))
+                .low(FixedPoint.toBigDecimal(low, priceScale))
+                .volume(FixedPoint.toBigDecimal(volume, scale.getAmountScale()))
+                .timestamp(timestamp == 0 ? null : new Date(timestamp))
+                .build();
+    }
+
+    /**
+     * Converts XChange ticker, for exchanges that do not parse fixed-point values natively.
+     */
+    public static FixedPointTicker of(Ticker ticker, FixedPointScale scale) {
+        int priceScale = scale.getPriceScale();
+        return new FixedPointTicker(ticker.getCurrencyPair(), scale,
+                toFixedPoint(ticker.getLast(), priceScale),
+                toFixedPoint(ticker.getBid(), priceScale),
+                toFixedPoint(ticker.getAsk(), priceScale),
+                toFixedPoint(ticker.getHigh(), priceScale),
+                toFixedPoint(ticker.getLow(), priceScale),
+                toFixedPoint(ticker.getVolume(), scale.getAmountScale()),
+                ticker.getTimestamp() == null ? 0 : ticker.getTimestamp().getTime());
+    }
+
+    private static long toFixedPoint(BigDecimal value, int scale) {
+        return value == null ? 0 : FixedPoint.fromBigDecimal(value, scale);
+    }
+
+    @Override
+    public String toString() {
+        int priceScale = scale.getPriceScale();
+        return "FixedPointTicker [currencyPair=" + currencyPair + ", last=" + FixedPoint.toBigDecimal(last, priceScale)
+                + ", bid=" + FixedPoint.toBigDecimal(bid, priceScale) + ", ask=" + FixedPoint.toBigDecimal(ask, priceScale)
+                + ", timestamp=" + timestamp + "]";
+    }
+}
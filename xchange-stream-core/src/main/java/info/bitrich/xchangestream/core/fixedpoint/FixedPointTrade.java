@@ -0,0 +1,95 @@
+package info.bitrich.xchangestream.core.fixedpoint;
+
+import org.knowm.xchange.currency.CurrencyPair;
+import org.knowm.xchange.dto.Order;
+import org.knowm.xchange.dto.marketdata.Trade;
+
+import java.math.BigDecimal;
+import java.util.Date;
+
+/**
+ * Trade with price and amount in fixed-point representation, see {@link FixedPoint}.
+ */
+public final class FixedPointTrade {
+    private final CurrencyPair currencyPair;
+    private final FixedPointScale scale;
+    private final Order.OrderType type;
+    private final long price;
+    private final long amount;
+    private final long timestamp;
+    private final String id;
+
+    /**
+     * @param type      Side of the taker, {@link Order.OrderType#BID} for buy.
+     * @param price     Price scaled by {@link FixedPointScale#getPriceScale()}.
+     * @param amount    Amount scaled by {@link FixedPointScale#getAmountScale()}.
+     * @param timestamp Time of the trade in milliseconds since epoch.
+     * @param id        Trade id, can be null.
+     */
+    public FixedPointTrade(CurrencyPair currencyPair, FixedPointScale scale, Order.OrderType type, long price, long amount,
+                           long timestamp, String id) {
+        this.currencyPair = currencyPair;
+        this.scale = scale;
+        this.type = type;
+        this.price = price;
+        this.amount = amount;
+        this.timestamp = timestamp;
+        this.id = id;
+    }
+
+    public CurrencyPair getCurrencyPair() {
+        return currencyPair;
+    }
+
+    public FixedPointScale getScale() {
+        return scale;
+    }
+
+    public Order.OrderType getType() {
+        return type;
+    }
+
+    public long getPrice() {
+        return price;
+    }
+
+    public long getAmount() {
+        return amount;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public BigDecimal getPriceAsBigDecimal() {
+        return FixedPoint.toBigDecimal(price, scale.getPriceScale());
+    }
+
+    public BigDecimal getAmountAsBigDecimal() {
+        return FixedPoint.toBigDecimal(amount, scale.getAmountScale());
+    }
+
+    public Trade toTrade() {
+        return new Trade(type, getAmountAsBigDecimal(), currencyPair, getPriceAsBigDecimal(), new Date(timestamp), id);
+    }
+
+    /**
+     * Converts XChange trade, for exchanges that do not parse fixed-point values natively.
+     */
+    public static FixedPointTrade of(Trade trade, FixedPointScale scale) {
+        return new FixedPointTrade(trade.getCurrencyPair(), scale, trade.getType(),
+                FixedPoint.fromBigDecimal(trade.getPrice(), scale.getPriceScale()),
+                FixedPoint.fromBigDecimal(trade.getTradableAmount(), scale.getAmountScale()),
+                trade.getTimestamp() == null ? 0 : trade.getTimestamp().getTime(), trade.getId());
+    }
+
+    @Override
+    public String toString() {
+        return "FixedPointTrade [currencyPair=" + currencyPair + ", type=" + type + ", price=" + getPriceAsBigDecimal()
+                + ", amount=" + getAmountAsBigDecimal() + ", timestamp=" + timestamp + ", id=" + id + "]";
+    }
+}
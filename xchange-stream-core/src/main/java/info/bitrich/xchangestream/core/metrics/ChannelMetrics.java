@@ -0,0 +1,107 @@
+package info.bitrich.xchangestream.core.metrics;
+
+/**
+ * Latencies of messages of one channel, all in nanoseconds.
+ * <ul>
+ * <li>parse - from receiving the frame until the streaming service parsed it,</li>
+ * <li>adapt - duration of adapting the message to the DTO,</li>
+ * <li>emit - from receiving the frame until the DTO is passed to the subscriber,</li>
+ * <li>consume - time the subscriber spent processing the DTO, high values reveal slow consumers,</li>
+ * <li>wire - from the exchange timestamp of the DTO until the frame was received, measured against the local wall
+ * clock, so only as precise as the clocks are synchronized. Messages with timestamp in the future are skipped.</li>
+ * </ul>
+ */
+public class ChannelMetrics {
+    private final String channel;
+    private final LatencyHistogram parse = new LatencyHistogram();
+    private final LatencyHistogram adapt = new LatencyHistogram();
+    private final LatencyHistogram emit = new LatencyHistogram();
+    private final LatencyHistogram consume = new LatencyHistogram();
+    private final LatencyHistogram wire = new LatencyHistogram();
+    private volatile long lastReceiveNanos;
+    private volatile long lastExchangeTimestamp;
+
+    public ChannelMetrics(String channel) {
+        this.channel = channel;
+    }
+
+    public String getChannel() {
+        return channel;
+    }
+
+    public LatencyHistogram getParse() {
+        return parse;
+    }
+
+    public LatencyHistogram getAdapt() {
+        return adapt;
+    }
+
+    public LatencyHistogram getEmit() {
+        return emit;
+    }
+
+    public LatencyHistogram getConsume() {
+        return consume;
+    }
+
+    public LatencyHistogram getWire() {
+        return wire;
+    }
+
+    /**
+     * Value of {@link System#nanoTime()} when the last message of the channel was received, 0 when none was.
+     */
+    public long getLastReceiveNanos() {
+        return lastReceiveNanos;
+    }
+
+    /**
+     * Exchange timestamp of the last message in milliseconds since epoch, 0 when unknown.
+     */
+    public long getLastExchangeTimestamp() {
+        return lastExchangeTimestamp;
+    }
+
+    public long getMessageCount() {
+        return adapt.getTotalCount();
+    }
+
+    void recordAdapted(long receiveNanos, long parsedNanos, long adaptStartNanos, long adaptEndNanos,
+                       long exchangeTimestamp) {
+        lastReceiveNanos = receiveNanos;
+        parse.recordValue(parsedNanos - receiveNanos);
+        adapt.recordValue(adaptEndNanos - adaptStartNanos);
+        if (exchangeTimestamp > 0) {
+            lastExchangeTimestamp = exchangeTimestamp;
+            long receiveMillis = System.currentTimeMillis() - (adaptEndNanos - receiveNanos) / 1_000_000;
+            wire.recordValue((receiveMillis - exchangeTimestamp) * 1_000_000);
+        }
+    }
+
+    void recordEmitted(long receiveNanos, long emitNanos) {
+        emit.recordValue(emitNanos - receiveNanos);
+    }
+
+    void recordConsumed(long emitNanos, long consumedNanos) {
+        consume.recordValue(consumedNanos - emitNanos);
+    }
+
+    public void reset() {
+        parse.reset();
+        adapt.reset();
+        emit.reset();
+        consume.reset();
+        wire.reset();
+    }
+
+    @Override
+    public String toString() {
+        return channel + ":" +
+                "\n  parse   " + parse +
+                "\n  adapt   " + adapt +
+                "\n  emit    " + emit +
+                "\n  consume " + consume +
+                "\n  wire    " + wire;
+    }
+}
@@ -0,0 +1,204 @@
+package info.bitrich.xchangestream.core.metrics;
+
+import info.bitrich.xchangestream.core.fixedpoint.FixedPointTrade;
+import info.bitrich.xchangestream.service.backpressure.OverflowStrategy;
+import info.bitrich.xchangestream.service.metrics.FrameContext;
+import io.reactivex.Flowable;
+import io.reactivex.Observable;
+import io.reactivex.ObservableTransformer;
+import io.reactivex.functions.Function;
+import org.knowm.xchange.dto.marketdata.Trade;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Latency metrics of the streams of one exchange, per channel. Disabled by default, then streams only check the flag.
+ * <p>
+ * Market data services adapt messages through {@link #adapt}, which takes the receive and parse timestamps of the
+ * frame from {@link FrameContext} of the current thread. This is exact for {@link Observable} streams, which pass
+ * messages to subscribers synchronously on the thread that received the frame. {@link Flowable} streams adapt messages
+ * later, on the thread that requests them, {@link #adaptFlowable} keeps the timestamps with the message until then.
+ * </p>
+ */
+public class StreamingMetrics {
+    private final String exchange;
+    private final Map<String, ChannelMetrics> channels = new ConcurrentHashMap<>();
+    private volatile boolean enabled;
+
+    public StreamingMetrics(String exchange) {
+        this.exchange = exchange;
+    }
+
+    public String getExchange() {
+        return exchange;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Returns metrics of the channel, creating them when the channel has not been measured yet.
+     */
+    public ChannelMetrics channel(String channel) {
+        return channels.computeIfAbsent(channel, ChannelMetrics::new);
+    }
+
+    /**
+     * Metrics of all measured channels by channel name.
+     */
+    public Map<String, ChannelMetrics> getChannels() {
+        return Collections.unmodifiableMap(channels);
+    }
+
+    public void reset() {
+        channels.values().forEach(ChannelMetrics::reset);
+    }
+
+    /**
+     * Adapts messages of the channel to DTOs, recording parse, adapt, emit, consume and wire latency of every
+     * message while the metrics are enabled.
+     *
+     * @param channel           Name of the channel the metrics are recorded under.
+     * @param adapter           Adapts the message to the DTO.
+     * @param exchangeTimestamp Returns the exchange timestamp of the DTO, or null when the exchange does not send it.
+     */
+    public <T, R> ObservableTransformer<T, R> adapt(String channel, Function<? super T, ? extends R> adapter,
+                                                    java.util.function.Function<? super R, Date> exchangeTimestamp) {
+        return upstream -> Observable.defer(() -> {
+            ChannelMetrics metrics = channel(channel);
+            // Receive and emit time of the message being passed to the subscriber, receive time 0 when not measured.
+            long[] timestamps = new long[2];
+            return upstream.<R>map(message -> {
+                if (!enabled) {
+                    timestamps[0] = 0;
+                    return adapter.apply(message);
+                }
+                FrameContext frame = FrameContext.current();
+                return measure(metrics, timestamps, message, frame.getReceiveNanos(), frame.getParsedNanos(),
+                        adapter, exchangeTimestamp);
+            }).doOnNext(result -> recordEmitted(metrics, timestamps))
+                    .doAfterNext(result -> recordConsumed(metrics, timestamps));
+        });
+    }
+
+    /**
+     * Applies the overflow strategy to messages of the channel and adapts those the subscriber requests to DTOs,
+     * recording the same latencies as {@link #adapt}. Receive and parse time are taken from {@link FrameContext} as
+     * the message arrives and kept with it until it is requested, so the time the message waited for the request
+     * counts to its emit latency. Messages dropped by the strategy are not adapted nor measured.
+     *
+     * @param channel           Name of the channel the metrics are recorded under.
+     * @param messages          Messages of the channel.
+     * @param overflowStrategy  What happens with messages the subscriber did not request yet.
+     * @param adapter           Adapts the message to the DTO.
+     * @param exchangeTimestamp Returns the exchange timestamp of the DTO, or null when the exchange does not send it.
+     */
+    @SuppressWarnings("unchecked")
+    public <T, R> Flowable<R> adaptFlowable(String channel, Observable<T> messages, OverflowStrategy overflowStrategy,
+                                            Function<? super T, ? extends R> adapter,
+                                            java.util.function.Function<? super R, Date> exchangeTimestamp) {
+        return Flowable.defer(() -> {
+            ChannelMetrics metrics = channel(channel);
+            long[] timestamps = new long[2];
+            // Messages are wrapped only while the metrics are enabled.
+            Observable<Object> received = messages.map(message -> {
+                if (!enabled) {
+                    return message;
+                }
+                FrameContext frame = FrameContext.current();
+                return new ReceivedMessage<>(message, frame.getReceiveNanos(), frame.getParsedNanos());
+            });
+            return overflowStrategy.apply(received).<R>map(message -> {
+                if (!(message instanceof ReceivedMessage)) {
+                    timestamps[0] = 0;
+                    return adapter.apply((T) message);
+                }
+                ReceivedMessage<T> measured = (ReceivedMessage<T>) message;
+                return measure(metrics, timestamps, measured.message, measured.receiveNanos, measured.parsedNanos,
+                        adapter, exchangeTimestamp);
+            }).doOnNext(result -> recordEmitted(metrics, timestamps))
+                    .doAfterNext(result -> recordConsumed(metrics, timestamps));
+        });
+    }
+
+    private static <T, R> R measure(ChannelMetrics metrics, long[] timestamps, T message, long receiveNanos,
+                                    long parsedNanos, Function<? super T, ? extends R> adapter,
+                                    java.util.function.Function<? super R, Date> exchangeTimestamp) throws Exception {
+        long start = System.nanoTime();
+        R result = adapter.apply(message);
+        long end = System.nanoTime();
+        if (receiveNanos == 0) {
+            // Frame was not measured by the service.
+            receiveNanos = start;
+            parsedNanos = start;
+        }
+        Date timestamp = exchangeTimestamp.apply(result);
+        metrics.recordAdapted(receiveNanos, parsedNanos, start, end, timestamp == null ? 0 : timestamp.getTime());
+        timestamps[0] = receiveNanos;
+        return result;
+    }
+
+    private static void recordEmitted(ChannelMetrics metrics, long[] timestamps) {
+        if (timestamps[0] != 0) {
+            timestamps[1] = System.nanoTime();
+            metrics.recordEmitted(timestamps[0], timestamps[1]);
+        }
+    }
+
+    private static void recordConsumed(ChannelMetrics metrics, long[] timestamps) {
+        if (timestamps[0] != 0) {
+            metrics.recordConsumed(timestamps[1], System.nanoTime());
+        }
+    }
+
+    /**
+     * Exchange timestamp of the batch of trades, which is the timestamp of its last trade.
+     */
+    public static Date lastTimestamp(List<? extends Trade> trades) {
+        return trades.isEmpty() ? null : trades.get(trades.size() - 1).getTimestamp();
+    }
+
+    /**
+     * Exchange timestamp of a fixed-point DTO, which is zero when unknown.
+     */
+    public static Date fixedPointTimestamp(long timestamp) {
+        return timestamp == 0 ? null : new Date(timestamp);
+    }
+
+    /**
+     * Exchange timestamp of the batch of fixed-point trades, which is the timestamp of its last trade.
+     */
+    public static Date lastFixedPointTimestamp(List<FixedPointTrade> trades) {
+        return trades.isEmpty() ? null : fixedPointTimestamp(trades.get(trades.size() - 1).getTimestamp());
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder(exchange);
+        for (ChannelMetrics metrics : channels.values()) {
+            builder.append('\n').append(metrics);
+        }
+        return builder.toString();
+    }
+
+    private static final class ReceivedMessage<T> {
+        private final T message;
+        private final long receiveNanos;
+        private final long parsedNanos;
+
+        ReceivedMessage(T message, long receiveNanos, long parsedNanos) {
+            this.message = message;
+            this.receiveNanos = receiveNanos;
+            this.parsedNanos = parsedNanos;
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package info.bitrich.xchangestream.core.replay;
+
+import info.bitrich.xchangestream.core.StreamingExchange;
+import info.bitrich.xchangestream.core.StreamingMarketDataService;
+import info.bitrich.xchangestream.core.metrics.StreamingMetrics;
+import info.bitrich.xchangestream.service.journal.FrameJournalReader;
+import info.bitrich.xchangestream.service.journal.JournalRecord;
+import info.bitrich.xchangestream.service.journal.ReplayableStreamingService;
+import io.reactivex.Completable;
+import org.knowm.xchange.ExchangeSpecification;
+import org.knowm.xchange.currency.CurrencyPair;
+import org.knowm.xchange.dto.meta.ExchangeMetaData;
+import org.knowm.xchange.exceptions.ExchangeException;
+import org.knowm.xchange.service.account.AccountService;
+import org.knowm.xchange.service.marketdata.MarketDataService;
+import org.knowm.xchange.service.trade.TradeService;
+import si.mazi.rescu.SynchronizedValueFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Exchange that replays frames recorded by {@link StreamingExchange#setJournal} instead of connecting to the
+ * exchange. The frames go through the streaming service and market data service of the wrapped exchange, so
+ * subscribers get the same {@link org.knowm.xchange.dto.marketdata.OrderBook}, ticker and trade streams as from the
+ * live exchange.
+ * <p>
+ * Replay is deterministic: frames are passed to subscribers one by one on the thread that subscribed to
+ * {@link #replay()}, in the order they were recorded, paced by the {@link VirtualClock}.
+ * </p>
+ * <pre>
+ * StreamingExchange live = StreamingExchangeFactory.INSTANCE.createExchange(specification);
+ * ReplayStreamingExchange exchange = new ReplayStreamingExchange(live, journalDirectory, VirtualClock.maxSpeed());
+ * exchange.connect().blockingAwait();
+ * exchange.getStreamingMarketDataService().getOrderBook(CurrencyPair.BTC_USD).subscribe(...);
+ * exchange.replay().blockingAwait();
+ * </pre>
+ */
+public class ReplayStreamingExchange implements StreamingExchange {
+    private final StreamingExchange exchange;
+    private final ReplayableStreamingService streamingService;
+    private final Path journalDirectory;
+    private final VirtualClock clock;
+
+    /**
+     * @param exchange         Exchange the frames were recorded from. Its streaming service is switched to offline
+     *                         mode, so it must not be connected, and its time is read from the clock.
+     * @param journalDirectory Directory of the journal written by
+     *                         {@link info.bitrich.xchangestream.service.journal.MappedFrameJournal}.
+     * @param clock            Clock pacing the replay.
+     */
+    public ReplayStreamingExchange(StreamingExchange exchange, Path journalDirectory, VirtualClock clock) {
+        this.exchange = exchange;
+        this.streamingService = exchange.getReplayableService();
+        if (streamingService == null) {
+            throw new IllegalArgumentException("Exchange does not support replay.");
+        }
+        this.journalDirectory = journalDirectory;
+        this.clock = clock;
+        streamingService.setOffline(true);
+        exchange.setClock(clock);
+    }
+
+    /**
+     * Replays the journal from its beginning. Subscribe to the streams before the replay starts, frames received
+     * without subscriber are dropped the same way as live ones.
+     *
+     * @return {@link Completable} that completes once the last frame of the journal is replayed.
+     */
+    public Completable replay() {
+        return Completable.fromAction(() -> {
+            clock.reset();
+            try (FrameJournalReader reader = new FrameJournalReader(journalDirectory)) {
+                while (reader.hasNext()) {
+                    JournalRecord record = reader.next();
+                    clock.advanceTo(record.getEpochNanos());
+                    streamingService.replayFrame(record.getChannel(), record.getPayload());
+                }
+            }
+        });
+    }
+
+    /**
+     * Clock of the replay, its time is the recorded time of the frame being replayed.
+     */
+    public VirtualClock getClock() {
+        return clock;
+    }
+
+    /**
+     * Completes immediately, there is no connection to open.
+     */
+    @Override
+    public Completable connect() {
+        return exchange.connect();
+    }
+
+    @Override
+    public Completable disconnect() {
+        return exchange.disconnect();
+    }
+
+    @Override
+    public StreamingMarketDataService getStreamingMarketDataService() {
+        return exchange.getStreamingMarketDataService();
+    }
+
+    @Override
+    public StreamingMetrics getMetrics() {
+        return exchange.getMetrics();
+    }
+
+    @Override
+    public ReplayableStreamingService getReplayableService() {
+        return streamingService;
+    }
+
+    @Override
+    public ExchangeSpecification getExchangeSpecification() {
+        return exchange.getExchangeSpecification();
+    }
+
+    @Override
+    public ExchangeMetaData getExchangeMetaData() {
+        return exchange.getExchangeMetaData();
+    }
+
+    @Override
+    public List<CurrencyPair> getExchangeSymbols() {
+        return exchange.getExchangeSymbols();
+    }
+
+    @Override
+    public SynchronizedValueFactory<Long> getNonceFactory() {
+        return exchange.getNonceFactory();
+    }
+
+    @Override
+    public ExchangeSpecification getDefaultExchangeSpecification() {
+        return exchange.getDefaultExchangeSpecification();
+    }
+
+    @Override
+    public void applySpecification(ExchangeSpecification exchangeSpecification) {
+        exchange.applySpecification(exchangeSpecification);
+    }
+
+    @Override
+    public MarketDataService getMarketDataService() {
+        return exchange.getMarketDataService();
+    }
+
+    @Override
+    public TradeService getTradeService() {
+        return exchange.getTradeService();
+    }
+
+    @Override
+    public AccountService getAccountService() {
+        return exchange.getAccountService();
+    }
+
+    @Override
+    public void remoteInit() throws IOException, ExchangeException {
+        exchange.remoteInit();
+    }
+}
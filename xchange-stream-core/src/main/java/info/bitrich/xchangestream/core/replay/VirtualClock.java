@@ -0,0 +1,99 @@
+package info.bitrich.xchangestream.core.replay;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Clock of the replay. Time of the clock is the recorded time of the last replayed frame, so code that reads the
+ * time from the clock gets the same values no matter how fast the replay runs.
+ * <p>
+ * The clock also paces the replay: at real time or scaled speed {@link #advanceTo(long)} waits until the wall clock
+ * catches up with the recording, at {@link #maxSpeed()} it never waits.
+ * </p>
+ */
+public final class VirtualClock {
+    private final double speed;
+    private volatile long epochNanos;
+    private boolean started;
+    private long originEpochNanos;
+    private long originSystemNanos;
+
+    private VirtualClock(double speed) {
+        if (!(speed > 0)) {
+            throw new IllegalArgumentException("Speed must be positive.");
+        }
+        this.speed = speed;
+    }
+
+    /**
+     * Replays frames at the pace they were recorded.
+     */
+    public static VirtualClock realTime() {
+        return new VirtualClock(1);
+    }
+
+    /**
+     * Replays frames faster or slower than recorded, e.g. speed 10 replays an hour of recording in 6 minutes.
+     */
+    public static VirtualClock scaled(double speed) {
+        return new VirtualClock(speed);
+    }
+
+    /**
+     * Replays frames one after another without waiting.
+     */
+    public static VirtualClock maxSpeed() {
+        return new VirtualClock(Double.POSITIVE_INFINITY);
+    }
+
+    public double getSpeed() {
+        return speed;
+    }
+
+    /**
+     * Starts a new replay, next frame becomes the origin of the pacing.
+     */
+    public void reset() {
+        started = false;
+    }
+
+    /**
+     * Moves time of the clock to the recorded time of the frame, waiting until the frame is due at the speed of the
+     * clock. Time of the clock never goes backwards.
+     *
+     * @param recordedEpochNanos Wall clock time the frame was recorded at, in nanoseconds since epoch.
+     */
+    public void advanceTo(long recordedEpochNanos) throws InterruptedException {
+        if (!started) {
+            started = true;
+            originEpochNanos = recordedEpochNanos;
+            originSystemNanos = System.nanoTime();
+        } else if (speed != Double.POSITIVE_INFINITY) {
+            long due = originSystemNanos + (long) ((recordedEpochNanos - originEpochNanos) / speed);
+            long delay;
+            while ((delay = due - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(delay);
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+            }
+        }
+        if (recordedEpochNanos > epochNanos) {
+            epochNanos = recordedEpochNanos;
+        }
+    }
+
+    /**
+     * Current time of the clock in nanoseconds since epoch, zero before the first frame.
+     */
+    public long currentTimeNanos() {
+        return epochNanos;
+    }
+
+    /**
+     * Current time of the clock in milliseconds since epoch, zero before the first frame.
+     */
+    public long currentTimeMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(epochNanos);
+    }
+}
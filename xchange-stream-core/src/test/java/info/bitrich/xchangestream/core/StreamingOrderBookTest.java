@@ -0,0 +1,78 @@
+package info.bitrich.xchangestream.core;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.knowm.xchange.currency.CurrencyPair;
+import org.knowm.xchange.dto.Order;
+import org.knowm.xchange.dto.marketdata.OrderBook;
+import org.knowm.xchange.dto.trade.LimitOrder;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class StreamingOrderBookTest {
+
+    private StreamingOrderBook orderBook;
+
+    @Before
+    public void setUp() throws Exception {
+        orderBook = new StreamingOrderBook(CurrencyPair.BTC_USD);
+    }
+
+    @Test
+    public void testLevelsAreSortedBestFirst() throws Exception {
+        orderBook.update(Order.OrderType.ASK, new BigDecimal("821.7"), new BigDecimal("2.89"));
+        orderBook.update(Order.OrderType.ASK, new BigDecimal("821.6"), new BigDecimal("0.035"));
+        orderBook.update(Order.OrderType.BID, new BigDecimal("818.63"), new BigDecimal("0.085"));
+        orderBook.update(Order.OrderType.BID, new BigDecimal("819.9"), new BigDecimal("0.922"));
+
+        assertThat(orderBook.getBestAskPrice()).isEqualByComparingTo("821.6");
+        assertThat(orderBook.getBestBidPrice()).isEqualByComparingTo("819.9");
+        assertThat(orderBook.getBestBid()).isEqualTo(limitOrder(Order.OrderType.BID, "819.9", "0.922"));
+        assertThat(orderBook.getAsks(1)).containsExactly(limitOrder(Order.OrderType.ASK, "821.6", "0.035"));
+        assertThat(orderBook.getBids(5)).extracting(LimitOrder::getLimitPrice)
+                .containsExactly(new BigDecimal("819.9"), new BigDecimal("818.63"));
+    }
+
+    @Test
+    public void testUpdatesAreAppliedInPlace() throws Exception {
+        orderBook.update(Order.OrderType.ASK, new BigDecimal("10"), new BigDecimal("1"));
+        orderBook.update(Order.OrderType.ASK, new BigDecimal("11"), new BigDecimal("1"));
+
+        // Same price in different scale is the same level.
+        orderBook.update(Order.OrderType.ASK, new BigDecimal("10.00"), new BigDecimal("3"));
+        assertThat(orderBook.getDepth(Order.OrderType.ASK)).isEqualTo(2);
+        assertThat(orderBook.getBestAsk().getTradableAmount()).isEqualByComparingTo("3");
+
+        // Zero amount removes the level.
+        orderBook.update(Order.OrderType.ASK, new BigDecimal("10"), BigDecimal.ZERO);
+        assertThat(orderBook.getBestAskPrice()).isEqualByComparingTo("11");
+
+        orderBook.remove(Order.OrderType.ASK, new BigDecimal("11"));
+        assertThat(orderBook.getBestAsk()).isNull();
+        assertThat(orderBook.getAsks(10)).isEmpty();
+    }
+
+    @Test
+    public void testSnapshotReplacesContent() throws Exception {
+        orderBook.update(Order.OrderType.BID, new BigDecimal("1"), new BigDecimal("1"));
+
+        OrderBook snapshot = new OrderBook(new Date(1484602135246L),
+                Arrays.asList(limitOrder(Order.OrderType.ASK, "3", "1"), limitOrder(Order.OrderType.ASK, "2", "1")),
+                Arrays.asList(limitOrder(Order.OrderType.BID, "1.5", "2")));
+        orderBook.snapshot(snapshot);
+
+        OrderBook expected = new OrderBook(new Date(1484602135246L),
+                Arrays.asList(limitOrder(Order.OrderType.ASK, "2", "1"), limitOrder(Order.OrderType.ASK, "3", "1")),
+                Arrays.asList(limitOrder(Order.OrderType.BID, "1.5", "2")));
+        assertThat(orderBook.toOrderBook()).isEqualTo(expected);
+        assertThat(orderBook.toOrderBook(1).getAsks()).hasSize(1);
+    }
+
+    private static LimitOrder limitOrder(Order.OrderType type, String price, String amount) {
+        return new LimitOrder(type, new BigDecimal(amount), CurrencyPair.BTC_USD, null, null, new BigDecimal(price));
+    }
+}
@@ -0,0 +1,153 @@
+package info.bitrich.xchangestream.core.bus;
+
+import info.bitrich.xchangestream.core.StreamingMarketDataService;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.subjects.PublishSubject;
+import org.junit.After;
+import org.junit.Test;
+import org.knowm.xchange.currency.CurrencyPair;
+import org.knowm.xchange.dto.Order;
+import org.knowm.xchange.dto.marketdata.Trade;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class MarketDataBusTest {
+
+    private static final int PRODUCERS = 4;
+
+    private MarketDataBus bus;
+
+    @After
+    public void tearDown() {
+        if (bus != null) {
+            bus.close();
+        }
+    }
+
+    @Test
+    public void testDeliversEventsOfAllProducersInOrderBusySpin() throws Exception {
+        // Spinning threads compete for the CPU when there are fewer cores than threads, keep the test short.
+        testDeliversEventsOfAllProducersInOrder(WaitStrategy.busySpin(), 500);
+    }
+
+    @Test
+    public void testDeliversEventsOfAllProducersInOrderYielding() throws Exception {
+        testDeliversEventsOfAllProducersInOrder(WaitStrategy.yielding(), 20_000);
+    }
+
+    @Test
+    public void testDeliversEventsOfAllProducersInOrderParking() throws Exception {
+        testDeliversEventsOfAllProducersInOrder(WaitStrategy.parking(1000), 20_000);
+    }
+
+    private void testDeliversEventsOfAllProducersInOrder(WaitStrategy waitStrategy, int events) throws Exception {
+        // Small ring makes producers wrap around and wait for consumers many times.
+        bus = new MarketDataBus(64, waitStrategy);
+        Checker first = new Checker();
+        Checker second = new Checker();
+        bus.addConsumer("first", first).addConsumer("second", second);
+        bus.start();
+
+        List<Thread> producers = new ArrayList<>();
+        for (int p = 0; p < PRODUCERS; p++) {
+            String exchange = "exchange-" + p;
+            Thread producer = new Thread(() -> {
+                for (int i = 0; i < events; i++) {
+                    bus.publish(MarketDataEvent.Type.TRADE, exchange, CurrencyPair.BTC_USD, i);
+                }
+            });
+            producers.add(producer);
+            producer.start();
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+
+        for (int i = 0; i < 1000 && (first.count.get() < PRODUCERS * events || second.count.get() < PRODUCERS * events); i++) {
+            Thread.sleep(10);
+        }
+        for (Checker checker : new Checker[]{first, second}) {
+            assertThat(checker.errors).isEmpty();
+            assertThat(checker.count.get()).isEqualTo(PRODUCERS * events);
+            assertThat(checker.batches.get()).isGreaterThan(0);
+        }
+        assertThat(bus.getCursor()).isEqualTo(PRODUCERS * events - 1);
+    }
+
+    @Test
+    public void testPublishesTradesOfMarketDataService() throws Exception {
+        PublishSubject<Trade> trades = PublishSubject.create();
+        StreamingMarketDataService service = mock(StreamingMarketDataService.class);
+        when(service.getTrades(CurrencyPair.BTC_EUR)).thenReturn(trades);
+
+        List<String> received = new CopyOnWriteArrayList<>();
+        bus = new MarketDataBus(8, WaitStrategy.yielding());
+        bus.addConsumer("consumer", (event, sequence, endOfBatch) ->
+                received.add(event.getType() + " " + event.getExchange() + " " + event.getCurrencyPair() + " " +
+                        event.getTrade().getPrice()));
+        bus.start();
+
+        Disposable disposable = bus.publishTrades("Bitstamp", service, CurrencyPair.BTC_EUR);
+        trades.onNext(new Trade(Order.OrderType.BID, BigDecimal.ONE, CurrencyPair.BTC_EUR, BigDecimal.TEN, null, "1"));
+        disposable.dispose();
+
+        for (int i = 0; i < 100 && received.isEmpty(); i++) {
+            Thread.sleep(10);
+        }
+        assertThat(received).containsExactly("TRADE Bitstamp BTC/EUR 10");
+        assertThat(trades.hasObservers()).isFalse();
+    }
+
+    @Test
+    public void testRejectsInvalidUse() {
+        assertThatThrownBy(() -> new MarketDataBus(100, WaitStrategy.busySpin()))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        bus = new MarketDataBus(8, WaitStrategy.busySpin());
+        assertThatThrownBy(() -> bus.publish(MarketDataEvent.Type.TICKER, "OkCoin", CurrencyPair.BTC_USD, null))
+                .isInstanceOf(IllegalStateException.class);
+
+        bus.addConsumer("consumer", (event, sequence, endOfBatch) -> {
+        });
+        bus.start();
+        assertThatThrownBy(() -> bus.addConsumer("late", (event, sequence, endOfBatch) -> {
+        })).isInstanceOf(IllegalStateException.class);
+    }
+
+    /**
+     * Checks that sequences are consecutive and events of every producer come in the order they were published.
+     */
+    private static class Checker implements MarketDataEventHandler {
+        private final int[] next = new int[PRODUCERS];
+        private final AtomicInteger count = new AtomicInteger();
+        private final AtomicInteger batches = new AtomicInteger();
+        private final List<String> errors = Collections.synchronizedList(new ArrayList<>());
+        private long expectedSequence;
+
+        @Override
+        public void onEvent(MarketDataEvent event, long sequence, boolean endOfBatch) {
+            if (sequence != expectedSequence++) {
+                errors.add("Sequence " + sequence + " instead of " + (expectedSequence - 1));
+            }
+            int producer = Integer.parseInt(event.getExchange().substring("exchange-".length()));
+            int value = (Integer) event.getPayload();
+            if (value != next[producer]++) {
+                errors.add("Event " + value + " of " + event.getExchange() + " instead of " + (next[producer] - 1));
+            }
+            if (endOfBatch) {
+                batches.incrementAndGet();
+            }
+            count.incrementAndGet();
+        }
+    }
+}
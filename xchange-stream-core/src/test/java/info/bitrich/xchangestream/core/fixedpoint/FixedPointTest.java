@@ -0,0 +1,89 @@
+package info.bitrich.xchangestream.core.fixedpoint;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class FixedPointTest {
+
+    @Test
+    public void testParse() throws Exception {
+        assertThat(FixedPoint.parse("821.65", 4)).isEqualTo(8216500L);
+        assertThat(FixedPoint.parse("-0.035", 3)).isEqualTo(-35L);
+        assertThat(FixedPoint.parse("+12", 2)).isEqualTo(1200L);
+        assertThat(FixedPoint.parse("0.00000001", 8)).isEqualTo(1L);
+        assertThat(FixedPoint.parse("0", 8)).isEqualTo(0L);
+        assertThat(FixedPoint.parse(".5", 1)).isEqualTo(5L);
+    }
+
+    @Test
+    public void testParseRoundsHalfUp() throws Exception {
+        assertThat(FixedPoint.parse("914.38999999999999", 2)).isEqualTo(91439L);
+        assertThat(FixedPoint.parse("0.125", 2)).isEqualTo(13L);
+        assertThat(FixedPoint.parse("0.124", 2)).isEqualTo(12L);
+        assertThat(FixedPoint.parse("-0.125", 2)).isEqualTo(-13L);
+        assertThat(FixedPoint.parse("0.123456789012345678901", 18)).isEqualTo(123456789012345679L);
+    }
+
+    @Test
+    public void testParseExponent() throws Exception {
+        assertThat(FixedPoint.parse("8.2165E2", 2)).isEqualTo(82165L);
+        assertThat(FixedPoint.parse("1.5e-5", 8)).isEqualTo(1500L);
+        assertThat(FixedPoint.parse("1E+3", 0)).isEqualTo(1000L);
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void testParseInvalid() throws Exception {
+        FixedPoint.parse("1,625.23", 2);
+    }
+
+    @Test
+    public void testParseWithoutDigits() throws Exception {
+        for (String text : new String[]{".", "-", "+", "-.", ".e5"}) {
+            assertThatThrownBy(() -> FixedPoint.parse(text, 2)).isInstanceOf(NumberFormatException.class);
+        }
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void testParseOverflow() throws Exception {
+        FixedPoint.parse("92233720368547758.07", 8);
+    }
+
+    @Test
+    public void testParseJsonTokens() throws Exception {
+        JsonParser parser = new JsonFactory().createParser("[821.65, \"0.035\", 3]");
+        parser.nextToken();
+
+        parser.nextToken();
+        assertThat(FixedPoint.parse(parser, 8)).isEqualTo(82165000000L);
+        parser.nextToken();
+        assertThat(FixedPoint.parse(parser, 8)).isEqualTo(3500000L);
+        parser.nextToken();
+        assertThat(FixedPoint.parse(parser, 8)).isEqualTo(300000000L);
+    }
+
+    @Test
+    public void testParseJsonNodes() throws Exception {
+        JsonNode nodes = new ObjectMapper().readTree("[\"821.65\", 3, 0.035, \"\", null]");
+
+        assertThat(FixedPoint.parse(nodes.get(0), 4)).isEqualTo(8216500L);
+        assertThat(FixedPoint.parse(nodes.get(1), 8)).isEqualTo(300000000L);
+        assertThat(FixedPoint.parse(nodes.get(2), 8)).isEqualTo(3500000L);
+        assertThatThrownBy(() -> FixedPoint.parse(nodes.get(3), 2)).isInstanceOf(NumberFormatException.class);
+        assertThatThrownBy(() -> FixedPoint.parse(nodes.get(4), 2)).isInstanceOf(NumberFormatException.class);
+    }
+
+    @Test
+    public void testBigDecimalConversions() throws Exception {
+        assertThat(FixedPoint.toBigDecimal(8216500L, 4)).isEqualByComparingTo("821.65");
+        assertThat(FixedPoint.fromBigDecimal(new BigDecimal("821.655"), 2)).isEqualTo(82166L);
+        assertThat(FixedPoint.toDouble(8216500L, 4)).isEqualTo(821.65);
+    }
+}
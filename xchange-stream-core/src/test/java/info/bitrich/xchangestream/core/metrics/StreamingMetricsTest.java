@@ -0,0 +1,94 @@
+package info.bitrich.xchangestream.core.metrics;
+
+import info.bitrich.xchangestream.service.backpressure.OverflowStrategy;
+import info.bitrich.xchangestream.service.metrics.FrameContext;
+import io.reactivex.subjects.PublishSubject;
+import io.reactivex.subscribers.TestSubscriber;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class StreamingMetricsTest {
+
+    private StreamingMetrics metrics;
+    private PublishSubject<String> messages;
+
+    @Before
+    public void setUp() {
+        metrics = new StreamingMetrics("Test");
+        messages = PublishSubject.create();
+    }
+
+    @Test
+    public void testRecordsLatenciesOfMessage() throws Exception {
+        metrics.setEnabled(true);
+        long exchangeTimestamp = System.currentTimeMillis() - 5;
+        messages.compose(metrics.adapt("channel", Integer::valueOf, value -> new Date(exchangeTimestamp)))
+                .subscribe(value -> Thread.sleep(2));
+
+        long receiveNanos = System.nanoTime();
+        FrameContext.current().received(receiveNanos);
+        FrameContext.current().parsed(receiveNanos + 1000);
+        messages.onNext("1");
+
+        ChannelMetrics channel = metrics.getChannels().get("channel");
+        assertThat(channel.getMessageCount()).isEqualTo(1);
+        assertThat(channel.getLastReceiveNanos()).isEqualTo(receiveNanos);
+        assertThat(channel.getParse().getMaxValue()).isEqualTo(1000);
+        assertThat(channel.getEmit().getTotalCount()).isEqualTo(1);
+        assertThat(channel.getConsume().getMaxValue()).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(2));
+        assertThat(channel.getWire().getMaxValue()).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(4));
+        assertThat(channel.getLastExchangeTimestamp()).isEqualTo(exchangeTimestamp);
+    }
+
+    @Test
+    public void testFlowableKeepsReceiveTimeUntilRequested() throws Exception {
+        metrics.setEnabled(true);
+        TestSubscriber<Integer> test = metrics.adaptFlowable("channel", messages, OverflowStrategy.LATEST,
+                Integer::valueOf, value -> null).test(0);
+
+        long receiveNanos = System.nanoTime();
+        FrameContext.current().received(receiveNanos);
+        messages.onNext("1");
+        FrameContext.current().received(receiveNanos + 1);
+        messages.onNext("2");
+        FrameContext.current().received(0);
+        Thread.sleep(2);
+        test.request(1);
+
+        test.assertValues(2);
+        ChannelMetrics channel = metrics.getChannels().get("channel");
+        // Dropped message is neither adapted nor measured.
+        assertThat(channel.getMessageCount()).isEqualTo(1);
+        assertThat(channel.getLastReceiveNanos()).isEqualTo(receiveNanos + 1);
+        assertThat(channel.getEmit().getMaxValue()).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(2));
+    }
+
+    @Test
+    public void testDisabledMetricsRecordNothing() {
+        messages.compose(metrics.adapt("channel", Integer::valueOf, value -> null))
+                .test();
+
+        messages.onNext("1");
+
+        assertThat(metrics.channel("channel").getMessageCount()).isZero();
+        assertThat(metrics.channel("channel").getEmit().getTotalCount()).isZero();
+    }
+
+    @Test
+    public void testMissingExchangeTimestampSkipsWireLatency() {
+        metrics.setEnabled(true);
+        messages.compose(metrics.adapt("channel", Integer::valueOf, value -> null))
+                .test()
+                .assertNoErrors();
+
+        messages.onNext("1");
+
+        assertThat(metrics.channel("channel").getMessageCount()).isEqualTo(1);
+        assertThat(metrics.channel("channel").getWire().getTotalCount()).isZero();
+    }
+}
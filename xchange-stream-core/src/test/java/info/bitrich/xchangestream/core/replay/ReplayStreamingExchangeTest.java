@@ -0,0 +1,98 @@
+package info.bitrich.xchangestream.core.replay;
+
+import info.bitrich.xchangestream.core.StreamingExchange;
+import info.bitrich.xchangestream.service.journal.FrameJournal;
+import info.bitrich.xchangestream.service.journal.MappedFrameJournal;
+import info.bitrich.xchangestream.service.journal.ReplayableStreamingService;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ReplayStreamingExchangeTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private RecordingService streamingService;
+    private StreamingExchange exchange;
+    private Path journal;
+
+    @Before
+    public void setUp() throws Exception {
+        streamingService = new RecordingService();
+        exchange = mock(StreamingExchange.class);
+        when(exchange.getReplayableService()).thenReturn(streamingService);
+
+        journal = folder.getRoot().toPath();
+        try (MappedFrameJournal frameJournal = new MappedFrameJournal(journal)) {
+            frameJournal.append(System.nanoTime(), "trades", "first");
+            frameJournal.append(System.nanoTime(), "orderbook", "second");
+            frameJournal.append(System.nanoTime(), "trades", "third");
+        }
+    }
+
+    @Test
+    public void testServiceIsOffline() throws Exception {
+        new ReplayStreamingExchange(exchange, journal, VirtualClock.maxSpeed());
+
+        assertThat(streamingService.offline).isTrue();
+    }
+
+    @Test
+    public void testExchangeReadsTimeFromClock() throws Exception {
+        VirtualClock clock = VirtualClock.maxSpeed();
+
+        new ReplayStreamingExchange(exchange, journal, clock);
+
+        verify(exchange).setClock(clock);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testExchangeWithoutReplayableService() throws Exception {
+        new ReplayStreamingExchange(mock(StreamingExchange.class), journal, VirtualClock.maxSpeed());
+    }
+
+    @Test
+    public void testReplaysFramesInOrder() throws Exception {
+        ReplayStreamingExchange replay = new ReplayStreamingExchange(exchange, journal, VirtualClock.maxSpeed());
+
+        replay.replay().blockingAwait();
+
+        assertThat(streamingService.frames).containsExactly("trades first", "orderbook second", "trades third");
+        assertThat(replay.getClock().currentTimeMillis()).isGreaterThan(0);
+
+        // Replay can be repeated.
+        replay.replay().blockingAwait();
+        assertThat(streamingService.frames).hasSize(6);
+    }
+
+    private static class RecordingService implements ReplayableStreamingService {
+        private final List<String> frames = new ArrayList<>();
+        private boolean offline;
+
+        @Override
+        public void setJournal(FrameJournal journal) {
+        }
+
+        @Override
+        public void setOffline(boolean offline) {
+            this.offline = offline;
+        }
+
+        @Override
+        public void replayFrame(String channel, byte[] payload) {
+            frames.add(channel + " " + new String(payload, StandardCharsets.UTF_8));
+        }
+    }
+}
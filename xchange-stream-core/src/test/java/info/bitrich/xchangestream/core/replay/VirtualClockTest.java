@@ -0,0 +1,51 @@
+package info.bitrich.xchangestream.core.replay;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class VirtualClockTest {
+
+    @Test
+    public void testMaxSpeedDoesNotWait() throws Exception {
+        VirtualClock clock = VirtualClock.maxSpeed();
+
+        long start = System.nanoTime();
+        clock.advanceTo(TimeUnit.SECONDS.toNanos(1));
+        clock.advanceTo(TimeUnit.SECONDS.toNanos(3601));
+
+        assertThat(System.nanoTime() - start).isLessThan(TimeUnit.SECONDS.toNanos(1));
+        assertThat(clock.currentTimeMillis()).isEqualTo(3601000);
+    }
+
+    @Test
+    public void testScaledSpeedWaitsForFrame() throws Exception {
+        VirtualClock clock = VirtualClock.scaled(10);
+
+        clock.advanceTo(TimeUnit.SECONDS.toNanos(1));
+        long start = System.nanoTime();
+        // Second of recording takes 100 ms at ten times the speed.
+        clock.advanceTo(TimeUnit.SECONDS.toNanos(2));
+
+        assertThat(System.nanoTime() - start).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(90));
+        assertThat(clock.currentTimeNanos()).isEqualTo(TimeUnit.SECONDS.toNanos(2));
+    }
+
+    @Test
+    public void testTimeNeverGoesBackwards() throws Exception {
+        VirtualClock clock = VirtualClock.maxSpeed();
+        assertThat(clock.currentTimeNanos()).isZero();
+
+        clock.advanceTo(200);
+        clock.advanceTo(100);
+
+        assertThat(clock.currentTimeNanos()).isEqualTo(200);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSpeedMustBePositive() {
+        VirtualClock.scaled(0);
+    }
+}